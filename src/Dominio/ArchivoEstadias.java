@@ -0,0 +1,319 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Archivo de estadías cerradas (una entrada con su salida) que ya no usan las pantallas de
+ * entrada y salida. Las estadías se agregan al final de segmentos de tamaño fijo mapeados en
+ * memoria (prefijo.000001, prefijo.000002, ...), de modo que no ocupan lugar en el heap: el
+ * sistema solo conserva la posición de cada estadía y la lee del segmento cuando un reporte
+ * la necesita.
+ *
+ * Los segmentos solo crecen. Las estadías vigentes son las que figuran en el archivo de datos
+ * (ver Sistema.grabar); una estadía agregada después de la última grabación, o de un vehículo
+ * eliminado, queda en el segmento pero ya no se lee.
+ *
+ * Cada segmento empieza con el número mágico, la versión y la cantidad de bytes usados. Cada
+ * estadía guarda su largo, la fecha/hora de la entrada y de la salida, los indicadores de
+ * contrato, los dos empleados y los textos de la entrada y la salida. El vehículo no se guarda:
+ * el sistema registra las posiciones de cada vehículo.
+ */
+public class ArchivoEstadias implements AutoCloseable {
+    // Propiedad del sistema con la antigüedad en días a partir de la cual se archiva una estadía (0 no archiva)
+    public static final String PROPIEDAD_DIAS = "parking.archivo.dias";
+    public static final int DIAS_POR_DEFECTO = 90;
+
+    // "PKAR" en ASCII
+    private static final int MAGICO = 0x504B4152;
+    private static final int VERSION = 1;
+
+    // Tamaño de cada segmento y de su encabezado (número mágico, versión y bytes usados)
+    private static final int TAMAÑO_SEGMENTO = 8 * 1024 * 1024;
+    private static final int ENCABEZADO = 16;
+    private static final int POSICION_USADO = 8;
+
+    // Desplazamientos dentro de cada estadía, después de su largo
+    private static final int MINUTO_ENTRADA = 4;
+    private static final int MINUTO_SALIDA = 12;
+
+    private final Path directorio;
+    private final String prefijo;
+
+    // Segmentos mapeados, en orden; el último es en el que se agregan las estadías
+    private final List<MappedByteBuffer> segmentos = new ArrayList<>();
+
+    // Primer segmento con estadías agregadas que todavía no se forzaron a disco
+    private int primerSinForzar;
+
+    /**
+     * Abre los segmentos existentes en un directorio.
+     * @param directorio Directorio de los segmentos
+     * @param prefijo Prefijo del nombre de los segmentos
+     * @throws IOException Si no se puede abrir algún segmento o no está en este formato
+     */
+    public ArchivoEstadias(Path directorio, String prefijo) throws IOException {
+        this.directorio = directorio;
+        this.prefijo = prefijo;
+        for (int numero = 1; Files.exists(getArchivo(numero)); numero++) {
+            MappedByteBuffer segmento = mapear(numero);
+            if (segmento.getInt(0) != MAGICO || segmento.getInt(4) != VERSION) {
+                throw new IOException("El segmento " + getArchivo(numero).getFileName() + " no es un archivo de estadías");
+            }
+            segmentos.add(segmento);
+        }
+        // Las estadías siguientes se agregan al último segmento existente
+        primerSinForzar = Math.max(segmentos.size() - 1, 0);
+    }
+
+    /**
+     * Obtiene la antigüedad a partir de la cual se archivan las estadías, configurada con la
+     * propiedad del sistema parking.archivo.dias (por ejemplo, -Dparking.archivo.dias=30).
+     * @return Días de antigüedad, o el valor por defecto si la propiedad no es válida
+     */
+    public static int getDiasConfigurados() {
+        try {
+            int dias = Integer.parseInt(System.getProperty(PROPIEDAD_DIAS, String.valueOf(DIAS_POR_DEFECTO)));
+            return Math.max(dias, 0);
+        } catch (NumberFormatException e) {
+            return DIAS_POR_DEFECTO;
+        }
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Agrega una estadía cerrada al final del archivo. La estadía queda escrita en memoria;
+     * llegará al disco a más tardar al llamar a forzar().
+     * @param entrada La entrada de la estadía
+     * @param salida La salida de la estadía
+     * @return Posición de la estadía en el archivo
+     * @throws IOException Si no se puede crear un segmento nuevo
+     */
+    public synchronized long agregar(Entrada entrada, Salida salida) throws IOException {
+        byte[] contenido = codificar(entrada, salida);
+        int largo = Integer.BYTES + contenido.length;
+        if (largo > TAMAÑO_SEGMENTO - ENCABEZADO) {
+            throw new IOException("La estadía es demasiado grande para el archivo de estadías");
+        }
+        MappedByteBuffer segmento = segmentos.isEmpty() ? null : segmentos.get(segmentos.size() - 1);
+        if (segmento == null || getUsado(segmento) + largo > TAMAÑO_SEGMENTO) {
+            segmento = crearSegmento(segmentos.size() + 1);
+            segmentos.add(segmento);
+        }
+        int desplazamiento = (int) getUsado(segmento);
+        segmento.putInt(desplazamiento, contenido.length);
+        segmento.put(desplazamiento + Integer.BYTES, contenido);
+        segmento.putLong(POSICION_USADO, desplazamiento + largo);
+        return ((long) (segmentos.size() - 1) << 32) | desplazamiento;
+    }
+
+    /**
+     * Escribe en disco las estadías agregadas desde la llamada anterior.
+     */
+    public synchronized void forzar() {
+        for (int i = primerSinForzar; i < segmentos.size(); i++) {
+            segmentos.get(i).force();
+        }
+        primerSinForzar = Math.max(segmentos.size() - 1, 0);
+    }
+
+    private static byte[] codificar(Entrada entrada, Salida salida) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(entrada.getMinutoEpoch());
+        out.writeLong(salida.getMinutoEpoch());
+        out.writeBoolean(entrada.getTieneContrato());
+        out.writeBoolean(salida.getTeniaContrato());
+        escribirEmpleado(out, entrada.getEmpleado());
+        escribirEmpleado(out, salida.getEmpleado());
+        escribirTexto(out, entrada.getNotas());
+        escribirTexto(out, salida.getComentario());
+        escribirTexto(out, salida.getTiempoEstadia());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void escribirEmpleado(DataOutputStream out, Empleado empleado) throws IOException {
+        if (empleado == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(empleado.getNumeroEmpleado());
+        out.writeBoolean(empleado.getActivo());
+        escribirTexto(out, empleado.getCedula());
+        escribirTexto(out, empleado.getNombre());
+        escribirTexto(out, empleado.getDireccion());
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Obtiene la fecha/hora de la entrada de una estadía sin leer el resto de sus datos.
+     * @param posicion Posición de la estadía
+     * @return Minuto epoch de la entrada
+     */
+    public synchronized long getMinutoEntrada(long posicion) {
+        return getSegmento(posicion).getLong(getDesplazamiento(posicion) + MINUTO_ENTRADA);
+    }
+
+    /**
+     * Obtiene la fecha/hora de la salida de una estadía sin leer el resto de sus datos.
+     * @param posicion Posición de la estadía
+     * @return Minuto epoch de la salida
+     */
+    public synchronized long getMinutoSalida(long posicion) {
+        return getSegmento(posicion).getLong(getDesplazamiento(posicion) + MINUTO_SALIDA);
+    }
+
+    /**
+     * Lee una estadía y la devuelve como una salida con su entrada.
+     * @param posicion Posición de la estadía
+     * @param vehiculo Vehículo de la estadía
+     * @param empleados Empleados por número. Si un empleado de la estadía no está (o es otro con
+     *                  el mismo número), se crea uno con los datos guardados y se agrega si faltaba
+     * @return La salida de la estadía; getEntrada() devuelve su entrada
+     */
+    public synchronized Salida leer(long posicion, Vehiculo vehiculo, Map<Integer, Empleado> empleados) {
+        Lector in = new Lector(getSegmento(posicion), getDesplazamiento(posicion) + MINUTO_ENTRADA);
+        long minutoEntrada = in.largo();
+        long minutoSalida = in.largo();
+        boolean tieneContrato = in.booleano();
+        boolean teniaContrato = in.booleano();
+        Empleado empleadoEntrada = in.empleado(empleados);
+        Empleado empleadoSalida = in.empleado(empleados);
+        String notas = in.texto();
+        String comentario = in.texto();
+        String tiempoEstadia = in.texto();
+        Entrada entrada = new Entrada(vehiculo, empleadoEntrada, minutoEntrada, notas, tieneContrato);
+        return new Salida(entrada, empleadoSalida, minutoSalida, comentario, teniaContrato, tiempoEstadia);
+    }
+
+    /**
+     * Libera los segmentos. Las estadías agregadas se escriben en disco antes de cerrar.
+     */
+    @Override
+    public synchronized void close() {
+        forzar();
+        segmentos.clear();
+        primerSinForzar = 0;
+    }
+
+    // ==================== SEGMENTOS ====================
+
+    private MappedByteBuffer getSegmento(long posicion) {
+        return segmentos.get((int) (posicion >>> 32));
+    }
+
+    private static int getDesplazamiento(long posicion) {
+        return (int) posicion;
+    }
+
+    private static long getUsado(MappedByteBuffer segmento) {
+        return segmento.getLong(POSICION_USADO);
+    }
+
+    private MappedByteBuffer crearSegmento(int numero) throws IOException {
+        MappedByteBuffer segmento = mapear(numero);
+        segmento.putInt(0, MAGICO);
+        segmento.putInt(4, VERSION);
+        segmento.putLong(POSICION_USADO, ENCABEZADO);
+        return segmento;
+    }
+
+    // El mapeo sigue siendo válido después de cerrar el canal
+    private MappedByteBuffer mapear(int numero) throws IOException {
+        try (FileChannel canal = FileChannel.open(getArchivo(numero), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMAÑO_SEGMENTO);
+        }
+    }
+
+    private Path getArchivo(int numero) {
+        return directorio.resolve(String.format("%s.%06d", prefijo, numero));
+    }
+
+    /**
+     * Lee los valores de una estadía con lecturas absolutas, sin mover la posición del segmento.
+     */
+    private static class Lector {
+        private final MappedByteBuffer segmento;
+        private int posicion;
+
+        Lector(MappedByteBuffer segmento, int posicion) {
+            this.segmento = segmento;
+            this.posicion = posicion;
+        }
+
+        int entero() {
+            int valor = segmento.getInt(posicion);
+            posicion += Integer.BYTES;
+            return valor;
+        }
+
+        long largo() {
+            long valor = segmento.getLong(posicion);
+            posicion += Long.BYTES;
+            return valor;
+        }
+
+        boolean booleano() {
+            return segmento.get(posicion++) != 0;
+        }
+
+        String texto() {
+            int largo = entero();
+            if (largo < 0) {
+                return null;
+            }
+            byte[] utf8 = new byte[largo];
+            segmento.get(posicion, utf8);
+            posicion += largo;
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        Empleado empleado(Map<Integer, Empleado> empleados) {
+            int numero = entero();
+            if (numero < 0) {
+                return null;
+            }
+            boolean activo = booleano();
+            String cedula = texto();
+            String nombre = texto();
+            String direccion = texto();
+            Empleado conocido = empleados.get(numero);
+            if (conocido != null && conocido.getCedula().equals(cedula)) {
+                return conocido;
+            }
+            // Empleado eliminado del sistema: se recrea con los datos que tenía al archivar la estadía
+            Empleado empleado = new Empleado(cedula, nombre, direccion, numero);
+            empleado.setActivo(activo);
+            empleados.putIfAbsent(numero, empleado);
+            return empleado;
+        }
+    }
+}
@@ -0,0 +1,614 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Bitácora de operaciones del sistema (registro de solo agregado).
+ * Cada operación que modifica el sistema (altas, bajas, modificaciones y movimientos) se agrega al final
+ * de la bitácora como un registro compacto, de modo que guardarla cuesta una escritura chica
+ * en lugar de volver a grabar todos los datos. Al cargar, los registros posteriores a la
+ * última grabación completa se vuelven a aplicar sobre ella.
+ *
+ * La bitácora se divide en segmentos numerados (prefijo.000001, prefijo.000002, ...).
+ * Al grabar los datos completos se pasa a un segmento nuevo y los anteriores se eliminan
+ * una vez que la grabación terminó.
+ *
+ * Formato de cada registro: largo (int), CRC32 del contenido (int) y contenido
+ * (tipo de operación en un byte seguido de sus datos). Un registro incompleto o dañado al
+ * final de un segmento (por ejemplo, por un corte durante la escritura) se descarta.
+ */
+public class Bitacora implements AutoCloseable {
+    // Tipos de registro
+    private static final byte CLIENTE_AGREGADO = 1;
+    private static final byte CLIENTE_ELIMINADO = 2;
+    private static final byte VEHICULO_AGREGADO = 3;
+    private static final byte VEHICULO_ELIMINADO = 4;
+    private static final byte MATRICULA_MODIFICADA = 5;
+    private static final byte EMPLEADO_AGREGADO = 6;
+    private static final byte EMPLEADO_ELIMINADO = 7;
+    private static final byte CONTRATO_AGREGADO = 8;
+    private static final byte CONTRATO_MODIFICADO = 9;
+    private static final byte ENTRADA = 10;
+    private static final byte SALIDA = 11;
+    private static final byte SERVICIO = 12;
+    private static final byte SERVICIO_ELIMINADO = 13;
+    private static final byte REINICIO = 14;
+    private static final byte CLIENTE_MODIFICADO = 15;
+    private static final byte VEHICULO_MODIFICADO = 16;
+    private static final byte EMPLEADO_MODIFICADO = 17;
+
+    // Largo del encabezado de cada registro: largo y CRC32
+    private static final int ENCABEZADO = 8;
+
+    // Largo máximo del contenido de un registro; un largo mayor indica un registro dañado
+    private static final int LARGO_MAXIMO = 1 << 20;
+
+    private final Path directorio;
+    private final String prefijo;
+
+    // Segmento en el que se agregan los registros y canal abierto sobre él
+    private long segmentoActual;
+    private FileChannel canal;
+
+    // Registros del lote en curso (ver iniciarLote), o null si cada registro se escribe al anotarlo
+    private ByteArrayOutputStream lote;
+
+    /**
+     * Crea una bitácora sobre los segmentos de un directorio. No abre ningún segmento
+     * hasta llamar a abrir().
+     * @param directorio Directorio de los segmentos
+     * @param prefijo Prefijo del nombre de los segmentos
+     */
+    public Bitacora(Path directorio, String prefijo) {
+        this.directorio = directorio;
+        this.prefijo = prefijo;
+    }
+
+    // ==================== SEGMENTOS ====================
+
+    /**
+     * Abre para agregar registros el último segmento existente, o el segmento indicado si no
+     * hay segmentos a partir de él.
+     * @param segmentoMinimo Primer segmento que no está incluido en la última grabación completa
+     * @throws IOException Si no se puede abrir el segmento
+     */
+    public synchronized void abrir(long segmentoMinimo) throws IOException {
+        long ultimo = segmentoMinimo;
+        for (long segmento : listarSegmentos().keySet()) {
+            ultimo = Math.max(ultimo, segmento);
+        }
+        abrirSegmento(ultimo);
+    }
+
+    /**
+     * Pasa a un segmento nuevo: los registros siguientes se agregan en él.
+     * @return Número del segmento nuevo
+     * @throws IOException Si no se puede crear el segmento
+     */
+    public synchronized long rotar() throws IOException {
+        long siguiente = segmentoActual + 1;
+        cerrarCanal();
+        abrirSegmento(siguiente);
+        return siguiente;
+    }
+
+    /**
+     * Elimina los segmentos anteriores al indicado (ya incluidos en una grabación completa).
+     * @param segmento Primer segmento que se conserva
+     * @throws IOException Si no se puede eliminar algún segmento
+     */
+    public synchronized void eliminarAnteriores(long segmento) throws IOException {
+        for (var par : listarSegmentos().entrySet()) {
+            if (par.getKey() < segmento) {
+                Files.deleteIfExists(par.getValue());
+            }
+        }
+    }
+
+    /**
+     * Elimina los segmentos a partir del indicado, con operaciones que no se grabaron y se
+     * descartan. No debe haber un segmento abierto.
+     * @param segmento Primer segmento que se elimina
+     * @throws IOException Si no se puede eliminar algún segmento
+     */
+    public synchronized void eliminarDesde(long segmento) throws IOException {
+        for (var par : listarSegmentos().tailMap(segmento).entrySet()) {
+            Files.deleteIfExists(par.getValue());
+        }
+    }
+
+    /**
+     * Obtiene el número del segmento en el que se agregan los registros.
+     * @return Número de segmento
+     */
+    public synchronized long getSegmentoActual() {
+        return segmentoActual;
+    }
+
+    /**
+     * Cierra el segmento abierto. Los registros ya agregados quedan en el archivo.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        cerrarCanal();
+    }
+
+    private void abrirSegmento(long segmento) throws IOException {
+        Path archivo = getArchivo(segmento);
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Descarta un posible registro incompleto al final antes de seguir agregando
+        canal.truncate(largoValido(archivo));
+        canal.position(canal.size());
+        segmentoActual = segmento;
+    }
+
+    private void cerrarCanal() throws IOException {
+        escribirLote();
+        if (canal != null) {
+            canal.close();
+            canal = null;
+        }
+    }
+
+    private Path getArchivo(long segmento) {
+        return directorio.resolve(String.format("%s.%06d", prefijo, segmento));
+    }
+
+    /**
+     * Obtiene los segmentos existentes ordenados por número.
+     * @return Mapa de número de segmento a archivo
+     */
+    private TreeMap<Long, Path> listarSegmentos() throws IOException {
+        TreeMap<Long, Path> segmentos = new TreeMap<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, prefijo + ".*")) {
+            for (Path archivo : archivos) {
+                String sufijo = archivo.getFileName().toString().substring(prefijo.length() + 1);
+                if (sufijo.matches("\\d+")) {
+                    segmentos.put(Long.parseLong(sufijo), archivo);
+                }
+            }
+        }
+        return segmentos;
+    }
+
+    // ==================== ESCRITURA ====================
+    // Las invoca el sistema luego de aplicar cada operación
+
+    void anotarClienteAgregado(Cliente cliente) {
+        anotar(CLIENTE_AGREGADO, out -> {
+            escribirTexto(out, cliente.getCedula());
+            escribirTexto(out, cliente.getNombre());
+            escribirTexto(out, cliente.getDireccion());
+            escribirTexto(out, cliente.getCelular());
+            out.writeInt(cliente.getAñoIngreso());
+        });
+    }
+
+    // Se anota la cédula anterior a la modificación, para encontrar al cliente si cambió
+    void anotarClienteModificado(String cedula, Cliente cliente) {
+        anotar(CLIENTE_MODIFICADO, out -> {
+            escribirTexto(out, cedula);
+            escribirTexto(out, cliente.getCedula());
+            escribirTexto(out, cliente.getNombre());
+            escribirTexto(out, cliente.getDireccion());
+            escribirTexto(out, cliente.getCelular());
+            out.writeInt(cliente.getAñoIngreso());
+        });
+    }
+
+    void anotarClienteEliminado(String cedula) {
+        anotar(CLIENTE_ELIMINADO, out -> escribirTexto(out, cedula));
+    }
+
+    void anotarVehiculoAgregado(Vehiculo vehiculo) {
+        anotar(VEHICULO_AGREGADO, out -> {
+            escribirTexto(out, vehiculo.getMatricula());
+            escribirTexto(out, vehiculo.getMarca());
+            escribirTexto(out, vehiculo.getModelo());
+            escribirTexto(out, vehiculo.getEstado());
+            escribirTexto(out, vehiculo.getCliente() != null ? vehiculo.getCliente().getCedula() : null);
+            out.writeBoolean(vehiculo.getTieneContrato());
+        });
+    }
+
+    void anotarVehiculoModificado(Vehiculo vehiculo) {
+        anotar(VEHICULO_MODIFICADO, out -> {
+            escribirTexto(out, vehiculo.getMatricula());
+            escribirTexto(out, vehiculo.getMarca());
+            escribirTexto(out, vehiculo.getModelo());
+            escribirTexto(out, vehiculo.getEstado());
+            escribirTexto(out, vehiculo.getCliente() != null ? vehiculo.getCliente().getCedula() : null);
+            out.writeBoolean(vehiculo.getTieneContrato());
+        });
+    }
+
+    void anotarVehiculoEliminado(String matricula) {
+        anotar(VEHICULO_ELIMINADO, out -> escribirTexto(out, matricula));
+    }
+
+    void anotarMatriculaModificada(String anterior, String nueva) {
+        anotar(MATRICULA_MODIFICADA, out -> {
+            escribirTexto(out, anterior);
+            escribirTexto(out, nueva);
+        });
+    }
+
+    void anotarEmpleadoAgregado(Empleado empleado) {
+        anotar(EMPLEADO_AGREGADO, out -> {
+            escribirTexto(out, empleado.getCedula());
+            escribirTexto(out, empleado.getNombre());
+            escribirTexto(out, empleado.getDireccion());
+            out.writeInt(empleado.getNumeroEmpleado());
+            out.writeBoolean(empleado.getActivo());
+        });
+    }
+
+    // Se anota el número anterior a la modificación, para encontrar al empleado si cambió
+    void anotarEmpleadoModificado(int numeroEmpleado, Empleado empleado) {
+        anotar(EMPLEADO_MODIFICADO, out -> {
+            out.writeInt(numeroEmpleado);
+            escribirTexto(out, empleado.getCedula());
+            escribirTexto(out, empleado.getNombre());
+            escribirTexto(out, empleado.getDireccion());
+            out.writeInt(empleado.getNumeroEmpleado());
+            out.writeBoolean(empleado.getActivo());
+        });
+    }
+
+    void anotarEmpleadoEliminado(int numeroEmpleado) {
+        anotar(EMPLEADO_ELIMINADO, out -> out.writeInt(numeroEmpleado));
+    }
+
+    void anotarContratoAgregado(Contrato contrato) {
+        anotar(CONTRATO_AGREGADO, out -> {
+            escribirTexto(out, contrato.getCliente().getCedula());
+            escribirTexto(out, contrato.getVehiculo().getMatricula());
+            out.writeInt(contrato.getEmpleado().getNumeroEmpleado());
+            out.writeDouble(contrato.getValorMensual());
+        });
+    }
+
+    void anotarContratoModificado(Contrato contrato) {
+        anotar(CONTRATO_MODIFICADO, out -> {
+            out.writeInt(contrato.getId());
+            out.writeDouble(contrato.getValorMensual());
+            out.writeBoolean(contrato.getActivo());
+        });
+    }
+
+    void anotarEntrada(Entrada entrada) {
+        anotar(ENTRADA, out -> {
+            escribirTexto(out, entrada.getVehiculo().getMatricula());
+            out.writeInt(entrada.getEmpleado().getNumeroEmpleado());
+            out.writeLong(entrada.getMinutoEpoch());
+            escribirTexto(out, entrada.getNotas());
+            out.writeBoolean(entrada.getTieneContrato());
+        });
+    }
+
+    void anotarSalida(Salida salida) {
+        anotar(SALIDA, out -> {
+            escribirTexto(out, salida.getEntrada().getVehiculo().getMatricula());
+            out.writeInt(salida.getEmpleado().getNumeroEmpleado());
+            out.writeLong(salida.getMinutoEpoch());
+            escribirTexto(out, salida.getComentario());
+            out.writeBoolean(salida.getTeniaContrato());
+            escribirTexto(out, salida.getTiempoEstadia());
+        });
+    }
+
+    void anotarServicio(Servicio servicio) {
+        anotar(SERVICIO, out -> escribirServicio(out, servicio));
+    }
+
+    void anotarServicioEliminado(Servicio servicio) {
+        anotar(SERVICIO_ELIMINADO, out -> escribirServicio(out, servicio));
+    }
+
+    void anotarReinicio() {
+        anotar(REINICIO, out -> { });
+    }
+
+    private static void escribirServicio(DataOutputStream out, Servicio servicio) throws IOException {
+        escribirTexto(out, servicio.getTipo());
+        escribirTexto(out, servicio.getVehiculo().getMatricula());
+        out.writeInt(servicio.getEmpleado().getNumeroEmpleado());
+        out.writeLong(servicio.getMinutoEpoch());
+        out.writeDouble(servicio.getCosto());
+    }
+
+    /**
+     * Agrega un registro al final del segmento actual.
+     * @param tipo Tipo de operación
+     * @param contenido Escribe los datos de la operación
+     * @throws UncheckedIOException Si no se puede escribir en la bitácora
+     */
+    private synchronized void anotar(byte tipo, Contenido contenido) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(tipo);
+            contenido.escribir(out);
+            byte[] datos = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(datos);
+            ByteBuffer registro = ByteBuffer.allocate(ENCABEZADO + datos.length);
+            registro.putInt(datos.length).putInt((int) crc.getValue()).put(datos).flip();
+            if (lote != null) {
+                lote.write(registro.array(), 0, registro.limit());
+                return;
+            }
+            while (registro.hasRemaining()) {
+                canal.write(registro);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir en la bitácora", e);
+        }
+    }
+
+    /**
+     * Empieza un lote: los registros siguientes se acumulan y se escriben juntos, con una
+     * sola escritura, al llamar a terminarLote().
+     */
+    synchronized void iniciarLote() {
+        if (lote == null) {
+            lote = new ByteArrayOutputStream(4096);
+        }
+    }
+
+    /**
+     * Escribe los registros del lote en curso y vuelve a escribir cada registro al anotarlo.
+     * @throws UncheckedIOException Si no se puede escribir en la bitácora
+     */
+    synchronized void terminarLote() {
+        try {
+            escribirLote();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir en la bitácora", e);
+        } finally {
+            lote = null;
+        }
+    }
+
+    private void escribirLote() throws IOException {
+        if (lote == null || lote.size() == 0) {
+            return;
+        }
+        ByteBuffer registros = ByteBuffer.wrap(lote.toByteArray());
+        lote.reset();
+        while (registros.hasRemaining()) {
+            canal.write(registros);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    // Escribe los datos de una operación
+    private interface Contenido {
+        void escribir(DataOutputStream out) throws IOException;
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Vuelve a aplicar sobre el sistema las operaciones de los segmentos indicados, en orden.
+     * Las operaciones que no se pueden aplicar se informan y se omiten.
+     * @param sistema Sistema restaurado desde la última grabación completa
+     * @param segmentoMinimo Primer segmento que no está incluido en esa grabación
+     * @return Cantidad de operaciones aplicadas
+     * @throws IOException Si no se puede leer algún segmento
+     */
+    public int reproducir(Sistema sistema, long segmentoMinimo) throws IOException {
+        int aplicadas = 0;
+        for (Path archivo : listarSegmentos().tailMap(segmentoMinimo).values()) {
+            for (byte[] registro : leerRegistros(archivo)) {
+                try {
+                    aplicar(sistema, new DataInputStream(new ByteArrayInputStream(registro)));
+                    aplicadas++;
+                } catch (UncheckedIOException e) {
+                    // Una partición de movimientos que no se pudo leer detiene la carga
+                    throw e.getCause();
+                } catch (RuntimeException e) {
+                    System.err.println("Operación de la bitácora omitida: " + e.getMessage());
+                }
+            }
+        }
+        return aplicadas;
+    }
+
+    private static void aplicar(Sistema sistema, DataInputStream in) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case CLIENTE_AGREGADO -> sistema.agregarCliente(new Cliente(
+                leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in), in.readInt()));
+            case CLIENTE_MODIFICADO -> {
+                String cedula = leerTexto(in);
+                Cliente cliente = sistema.buscarCliente(cedula);
+                if (cliente == null) {
+                    throw new IllegalStateException("No existe el cliente " + cedula);
+                }
+                String nueva = leerTexto(in);
+                if (!nueva.equals(cedula)) {
+                    cliente.setCedula(nueva);
+                }
+                cliente.setNombre(leerTexto(in));
+                cliente.setDireccion(leerTexto(in));
+                cliente.setCelular(leerTexto(in));
+                cliente.setAñoIngreso(in.readInt());
+            }
+            case CLIENTE_ELIMINADO -> sistema.eliminarCliente(leerTexto(in));
+            case VEHICULO_AGREGADO -> {
+                Vehiculo vehiculo = new Vehiculo(leerTexto(in), leerTexto(in), leerTexto(in), leerTexto(in));
+                String cedula = leerTexto(in);
+                if (cedula != null) {
+                    vehiculo.setCliente(sistema.buscarCliente(cedula));
+                }
+                vehiculo.setTieneContrato(in.readBoolean());
+                sistema.agregarVehiculo(vehiculo);
+            }
+            case VEHICULO_MODIFICADO -> {
+                Vehiculo vehiculo = buscarVehiculo(sistema, leerTexto(in));
+                vehiculo.setMarca(leerTexto(in));
+                vehiculo.setModelo(leerTexto(in));
+                vehiculo.setEstado(leerTexto(in));
+                String cedula = leerTexto(in);
+                vehiculo.setCliente(cedula != null ? sistema.buscarCliente(cedula) : null);
+                vehiculo.setTieneContrato(in.readBoolean());
+            }
+            case VEHICULO_ELIMINADO -> sistema.eliminarVehiculo(sistema.buscarVehiculo(leerTexto(in)));
+            case MATRICULA_MODIFICADA -> buscarVehiculo(sistema, leerTexto(in)).setMatricula(leerTexto(in));
+            case EMPLEADO_AGREGADO -> {
+                Empleado empleado = new Empleado(leerTexto(in), leerTexto(in), leerTexto(in), in.readInt());
+                empleado.setActivo(in.readBoolean());
+                sistema.agregarEmpleado(empleado);
+            }
+            case EMPLEADO_MODIFICADO -> {
+                int numero = in.readInt();
+                Empleado empleado = sistema.buscarEmpleado(numero);
+                if (empleado == null) {
+                    throw new IllegalStateException("No existe el empleado #" + numero);
+                }
+                empleado.setCedula(leerTexto(in));
+                empleado.setNombre(leerTexto(in));
+                empleado.setDireccion(leerTexto(in));
+                int nuevo = in.readInt();
+                if (nuevo != numero) {
+                    empleado.setNumeroEmpleado(nuevo);
+                }
+                empleado.setActivo(in.readBoolean());
+            }
+            case EMPLEADO_ELIMINADO -> sistema.eliminarEmpleado(sistema.buscarEmpleado(in.readInt()));
+            case CONTRATO_AGREGADO -> sistema.agregarContrato(new Contrato(0,
+                sistema.buscarCliente(leerTexto(in)), sistema.buscarVehiculo(leerTexto(in)),
+                sistema.buscarEmpleado(in.readInt()), in.readDouble()));
+            case CONTRATO_MODIFICADO -> {
+                int id = in.readInt();
+                Contrato contrato = sistema.buscarContratoPorId(id);
+                if (contrato == null) {
+                    throw new IllegalStateException("No existe el contrato #" + id);
+                }
+                contrato.setValorMensual(in.readDouble());
+                contrato.setActivo(in.readBoolean());
+            }
+            case ENTRADA -> sistema.registrarEntrada(new Entrada(
+                buscarVehiculo(sistema, leerTexto(in)), sistema.buscarEmpleado(in.readInt()),
+                in.readLong(), leerTexto(in), in.readBoolean()), false);
+            case SALIDA -> {
+                String matricula = leerTexto(in);
+                Entrada entrada = sistema.buscarEntradaPorMatricula(matricula);
+                if (entrada == null) {
+                    throw new IllegalStateException("El vehículo " + matricula + " no tiene una entrada abierta");
+                }
+                sistema.registrarSalida(new Salida(entrada, sistema.buscarEmpleado(in.readInt()),
+                    in.readLong(), leerTexto(in), in.readBoolean(), leerTexto(in)));
+            }
+            case SERVICIO -> sistema.registrarServicio(leerServicio(sistema, in));
+            case SERVICIO_ELIMINADO -> {
+                Servicio leido = leerServicio(sistema, in);
+                sistema.eliminarServicio(sistema.buscarServicio(leido.getVehiculo(), leido.getMinutoEpoch(),
+                    leido.getTipo(), leido.getCosto()));
+            }
+            case REINICIO -> sistema.reiniciarSistema();
+            default -> throw new IllegalStateException("Tipo de registro desconocido: " + tipo);
+        }
+    }
+
+    private static Servicio leerServicio(Sistema sistema, DataInputStream in) throws IOException {
+        String tipo = leerTexto(in);
+        Vehiculo vehiculo = buscarVehiculo(sistema, leerTexto(in));
+        return new Servicio(tipo, vehiculo, sistema.buscarEmpleado(in.readInt()), in.readLong(), in.readDouble());
+    }
+
+    private static Vehiculo buscarVehiculo(Sistema sistema, String matricula) {
+        Vehiculo vehiculo = sistema.buscarVehiculo(matricula);
+        if (vehiculo == null) {
+            throw new IllegalStateException("No existe el vehículo " + matricula);
+        }
+        return vehiculo;
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Lee los registros completos de un segmento, deteniéndose en el primero incompleto o dañado.
+     * @param archivo El segmento a leer
+     * @return Contenido de cada registro válido
+     */
+    private static List<byte[]> leerRegistros(Path archivo) throws IOException {
+        List<byte[]> registros = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            byte[] registro;
+            while ((registro = leerRegistro(in)) != null) {
+                registros.add(registro);
+            }
+        }
+        return registros;
+    }
+
+    /**
+     * Calcula el largo de la parte válida de un segmento (sin un registro incompleto al final).
+     * @param archivo El segmento
+     * @return Cantidad de bytes de registros completos
+     */
+    private static long largoValido(Path archivo) throws IOException {
+        long largo = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            byte[] registro;
+            while ((registro = leerRegistro(in)) != null) {
+                largo += ENCABEZADO + registro.length;
+            }
+        }
+        return largo;
+    }
+
+    /**
+     * Lee un registro.
+     * @return El contenido del registro, o null si no hay más registros válidos
+     */
+    private static byte[] leerRegistro(DataInputStream in) throws IOException {
+        try {
+            int largo = in.readInt();
+            int crcEsperado = in.readInt();
+            if (largo <= 0 || largo > LARGO_MAXIMO) {
+                return null;
+            }
+            byte[] datos = in.readNBytes(largo);
+            if (datos.length < largo) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(datos);
+            return (int) crc.getValue() == crcEsperado ? datos : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entidades modificadas, eliminadas y movimientos nuevos desde la última grabación del sistema.
+ * Con estos cambios se graba un archivo de cambios (ver Delta) en lugar de todos los datos.
+ *
+ * Las entidades se identifican por su clave (cédula del cliente, matrícula del vehículo, número
+ * de empleado y número de contrato). Si alguna clave cambia, o el sistema se reinicia, los
+ * cambios ya no se pueden expresar así y la próxima grabación debe ser completa.
+ */
+class CambiosPendientes {
+    // Entidades agregadas o modificadas, en el orden en que cambiaron por primera vez
+    final Set<Cliente> clientes = new LinkedHashSet<>();
+    final Set<Vehiculo> vehiculos = new LinkedHashSet<>();
+    final Set<Empleado> empleados = new LinkedHashSet<>();
+    final Set<Contrato> contratos = new LinkedHashSet<>();
+
+    // Claves de las entidades eliminadas
+    final Set<String> clientesEliminados = new LinkedHashSet<>();
+    final Set<String> vehiculosEliminados = new LinkedHashSet<>();
+    final Set<Integer> empleadosEliminados = new LinkedHashSet<>();
+
+    // Servicios eliminados que ya estaban grabados
+    final List<Servicio> serviciosEliminados = new ArrayList<>();
+
+    // Entradas, salidas y servicios nuevos, en el orden en que se registraron
+    final List<Object> movimientos = new ArrayList<>();
+
+    // Indica que la próxima grabación debe ser completa
+    private boolean requiereGrabacionCompleta;
+
+    void clienteEliminado(Cliente cliente) {
+        clientes.remove(cliente);
+        clientesEliminados.add(cliente.getCedula());
+    }
+
+    void vehiculoEliminado(Vehiculo vehiculo) {
+        vehiculos.remove(vehiculo);
+        vehiculosEliminados.add(vehiculo.getMatricula());
+        // Sus movimientos nuevos se eliminan con él
+        movimientos.removeIf(m -> getVehiculo(m) == vehiculo);
+        serviciosEliminados.removeIf(s -> s.getVehiculo() == vehiculo);
+    }
+
+    void empleadoEliminado(Empleado empleado) {
+        empleados.remove(empleado);
+        empleadosEliminados.add(empleado.getNumeroEmpleado());
+    }
+
+    void servicioEliminado(Servicio servicio) {
+        // Un servicio que todavía no se grabó solo se quita de los movimientos nuevos
+        if (!movimientos.removeIf(m -> m == servicio)) {
+            serviciosEliminados.add(servicio);
+        }
+    }
+
+    void requerirGrabacionCompleta() {
+        requiereGrabacionCompleta = true;
+    }
+
+    boolean requiereGrabacionCompleta() {
+        return requiereGrabacionCompleta;
+    }
+
+    boolean estaVacio() {
+        return clientes.isEmpty() && vehiculos.isEmpty() && empleados.isEmpty() && contratos.isEmpty()
+            && clientesEliminados.isEmpty() && vehiculosEliminados.isEmpty() && empleadosEliminados.isEmpty()
+            && serviciosEliminados.isEmpty() && movimientos.isEmpty();
+    }
+
+    private static Vehiculo getVehiculo(Object movimiento) {
+        if (movimiento instanceof Entrada e) return e.getVehiculo();
+        if (movimiento instanceof Salida s) return s.getEntrada().getVehiculo();
+        if (movimiento instanceof Servicio s) return s.getVehiculo();
+        return null;
+    }
+}
@@ -8,12 +8,17 @@ import java.io.Serializable;
 
 //Representa un cliente del parking, con cédula, nombre, dirección, celular y año de ingreso
 public class Cliente implements Serializable {
+    // Valor calculado de la versión sin el campo sistema, para seguir leyendo los archivos DATOS.ser existentes
+    private static final long serialVersionUID = -1687482760432207058L;
     private String cedula;
     private String nombre;
     private String direccion;
     private String celular;
     private int añoIngreso;
     
+    // Sistema en el que está registrado el cliente, para registrar sus modificaciones
+    transient Sistema sistema;
+    
     /* Crea un objeto de tipo Cliente. Se asume que los datos son correctos; unaCedula cédula de identidad del cliente,
     unNombre nombre completo del cliente, unaDireccion dirección del cliente, unCelular número de celular del cliente,
     unAñoIngreso año en que el cliente comenzó a usar el parking. */
@@ -48,23 +53,37 @@ public class Cliente implements Serializable {
     
     //Seters
     public void setCedula(String unaCedula) {
+        String anterior = this.cedula;
         this.cedula = unaCedula;
+        if (sistema != null) {
+            sistema.cedulaModificada(this, anterior);
+        }
     }
     
     public void setNombre(String unNombre) {
         this.nombre = unNombre;
+        modificado();
     }
    
     public void setDireccion(String unaDireccion) {
         this.direccion = unaDireccion;
+        modificado();
     }
     
     public void setCelular(String unCelular) {
         this.celular = unCelular;
+        modificado();
     }
     
     public void setAñoIngreso(int unAñoIngreso) {
         this.añoIngreso = unAñoIngreso;
+        modificado();
+    }
+    
+    private void modificado() {
+        if (sistema != null) {
+            sistema.clienteModificado(this);
+        }
     }
     
     // Representación en String del cliente
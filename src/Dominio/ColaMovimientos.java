@@ -0,0 +1,256 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cola de las entradas, salidas y servicios que se registran desde las puertas.
+ * Las ventanas encolan cada movimiento y un único hilo los toma de la cola y los registra
+ * en el sistema en lotes (ver Sistema.registrarMovimientos), por lo que en las horas pico las
+ * puertas no compiten entre sí por el sistema y cada lote lo bloquea una sola vez.
+ *
+ * La cola tiene una capacidad fija. Si está llena, el movimiento se rechaza enseguida, para no
+ * trabar el hilo de la interfaz que lo encola; los hilos que pueden esperar (por ejemplo, los
+ * que atienden la API de las puertas) piden esperar lugar hasta ESPERA_COLA_LLENA milisegundos.
+ * Cada movimiento encolado devuelve un resultado que se completa cuando quedó registrado,
+ * o con la excepción del sistema si no se pudo registrar. Si quedó registrado pero no se pudo
+ * anotar en la bitácora, se completa con MovimientoSinBitacoraException: el movimiento figura
+ * en el sistema y se guarda con la próxima grabación.
+ */
+public class ColaMovimientos implements AutoCloseable {
+    // Propiedad del sistema con la cantidad máxima de movimientos esperando en la cola
+    public static final String PROPIEDAD_CAPACIDAD = "parking.movimientos.capacidad";
+    public static final int CAPACIDAD_POR_DEFECTO = 1024;
+
+    // Cantidad máxima de movimientos registrados en un mismo lote
+    private static final int TAMAÑO_LOTE = 256;
+
+    // Milisegundos que se espera lugar en la cola llena antes de rechazar un movimiento
+    private static final long ESPERA_COLA_LLENA = 2000;
+
+    // Marca que se encola al cerrar: el hilo registra lo anterior y termina
+    private static final Pedido FIN = new Pedido(null);
+
+    // Sistema donde se registran; se obtiene en cada lote porque puede reemplazarse al recuperar datos
+    private final Supplier<Sistema> sistema;
+    private final BlockingQueue<Pedido> cola;
+    private final Thread escritor;
+    private volatile boolean cerrada;
+
+    /**
+     * Crea la cola e inicia el hilo que registra los movimientos.
+     * @param sistema Proveedor del sistema donde se registran los movimientos
+     * @param capacidad Cantidad máxima de movimientos esperando en la cola
+     */
+    public ColaMovimientos(Supplier<Sistema> sistema, int capacidad) {
+        this.sistema = sistema;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.escritor = new Thread(this::escribir, "registro-movimientos");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Obtiene la capacidad de la cola configurada con la propiedad del sistema
+     * parking.movimientos.capacidad (por ejemplo, -Dparking.movimientos.capacidad=4096).
+     * @return Capacidad de la cola, o el valor por defecto si la propiedad no es válida
+     */
+    public static int getCapacidadConfigurada() {
+        try {
+            int capacidad = Integer.parseInt(System.getProperty(PROPIEDAD_CAPACIDAD, String.valueOf(CAPACIDAD_POR_DEFECTO)));
+            return capacidad > 0 ? capacidad : CAPACIDAD_POR_DEFECTO;
+        } catch (NumberFormatException e) {
+            return CAPACIDAD_POR_DEFECTO;
+        }
+    }
+
+    /**
+     * Encola una entrada sin esperar; si la cola está llena, la entrada se rechaza.
+     * @param entrada La entrada a registrar
+     * @return Resultado que se completa cuando la entrada quedó registrada
+     */
+    public CompletableFuture<Void> registrarEntrada(Entrada entrada) {
+        return encolar(entrada, false);
+    }
+
+    /**
+     * Encola una entrada.
+     * @param entrada La entrada a registrar
+     * @param esperarLugar true para esperar lugar si la cola está llena (no usar desde la interfaz)
+     * @return Resultado que se completa cuando la entrada quedó registrada
+     */
+    public CompletableFuture<Void> registrarEntrada(Entrada entrada, boolean esperarLugar) {
+        return encolar(entrada, esperarLugar);
+    }
+
+    /**
+     * Encola una salida sin esperar; si la cola está llena, la salida se rechaza.
+     * @param salida La salida a registrar
+     * @return Resultado que se completa cuando la salida quedó registrada
+     */
+    public CompletableFuture<Void> registrarSalida(Salida salida) {
+        return encolar(salida, false);
+    }
+
+    /**
+     * Encola una salida.
+     * @param salida La salida a registrar
+     * @param esperarLugar true para esperar lugar si la cola está llena (no usar desde la interfaz)
+     * @return Resultado que se completa cuando la salida quedó registrada
+     */
+    public CompletableFuture<Void> registrarSalida(Salida salida, boolean esperarLugar) {
+        return encolar(salida, esperarLugar);
+    }
+
+    /**
+     * Encola un servicio sin esperar; si la cola está llena, el servicio se rechaza.
+     * @param servicio El servicio a registrar
+     * @return Resultado que se completa cuando el servicio quedó registrado
+     */
+    public CompletableFuture<Void> registrarServicio(Servicio servicio) {
+        return encolar(servicio, false);
+    }
+
+    /**
+     * Encola un servicio.
+     * @param servicio El servicio a registrar
+     * @param esperarLugar true para esperar lugar si la cola está llena (no usar desde la interfaz)
+     * @return Resultado que se completa cuando el servicio quedó registrado
+     */
+    public CompletableFuture<Void> registrarServicio(Servicio servicio, boolean esperarLugar) {
+        return encolar(servicio, esperarLugar);
+    }
+
+    /**
+     * Obtiene la cantidad de movimientos que esperan ser registrados.
+     * @return Movimientos en la cola
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Deja de aceptar movimientos y espera a que se registren los que ya estaban en la cola.
+     */
+    @Override
+    public void close() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        try {
+            cola.put(FIN);
+            escritor.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Movimientos encolados mientras se cerraba, que ya no se registran
+        for (Pedido pedido; (pedido = cola.poll()) != null; ) {
+            rechazar(pedido);
+        }
+    }
+
+    private static void rechazar(Pedido pedido) {
+        if (pedido != FIN) {
+            pedido.resultado.completeExceptionally(new RejectedExecutionException("La cola de movimientos está cerrada"));
+        }
+    }
+
+    private CompletableFuture<Void> encolar(Object movimiento, boolean esperarLugar) {
+        Pedido pedido = new Pedido(movimiento);
+        if (cerrada) {
+            rechazar(pedido);
+            return pedido.resultado;
+        }
+        try {
+            boolean encolado = esperarLugar
+                ? cola.offer(pedido, ESPERA_COLA_LLENA, TimeUnit.MILLISECONDS)
+                : cola.offer(pedido);
+            if (!encolado) {
+                pedido.resultado.completeExceptionally(new RejectedExecutionException(
+                    "La cola de movimientos está llena; intente nuevamente en unos segundos"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pedido.resultado.completeExceptionally(e);
+        }
+        return pedido.resultado;
+    }
+
+    /**
+     * Ciclo del hilo de registro: espera un movimiento, toma además los que ya estén en la
+     * cola (hasta completar un lote) y los registra juntos.
+     */
+    private void escribir() {
+        List<Pedido> lote = new ArrayList<>(TAMAÑO_LOTE);
+        boolean fin = false;
+        while (!fin) {
+            try {
+                lote.add(cola.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            cola.drainTo(lote, TAMAÑO_LOTE - 1);
+            int ultimo = lote.indexOf(FIN);
+            if (ultimo >= 0) {
+                List<Pedido> rechazados = lote.subList(ultimo, lote.size());
+                rechazados.forEach(ColaMovimientos::rechazar);
+                rechazados.clear();
+                fin = true;
+            }
+            registrar(lote);
+            lote.clear();
+        }
+    }
+
+    private void registrar(List<Pedido> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<Object> movimientos = new ArrayList<>(lote.size());
+        for (Pedido pedido : lote) {
+            movimientos.add(pedido.movimiento);
+        }
+        RuntimeException[] errores;
+        try {
+            errores = sistema.get().registrarMovimientos(movimientos);
+        } catch (RuntimeException e) {
+            lote.forEach(pedido -> pedido.resultado.completeExceptionally(e));
+            return;
+        } catch (Throwable e) {
+            // Un Error no termina el hilo: sin él, ningún movimiento pendiente ni futuro se completaría
+            System.err.println("Error al registrar un lote de movimientos: " + e);
+            lote.forEach(pedido -> pedido.resultado.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            if (errores[i] == null) {
+                lote.get(i).resultado.complete(null);
+            } else {
+                lote.get(i).resultado.completeExceptionally(errores[i]);
+            }
+        }
+    }
+
+    /**
+     * Movimiento encolado y su resultado.
+     */
+    private static final class Pedido {
+        private final Object movimiento;
+        private final CompletableFuture<Void> resultado = new CompletableFuture<>();
+
+        private Pedido(Object movimiento) {
+            this.movimiento = movimiento;
+        }
+    }
+}
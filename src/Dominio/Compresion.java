@@ -0,0 +1,160 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresión con la que se graba el archivo de datos. La mayor parte del archivo son textos
+ * repetidos y números de ancho fijo, que se comprimen bien.
+ *
+ * Al leer, la compresión se detecta por los primeros bytes del archivo: GZIP empieza con
+ * 1F 8B y DEFLATE (formato zlib) con un encabezado de dos bytes múltiplo de 31. Los archivos
+ * sin comprimir empiezan con "PKNG" (SerializadorBinario) o AC ED (serialización de Java),
+ * que no coinciden con ninguno de los dos.
+ */
+public enum Compresion {
+    NINGUNA,
+    DEFLATE,
+    GZIP;
+
+    // Propiedades del sistema con la compresión y el nivel (0 a 9, o -1 para el nivel por defecto)
+    public static final String PROPIEDAD_COMPRESION = "parking.compresion";
+    public static final String PROPIEDAD_NIVEL = "parking.compresion.nivel";
+
+    // Tamaño del buffer del compresor y del descompresor
+    private static final int TAMAÑO_BUFFER = 64 * 1024;
+
+    /**
+     * Obtiene la compresión configurada con la propiedad del sistema parking.compresion
+     * (por ejemplo, -Dparking.compresion=gzip).
+     * @return La compresión configurada, o NINGUNA si la propiedad no está o no es válida
+     */
+    public static Compresion getConfigurada() {
+        try {
+            return valueOf(System.getProperty(PROPIEDAD_COMPRESION, NINGUNA.name()).trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return NINGUNA;
+        }
+    }
+
+    /**
+     * Obtiene el nivel de compresión configurado con la propiedad del sistema parking.compresion.nivel
+     * (por ejemplo, -Dparking.compresion.nivel=1 para comprimir más rápido).
+     * @return Nivel de 0 a 9, o Deflater.DEFAULT_COMPRESSION si la propiedad no está o no es válida
+     */
+    public static int getNivelConfigurado() {
+        try {
+            int nivel = Integer.parseInt(System.getProperty(PROPIEDAD_NIVEL, String.valueOf(Deflater.DEFAULT_COMPRESSION)));
+            return nivel >= Deflater.NO_COMPRESSION && nivel <= Deflater.BEST_COMPRESSION ? nivel : Deflater.DEFAULT_COMPRESSION;
+        } catch (NumberFormatException e) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+    }
+
+    /**
+     * Envuelve un canal para escribir en él los datos comprimidos. Al cerrar el canal devuelto
+     * se termina la compresión y se cierra también el canal original.
+     * @param canal Canal donde se escriben los datos comprimidos
+     * @param nivel Nivel de compresión (0 a 9, o Deflater.DEFAULT_COMPRESSION)
+     * @return Canal donde escribir los datos sin comprimir (el mismo canal si no se comprime)
+     * @throws IOException Si no se puede escribir el encabezado
+     */
+    public WritableByteChannel comprimir(WritableByteChannel canal, int nivel) throws IOException {
+        OutputStream salida = Channels.newOutputStream(canal);
+        switch (this) {
+            case DEFLATE:
+                Deflater compresor = new Deflater(nivel);
+                return Channels.newChannel(new DeflaterOutputStream(salida, compresor, TAMAÑO_BUFFER) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            compresor.end();
+                        }
+                    }
+                });
+            case GZIP:
+                return Channels.newChannel(new GZIPOutputStream(salida, TAMAÑO_BUFFER) {
+                    {
+                        def.setLevel(nivel);
+                    }
+                });
+            default:
+                return canal;
+        }
+    }
+
+    /**
+     * Detecta la compresión de un archivo por sus primeros bytes.
+     * @param canal Canal del archivo, posicionado al principio
+     * @return La compresión del archivo (NINGUNA si no está comprimido)
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public static Compresion detectar(FileChannel canal) throws IOException {
+        ByteBuffer inicio = ByteBuffer.allocate(2);
+        long posicion = canal.position();
+        while (inicio.hasRemaining() && canal.read(inicio, posicion + inicio.position()) >= 0) {
+            // Lee hasta completar los dos bytes o llegar al final
+        }
+        if (inicio.hasRemaining()) {
+            return NINGUNA;
+        }
+        int primero = inicio.get(0) & 0xFF;
+        int segundo = inicio.get(1) & 0xFF;
+        if (primero == 0x1F && segundo == 0x8B) {
+            return GZIP;
+        }
+        // Encabezado zlib: método 8 (deflate) y los dos bytes forman un múltiplo de 31
+        if ((primero & 0x0F) == 8 && (primero >> 4) <= 7 && ((primero << 8) | segundo) % 31 == 0) {
+            return DEFLATE;
+        }
+        return NINGUNA;
+    }
+
+    /**
+     * Envuelve el canal de un archivo para leerlo descomprimido, detectando su compresión.
+     * Al cerrar el canal devuelto se cierra también el canal original.
+     * @param canal Canal del archivo, posicionado al principio
+     * @return Canal de donde leer los datos sin comprimir (el mismo canal si no está comprimido)
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public static ReadableByteChannel descomprimir(FileChannel canal) throws IOException {
+        InputStream entrada = Channels.newInputStream(canal);
+        switch (detectar(canal)) {
+            case DEFLATE:
+                Inflater descompresor = new Inflater();
+                return Channels.newChannel(new InflaterInputStream(entrada, descompresor, TAMAÑO_BUFFER) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            descompresor.end();
+                        }
+                    }
+                });
+            case GZIP:
+                return Channels.newChannel(new GZIPInputStream(entrada, TAMAÑO_BUFFER));
+            default:
+                return canal;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Cuenta ocurrencias por clave (por ejemplo, movimientos por empleado o usos por tipo de servicio).
+ * Además del conteo de cada clave mantiene las claves agrupadas por conteo, de modo que la clave
+ * con más o con menos ocurrencias se obtiene sin recorrer todas las claves.
+ */
+public class Contador<K> {
+    // Conteo actual de cada clave (solo claves con conteo mayor a cero)
+    private final Map<K, Long> conteos = new HashMap<>();
+
+    // Claves agrupadas por su conteo, ordenadas de menor a mayor conteo
+    private final TreeMap<Long, Set<K>> clavesPorConteo = new TreeMap<>();
+
+    /**
+     * Suma una ocurrencia a la clave.
+     * @param clave La clave a incrementar
+     */
+    public void incrementar(K clave) {
+        mover(clave, 1);
+    }
+
+    /**
+     * Resta una ocurrencia a la clave. Si llega a cero, la clave deja de contarse.
+     * @param clave La clave a decrementar
+     */
+    public void decrementar(K clave) {
+        if (conteos.containsKey(clave)) {
+            mover(clave, -1);
+        }
+    }
+
+    /**
+     * Obtiene el conteo de una clave.
+     * @param clave La clave a consultar
+     * @return Cantidad de ocurrencias (0 si la clave no se contó)
+     */
+    public long get(K clave) {
+        return conteos.getOrDefault(clave, 0L);
+    }
+
+    /**
+     * Obtiene la clave con más ocurrencias.
+     * @return Par clave/conteo, o null si no hay claves
+     */
+    public Map.Entry<K, Long> getMayor() {
+        if (clavesPorConteo.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, Set<K>> mayor = clavesPorConteo.lastEntry();
+        return Map.entry(mayor.getValue().iterator().next(), mayor.getKey());
+    }
+
+    /**
+     * Obtiene la clave con menos ocurrencias entre las que cumplen un filtro.
+     * Recorre los conteos de menor a mayor y se detiene en la primera clave que cumple el filtro.
+     * @param filtro Condición que debe cumplir la clave
+     * @return Par clave/conteo, o null si ninguna clave cumple el filtro
+     */
+    public Map.Entry<K, Long> getMenor(Predicate<K> filtro) {
+        for (Map.Entry<Long, Set<K>> grupo : clavesPorConteo.entrySet()) {
+            for (K clave : grupo.getValue()) {
+                if (filtro.test(clave)) {
+                    return Map.entry(clave, grupo.getKey());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si no hay ninguna clave contada.
+     * @return true si está vacío, false en caso contrario
+     */
+    public boolean estaVacio() {
+        return conteos.isEmpty();
+    }
+
+    /**
+     * Obtiene una copia de los conteos.
+     * @return Mapa donde la clave es la clave contada y el valor su cantidad de ocurrencias
+     */
+    public Map<K, Long> comoMapa() {
+        return new HashMap<>(conteos);
+    }
+
+    /**
+     * Suma a este contador los conteos de otro.
+     * @param otro El contador a sumar
+     */
+    public void sumar(Contador<K> otro) {
+        otro.conteos.forEach(this::mover);
+    }
+
+    /**
+     * Elimina todos los conteos.
+     */
+    public void limpiar() {
+        conteos.clear();
+        clavesPorConteo.clear();
+    }
+
+    /**
+     * Cambia el conteo de una clave y la mueve al grupo correspondiente.
+     * @param clave La clave a modificar
+     * @param diferencia Cantidad a sumar (puede ser negativa)
+     */
+    private void mover(K clave, long diferencia) {
+        long anterior = conteos.getOrDefault(clave, 0L);
+        long nuevo = anterior + diferencia;
+        if (anterior > 0) {
+            Set<K> grupo = clavesPorConteo.get(anterior);
+            grupo.remove(clave);
+            if (grupo.isEmpty()) {
+                clavesPorConteo.remove(anterior);
+            }
+        }
+        if (nuevo > 0) {
+            conteos.put(clave, nuevo);
+            clavesPorConteo.computeIfAbsent(nuevo, c -> new LinkedHashSet<>()).add(clave);
+        } else {
+            conteos.remove(clave);
+        }
+    }
+}
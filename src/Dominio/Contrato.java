@@ -15,6 +15,9 @@ public class Contrato implements Serializable {
     private Empleado empleado;
     private double valorMensual;
     private boolean activo;
+    
+    // Sistema en el que está registrado el contrato, para mantener sus índices y estadísticas
+    transient Sistema sistema;
 
     /* Crea un objeto de tipo Contrato. Se asume que los datos son correctos; id, cliente, vehiculo, empleado, valorMensual*/
     public Contrato(int id, Cliente cliente, Vehiculo vehiculo, Empleado empleado, double valorMensual) {
@@ -58,20 +61,32 @@ public class Contrato implements Serializable {
     
     // Setters 
     public void setValorMensual(double valorMensual) {
-        this.valorMensual = valorMensual;
+        if (sistema != null) {
+            sistema.modificarContrato(this, () -> this.valorMensual = valorMensual);
+        } else {
+            this.valorMensual = valorMensual;
+        }
     }
     
     public void setActivo(boolean activo) {
         if (this.activo != activo) {
-            this.activo = activo;
-            this.vehiculo.setTieneContrato(activo);
-            if (!activo) {
-                this.vehiculo.setCliente(null);
+            if (sistema != null) {
+                sistema.modificarContrato(this, () -> asignarActivo(activo));
             } else {
-                this.vehiculo.setCliente(cliente);
+                asignarActivo(activo);
             }
         }
     }
+    
+    private void asignarActivo(boolean activo) {
+        this.activo = activo;
+        this.vehiculo.setTieneContrato(activo);
+        if (!activo) {
+            this.vehiculo.setCliente(null);
+        } else {
+            this.vehiculo.setCliente(cliente);
+        }
+    }
    
     // Representación en String del contrato
     @Override
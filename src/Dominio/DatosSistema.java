@@ -0,0 +1,55 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Colecciones del sistema que se graban en archivo, tomadas en un momento dado.
+ * Los índices no forman parte de los datos: se reconstruyen al crear el sistema.
+ */
+class DatosSistema {
+    final List<Cliente> clientes;
+    final List<Vehiculo> vehiculos;
+    final List<Empleado> empleados;
+    final List<Contrato> contratos;
+    final List<Entrada> entradas;
+    final List<Salida> salidas;
+    final List<Servicio> servicios;
+    // Posiciones en el archivo de estadías de las estadías archivadas de cada vehículo
+    final Map<Vehiculo, long[]> archivadas;
+    final int ultimoIdContrato;
+    // Primer segmento de la bitácora que no está incluido en estos datos
+    final long segmentoBitacora;
+    // Manifiesto de las particiones con los movimientos (ver ParticionesMovimientos), o null si
+    // los movimientos están en las listas
+    final List<ParticionesMovimientos.Particion> particiones;
+
+    DatosSistema(List<Cliente> clientes, List<Vehiculo> vehiculos, List<Empleado> empleados,
+                 List<Contrato> contratos, List<Entrada> entradas, List<Salida> salidas,
+                 List<Servicio> servicios, Map<Vehiculo, long[]> archivadas,
+                 int ultimoIdContrato, long segmentoBitacora) {
+        this(clientes, vehiculos, empleados, contratos, entradas, salidas, servicios, archivadas,
+            ultimoIdContrato, segmentoBitacora, null);
+    }
+
+    DatosSistema(List<Cliente> clientes, List<Vehiculo> vehiculos, List<Empleado> empleados,
+                 List<Contrato> contratos, List<Entrada> entradas, List<Salida> salidas,
+                 List<Servicio> servicios, Map<Vehiculo, long[]> archivadas,
+                 int ultimoIdContrato, long segmentoBitacora, List<ParticionesMovimientos.Particion> particiones) {
+        this.clientes = clientes;
+        this.vehiculos = vehiculos;
+        this.empleados = empleados;
+        this.contratos = contratos;
+        this.entradas = entradas;
+        this.salidas = salidas;
+        this.servicios = servicios;
+        this.archivadas = archivadas;
+        this.ultimoIdContrato = ultimoIdContrato;
+        this.segmentoBitacora = segmentoBitacora;
+        this.particiones = particiones;
+    }
+}
@@ -0,0 +1,528 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo de cambios: guarda solo lo que cambió desde la grabación anterior (ver CambiosPendientes),
+ * para no volver a grabar todos los datos cuando cambian unas pocas entidades.
+ *
+ * Los archivos de cambios se llaman prefijo.NNNNNN, donde NNNNNN es el primer segmento de la
+ * bitácora que no incluyen. Al cargar se aplican, en orden, los posteriores al archivo de datos
+ * completo; cada cierta cantidad se vuelve a grabar el archivo completo y se eliminan.
+ *
+ * Contenido: número mágico, versión y último número de contrato; claves de los clientes,
+ * vehículos y empleados eliminados; servicios eliminados; empleados, clientes, vehículos y
+ * contratos agregados o modificados (con todos sus datos); movimientos nuevos en el orden en que
+ * se registraron. Al final, el CRC32 de todo lo anterior.
+ */
+public final class Delta {
+    // Propiedad del sistema con la cantidad máxima de archivos de cambios entre dos grabaciones completas
+    public static final String PROPIEDAD_MAXIMO = "parking.cambios.maximo";
+    public static final int MAXIMO_POR_DEFECTO = 20;
+
+    // "PKDL" en ASCII
+    private static final int MAGICO = 0x504B444C;
+    private static final int VERSION = 1;
+
+    // Tipos de movimiento
+    private static final byte ENTRADA = 1;
+    private static final byte SALIDA = 2;
+    private static final byte SERVICIO = 3;
+
+    private Delta() {
+    }
+
+    /**
+     * Obtiene la cantidad máxima de archivos de cambios que se graban antes de volver a grabar
+     * el archivo de datos completo, configurable con la propiedad del sistema parking.cambios.maximo
+     * (por ejemplo, -Dparking.cambios.maximo=50). Con 0 siempre se graba el archivo completo.
+     * @return Cantidad máxima, o el valor por defecto si la propiedad no es válida
+     */
+    public static int getMaximoConfigurado() {
+        try {
+            int maximo = Integer.parseInt(System.getProperty(PROPIEDAD_MAXIMO, String.valueOf(MAXIMO_POR_DEFECTO)));
+            return Math.max(maximo, 0);
+        } catch (NumberFormatException e) {
+            return MAXIMO_POR_DEFECTO;
+        }
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Codifica los cambios pendientes. Se invoca con el sistema bloqueado, por lo que los datos
+     * de las entidades corresponden al momento de la grabación.
+     * @param cambios Los cambios desde la grabación anterior
+     * @param ultimoIdContrato Último número de contrato asignado
+     * @return Contenido del archivo de cambios
+     */
+    static byte[] codificar(CambiosPendientes cambios, int ultimoIdContrato) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGICO);
+            out.writeInt(VERSION);
+            out.writeInt(ultimoIdContrato);
+
+            escribirTextos(out, cambios.clientesEliminados);
+            escribirTextos(out, cambios.vehiculosEliminados);
+            out.writeInt(cambios.empleadosEliminados.size());
+            for (int numero : cambios.empleadosEliminados) {
+                out.writeInt(numero);
+            }
+            out.writeInt(cambios.serviciosEliminados.size());
+            for (Servicio servicio : cambios.serviciosEliminados) {
+                escribirServicio(out, servicio);
+            }
+
+            // Empleados y clientes referenciados que ya no están registrados también se incluyen
+            Map<Empleado, Boolean> empleados = new LinkedHashMap<>();
+            cambios.empleados.forEach(e -> empleados.put(e, true));
+            Map<Cliente, Boolean> clientes = new LinkedHashMap<>();
+            cambios.clientes.forEach(c -> clientes.put(c, true));
+            for (Vehiculo vehiculo : cambios.vehiculos) {
+                referenciar(clientes, vehiculo.getCliente());
+            }
+            for (Contrato contrato : cambios.contratos) {
+                referenciar(clientes, contrato.getCliente());
+                referenciar(empleados, contrato.getEmpleado());
+            }
+            for (Object movimiento : cambios.movimientos) {
+                referenciar(empleados, getEmpleado(movimiento));
+            }
+
+            out.writeInt(empleados.size());
+            for (Map.Entry<Empleado, Boolean> par : empleados.entrySet()) {
+                Empleado e = par.getKey();
+                out.writeBoolean(par.getValue());
+                out.writeInt(e.getNumeroEmpleado());
+                escribirTexto(out, e.getCedula());
+                escribirTexto(out, e.getNombre());
+                escribirTexto(out, e.getDireccion());
+                out.writeBoolean(e.getActivo());
+            }
+            out.writeInt(clientes.size());
+            for (Map.Entry<Cliente, Boolean> par : clientes.entrySet()) {
+                Cliente c = par.getKey();
+                out.writeBoolean(par.getValue());
+                escribirTexto(out, c.getCedula());
+                escribirTexto(out, c.getNombre());
+                escribirTexto(out, c.getDireccion());
+                escribirTexto(out, c.getCelular());
+                out.writeInt(c.getAñoIngreso());
+            }
+            out.writeInt(cambios.vehiculos.size());
+            for (Vehiculo v : cambios.vehiculos) {
+                escribirTexto(out, v.getMatricula());
+                escribirTexto(out, v.getMarca());
+                escribirTexto(out, v.getModelo());
+                escribirTexto(out, v.getEstado());
+                escribirTexto(out, v.getCliente() != null ? v.getCliente().getCedula() : null);
+                out.writeBoolean(v.getTieneContrato());
+            }
+            out.writeInt(cambios.contratos.size());
+            for (Contrato c : cambios.contratos) {
+                out.writeInt(c.getId());
+                escribirTexto(out, c.getCliente().getCedula());
+                escribirTexto(out, c.getVehiculo().getMatricula());
+                out.writeInt(c.getEmpleado() != null ? c.getEmpleado().getNumeroEmpleado() : -1);
+                out.writeDouble(c.getValorMensual());
+                out.writeBoolean(c.getActivo());
+            }
+
+            out.writeInt(cambios.movimientos.size());
+            for (Object movimiento : cambios.movimientos) {
+                if (movimiento instanceof Entrada e) {
+                    out.writeByte(ENTRADA);
+                    escribirTexto(out, e.getVehiculo().getMatricula());
+                    out.writeInt(numero(e.getEmpleado()));
+                    out.writeLong(e.getMinutoEpoch());
+                    escribirTexto(out, e.getNotas());
+                    out.writeBoolean(e.getTieneContrato());
+                } else if (movimiento instanceof Salida s) {
+                    out.writeByte(SALIDA);
+                    escribirTexto(out, s.getEntrada().getVehiculo().getMatricula());
+                    out.writeInt(numero(s.getEmpleado()));
+                    out.writeLong(s.getMinutoEpoch());
+                    escribirTexto(out, s.getComentario());
+                    out.writeBoolean(s.getTeniaContrato());
+                    escribirTexto(out, s.getTiempoEstadia());
+                } else if (movimiento instanceof Servicio s) {
+                    out.writeByte(SERVICIO);
+                    escribirTexto(out, s.getVehiculo().getMatricula());
+                    out.writeInt(numero(s.getEmpleado()));
+                    out.writeLong(s.getMinutoEpoch());
+                    escribirTexto(out, s.getTipo());
+                    out.writeDouble(s.getCosto());
+                }
+            }
+            out.flush();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // No ocurre al escribir en memoria
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Graba un archivo de cambios: lo escribe en un archivo temporal, lo fuerza a disco y lo
+     * renombra, para que al cargar nunca se encuentre un archivo de cambios a medias.
+     * @param directorio Directorio del archivo de datos
+     * @param prefijo Prefijo del nombre de los archivos de cambios
+     * @param numero Primer segmento de la bitácora que no incluye
+     * @param contenido Contenido codificado con codificar
+     * @throws IOException Si no se puede grabar el archivo
+     */
+    static void escribir(Path directorio, String prefijo, long numero, byte[] contenido) throws IOException {
+        Path destino = getArchivo(directorio, prefijo, numero);
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contenido);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(true);
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Elimina los archivos de cambios ya incluidos en una grabación completa.
+     * @param directorio Directorio del archivo de datos
+     * @param prefijo Prefijo del nombre de los archivos de cambios
+     * @param numero Último número que se elimina
+     * @throws IOException Si no se puede eliminar algún archivo
+     */
+    static void eliminarHasta(Path directorio, String prefijo, long numero) throws IOException {
+        for (Path archivo : listar(directorio, prefijo).headMap(numero, true).values()) {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static Path getArchivo(Path directorio, String prefijo, long numero) {
+        return directorio.resolve(String.format("%s.%06d", prefijo, numero));
+    }
+
+    private static <T> void referenciar(Map<T, Boolean> entidades, T entidad) {
+        if (entidad != null) {
+            entidades.putIfAbsent(entidad, false);
+        }
+    }
+
+    private static Empleado getEmpleado(Object movimiento) {
+        if (movimiento instanceof Entrada e) return e.getEmpleado();
+        if (movimiento instanceof Salida s) return s.getEmpleado();
+        if (movimiento instanceof Servicio s) return s.getEmpleado();
+        return null;
+    }
+
+    private static int numero(Empleado empleado) {
+        return empleado != null ? empleado.getNumeroEmpleado() : -1;
+    }
+
+    private static void escribirServicio(DataOutputStream out, Servicio servicio) throws IOException {
+        escribirTexto(out, servicio.getTipo());
+        escribirTexto(out, servicio.getVehiculo().getMatricula());
+        out.writeInt(numero(servicio.getEmpleado()));
+        out.writeLong(servicio.getMinutoEpoch());
+        out.writeDouble(servicio.getCosto());
+    }
+
+    private static void escribirTextos(DataOutputStream out, java.util.Collection<String> textos) throws IOException {
+        out.writeInt(textos.size());
+        for (String texto : textos) {
+            escribirTexto(out, texto);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Obtiene los archivos de cambios de un directorio, ordenados por número.
+     * @param directorio Directorio del archivo de datos
+     * @param prefijo Prefijo del nombre de los archivos de cambios
+     * @return Mapa de número (primer segmento de bitácora no incluido) a archivo
+     * @throws IOException Si no se puede leer el directorio
+     */
+    static TreeMap<Long, Path> listar(Path directorio, String prefijo) throws IOException {
+        TreeMap<Long, Path> archivos = new TreeMap<>();
+        try (DirectoryStream<Path> lista = Files.newDirectoryStream(directorio, prefijo + ".*")) {
+            for (Path archivo : lista) {
+                String sufijo = archivo.getFileName().toString().substring(prefijo.length() + 1);
+                if (sufijo.matches("\\d+")) {
+                    archivos.put(Long.parseLong(sufijo), archivo);
+                }
+            }
+        }
+        return archivos;
+    }
+
+    /**
+     * Aplica un archivo de cambios sobre el sistema restaurado hasta la grabación anterior.
+     * Primero se eliminan las entidades eliminadas, luego se agregan o actualizan las
+     * modificadas y por último se registran los movimientos nuevos, en su orden original.
+     * Los cambios que no se pueden aplicar se informan y se omiten.
+     * @param sistema El sistema
+     * @param contenido Contenido del archivo
+     * @throws IOException Si el archivo no está en este formato o está dañado
+     */
+    static void aplicar(Sistema sistema, byte[] contenido) throws IOException {
+        if (contenido.length < 16) {
+            throw new IOException("El archivo de cambios está incompleto");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(contenido, 0, contenido.length - Integer.BYTES);
+        if ((int) crc.getValue() != ByteBuffer.wrap(contenido, contenido.length - Integer.BYTES, Integer.BYTES).getInt()) {
+            throw new IOException("El archivo de cambios está dañado");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(contenido, 0, contenido.length - Integer.BYTES));
+        if (in.readInt() != MAGICO) {
+            throw new IOException("El archivo no es un archivo de cambios");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de archivo de cambios no soportada: " + version);
+        }
+        int ultimoIdContrato = in.readInt();
+
+        // Eliminaciones
+        for (int n = in.readInt(); n > 0; n--) {
+            String cedula = leerTexto(in);
+            omitirSiFalla(() -> sistema.eliminarCliente(cedula));
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            String matricula = leerTexto(in);
+            omitirSiFalla(() -> sistema.eliminarVehiculo(sistema.buscarVehiculo(matricula)));
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            int numero = in.readInt();
+            omitirSiFalla(() -> sistema.eliminarEmpleado(sistema.buscarEmpleado(numero)));
+        }
+        Map<Integer, Empleado> empleados = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            String tipo = leerTexto(in);
+            String matricula = leerTexto(in);
+            int numero = in.readInt();
+            long minuto = in.readLong();
+            double costo = in.readDouble();
+            omitirSiFalla(() -> {
+                Vehiculo vehiculo = sistema.buscarVehiculo(matricula);
+                if (vehiculo != null) {
+                    sistema.eliminarServicio(sistema.buscarServicio(vehiculo, minuto, tipo, costo));
+                }
+            });
+        }
+
+        // Empleados (los que ya no están registrados solo se usan para asociarlos a contratos y movimientos)
+        for (int n = in.readInt(); n > 0; n--) {
+            boolean registrado = in.readBoolean();
+            int numero = in.readInt();
+            String cedula = leerTexto(in), nombre = leerTexto(in), direccion = leerTexto(in);
+            boolean activo = in.readBoolean();
+            Empleado existente = sistema.buscarEmpleado(numero);
+            if (existente != null) {
+                if (registrado) {
+                    existente.setCedula(cedula);
+                    existente.setNombre(nombre);
+                    existente.setDireccion(direccion);
+                    existente.setActivo(activo);
+                }
+                empleados.put(numero, existente);
+            } else {
+                Empleado empleado = new Empleado(cedula, nombre, direccion, numero);
+                empleado.setActivo(activo);
+                if (registrado) {
+                    sistema.agregarEmpleado(empleado);
+                }
+                empleados.put(numero, empleado);
+            }
+        }
+
+        // Clientes
+        Map<String, Cliente> clientes = new HashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            boolean registrado = in.readBoolean();
+            String cedula = leerTexto(in), nombre = leerTexto(in), direccion = leerTexto(in), celular = leerTexto(in);
+            int año = in.readInt();
+            Cliente existente = sistema.buscarCliente(cedula);
+            if (existente != null) {
+                if (registrado) {
+                    existente.setNombre(nombre);
+                    existente.setDireccion(direccion);
+                    existente.setCelular(celular);
+                    existente.setAñoIngreso(año);
+                }
+                clientes.put(cedula, existente);
+            } else {
+                Cliente cliente = new Cliente(cedula, nombre, direccion, celular, año);
+                if (registrado) {
+                    sistema.agregarCliente(cliente);
+                }
+                clientes.put(cedula, cliente);
+            }
+        }
+
+        // Vehículos: el cliente y el indicador de contrato se asignan después de los contratos,
+        // porque al crear un contrato se modifican
+        int cantidad = in.readInt();
+        List<Object[]> vehiculos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            String matricula = leerTexto(in), marca = leerTexto(in), modelo = leerTexto(in), estado = leerTexto(in);
+            String cedula = leerTexto(in);
+            boolean tieneContrato = in.readBoolean();
+            Vehiculo vehiculo = sistema.buscarVehiculo(matricula);
+            if (vehiculo != null) {
+                vehiculo.setMarca(marca);
+                vehiculo.setModelo(modelo);
+                vehiculo.setEstado(estado);
+            } else {
+                vehiculo = new Vehiculo(matricula, marca, modelo, estado);
+                sistema.agregarVehiculo(vehiculo);
+            }
+            vehiculos.add(new Object[]{vehiculo, cedula, tieneContrato});
+        }
+
+        // Contratos
+        for (int n = in.readInt(); n > 0; n--) {
+            int id = in.readInt();
+            String cedula = leerTexto(in), matricula = leerTexto(in);
+            int numero = in.readInt();
+            double valor = in.readDouble();
+            boolean activo = in.readBoolean();
+            omitirSiFalla(() -> {
+                Contrato existente = sistema.buscarContratoPorId(id);
+                if (existente != null) {
+                    existente.setValorMensual(valor);
+                    existente.setActivo(activo);
+                } else {
+                    Contrato contrato = new Contrato(id, buscarCliente(sistema, clientes, cedula),
+                        buscarVehiculo(sistema, matricula), buscarEmpleado(sistema, empleados, numero), valor);
+                    contrato.setActivo(activo);
+                    sistema.restaurarContrato(contrato);
+                }
+            });
+        }
+        for (Object[] datos : vehiculos) {
+            Vehiculo vehiculo = (Vehiculo) datos[0];
+            String cedula = (String) datos[1];
+            vehiculo.setCliente(cedula != null ? buscarCliente(sistema, clientes, cedula) : null);
+            vehiculo.setTieneContrato((Boolean) datos[2]);
+        }
+        sistema.restaurarUltimoIdContrato(ultimoIdContrato);
+
+        // Movimientos nuevos
+        for (int n = in.readInt(); n > 0; n--) {
+            byte tipo = in.readByte();
+            String matricula = leerTexto(in);
+            int numero = in.readInt();
+            switch (tipo) {
+                case ENTRADA -> {
+                    long minuto = in.readLong();
+                    String notas = leerTexto(in);
+                    boolean tieneContrato = in.readBoolean();
+                    omitirSiFalla(() -> sistema.registrarEntrada(new Entrada(buscarVehiculo(sistema, matricula),
+                        buscarEmpleado(sistema, empleados, numero), minuto, notas, tieneContrato), false));
+                }
+                case SALIDA -> {
+                    long minuto = in.readLong();
+                    String comentario = leerTexto(in);
+                    boolean teniaContrato = in.readBoolean();
+                    String estadia = leerTexto(in);
+                    omitirSiFalla(() -> {
+                        Entrada entrada = sistema.buscarEntradaPorMatricula(matricula);
+                        if (entrada == null) {
+                            throw new IllegalStateException("El vehículo " + matricula + " no está en el parking");
+                        }
+                        // El empleado pudo eliminarse después de registrar la salida
+                        sistema.registrarSalida(new Salida(entrada, buscarEmpleado(sistema, empleados, numero),
+                            minuto, comentario, teniaContrato, estadia), false);
+                    });
+                }
+                case SERVICIO -> {
+                    long minuto = in.readLong();
+                    String tipoServicio = leerTexto(in);
+                    double costo = in.readDouble();
+                    omitirSiFalla(() -> sistema.registrarServicio(new Servicio(tipoServicio,
+                        buscarVehiculo(sistema, matricula), buscarEmpleado(sistema, empleados, numero), minuto, costo)));
+                }
+                default -> throw new IOException("Tipo de movimiento desconocido: " + tipo);
+            }
+        }
+    }
+
+    private static Vehiculo buscarVehiculo(Sistema sistema, String matricula) {
+        Vehiculo vehiculo = sistema.buscarVehiculo(matricula);
+        if (vehiculo == null) {
+            throw new IllegalStateException("No existe el vehículo " + matricula);
+        }
+        return vehiculo;
+    }
+
+    private static Cliente buscarCliente(Sistema sistema, Map<String, Cliente> clientes, String cedula) {
+        Cliente cliente = clientes.get(cedula);
+        return cliente != null ? cliente : sistema.buscarCliente(cedula);
+    }
+
+    private static Empleado buscarEmpleado(Sistema sistema, Map<Integer, Empleado> empleados, int numero) {
+        if (numero < 0) {
+            return null;
+        }
+        Empleado empleado = empleados.get(numero);
+        return empleado != null ? empleado : sistema.buscarEmpleado(numero);
+    }
+
+    private static void omitirSiFalla(Runnable cambio) {
+        try {
+            cambio.run();
+        } catch (UncheckedIOException e) {
+            // Una partición de movimientos que no se pudo leer detiene la carga
+            throw e;
+        } catch (RuntimeException e) {
+            System.err.println("Cambio omitido: " + e.getMessage());
+        }
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -14,6 +14,9 @@ public class Empleado implements Serializable {
     private String direccion; 
     private int numeroEmpleado;
     private boolean activo;
+    
+    // Sistema en el que está registrado el empleado, para registrar sus modificaciones
+    transient Sistema sistema;
 
     /* Crea un objeto de tipo Empleado con validación de parámetros: unaCedula cédula de identidad del empleado,
     unNombre nombre completo del empleado, unaDireccion dirección del empleado, unNumero número único de empleado,
@@ -60,22 +63,36 @@ public class Empleado implements Serializable {
     //Seters
     public void setCedula(String unaCedula) {
         this.cedula = unaCedula;
+        modificado();
     }
     
     public void setNombre(String unNombre) {
         this.nombre = unNombre;
+        modificado();
     }
    
     public void setDireccion(String unaDireccion) {
         this.direccion = unaDireccion;
+        modificado();
     }
    
     public void setNumeroEmpleado(int unNumero) {
+        int anterior = this.numeroEmpleado;
         this.numeroEmpleado = unNumero;
+        if (sistema != null) {
+            sistema.numeroEmpleadoModificado(this, anterior);
+        }
     }
 
     public void setActivo(boolean activo) {
         this.activo = activo;
+        modificado();
+    }
+    
+    private void modificado() {
+        if (sistema != null) {
+            sistema.empleadoModificado(this);
+        }
     }
     
     // Representación en String del empleado.
@@ -8,27 +8,48 @@ import java.util.Date;
 
 //Representa a una entrada al parking, con vehiculo, fecha, hora, notas, empleado y si tiene contato.
 public class Entrada implements Serializable {
-    private final Vehiculo vehiculo;
-    private final Date fecha;
-    private final String hora;
-    private final String notas;
-    private final Empleado empleado;
-    private final boolean tieneContrato;
+    // Mismo identificador que la versión que guardaba fecha y hora por separado, para leer esos archivos
+    private static final long serialVersionUID = -8454679800571753614L;
+
+    private Vehiculo vehiculo;
+    // Fecha y hora de la entrada en minutos desde 1970-01-01 00:00 (ver Reporte.toMinutoEpoch)
+    private long minutoEpoch;
+    private String notas;
+    private Empleado empleado;
+    private boolean tieneContrato;
 
     public Entrada(Vehiculo vehiculo, Empleado empleado, Date fecha, String hora, String notas, boolean tieneContrato) {
         this.vehiculo = vehiculo;
         this.empleado = empleado;
-        this.fecha = fecha;
-        this.hora = hora;
+        this.minutoEpoch = Reporte.toMinutoEpoch(fecha, hora);
+        this.notas = notas;
+        this.tieneContrato = tieneContrato;
+    }
+
+    public Entrada(Vehiculo vehiculo, Empleado empleado, long minutoEpoch, String notas, boolean tieneContrato) {
+        this.vehiculo = vehiculo;
+        this.empleado = empleado;
+        this.minutoEpoch = minutoEpoch;
         this.notas = notas;
         this.tieneContrato = tieneContrato;
     }
     
     // Getters 
     public Vehiculo getVehiculo() { return vehiculo; }
-    public Date getFecha() { return fecha; }
-    public String getHora() { return hora; }
+    public long getMinutoEpoch() { return minutoEpoch; }
+    public Date getFecha() { return Reporte.toFecha(minutoEpoch); }
+    public String getHora() { return Reporte.toHora(minutoEpoch); }
     public String getNotas() { return notas; }
     public Empleado getEmpleado() { return empleado; }
     public boolean getTieneContrato() { return tieneContrato; }
+
+    // Lectura desde archivo, incluidos los archivos con fecha y hora por separado
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField campos = in.readFields();
+        vehiculo = (Vehiculo) campos.get("vehiculo", null);
+        minutoEpoch = Reporte.leerMinutoEpoch(campos);
+        notas = (String) campos.get("notas", null);
+        empleado = (Empleado) campos.get("empleado", null);
+        tieneContrato = campos.get("tieneContrato", false);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Etapas de la carga del sistema y cuánto tardó cada una.
+ *
+ * Después de leer el archivo de datos, los índices del sistema se reconstruyen en etapas
+ * independientes entre sí (cada una escribe sus propios índices y solo lee las listas), que
+ * se ejecutan en paralelo en el pool común de fork-join. Las etapas que recorren muchos
+ * elementos por separado (por ejemplo, ordenar la línea de tiempo de cada vehículo) usan
+ * además flujos paralelos, que corren en el mismo pool.
+ *
+ * Con la propiedad del sistema parking.carga.tiempos=true cada etapa informa su tiempo por
+ * la salida de errores al terminar.
+ */
+class EtapasCarga {
+    public static final String PROPIEDAD_TIEMPOS = "parking.carga.tiempos";
+
+    // Tiempo de cada etapa terminada, en nanosegundos, en el orden en que terminaron
+    private final Map<String, Long> tiempos = new LinkedHashMap<>();
+
+    /**
+     * Ejecuta una etapa y registra su tiempo.
+     * @param etapa Nombre de la etapa
+     * @param accion La etapa
+     */
+    void medir(String etapa, Runnable accion) {
+        long inicio = System.nanoTime();
+        accion.run();
+        anotar(etapa, System.nanoTime() - inicio);
+    }
+
+    /**
+     * Ejecuta etapas independientes en paralelo y espera a que terminen todas. El hilo que
+     * invoca también ejecuta etapas. Si alguna falla, se relanza su excepción.
+     * @param etapas Etapas por nombre
+     */
+    void ejecutarEnParalelo(Map<String, Runnable> etapas) {
+        List<ForkJoinTask<?>> tareas = new ArrayList<>(etapas.size());
+        etapas.forEach((etapa, accion) -> tareas.add(ForkJoinTask.adapt(() -> medir(etapa, accion))));
+        ForkJoinTask.invokeAll(tareas);
+    }
+
+    /**
+     * Registra el tiempo de una etapa medida por fuera.
+     * @param etapa Nombre de la etapa
+     * @param nanos Duración en nanosegundos
+     */
+    synchronized void anotar(String etapa, long nanos) {
+        tiempos.merge(etapa, nanos, Long::sum);
+        if (Boolean.getBoolean(PROPIEDAD_TIEMPOS)) {
+            System.err.printf("Carga - %s: %d ms%n", etapa, nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Obtiene el tiempo de cada etapa terminada.
+     * @return Milisegundos por etapa, en el orden en que terminaron
+     */
+    synchronized Map<String, Long> getTiempos() {
+        Map<String, Long> milisegundos = new LinkedHashMap<>();
+        tiempos.forEach((etapa, nanos) -> milisegundos.put(etapa, nanos / 1_000_000));
+        return milisegundos;
+    }
+}
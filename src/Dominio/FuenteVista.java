@@ -0,0 +1,62 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.Collection;
+
+/**
+ * Lleva la versión de una colección del sistema y guarda la última vista obtenida de ella.
+ * Cada modificación de la colección debe avisarse con modificado(); la vista se vuelve a
+ * armar recién cuando se pide después de una modificación.
+ *
+ * La colección se modifica con el cerrojo de escritura del sistema tomado, y la vista se
+ * arma solo con el cerrojo de lectura (ver Sistema.getVista), por lo que la vista guardada
+ * siempre corresponde a su versión. Obtener la vista ya armada no necesita el cerrojo.
+ */
+class FuenteVista<T> {
+    private final Collection<T> coleccion;
+    private volatile long version;
+    private volatile VistaLista<T> vista;
+
+    FuenteVista(Collection<T> coleccion) {
+        this.coleccion = coleccion;
+    }
+
+    /**
+     * Registra que la colección cambió: la vista actual queda desactualizada.
+     */
+    void modificado() {
+        vista = null;
+        version++;
+    }
+
+    /**
+     * Obtiene la vista ya armada del contenido actual, sin recorrer la colección.
+     * @return Vista de solo lectura, o null si la colección cambió desde que se armó
+     */
+    VistaLista<T> getVistaArmada() {
+        VistaLista<T> actual = vista;
+        return actual != null && actual.getVersion() == version ? actual : null;
+    }
+
+    /**
+     * Arma la vista del contenido actual y la guarda para las próximas consultas.
+     * Se invoca con el cerrojo del sistema tomado, para que la colección no cambie mientras
+     * se recorre.
+     * @return Vista de solo lectura de la colección
+     */
+    VistaLista<T> armarVista() {
+        VistaLista<T> actual = getVistaArmada();
+        if (actual == null) {
+            actual = new VistaLista<>(coleccion.toArray(), version, this);
+            vista = actual;
+        }
+        return actual;
+    }
+
+    long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,283 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lectura y escritura de JSON para la API de las puertas (ver ServidorPuertas).
+ * Los objetos se leen como mapas, los arreglos como listas, los números enteros como Long
+ * y los demás como Double.
+ */
+final class Json {
+    private final String texto;
+    private int posicion;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Lee un objeto JSON.
+     * @param texto El texto a leer
+     * @return Campos del objeto, en el orden en que aparecen
+     * @throws IllegalArgumentException Si el texto no es un objeto JSON válido
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> leerObjeto(String texto) {
+        Json lector = new Json(texto);
+        lector.saltarEspacios();
+        if (!lector.hay('{')) {
+            throw lector.error("Se esperaba un objeto");
+        }
+        Object valor = lector.leerValor();
+        lector.saltarEspacios();
+        if (lector.posicion < texto.length()) {
+            throw lector.error("Texto de más al final");
+        }
+        return (Map<String, Object>) valor;
+    }
+
+    private Object leerValor() {
+        saltarEspacios();
+        if (posicion >= texto.length()) {
+            throw error("Falta un valor");
+        }
+        char c = texto.charAt(posicion);
+        switch (c) {
+            case '{':
+                return leerMapa();
+            case '[':
+                return leerLista();
+            case '"':
+                return leerTexto();
+            case 't':
+                leerPalabra("true");
+                return Boolean.TRUE;
+            case 'f':
+                leerPalabra("false");
+                return Boolean.FALSE;
+            case 'n':
+                leerPalabra("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return leerNumero();
+                }
+                throw error("Carácter inesperado '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> leerMapa() {
+        Map<String, Object> mapa = new LinkedHashMap<>();
+        posicion++;
+        saltarEspacios();
+        if (consumir('}')) {
+            return mapa;
+        }
+        do {
+            saltarEspacios();
+            if (!hay('"')) {
+                throw error("Se esperaba el nombre de un campo");
+            }
+            String clave = leerTexto();
+            saltarEspacios();
+            esperar(':');
+            mapa.put(clave, leerValor());
+            saltarEspacios();
+        } while (consumir(','));
+        esperar('}');
+        return mapa;
+    }
+
+    private List<Object> leerLista() {
+        List<Object> lista = new ArrayList<>();
+        posicion++;
+        saltarEspacios();
+        if (consumir(']')) {
+            return lista;
+        }
+        do {
+            lista.add(leerValor());
+            saltarEspacios();
+        } while (consumir(','));
+        esperar(']');
+        return lista;
+    }
+
+    private String leerTexto() {
+        StringBuilder resultado = new StringBuilder();
+        posicion++;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion++);
+            if (c == '"') {
+                return resultado.toString();
+            }
+            if (c != '\\') {
+                resultado.append(c);
+                continue;
+            }
+            if (posicion >= texto.length()) {
+                break;
+            }
+            char escape = texto.charAt(posicion++);
+            switch (escape) {
+                case '"': case '\\': case '/': resultado.append(escape); break;
+                case 'b': resultado.append('\b'); break;
+                case 'f': resultado.append('\f'); break;
+                case 'n': resultado.append('\n'); break;
+                case 'r': resultado.append('\r'); break;
+                case 't': resultado.append('\t'); break;
+                case 'u':
+                    if (posicion + 4 > texto.length()) {
+                        throw error("Escape \\u incompleto");
+                    }
+                    try {
+                        resultado.append((char) Integer.parseInt(texto.substring(posicion, posicion + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Escape \\u inválido");
+                    }
+                    posicion += 4;
+                    break;
+                default:
+                    throw error("Escape inválido \\" + escape);
+            }
+        }
+        throw error("Texto sin cerrar");
+    }
+
+    private Number leerNumero() {
+        int inicio = posicion;
+        boolean entero = true;
+        while (posicion < texto.length()) {
+            char c = texto.charAt(posicion);
+            if (c == '.' || c == 'e' || c == 'E') {
+                entero = false;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            posicion++;
+        }
+        String numero = texto.substring(inicio, posicion);
+        try {
+            return entero ? (Number) Long.parseLong(numero) : (Number) Double.parseDouble(numero);
+        } catch (NumberFormatException e) {
+            throw error("Número inválido " + numero);
+        }
+    }
+
+    private void leerPalabra(String palabra) {
+        if (!texto.startsWith(palabra, posicion)) {
+            throw error("Se esperaba " + palabra);
+        }
+        posicion += palabra.length();
+    }
+
+    private void saltarEspacios() {
+        while (posicion < texto.length() && Character.isWhitespace(texto.charAt(posicion))) {
+            posicion++;
+        }
+    }
+
+    private boolean hay(char c) {
+        return posicion < texto.length() && texto.charAt(posicion) == c;
+    }
+
+    private boolean consumir(char c) {
+        if (hay(c)) {
+            posicion++;
+            return true;
+        }
+        return false;
+    }
+
+    private void esperar(char c) {
+        if (!consumir(c)) {
+            throw error("Se esperaba '" + c + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException("JSON inválido (posición " + posicion + "): " + mensaje);
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Escribe un valor como JSON: mapas, listas, textos, números, booleanos o null.
+     * Cualquier otro objeto se escribe como el texto de su toString().
+     * @param valor El valor a escribir
+     * @return Texto JSON
+     */
+    static String escribir(Object valor) {
+        StringBuilder resultado = new StringBuilder();
+        escribir(resultado, valor);
+        return resultado.toString();
+    }
+
+    private static void escribir(StringBuilder resultado, Object valor) {
+        if (valor == null) {
+            resultado.append("null");
+        } else if (valor instanceof Map<?, ?> mapa) {
+            resultado.append('{');
+            boolean primero = true;
+            for (Map.Entry<?, ?> campo : mapa.entrySet()) {
+                if (!primero) {
+                    resultado.append(',');
+                }
+                primero = false;
+                escribirTexto(resultado, String.valueOf(campo.getKey()));
+                resultado.append(':');
+                escribir(resultado, campo.getValue());
+            }
+            resultado.append('}');
+        } else if (valor instanceof Iterable<?> lista) {
+            resultado.append('[');
+            boolean primero = true;
+            for (Object elemento : lista) {
+                if (!primero) {
+                    resultado.append(',');
+                }
+                primero = false;
+                escribir(resultado, elemento);
+            }
+            resultado.append(']');
+        } else if (valor instanceof Boolean) {
+            resultado.append(valor);
+        } else if (valor instanceof Number numero) {
+            double doble = numero.doubleValue();
+            // JSON no admite NaN ni infinito
+            resultado.append(Double.isNaN(doble) || Double.isInfinite(doble) ? "null" : numero.toString());
+        } else {
+            escribirTexto(resultado, valor.toString());
+        }
+    }
+
+    private static void escribirTexto(StringBuilder resultado, String texto) {
+        resultado.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"': resultado.append("\\\""); break;
+                case '\\': resultado.append("\\\\"); break;
+                case '\n': resultado.append("\\n"); break;
+                case '\r': resultado.append("\\r"); break;
+                case '\t': resultado.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        resultado.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        resultado.append(c);
+                    }
+            }
+        }
+        resultado.append('"');
+    }
+}
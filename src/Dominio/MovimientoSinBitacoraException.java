@@ -0,0 +1,21 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.IOException;
+
+/**
+ * Indica que un movimiento quedó registrado en el sistema pero no se pudo anotar en la
+ * bitácora (ver Sistema.registrarMovimientos). El movimiento no se deshace: se guarda con la
+ * próxima grabación de los datos, pero si el programa termina antes sin grabar, se pierde.
+ */
+public class MovimientoSinBitacoraException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MovimientoSinBitacoraException(IOException causa) {
+        super("El movimiento quedó registrado, pero no se pudo anotar en la bitácora ("
+            + causa.getMessage() + "); grabe los datos para no perderlo", causa);
+    }
+}
@@ -0,0 +1,485 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Particiones mensuales de los movimientos: las entradas, salidas y servicios en memoria se
+ * graban en un archivo por mes (prefijo.AAAA-MM.NNNNNN), para que una grabación completa solo
+ * vuelva a escribir los meses que cambiaron (normalmente, el mes actual).
+ *
+ * Cada estadía se guarda en el mes de su entrada, con su salida, y cada servicio en el mes en
+ * que se hizo. El archivo de datos guarda el manifiesto: por cada mes, el número del archivo
+ * vigente, la primera y la última fecha/hora de sus movimientos, la cantidad de movimientos, el
+ * tamaño y el CRC32 del contenido y la cantidad de entradas sin salida. Un mes que cambia se
+ * graba en un archivo con un número nuevo y el anterior se elimina recién cuando el archivo de
+ * datos que referencia al nuevo quedó grabado, por lo que el archivo de datos y sus particiones
+ * siempre son consistentes.
+ *
+ * Las particiones se leen de a una con un Lector: al cargar solo hacen falta las que tienen
+ * entradas sin salida, y las demás se leen cuando una consulta necesita sus movimientos.
+ *
+ * Contenido de cada archivo: número mágico, versión y mes; los empleados y vehículos
+ * referenciados (con sus datos, para poder recrear los que ya no estén registrados); las
+ * entradas, las salidas (con la entrada como su fila en la partición) y los servicios.
+ */
+final class ParticionesMovimientos {
+    // "PKMV" en ASCII
+    private static final int MAGICO = 0x504B4D56;
+    private static final int VERSION = 1;
+
+    private ParticionesMovimientos() {
+    }
+
+    /**
+     * Entrada del manifiesto: un mes y el archivo que tiene sus movimientos.
+     */
+    static final class Particion {
+        final int mes;
+        final long numero;
+        final long minimo;
+        final long maximo;
+        final int cantidad;
+        final long tamaño;
+        final long crc;
+        // Entradas sin salida del mes, o -1 si no se sabe (manifiestos anteriores a la versión 4
+        // del archivo de datos)
+        final int abiertas;
+
+        Particion(int mes, long numero, long minimo, long maximo, int cantidad, long tamaño, long crc,
+                  int abiertas) {
+            this.mes = mes;
+            this.numero = numero;
+            this.minimo = minimo;
+            this.maximo = maximo;
+            this.cantidad = cantidad;
+            this.tamaño = tamaño;
+            this.crc = crc;
+            this.abiertas = abiertas;
+        }
+    }
+
+    /**
+     * Movimientos de un mes, en el orden de las listas del sistema.
+     */
+    static final class Movimientos {
+        final List<Entrada> entradas = new ArrayList<>();
+        final List<Salida> salidas = new ArrayList<>();
+        final List<Servicio> servicios = new ArrayList<>();
+    }
+
+    /**
+     * Calcula el mes de una fecha/hora.
+     * @param minutoEpoch Fecha y hora (ver Reporte.toMinutoEpoch)
+     * @return año * 100 + mes (por ejemplo, 202405)
+     */
+    static int getMes(long minutoEpoch) {
+        LocalDate fecha = LocalDate.ofEpochDay(Reporte.getDiaEpoch(minutoEpoch));
+        return fecha.getYear() * 100 + fecha.getMonthValue();
+    }
+
+    /**
+     * Calcula la partición de un movimiento: la de su entrada para las salidas, la propia para
+     * las entradas y los servicios.
+     * @param movimiento El movimiento (Entrada, Salida o Servicio)
+     * @return El mes de la partición
+     */
+    static int getMes(Object movimiento) {
+        if (movimiento instanceof Salida s && s.getEntrada() != null) {
+            return getMes(s.getEntrada().getMinutoEpoch());
+        }
+        return getMes(Reporte.getMinutoEpochFromMovimiento(movimiento));
+    }
+
+    /**
+     * Agrupa los movimientos de algunos meses.
+     * @param entradas Entradas del sistema
+     * @param salidas Salidas del sistema
+     * @param servicios Servicios del sistema
+     * @param meses Meses a agrupar
+     * @return Movimientos de cada mes, ordenados por mes (los meses sin movimientos no figuran)
+     */
+    static TreeMap<Integer, Movimientos> agrupar(List<Entrada> entradas, List<Salida> salidas,
+                                                 List<Servicio> servicios, Set<Integer> meses) {
+        TreeMap<Integer, Movimientos> porMes = new TreeMap<>();
+        for (Entrada entrada : entradas) {
+            int mes = getMes(entrada);
+            if (meses.contains(mes)) {
+                porMes.computeIfAbsent(mes, m -> new Movimientos()).entradas.add(entrada);
+            }
+        }
+        for (Salida salida : salidas) {
+            int mes = getMes(salida);
+            if (meses.contains(mes)) {
+                porMes.computeIfAbsent(mes, m -> new Movimientos()).salidas.add(salida);
+            }
+        }
+        for (Servicio servicio : servicios) {
+            int mes = getMes(servicio);
+            if (meses.contains(mes)) {
+                porMes.computeIfAbsent(mes, m -> new Movimientos()).servicios.add(servicio);
+            }
+        }
+        return porMes;
+    }
+
+    /**
+     * Obtiene todos los meses que tienen movimientos.
+     * @param entradas Entradas del sistema
+     * @param salidas Salidas del sistema
+     * @param servicios Servicios del sistema
+     * @return Los meses
+     */
+    static Set<Integer> getMeses(Collection<Entrada> entradas, Collection<Salida> salidas, Collection<Servicio> servicios) {
+        Set<Integer> meses = new HashSet<>();
+        entradas.forEach(e -> meses.add(getMes(e)));
+        salidas.forEach(s -> meses.add(getMes(s)));
+        servicios.forEach(s -> meses.add(getMes(s)));
+        return meses;
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Graba los movimientos de un mes en un archivo nuevo: lo escribe en un archivo temporal,
+     * lo fuerza a disco y lo renombra.
+     * @param directorio Directorio del archivo de datos
+     * @param prefijo Prefijo del nombre de las particiones
+     * @param mes El mes
+     * @param numero Número del archivo, mayor que el de cualquier partición vigente
+     * @param movimientos Los movimientos del mes
+     * @return La entrada del manifiesto para el archivo grabado
+     * @throws IOException Si no se puede grabar el archivo
+     */
+    static Particion escribir(Path directorio, String prefijo, int mes, long numero, Movimientos movimientos)
+            throws IOException {
+        byte[] contenido = codificar(mes, movimientos);
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+
+        Path destino = getArchivo(directorio, prefijo, mes, numero);
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(contenido);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(true);
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        long minimo = Long.MAX_VALUE;
+        long maximo = Long.MIN_VALUE;
+        for (List<?> lista : List.of(movimientos.entradas, movimientos.salidas, movimientos.servicios)) {
+            for (Object movimiento : lista) {
+                long minuto = Reporte.getMinutoEpochFromMovimiento(movimiento);
+                minimo = Math.min(minimo, minuto);
+                maximo = Math.max(maximo, minuto);
+            }
+        }
+        int cantidad = movimientos.entradas.size() + movimientos.salidas.size() + movimientos.servicios.size();
+        // Cada salida está en la partición de su entrada
+        Set<Entrada> cerradas = java.util.Collections.newSetFromMap(new IdentityHashMap<>());
+        movimientos.salidas.forEach(s -> cerradas.add(s.getEntrada()));
+        int abiertas = 0;
+        for (Entrada entrada : movimientos.entradas) {
+            if (!cerradas.contains(entrada)) {
+                abiertas++;
+            }
+        }
+        return new Particion(mes, numero, minimo, maximo, cantidad, contenido.length, crc.getValue(), abiertas);
+    }
+
+    /**
+     * Calcula el tamaño total de las particiones de un manifiesto.
+     * @param particiones Las particiones
+     * @return Cantidad de bytes
+     */
+    static long getTamaño(Collection<Particion> particiones) {
+        long tamaño = 0;
+        for (Particion particion : particiones) {
+            tamaño += particion.tamaño;
+        }
+        return tamaño;
+    }
+
+    private static byte[] codificar(int mes, Movimientos movimientos) throws IOException {
+        // Entradas (incluidas las de salidas cuya entrada no está registrada), empleados y vehículos referenciados
+        Map<Entrada, Integer> entradas = new IdentityHashMap<>();
+        List<Entrada> filasEntradas = new ArrayList<>();
+        Set<Entrada> registradas = java.util.Collections.newSetFromMap(new IdentityHashMap<>());
+        registradas.addAll(movimientos.entradas);
+        movimientos.entradas.forEach(e -> numerar(entradas, filasEntradas, e));
+        movimientos.salidas.forEach(s -> numerar(entradas, filasEntradas, s.getEntrada()));
+        Map<Empleado, Integer> empleados = new IdentityHashMap<>();
+        List<Empleado> filasEmpleados = new ArrayList<>();
+        Map<Vehiculo, Integer> vehiculos = new IdentityHashMap<>();
+        List<Vehiculo> filasVehiculos = new ArrayList<>();
+        for (Entrada e : filasEntradas) {
+            numerar(empleados, filasEmpleados, e.getEmpleado());
+            numerar(vehiculos, filasVehiculos, e.getVehiculo());
+        }
+        movimientos.salidas.forEach(s -> numerar(empleados, filasEmpleados, s.getEmpleado()));
+        for (Servicio s : movimientos.servicios) {
+            numerar(empleados, filasEmpleados, s.getEmpleado());
+            numerar(vehiculos, filasVehiculos, s.getVehiculo());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGICO);
+        out.writeInt(VERSION);
+        out.writeInt(mes);
+
+        out.writeInt(filasEmpleados.size());
+        for (Empleado e : filasEmpleados) {
+            out.writeInt(e.getNumeroEmpleado());
+            escribirTexto(out, e.getCedula());
+            escribirTexto(out, e.getNombre());
+            escribirTexto(out, e.getDireccion());
+            out.writeBoolean(e.getActivo());
+        }
+        out.writeInt(filasVehiculos.size());
+        for (Vehiculo v : filasVehiculos) {
+            escribirTexto(out, v.getMatricula());
+            escribirTexto(out, v.getMarca());
+            escribirTexto(out, v.getModelo());
+            escribirTexto(out, v.getEstado());
+        }
+
+        out.writeInt(filasEntradas.size());
+        for (Entrada e : filasEntradas) {
+            out.writeBoolean(registradas.contains(e));
+            out.writeInt(fila(vehiculos, e.getVehiculo()));
+            out.writeInt(fila(empleados, e.getEmpleado()));
+            out.writeLong(e.getMinutoEpoch());
+            escribirTexto(out, e.getNotas());
+            out.writeBoolean(e.getTieneContrato());
+        }
+        out.writeInt(movimientos.salidas.size());
+        for (Salida s : movimientos.salidas) {
+            out.writeInt(fila(entradas, s.getEntrada()));
+            out.writeInt(fila(empleados, s.getEmpleado()));
+            out.writeLong(s.getMinutoEpoch());
+            escribirTexto(out, s.getComentario());
+            out.writeBoolean(s.getTeniaContrato());
+            escribirTexto(out, s.getTiempoEstadia());
+        }
+        out.writeInt(movimientos.servicios.size());
+        for (Servicio s : movimientos.servicios) {
+            escribirTexto(out, s.getTipo());
+            out.writeInt(fila(vehiculos, s.getVehiculo()));
+            out.writeInt(fila(empleados, s.getEmpleado()));
+            out.writeLong(s.getMinutoEpoch());
+            out.writeDouble(s.getCosto());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static <T> void numerar(Map<T, Integer> filas, List<T> lista, T entidad) {
+        if (entidad != null && !filas.containsKey(entidad)) {
+            filas.put(entidad, lista.size());
+            lista.add(entidad);
+        }
+    }
+
+    private static <T> int fila(Map<T, Integer> filas, T entidad) {
+        return entidad == null ? -1 : filas.get(entidad);
+    }
+
+    private static void escribirTexto(DataOutputStream out, String texto) throws IOException {
+        out.writeBoolean(texto != null);
+        if (texto != null) {
+            out.writeUTF(texto);
+        }
+    }
+
+    /**
+     * Elimina los archivos de particiones que no figuran en el manifiesto (versiones anteriores
+     * de cada mes y restos de grabaciones fallidas).
+     * @param directorio Directorio del archivo de datos
+     * @param prefijo Prefijo del nombre de las particiones
+     * @param vigentes Particiones del manifiesto grabado
+     * @throws IOException Si no se puede eliminar algún archivo
+     */
+    static void eliminarNoVigentes(Path directorio, String prefijo, Collection<Particion> vigentes) throws IOException {
+        Set<Path> usados = new HashSet<>();
+        for (Particion particion : vigentes) {
+            usados.add(getArchivo(directorio, prefijo, particion.mes, particion.numero));
+        }
+        List<Path> sobrantes = new ArrayList<>();
+        try (DirectoryStream<Path> lista = Files.newDirectoryStream(directorio, prefijo + ".*")) {
+            for (Path archivo : lista) {
+                String sufijo = archivo.getFileName().toString().substring(prefijo.length() + 1);
+                if (sufijo.matches("\\d{4}-\\d{2}\\.\\d+(\\.tmp)?") && !usados.contains(archivo)) {
+                    sobrantes.add(archivo);
+                }
+            }
+        }
+        for (Path archivo : sobrantes) {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    private static Path getArchivo(Path directorio, String prefijo, int mes, long numero) {
+        return directorio.resolve(String.format("%s.%04d-%02d.%06d", prefijo, mes / 100, mes % 100, numero));
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Lee particiones del manifiesto de un archivo de datos, de a una. Los vehículos y empleados
+     * se asocian a los que estaban registrados al leer el archivo de datos, por la matrícula, y
+     * por el número y la cédula, que tenían entonces (las particiones se grabaron con esos datos,
+     * aunque después cambien). Los que no estaban registrados se recrean con los datos guardados,
+     * una sola vez para todas las particiones que lea el mismo lector.
+     */
+    static final class Lector {
+        private final Path directorio;
+        private final String prefijo;
+        private final Map<String, Vehiculo> vehiculos = new HashMap<>();
+        private final Map<String, Empleado> empleados = new HashMap<>();
+        // Entidades no registradas recreadas, compartidas entre particiones
+        private final Map<String, Vehiculo> vehiculosRecreados = new HashMap<>();
+        private final Map<String, Empleado> empleadosRecreados = new HashMap<>();
+
+        /**
+         * @param directorio Directorio del archivo de datos
+         * @param prefijo Prefijo del nombre de las particiones
+         * @param vehiculos Vehículos registrados en el archivo de datos
+         * @param empleados Empleados registrados en el archivo de datos
+         */
+        Lector(Path directorio, String prefijo, Collection<Vehiculo> vehiculos, Collection<Empleado> empleados) {
+            this.directorio = directorio;
+            this.prefijo = prefijo;
+            vehiculos.forEach(v -> this.vehiculos.putIfAbsent(v.getMatricula(), v));
+            empleados.forEach(e -> this.empleados.putIfAbsent(e.getNumeroEmpleado() + "/" + e.getCedula(), e));
+        }
+
+        /**
+         * Lee una partición y verifica su CRC.
+         * @param particion La partición del manifiesto
+         * @return Sus movimientos: las entradas registradas, las salidas y los servicios
+         * @throws IOException Si falta la partición o está dañada
+         */
+        synchronized Movimientos leer(Particion particion) throws IOException {
+            Path archivo = getArchivo(directorio, prefijo, particion.mes, particion.numero);
+            byte[] contenido = Files.readAllBytes(archivo);
+            CRC32 crc = new CRC32();
+            crc.update(contenido);
+            if (crc.getValue() != particion.crc) {
+                throw new IOException("La partición " + archivo.getFileName() + " está dañada");
+            }
+            return decodificar(contenido, particion);
+        }
+
+        private Movimientos decodificar(byte[] contenido, Particion particion) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(contenido));
+            if (in.readInt() != MAGICO || in.readInt() != VERSION || in.readInt() != particion.mes) {
+                throw new IOException("El archivo no es la partición del mes " + particion.mes);
+            }
+
+            Empleado[] filasEmpleados = new Empleado[in.readInt()];
+            for (int i = 0; i < filasEmpleados.length; i++) {
+                int numero = in.readInt();
+                String cedula = leerTexto(in);
+                String nombre = leerTexto(in);
+                String direccion = leerTexto(in);
+                boolean activo = in.readBoolean();
+                String clave = numero + "/" + cedula;
+                Empleado registrado = empleados.get(clave);
+                // Un empleado eliminado del sistema se recrea con los datos que tenía al grabar la partición
+                filasEmpleados[i] = registrado != null ? registrado : empleadosRecreados.computeIfAbsent(clave, k -> {
+                    Empleado empleado = new Empleado(cedula, nombre, direccion, numero);
+                    empleado.setActivo(activo);
+                    return empleado;
+                });
+            }
+            Vehiculo[] filasVehiculos = new Vehiculo[in.readInt()];
+            for (int i = 0; i < filasVehiculos.length; i++) {
+                String matricula = leerTexto(in);
+                String marca = leerTexto(in);
+                String modelo = leerTexto(in);
+                String estado = leerTexto(in);
+                Vehiculo registrado = vehiculos.get(matricula);
+                filasVehiculos[i] = registrado != null ? registrado
+                    : vehiculosRecreados.computeIfAbsent(matricula, m -> new Vehiculo(m, marca, modelo, estado));
+            }
+
+            Movimientos movimientos = new Movimientos();
+            Entrada[] filasEntradas = new Entrada[in.readInt()];
+            for (int i = 0; i < filasEntradas.length; i++) {
+                boolean registrada = in.readBoolean();
+                Vehiculo vehiculo = ref(filasVehiculos, in.readInt());
+                Empleado empleado = ref(filasEmpleados, in.readInt());
+                long minuto = in.readLong();
+                String notas = leerTexto(in);
+                boolean tieneContrato = in.readBoolean();
+                filasEntradas[i] = new Entrada(vehiculo, empleado, minuto, notas, tieneContrato);
+                if (registrada) {
+                    movimientos.entradas.add(filasEntradas[i]);
+                }
+            }
+            int cantidad = in.readInt();
+            for (int i = 0; i < cantidad; i++) {
+                Entrada entrada = ref(filasEntradas, in.readInt());
+                Empleado empleado = ref(filasEmpleados, in.readInt());
+                long minuto = in.readLong();
+                String comentario = leerTexto(in);
+                boolean teniaContrato = in.readBoolean();
+                String tiempoEstadia = leerTexto(in);
+                movimientos.salidas.add(new Salida(entrada, empleado, minuto, comentario, teniaContrato, tiempoEstadia));
+            }
+            cantidad = in.readInt();
+            for (int i = 0; i < cantidad; i++) {
+                String tipo = leerTexto(in);
+                Vehiculo vehiculo = ref(filasVehiculos, in.readInt());
+                Empleado empleado = ref(filasEmpleados, in.readInt());
+                long minuto = in.readLong();
+                double costo = in.readDouble();
+                movimientos.servicios.add(new Servicio(tipo, vehiculo, empleado, minuto, costo));
+            }
+            return movimientos;
+        }
+    }
+
+    private static <T> T ref(T[] filas, int indice) {
+        return indice < 0 ? null : filas[indice];
+    }
+
+    private static String leerTexto(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
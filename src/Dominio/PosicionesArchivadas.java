@@ -0,0 +1,84 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.Arrays;
+
+/**
+ * Posiciones de estadías en el archivo de estadías, cada una con el vehículo de la estadía.
+ * Guarda las posiciones en un arreglo de long, sin un objeto por elemento, porque el sistema
+ * conserva una posición por cada estadía archivada.
+ */
+final class PosicionesArchivadas {
+    private long[] posiciones;
+    private Vehiculo[] vehiculos;
+    private int cantidad;
+
+    PosicionesArchivadas() {
+        posiciones = new long[4];
+        vehiculos = new Vehiculo[4];
+    }
+
+    /**
+     * Crea la lista con las posiciones de estadías de un mismo vehículo.
+     * @param vehiculo El vehículo de las estadías
+     * @param posiciones Las posiciones (el arreglo no se copia)
+     */
+    PosicionesArchivadas(Vehiculo vehiculo, long[] posiciones) {
+        this.posiciones = posiciones;
+        this.vehiculos = new Vehiculo[posiciones.length];
+        Arrays.fill(vehiculos, vehiculo);
+        this.cantidad = posiciones.length;
+    }
+
+    void agregar(long posicion, Vehiculo vehiculo) {
+        if (cantidad == posiciones.length) {
+            int capacidad = Math.max(4, cantidad + (cantidad >> 1));
+            posiciones = Arrays.copyOf(posiciones, capacidad);
+            vehiculos = Arrays.copyOf(vehiculos, capacidad);
+        }
+        posiciones[cantidad] = posicion;
+        vehiculos[cantidad] = vehiculo;
+        cantidad++;
+    }
+
+    /**
+     * Quita la primera aparición de una posición, conservando el orden de las demás.
+     * @param posicion La posición a quitar
+     * @return true si la posición estaba en la lista
+     */
+    boolean quitar(long posicion) {
+        for (int i = 0; i < cantidad; i++) {
+            if (posiciones[i] == posicion) {
+                System.arraycopy(posiciones, i + 1, posiciones, i, cantidad - i - 1);
+                System.arraycopy(vehiculos, i + 1, vehiculos, i, cantidad - i - 1);
+                cantidad--;
+                vehiculos[cantidad] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long getPosicion(int indice) {
+        return posiciones[indice];
+    }
+
+    Vehiculo getVehiculo(int indice) {
+        return vehiculos[indice];
+    }
+
+    int size() {
+        return cantidad;
+    }
+
+    boolean isEmpty() {
+        return cantidad == 0;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(posiciones, cantidad);
+    }
+}
@@ -0,0 +1,126 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Mantiene las estadías más largas del parking (una cantidad máxima fija).
+ * Cada estadía guarda su duración en minutos ya calculada, por lo que las consultas
+ * no vuelven a convertir fechas ni horas.
+ */
+public class RankingEstadias {
+    // Cantidad de estadías que se conservan por defecto
+    public static final int CAPACIDAD_POR_DEFECTO = 10;
+
+    private final int capacidad;
+
+    // Montículo de mínimos: la estadía más corta del ranking queda en la raíz para poder reemplazarla
+    private final PriorityQueue<Estadia> estadias;
+
+    /**
+     * Crea un ranking vacío.
+     * @param capacidad Cantidad máxima de estadías a conservar
+     * @throws IllegalArgumentException Si la capacidad no es positiva
+     */
+    public RankingEstadias(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del ranking debe ser positiva");
+        }
+        this.capacidad = capacidad;
+        this.estadias = new PriorityQueue<>(capacidad, Comparator.comparingLong(Estadia::getMinutos));
+    }
+
+    /**
+     * Ofrece una estadía al ranking. Solo se conserva si está entre las más largas.
+     * @param salida La salida que cierra la estadía
+     * @param minutos Duración de la estadía en minutos
+     */
+    public void agregar(Salida salida, long minutos) {
+        if (estadias.size() < capacidad) {
+            estadias.add(new Estadia(salida, minutos));
+        } else if (minutos > estadias.peek().getMinutos()) {
+            estadias.poll();
+            estadias.add(new Estadia(salida, minutos));
+        }
+    }
+
+    /**
+     * Quita una estadía del ranking.
+     * @param salida La salida de la estadía a quitar
+     * @return true si la estadía estaba en el ranking (el ranking puede haber quedado incompleto)
+     */
+    public boolean quitar(Salida salida) {
+        return estadias.removeIf(e -> e.getSalida() == salida);
+    }
+
+    /**
+     * Quita del ranking las estadías de un vehículo.
+     * @param vehiculo El vehículo de las estadías a quitar
+     * @return true si alguna estadía del vehículo estaba en el ranking
+     */
+    public boolean quitarDeVehiculo(Vehiculo vehiculo) {
+        return estadias.removeIf(e -> e.getSalida().getEntrada().getVehiculo() == vehiculo);
+    }
+
+    /**
+     * Obtiene la estadía más larga.
+     * @return La estadía más larga, o null si no hay estadías
+     */
+    public Estadia getMasLarga() {
+        List<Estadia> masLargas = getMasLargas(1);
+        return masLargas.isEmpty() ? null : masLargas.get(0);
+    }
+
+    /**
+     * Obtiene las estadías más largas ordenadas de mayor a menor duración.
+     * @param cantidad Cantidad de estadías a obtener (como máximo la capacidad del ranking)
+     * @return Lista de estadías
+     */
+    public List<Estadia> getMasLargas(int cantidad) {
+        List<Estadia> ordenadas = new ArrayList<>(estadias);
+        ordenadas.sort(Comparator.comparingLong(Estadia::getMinutos).reversed());
+        return ordenadas.subList(0, Math.min(Math.max(cantidad, 0), ordenadas.size()));
+    }
+
+    /**
+     * Obtiene la cantidad máxima de estadías que conserva el ranking.
+     * @return La capacidad del ranking
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Elimina todas las estadías del ranking.
+     */
+    public void limpiar() {
+        estadias.clear();
+    }
+
+    /**
+     * Estadía cerrada (entrada con su salida) y su duración en minutos.
+     */
+    public static class Estadia {
+        private final Salida salida;
+        private final long minutos;
+
+        public Estadia(Salida salida, long minutos) {
+            this.salida = salida;
+            this.minutos = minutos;
+        }
+
+        public Salida getSalida() {
+            return salida;
+        }
+
+        public long getMinutos() {
+            return minutos;
+        }
+    }
+}
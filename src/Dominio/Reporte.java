@@ -19,6 +19,108 @@ public class Reporte {
     // Formateador constante para horas en formato HH:mm (24 horas)
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
     
+    // Minutos en un día, para separar el día y la hora de un minuto epoch
+    public static final int MINUTOS_POR_DIA = 24 * 60;
+    
+    /**
+     * Convierte una fecha y una hora al minuto epoch con el que se guardan los movimientos.
+     * El minuto epoch cuenta los minutos desde 1970-01-01 00:00 en hora local (sin zona horaria),
+     * por lo que el día y la hora se obtienen con divisiones enteras.
+     * 
+     * @param fecha Objeto Date que representa la fecha (se toma el día en la zona del sistema)
+     * @param horaStr String que representa la hora en formato H:mm o HH:mm
+     * @return Minutos desde 1970-01-01 00:00
+     * @throws IllegalArgumentException Si la hora no tiene el formato H:mm o está fuera de rango
+     */
+    public static long toMinutoEpoch(Date fecha, String horaStr) {
+        long dia = fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+        int separador = horaStr.indexOf(':');
+        if (separador < 0) {
+            throw new IllegalArgumentException("Formato de hora debe ser HH:MM (24 horas): " + horaStr);
+        }
+        int horas = Integer.parseInt(horaStr.substring(0, separador).trim());
+        int minutos = Integer.parseInt(horaStr.substring(separador + 1).trim());
+        if (horas < 0 || horas > 23 || minutos < 0 || minutos > 59) {
+            throw new IllegalArgumentException("Hora fuera de rango: " + horaStr);
+        }
+        return dia * MINUTOS_POR_DIA + horas * 60 + minutos;
+    }
+    
+    /**
+     * Convierte una fecha y hora local al minuto epoch con el que se guardan los movimientos.
+     *
+     * @param fechaHora Fecha y hora local
+     * @return Minutos desde 1970-01-01 00:00
+     */
+    public static long toMinutoEpoch(LocalDateTime fechaHora) {
+        return Math.floorDiv(fechaHora.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Lee el minuto epoch de un movimiento guardado en archivo. Los archivos anteriores
+     * guardaban la fecha (Date) y la hora (String) por separado; en ese caso se convierten.
+     * 
+     * @param campos Campos leídos del archivo
+     * @return Minutos desde 1970-01-01 00:00
+     */
+    static long leerMinutoEpoch(java.io.ObjectInputStream.GetField campos) throws java.io.IOException, ClassNotFoundException {
+        if (campos.getObjectStreamClass().getField("fecha") != null) {
+            return toMinutoEpoch((Date) campos.get("fecha", null), (String) campos.get("hora", null));
+        }
+        return campos.get("minutoEpoch", 0L);
+    }
+    
+    /**
+     * Convierte un minuto epoch a LocalDateTime.
+     * 
+     * @param minutoEpoch Minutos desde 1970-01-01 00:00
+     * @return LocalDateTime correspondiente
+     */
+    public static LocalDateTime toLocalDateTime(long minutoEpoch) {
+        return LocalDateTime.ofEpochSecond(minutoEpoch * 60, 0, ZoneOffset.UTC);
+    }
+    
+    /**
+     * Obtiene el día epoch (días desde 1970-01-01) de un minuto epoch.
+     * 
+     * @param minutoEpoch Minutos desde 1970-01-01 00:00
+     * @return Día epoch
+     */
+    public static long getDiaEpoch(long minutoEpoch) {
+        return Math.floorDiv(minutoEpoch, MINUTOS_POR_DIA);
+    }
+    
+    /**
+     * Obtiene los minutos transcurridos del día de un minuto epoch.
+     * 
+     * @param minutoEpoch Minutos desde 1970-01-01 00:00
+     * @return Minutos desde la medianoche (0-1439)
+     */
+    public static int getMinutoDelDia(long minutoEpoch) {
+        return Math.floorMod(minutoEpoch, MINUTOS_POR_DIA);
+    }
+    
+    /**
+     * Convierte el día de un minuto epoch a Date (medianoche en la zona del sistema).
+     * 
+     * @param minutoEpoch Minutos desde 1970-01-01 00:00
+     * @return Date del día correspondiente
+     */
+    public static Date toFecha(long minutoEpoch) {
+        return Date.from(LocalDate.ofEpochDay(getDiaEpoch(minutoEpoch)).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+    
+    /**
+     * Convierte la hora de un minuto epoch a String en formato HH:mm.
+     * 
+     * @param minutoEpoch Minutos desde 1970-01-01 00:00
+     * @return Hora en formato HH:mm
+     */
+    public static String toHora(long minutoEpoch) {
+        int minutoDelDia = getMinutoDelDia(minutoEpoch);
+        return String.format("%02d:%02d", minutoDelDia / 60, minutoDelDia % 60);
+    }
+    
      /**
      * Convierte un objeto Date y una cadena de hora a LocalDateTime.
      * 
@@ -42,15 +144,37 @@ public class Reporte {
      */
     
     public static int getHoraFromMovimiento(Object movimiento) {
+        long minutoEpoch = getMinutoEpochFromMovimiento(movimiento);
+        return minutoEpoch == Long.MIN_VALUE ? -1 : getMinutoDelDia(minutoEpoch) / 60;
+    }
+    
+    /**
+     * Obtiene el minuto epoch de un movimiento (Entrada, Salida o Servicio).
+     * 
+     * @param movimiento Objeto que puede ser Entrada, Salida o Servicio
+     * @return Minutos desde 1970-01-01 00:00, o Long.MIN_VALUE si el tipo no es reconocido
+     */
+    public static long getMinutoEpochFromMovimiento(Object movimiento) {
         if (movimiento instanceof Entrada e) {
-            return LocalTime.parse(e.getHora(), TIME_FORMATTER).getHour();
+            return e.getMinutoEpoch();
         } else if (movimiento instanceof Salida s) {
-            return LocalTime.parse(s.getHora(), TIME_FORMATTER).getHour();
+            return s.getMinutoEpoch();
         } else if (movimiento instanceof Servicio s) {
-            return LocalTime.parse(s.getHora(), TIME_FORMATTER).getHour();
+            return s.getMinutoEpoch();
         }
-        return -1;
+        return Long.MIN_VALUE;
     }
+    /**
+     * Obtiene la fecha y hora de un movimiento (Entrada, Salida o Servicio).
+     * 
+     * @param movimiento Objeto que puede ser Entrada, Salida o Servicio
+     * @return LocalDateTime del movimiento, o null si el tipo no es reconocido
+     */
+    public static LocalDateTime getFechaHoraFromMovimiento(Object movimiento) {
+        long minutoEpoch = getMinutoEpochFromMovimiento(movimiento);
+        return minutoEpoch == Long.MIN_VALUE ? null : toLocalDateTime(minutoEpoch);
+    }
+    
     /**
      * Convierte un objeto Date a LocalDate.
      * 
@@ -66,10 +190,7 @@ public class Reporte {
     public static long calcularDuracionMinutos(Entrada entrada, Salida salida) {
         if (entrada == null || salida == null) return 0;
         
-        LocalDateTime entradaDT = toLocalDateTime(entrada.getFecha(), entrada.getHora());
-        LocalDateTime salidaDT = toLocalDateTime(salida.getFecha(), salida.getHora());
-        
-        return Duration.between(entradaDT, salidaDT).toMinutes();
+        return salida.getMinutoEpoch() - entrada.getMinutoEpoch();
     }
     
     // Formatea LocalDateTime a String legible
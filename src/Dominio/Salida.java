@@ -9,13 +9,16 @@ import java.util.Date;
 
 //Representa una salida del parking, con entrada, empleado, fecha, hora, comentario, si tiene contrato y tiempo de estadía.
 public class Salida implements Serializable {
-    private final Entrada entrada;
-    private final Empleado empleado;
-    private final Date fecha;
-    private final String hora;
-    private final String comentario;
-    private final boolean teniaContrato;
-    private final String tiempoEstadia;
+    // Mismo identificador que la versión que guardaba fecha y hora por separado, para leer esos archivos
+    private static final long serialVersionUID = -8561953587116778982L;
+
+    private Entrada entrada;
+    private Empleado empleado;
+    // Fecha y hora de la salida en minutos desde 1970-01-01 00:00 (ver Reporte.toMinutoEpoch)
+    private long minutoEpoch;
+    private String comentario;
+    private boolean teniaContrato;
+    private String tiempoEstadia;
 
     /** Crea un objeto de tipo Salida. Se asume que los datos son correctos; unaEntrada registro de entrada asociado,
     unEmpleado empleado que registra la salida, unaFecha fecha de salida, unaHora hora de salida (formato HH:MM 24hs),
@@ -25,8 +28,18 @@ public class Salida implements Serializable {
                  String tiempoEstadia) {
         this.entrada = unaEntrada;
         this.empleado = unEmpleado;
-        this.fecha = unaFecha;
-        this.hora = unaHora;
+        this.minutoEpoch = Reporte.toMinutoEpoch(unaFecha, unaHora);
+        this.comentario = unComentario;
+        this.teniaContrato = teniaContrato;
+        this.tiempoEstadia = tiempoEstadia;
+    }
+
+    /** Crea un objeto de tipo Salida con la fecha y hora ya convertidas a minuto epoch (ver Reporte.toMinutoEpoch). */
+    public Salida(Entrada unaEntrada, Empleado unEmpleado, long minutoEpoch, String unComentario, boolean teniaContrato, 
+                 String tiempoEstadia) {
+        this.entrada = unaEntrada;
+        this.empleado = unEmpleado;
+        this.minutoEpoch = minutoEpoch;
         this.comentario = unComentario;
         this.teniaContrato = teniaContrato;
         this.tiempoEstadia = tiempoEstadia;
@@ -41,12 +54,16 @@ public class Salida implements Serializable {
         return this.empleado;
     }
   
+    public long getMinutoEpoch() {
+        return this.minutoEpoch;
+    }
+
     public Date getFecha() {
-        return this.fecha;
+        return Reporte.toFecha(this.minutoEpoch);
     }
    
     public String getHora() {
-        return this.hora;
+        return Reporte.toHora(this.minutoEpoch);
     }
    
     public String getComentario() {
@@ -66,7 +83,18 @@ public class Salida implements Serializable {
     public String toString() {
         return "Salida: " + this.entrada.getVehiculo().getMatricula() + 
                " - Estadia: " + this.tiempoEstadia + 
-               " - " + this.fecha.toString() + " " + this.hora + 
+               " - " + getFecha().toString() + " " + getHora() + 
                " (" + this.empleado.getNombre() + ")";
     }
+
+    // Lectura desde archivo, incluidos los archivos con fecha y hora por separado
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField campos = in.readFields();
+        entrada = (Entrada) campos.get("entrada", null);
+        empleado = (Empleado) campos.get("empleado", null);
+        minutoEpoch = Reporte.leerMinutoEpoch(campos);
+        comentario = (String) campos.get("comentario", null);
+        teniaContrato = campos.get("teniaContrato", false);
+        tiempoEstadia = (String) campos.get("tiempoEstadia", null);
+    }
 }
\ No newline at end of file
@@ -6,25 +6,50 @@ package Dominio;
 
 import Dominio.Sistema;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Clase utilitaria para serializar y deserializar el estado del sistema.
  * Permite guardar y cargar el estado completo del parking en un archivo.
+ * Los archivos se graban en el formato de SerializadorBinario, comprimidos o no (ver Compresion);
+ * al cargar la compresión se detecta sola y también se aceptan los archivos grabados con la
+ * serialización de Java.
  */
 public class Serializador {
     
      /**
-     * Guarda el estado del sistema en un archivo mediante serialización.
+     * Guarda el estado del sistema en un archivo mediante serialización, con la compresión
+     * configurada (Compresion.getConfigurada y Compresion.getNivelConfigurado).
      * 
      * @param sistema Objeto Sistema que contiene todos los datos del parking
      * @param archivo Ruta del archivo donde se guardarán los datos serializados
      * @throws IOException Si ocurre un error durante la escritura del archivo
      */
     public static void guardar(Sistema sistema, String archivo) throws IOException {
-        // Usamos try-with-resources para asegurar que el stream se cierre correctamente
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(archivo))) {
-            // Serializa el objeto sistema y lo escribe en el archivo
-            out.writeObject(sistema);
+        guardar(sistema, archivo, Compresion.getConfigurada(), Compresion.getNivelConfigurado());
+    }
+    
+     /**
+     * Guarda el estado del sistema en un archivo mediante serialización, con la compresión indicada.
+     * 
+     * @param sistema Objeto Sistema que contiene todos los datos del parking
+     * @param archivo Ruta del archivo donde se guardarán los datos serializados
+     * @param compresion Compresión del archivo
+     * @param nivel Nivel de compresión (0 a 9, o -1 para el nivel por defecto)
+     * @throws IOException Si ocurre un error durante la escritura del archivo
+     */
+    public static void guardar(Sistema sistema, String archivo, Compresion compresion, int nivel) throws IOException {
+        // Usamos try-with-resources para asegurar que el canal se cierre correctamente
+        try (FileChannel canal = FileChannel.open(Paths.get(archivo), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             WritableByteChannel salida = compresion.comprimir(canal, nivel)) {
+            // Escribe las colecciones del sistema en formato binario
+            SerializadorBinario.escribir(sistema.copiarDatos(), salida, null);
         }
     }
     
@@ -38,8 +63,20 @@ public class Serializador {
      */
 
     public static Sistema cargar(String archivo) throws IOException, ClassNotFoundException {
-         // Usamos try-with-resources para asegurar que el stream se cierre correctamente
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(archivo))) {
+        if (SerializadorBinario.esBinario(Paths.get(archivo))) {
+            try (FileChannel canal = FileChannel.open(Paths.get(archivo));
+                 ReadableByteChannel entrada = Compresion.descomprimir(canal)) {
+                // Las estadías archivadas y las particiones de movimientos se leen del mismo directorio
+                java.nio.file.Path directorio = Paths.get(archivo).toAbsolutePath().getParent();
+                DatosSistema datos = SerializadorBinario.leer(entrada);
+                Sistema.leerParticiones(datos, directorio);
+                return Sistema.desdeDatos(datos, Sistema.abrirArchivoEstadias(directorio));
+            }
+        }
+         // Archivo de una versión anterior, grabado con la serialización de Java
+        try (FileChannel canal = FileChannel.open(Paths.get(archivo));
+             ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                 Channels.newInputStream(Compresion.descomprimir(canal))))) {
               // Lee y deserializa el objeto Sistema desde el archivo
             return (Sistema) in.readObject();
         }
@@ -0,0 +1,661 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Formato binario propio para grabar los datos del sistema, en lugar de la serialización de Java.
+ *
+ * El archivo empieza con un número mágico y la versión del formato, seguidos de un diccionario
+ * con todos los textos (matrículas, marcas, nombres, etc.), cada uno guardado una sola vez.
+ * Después vienen las tablas de clientes, empleados, vehículos, contratos, entradas, salidas y
+ * servicios. Cada tabla guarda su cantidad de filas y luego cada columna completa; los números
+ * ocupan un ancho fijo, los textos se guardan como su posición en el diccionario y las
+ * referencias a otras entidades como la fila de la entidad en su tabla (-1 si es null).
+ *
+ * Las tablas incluyen también las entidades referenciadas que ya no están registradas en el
+ * sistema (por ejemplo, un empleado eliminado que registró movimientos); la primera columna
+ * de cada tabla indica si la fila está registrada.
+ *
+ * Desde la versión 2, al final se guardan las posiciones de las estadías que están en el
+ * archivo de estadías (ver ArchivoEstadias): por cada vehículo, su fila, la cantidad de
+ * posiciones y las posiciones.
+ *
+ * Desde la versión 3, a continuación va el manifiesto de las particiones mensuales de
+ * movimientos (ver ParticionesMovimientos): la cantidad de particiones, o -1 si los movimientos
+ * están en las tablas de este archivo, y por cada una su mes, número, primera y última
+ * fecha/hora, cantidad de movimientos, tamaño y CRC32.
+ *
+ * Desde la versión 4, el manifiesto guarda también la cantidad de entradas sin salida de cada
+ * partición, para leer al cargar solo las que tienen estadías abiertas.
+ */
+public final class SerializadorBinario {
+    // "PKNG" en ASCII
+    private static final int MAGICO = 0x504B4E47;
+    private static final int VERSION = 4;
+
+    // Tamaño del buffer de lectura y escritura
+    private static final int TAMAÑO_BUFFER = 64 * 1024;
+
+    private SerializadorBinario() {
+    }
+
+    /**
+     * Indica si un archivo está grabado en este formato, comprimido o no (ver Compresion).
+     * @param archivo El archivo a verificar
+     * @return true si empieza (una vez descomprimido) con el número mágico del formato
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public static boolean esBinario(Path archivo) throws IOException {
+        try (FileChannel archivoCanal = FileChannel.open(archivo, StandardOpenOption.READ);
+             ReadableByteChannel canal = Compresion.descomprimir(archivoCanal)) {
+            ByteBuffer inicio = ByteBuffer.allocate(4);
+            while (inicio.hasRemaining() && canal.read(inicio) >= 0) {
+                // Lee hasta completar el número mágico o llegar al final
+            }
+            return !inicio.hasRemaining() && inicio.getInt(0) == MAGICO;
+        }
+    }
+
+    /**
+     * Convierte un archivo grabado con la serialización de Java (DATOS.ser) a este formato.
+     * @param origen Archivo .ser a convertir
+     * @param destino Archivo en formato binario a crear (se reemplaza si existe)
+     * @throws IOException Si no se puede leer o escribir algún archivo
+     * @throws ClassNotFoundException Si el archivo de origen contiene clases desconocidas
+     */
+    public static void convertir(Path origen, Path destino) throws IOException, ClassNotFoundException {
+        Sistema sistema;
+        try (ObjectInputStream in = new ObjectInputStream(new java.io.BufferedInputStream(Files.newInputStream(origen)))) {
+            sistema = (Sistema) in.readObject();
+        }
+        try (FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            escribir(sistema.copiarDatos(), canal, null);
+        }
+    }
+
+    // ==================== ESCRITURA ====================
+
+    /**
+     * Escribe los datos del sistema en un canal.
+     * @param datos Los datos a escribir
+     * @param canal Canal de destino
+     * @param progreso Recibe la cantidad de bytes escritos a medida que avanza (puede ser null)
+     * @return Cantidad de bytes escritos
+     */
+    static long escribir(DatosSistema datos, WritableByteChannel canal, LongConsumer progreso) throws IOException {
+        // Primero se numeran las entidades (incluidas las referenciadas no registradas) y los textos
+        Tabla<Cliente> clientes = new Tabla<>();
+        Tabla<Empleado> empleados = new Tabla<>();
+        Tabla<Vehiculo> vehiculos = new Tabla<>();
+        Tabla<Entrada> entradas = new Tabla<>();
+        datos.clientes.forEach(clientes::registrar);
+        datos.empleados.forEach(empleados::registrar);
+        datos.vehiculos.forEach(vehiculos::registrar);
+        datos.entradas.forEach(entradas::registrar);
+        datos.archivadas.keySet().forEach(vehiculos::indice);
+        for (Contrato c : datos.contratos) {
+            clientes.indice(c.getCliente());
+            vehiculos.indice(c.getVehiculo());
+            empleados.indice(c.getEmpleado());
+        }
+        for (Salida s : datos.salidas) {
+            entradas.indice(s.getEntrada());
+            empleados.indice(s.getEmpleado());
+        }
+        for (Entrada e : entradas.filas) {
+            vehiculos.indice(e.getVehiculo());
+            empleados.indice(e.getEmpleado());
+        }
+        for (Servicio s : datos.servicios) {
+            vehiculos.indice(s.getVehiculo());
+            empleados.indice(s.getEmpleado());
+        }
+        for (Vehiculo v : vehiculos.filas) {
+            clientes.indice(v.getCliente());
+        }
+
+        Diccionario textos = new Diccionario();
+        for (Cliente c : clientes.filas) {
+            textos.agregar(c.getCedula(), c.getNombre(), c.getDireccion(), c.getCelular());
+        }
+        for (Empleado e : empleados.filas) {
+            textos.agregar(e.getCedula(), e.getNombre(), e.getDireccion());
+        }
+        for (Vehiculo v : vehiculos.filas) {
+            textos.agregar(v.getMatricula(), v.getMarca(), v.getModelo(), v.getEstado());
+        }
+        for (Entrada e : entradas.filas) {
+            textos.agregar(e.getNotas());
+        }
+        for (Salida s : datos.salidas) {
+            textos.agregar(s.getComentario(), s.getTiempoEstadia());
+        }
+        for (Servicio s : datos.servicios) {
+            textos.agregar(s.getTipo());
+        }
+
+        Escritor out = new Escritor(canal, progreso);
+        out.entero(MAGICO);
+        out.entero(VERSION);
+        out.entero(datos.ultimoIdContrato);
+        out.largo(datos.segmentoBitacora);
+
+        out.entero(textos.lista.size());
+        for (String texto : textos.lista) {
+            out.bytes(texto.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Clientes
+        List<Cliente> cs = clientes.filas;
+        clientes.escribirRegistrados(out);
+        for (Cliente c : cs) out.entero(textos.id(c.getCedula()));
+        for (Cliente c : cs) out.entero(textos.id(c.getNombre()));
+        for (Cliente c : cs) out.entero(textos.id(c.getDireccion()));
+        for (Cliente c : cs) out.entero(textos.id(c.getCelular()));
+        for (Cliente c : cs) out.entero(c.getAñoIngreso());
+
+        // Empleados
+        List<Empleado> es = empleados.filas;
+        empleados.escribirRegistrados(out);
+        for (Empleado e : es) out.entero(textos.id(e.getCedula()));
+        for (Empleado e : es) out.entero(textos.id(e.getNombre()));
+        for (Empleado e : es) out.entero(textos.id(e.getDireccion()));
+        for (Empleado e : es) out.entero(e.getNumeroEmpleado());
+        for (Empleado e : es) out.booleano(e.getActivo());
+
+        // Vehículos
+        List<Vehiculo> vs = vehiculos.filas;
+        vehiculos.escribirRegistrados(out);
+        for (Vehiculo v : vs) out.entero(textos.id(v.getMatricula()));
+        for (Vehiculo v : vs) out.entero(textos.id(v.getMarca()));
+        for (Vehiculo v : vs) out.entero(textos.id(v.getModelo()));
+        for (Vehiculo v : vs) out.entero(textos.id(v.getEstado()));
+        for (Vehiculo v : vs) out.entero(clientes.indice(v.getCliente()));
+        for (Vehiculo v : vs) out.booleano(v.getTieneContrato());
+
+        // Contratos (todos registrados)
+        List<Contrato> ks = datos.contratos;
+        out.entero(ks.size());
+        for (Contrato c : ks) out.entero(c.getId());
+        for (Contrato c : ks) out.entero(clientes.indice(c.getCliente()));
+        for (Contrato c : ks) out.entero(vehiculos.indice(c.getVehiculo()));
+        for (Contrato c : ks) out.entero(empleados.indice(c.getEmpleado()));
+        for (Contrato c : ks) out.real(c.getValorMensual());
+        for (Contrato c : ks) out.booleano(c.getActivo());
+
+        // Entradas
+        List<Entrada> ns = entradas.filas;
+        entradas.escribirRegistrados(out);
+        for (Entrada e : ns) out.entero(vehiculos.indice(e.getVehiculo()));
+        for (Entrada e : ns) out.entero(empleados.indice(e.getEmpleado()));
+        for (Entrada e : ns) out.largo(e.getMinutoEpoch());
+        for (Entrada e : ns) out.entero(textos.id(e.getNotas()));
+        for (Entrada e : ns) out.booleano(e.getTieneContrato());
+
+        // Salidas (todas registradas)
+        List<Salida> ss = datos.salidas;
+        out.entero(ss.size());
+        for (Salida s : ss) out.entero(entradas.indice(s.getEntrada()));
+        for (Salida s : ss) out.entero(empleados.indice(s.getEmpleado()));
+        for (Salida s : ss) out.largo(s.getMinutoEpoch());
+        for (Salida s : ss) out.entero(textos.id(s.getComentario()));
+        for (Salida s : ss) out.booleano(s.getTeniaContrato());
+        for (Salida s : ss) out.entero(textos.id(s.getTiempoEstadia()));
+
+        // Servicios (todos registrados)
+        List<Servicio> rs = datos.servicios;
+        out.entero(rs.size());
+        for (Servicio s : rs) out.entero(textos.id(s.getTipo()));
+        for (Servicio s : rs) out.entero(vehiculos.indice(s.getVehiculo()));
+        for (Servicio s : rs) out.entero(empleados.indice(s.getEmpleado()));
+        for (Servicio s : rs) out.largo(s.getMinutoEpoch());
+        for (Servicio s : rs) out.real(s.getCosto());
+
+        // Estadías archivadas
+        List<Map.Entry<Vehiculo, long[]>> as = new ArrayList<>(datos.archivadas.entrySet());
+        out.entero(as.size());
+        for (Map.Entry<Vehiculo, long[]> a : as) out.entero(vehiculos.indice(a.getKey()));
+        for (Map.Entry<Vehiculo, long[]> a : as) out.entero(a.getValue().length);
+        for (Map.Entry<Vehiculo, long[]> a : as) {
+            for (long posicion : a.getValue()) out.largo(posicion);
+        }
+
+        // Manifiesto de particiones
+        List<ParticionesMovimientos.Particion> ps = datos.particiones;
+        out.entero(ps == null ? -1 : ps.size());
+        if (ps != null) {
+            for (ParticionesMovimientos.Particion p : ps) out.entero(p.mes);
+            for (ParticionesMovimientos.Particion p : ps) out.largo(p.numero);
+            for (ParticionesMovimientos.Particion p : ps) out.largo(p.minimo);
+            for (ParticionesMovimientos.Particion p : ps) out.largo(p.maximo);
+            for (ParticionesMovimientos.Particion p : ps) out.entero(p.cantidad);
+            for (ParticionesMovimientos.Particion p : ps) out.largo(p.tamaño);
+            for (ParticionesMovimientos.Particion p : ps) out.largo(p.crc);
+            for (ParticionesMovimientos.Particion p : ps) out.entero(p.abiertas);
+        }
+
+        out.vaciar();
+        return out.total;
+    }
+
+    // ==================== LECTURA ====================
+
+    /**
+     * Lee los datos del sistema desde un canal.
+     * @param canal Canal de origen, posicionado al inicio del archivo
+     * @return Los datos leídos
+     * @throws IOException Si el archivo no está en este formato o está incompleto
+     */
+    static DatosSistema leer(ReadableByteChannel canal) throws IOException {
+        return leer(canal, null);
+    }
+
+    /**
+     * Lee los datos del sistema desde un canal, informando el avance.
+     * @param canal Canal de origen, posicionado al inicio del archivo
+     * @param progreso Recibe la cantidad de bytes leídos a medida que avanza la lectura (puede ser null)
+     * @return Los datos leídos
+     * @throws IOException Si el archivo no está en este formato o está incompleto
+     */
+    static DatosSistema leer(ReadableByteChannel canal, LongConsumer progreso) throws IOException {
+        Lector in = new Lector(canal, progreso);
+        if (in.entero() != MAGICO) {
+            throw new IOException("El archivo no está en el formato binario del sistema");
+        }
+        int version = in.entero();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+        int ultimoIdContrato = in.entero();
+        long segmentoBitacora = in.largo();
+
+        String[] textos = new String[in.entero()];
+        for (int i = 0; i < textos.length; i++) {
+            textos[i] = new String(in.bytes(), StandardCharsets.UTF_8);
+        }
+
+        // Clientes
+        int n = in.entero();
+        boolean[] registrados = in.booleanos(n);
+        int[] cedula = in.enteros(n), nombre = in.enteros(n), direccion = in.enteros(n), celular = in.enteros(n);
+        int[] año = in.enteros(n);
+        Cliente[] clientes = new Cliente[n];
+        List<Cliente> listaClientes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            clientes[i] = new Cliente(texto(textos, cedula[i]), texto(textos, nombre[i]),
+                texto(textos, direccion[i]), texto(textos, celular[i]), año[i]);
+            if (registrados[i]) listaClientes.add(clientes[i]);
+        }
+
+        // Empleados
+        n = in.entero();
+        registrados = in.booleanos(n);
+        cedula = in.enteros(n);
+        nombre = in.enteros(n);
+        direccion = in.enteros(n);
+        int[] numero = in.enteros(n);
+        boolean[] activo = in.booleanos(n);
+        Empleado[] empleados = new Empleado[n];
+        List<Empleado> listaEmpleados = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            empleados[i] = new Empleado(texto(textos, cedula[i]), texto(textos, nombre[i]),
+                texto(textos, direccion[i]), numero[i]);
+            empleados[i].setActivo(activo[i]);
+            if (registrados[i]) listaEmpleados.add(empleados[i]);
+        }
+
+        // Vehículos
+        n = in.entero();
+        registrados = in.booleanos(n);
+        int[] matricula = in.enteros(n), marca = in.enteros(n), modelo = in.enteros(n), estado = in.enteros(n);
+        int[] clienteVehiculo = in.enteros(n);
+        boolean[] tieneContrato = in.booleanos(n);
+        Vehiculo[] vehiculos = new Vehiculo[n];
+        List<Vehiculo> listaVehiculos = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            vehiculos[i] = new Vehiculo(texto(textos, matricula[i]), texto(textos, marca[i]),
+                texto(textos, modelo[i]), texto(textos, estado[i]));
+            if (registrados[i]) listaVehiculos.add(vehiculos[i]);
+        }
+
+        // Contratos
+        n = in.entero();
+        int[] id = in.enteros(n), cliente = in.enteros(n), vehiculo = in.enteros(n), empleado = in.enteros(n);
+        double[] valor = in.reales(n);
+        activo = in.booleanos(n);
+        List<Contrato> listaContratos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Contrato contrato = new Contrato(id[i], ref(clientes, cliente[i]), ref(vehiculos, vehiculo[i]),
+                ref(empleados, empleado[i]), valor[i]);
+            contrato.setActivo(activo[i]);
+            listaContratos.add(contrato);
+        }
+        // El constructor y setActivo de Contrato modifican el vehículo: se restauran sus datos grabados
+        for (int i = 0; i < vehiculos.length; i++) {
+            vehiculos[i].setCliente(ref(clientes, clienteVehiculo[i]));
+            vehiculos[i].setTieneContrato(tieneContrato[i]);
+        }
+
+        // Entradas
+        n = in.entero();
+        registrados = in.booleanos(n);
+        vehiculo = in.enteros(n);
+        empleado = in.enteros(n);
+        long[] minuto = in.largos(n);
+        int[] notas = in.enteros(n);
+        tieneContrato = in.booleanos(n);
+        Entrada[] entradas = new Entrada[n];
+        List<Entrada> listaEntradas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            entradas[i] = new Entrada(ref(vehiculos, vehiculo[i]), ref(empleados, empleado[i]),
+                minuto[i], texto(textos, notas[i]), tieneContrato[i]);
+            if (registrados[i]) listaEntradas.add(entradas[i]);
+        }
+
+        // Salidas
+        n = in.entero();
+        int[] entrada = in.enteros(n);
+        empleado = in.enteros(n);
+        minuto = in.largos(n);
+        int[] comentario = in.enteros(n);
+        tieneContrato = in.booleanos(n);
+        int[] estadia = in.enteros(n);
+        List<Salida> listaSalidas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            listaSalidas.add(new Salida(ref(entradas, entrada[i]), ref(empleados, empleado[i]), minuto[i],
+                texto(textos, comentario[i]), tieneContrato[i], texto(textos, estadia[i])));
+        }
+
+        // Servicios
+        n = in.entero();
+        int[] tipo = in.enteros(n);
+        vehiculo = in.enteros(n);
+        empleado = in.enteros(n);
+        minuto = in.largos(n);
+        double[] costo = in.reales(n);
+        List<Servicio> listaServicios = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            listaServicios.add(new Servicio(texto(textos, tipo[i]), ref(vehiculos, vehiculo[i]),
+                ref(empleados, empleado[i]), minuto[i], costo[i]));
+        }
+
+        // Estadías archivadas (la versión 1 no las tiene)
+        Map<Vehiculo, long[]> archivadas = new IdentityHashMap<>();
+        if (version >= 2) {
+            n = in.entero();
+            vehiculo = in.enteros(n);
+            int[] cantidad = in.enteros(n);
+            for (int i = 0; i < n; i++) {
+                archivadas.put(ref(vehiculos, vehiculo[i]), in.largos(cantidad[i]));
+            }
+        }
+
+        // Manifiesto de particiones (las versiones anteriores tienen los movimientos en este archivo)
+        List<ParticionesMovimientos.Particion> particiones = null;
+        n = version >= 3 ? in.entero() : -1;
+        if (n >= 0) {
+            int[] mes = in.enteros(n);
+            long[] numeroParticion = in.largos(n), minimo = in.largos(n), maximo = in.largos(n);
+            int[] cantidad = in.enteros(n);
+            long[] tamaño = in.largos(n), crc = in.largos(n);
+            int[] abiertas = version >= 4 ? in.enteros(n) : null;
+            particiones = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                particiones.add(new ParticionesMovimientos.Particion(mes[i], numeroParticion[i], minimo[i],
+                    maximo[i], cantidad[i], tamaño[i], crc[i], abiertas == null ? -1 : abiertas[i]));
+            }
+        }
+
+        return new DatosSistema(listaClientes, listaVehiculos, listaEmpleados, listaContratos,
+            listaEntradas, listaSalidas, listaServicios, archivadas, ultimoIdContrato, segmentoBitacora, particiones);
+    }
+
+    private static String texto(String[] textos, int id) {
+        return id < 0 ? null : textos[id];
+    }
+
+    private static <T> T ref(T[] filas, int indice) {
+        return indice < 0 ? null : filas[indice];
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Numera las entidades de una tabla por identidad, en el orden en que se agregan.
+     */
+    private static class Tabla<T> {
+        final List<T> filas = new ArrayList<>();
+        final List<Boolean> registradas = new ArrayList<>();
+        final Map<T, Integer> indices = new IdentityHashMap<>();
+
+        void registrar(T entidad) {
+            if (!indices.containsKey(entidad)) {
+                indices.put(entidad, filas.size());
+                filas.add(entidad);
+                registradas.add(true);
+            }
+        }
+
+        // Fila de la entidad; si no está en la tabla se agrega como no registrada
+        int indice(T entidad) {
+            if (entidad == null) {
+                return -1;
+            }
+            Integer indice = indices.get(entidad);
+            if (indice == null) {
+                indice = filas.size();
+                indices.put(entidad, indice);
+                filas.add(entidad);
+                registradas.add(false);
+            }
+            return indice;
+        }
+
+        void escribirRegistrados(Escritor out) throws IOException {
+            out.entero(filas.size());
+            for (boolean registrada : registradas) {
+                out.booleano(registrada);
+            }
+        }
+    }
+
+    /**
+     * Diccionario de textos: cada texto distinto se guarda una vez y se referencia por posición.
+     */
+    private static class Diccionario {
+        final List<String> lista = new ArrayList<>();
+        final Map<String, Integer> ids = new HashMap<>();
+
+        void agregar(String... textos) {
+            for (String texto : textos) {
+                if (texto != null && !ids.containsKey(texto)) {
+                    ids.put(texto, lista.size());
+                    lista.add(texto);
+                }
+            }
+        }
+
+        int id(String texto) {
+            return texto == null ? -1 : ids.get(texto);
+        }
+    }
+
+    /**
+     * Escribe valores de ancho fijo en un canal a través de un buffer.
+     */
+    private static class Escritor {
+        private final WritableByteChannel canal;
+        private final LongConsumer progreso;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMAÑO_BUFFER);
+        long total;
+
+        Escritor(WritableByteChannel canal, LongConsumer progreso) {
+            this.canal = canal;
+            this.progreso = progreso;
+        }
+
+        void entero(int valor) throws IOException {
+            asegurar(Integer.BYTES);
+            buffer.putInt(valor);
+        }
+
+        void largo(long valor) throws IOException {
+            asegurar(Long.BYTES);
+            buffer.putLong(valor);
+        }
+
+        void real(double valor) throws IOException {
+            asegurar(Double.BYTES);
+            buffer.putDouble(valor);
+        }
+
+        void booleano(boolean valor) throws IOException {
+            asegurar(1);
+            buffer.put(valor ? (byte) 1 : (byte) 0);
+        }
+
+        void bytes(byte[] valor) throws IOException {
+            entero(valor.length);
+            int escritos = 0;
+            while (escritos < valor.length) {
+                if (!buffer.hasRemaining()) {
+                    vaciar();
+                }
+                int cantidad = Math.min(buffer.remaining(), valor.length - escritos);
+                buffer.put(valor, escritos, cantidad);
+                escritos += cantidad;
+            }
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                vaciar();
+            }
+        }
+
+        void vaciar() throws IOException {
+            buffer.flip();
+            total += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            buffer.clear();
+            if (progreso != null) {
+                progreso.accept(total);
+            }
+        }
+    }
+
+    /**
+     * Lee valores de ancho fijo desde un canal a través de un buffer.
+     */
+    private static class Lector {
+        private final ReadableByteChannel canal;
+        private final LongConsumer progreso;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMAÑO_BUFFER);
+        private long leidos;
+
+        Lector(ReadableByteChannel canal, LongConsumer progreso) {
+            this.canal = canal;
+            this.progreso = progreso;
+            buffer.limit(0);
+        }
+
+        int entero() throws IOException {
+            asegurar(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long largo() throws IOException {
+            asegurar(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        int[] enteros(int cantidad) throws IOException {
+            int[] valores = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                valores[i] = entero();
+            }
+            return valores;
+        }
+
+        long[] largos(int cantidad) throws IOException {
+            long[] valores = new long[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                valores[i] = largo();
+            }
+            return valores;
+        }
+
+        double[] reales(int cantidad) throws IOException {
+            double[] valores = new double[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                asegurar(Double.BYTES);
+                valores[i] = buffer.getDouble();
+            }
+            return valores;
+        }
+
+        boolean[] booleanos(int cantidad) throws IOException {
+            boolean[] valores = new boolean[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                asegurar(1);
+                valores[i] = buffer.get() != 0;
+            }
+            return valores;
+        }
+
+        byte[] bytes() throws IOException {
+            byte[] valor = new byte[entero()];
+            int leidos = 0;
+            while (leidos < valor.length) {
+                if (!buffer.hasRemaining()) {
+                    asegurar(1);
+                }
+                int cantidad = Math.min(buffer.remaining(), valor.length - leidos);
+                buffer.get(valor, leidos, cantidad);
+                leidos += cantidad;
+            }
+            return valor;
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                int cantidad = canal.read(buffer);
+                if (cantidad < 0) {
+                    throw new EOFException("El archivo de datos está incompleto");
+                }
+                leidos += cantidad;
+            }
+            buffer.flip();
+            if (progreso != null) {
+                progreso.accept(leidos);
+            }
+        }
+    }
+}
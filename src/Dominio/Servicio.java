@@ -9,19 +9,29 @@ import java.util.Date;
 
 //Representa un servicio del parking, con tipo, vehiculo, empleado, fecha, hora y costo.
 public class Servicio implements Serializable {
+    // Mismo identificador que la versión que guardaba fecha y hora por separado, para leer esos archivos
+    private static final long serialVersionUID = -6528394259514160381L;
+
     private String tipo;
     private Vehiculo vehiculo;
     private Empleado empleado;
-    private Date fecha;
-    private String hora;
+    // Fecha y hora del servicio en minutos desde 1970-01-01 00:00 (ver Reporte.toMinutoEpoch)
+    private long minutoEpoch;
     private double costo;
 
     public Servicio(String tipo, Vehiculo vehiculo, Empleado empleado, Date fecha,String hora, double costo) {
         this.tipo = tipo;
         this.vehiculo = vehiculo;
         this.empleado = empleado;
-        this.fecha = fecha;
-        this.hora = hora;
+        this.minutoEpoch = Reporte.toMinutoEpoch(fecha, hora);
+        this.costo = costo;
+    }
+
+    public Servicio(String tipo, Vehiculo vehiculo, Empleado empleado, long minutoEpoch, double costo) {
+        this.tipo = tipo;
+        this.vehiculo = vehiculo;
+        this.empleado = empleado;
+        this.minutoEpoch = minutoEpoch;
         this.costo = costo;
     }
 
@@ -35,11 +45,15 @@ public class Servicio implements Serializable {
     public Empleado getEmpleado() { 
         return empleado; 
     }
+    public long getMinutoEpoch() { 
+        return minutoEpoch; 
+    }
+
     public Date getFecha() { 
-        return fecha; 
+        return Reporte.toFecha(minutoEpoch); 
     }
     public String getHora() { 
-        return hora; 
+        return Reporte.toHora(minutoEpoch); 
     }
     public double getCosto() { 
         return costo; 
@@ -51,4 +65,14 @@ public class Servicio implements Serializable {
         return String.format("%s - %s - %s - $%.2f", 
             tipo, vehiculo.getMatricula(), empleado.getNombre(), costo);
     }
+
+    // Lectura desde archivo, incluidos los archivos con fecha y hora por separado
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField campos = in.readFields();
+        tipo = (String) campos.get("tipo", null);
+        vehiculo = (Vehiculo) campos.get("vehiculo", null);
+        empleado = (Empleado) campos.get("empleado", null);
+        minutoEpoch = Reporte.leerMinutoEpoch(campos);
+        costo = campos.get("costo", 0.0);
+    }
 }
@@ -0,0 +1,182 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Graba los datos del sistema en segundo plano, cada cierto intervalo y cuando se pide.
+ * La grabación corre en un hilo propio, por lo que la interfaz y los registros de entradas
+ * y salidas no se detienen mientras se escribe el archivo (ver Sistema.grabar).
+ * El avance y el resultado de cada grabación se informan a los observadores registrados.
+ */
+public class ServicioGrabacion implements AutoCloseable {
+    // Propiedad del sistema con el intervalo de grabación automática en minutos (0 la desactiva)
+    public static final String PROPIEDAD_INTERVALO = "parking.grabacion.minutos";
+    public static final long INTERVALO_POR_DEFECTO = 5;
+
+    // Sistema a grabar; se obtiene en cada grabación porque puede reemplazarse al recuperar datos
+    private final Supplier<Sistema> sistema;
+    private final long intervaloMinutos;
+    private final ScheduledExecutorService ejecutor;
+    private final List<ObservadorGrabacion> observadores = new CopyOnWriteArrayList<>();
+
+    // Grabación pendiente o en curso; los pedidos que llegan mientras tanto la comparten
+    private CompletableFuture<Resultado> pendiente;
+
+    // Tamaño de la última grabación, para estimar el avance de la siguiente
+    private volatile long ultimoTamaño = -1;
+
+    /**
+     * Crea el servicio. La grabación automática empieza al llamar a iniciar().
+     * @param sistema Proveedor del sistema a grabar
+     * @param intervaloMinutos Minutos entre grabaciones automáticas (0 para no grabar automáticamente)
+     */
+    public ServicioGrabacion(Supplier<Sistema> sistema, long intervaloMinutos) {
+        this.sistema = sistema;
+        this.intervaloMinutos = intervaloMinutos;
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "grabacion-datos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Obtiene el intervalo de grabación automática configurado con la propiedad del sistema
+     * parking.grabacion.minutos (por ejemplo, -Dparking.grabacion.minutos=10).
+     * @return Minutos entre grabaciones, o el valor por defecto si la propiedad no es válida
+     */
+    public static long getIntervaloConfigurado() {
+        try {
+            long minutos = Long.parseLong(System.getProperty(PROPIEDAD_INTERVALO, String.valueOf(INTERVALO_POR_DEFECTO)));
+            return Math.max(minutos, 0);
+        } catch (NumberFormatException e) {
+            return INTERVALO_POR_DEFECTO;
+        }
+    }
+
+    /**
+     * Inicia la grabación automática, si el intervalo es mayor a cero.
+     */
+    public void iniciar() {
+        if (intervaloMinutos > 0) {
+            ejecutor.scheduleWithFixedDelay(this::grabarAhora, intervaloMinutos, intervaloMinutos, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Pide una grabación inmediata. Si ya hay una pendiente que todavía no empezó, se reutiliza.
+     * @return Resultado de la grabación, que se completa cuando termina de escribirse el archivo
+     */
+    public synchronized CompletableFuture<Resultado> grabarAhora() {
+        if (pendiente != null && !pendiente.isDone()) {
+            return pendiente;
+        }
+        CompletableFuture<Resultado> grabacion = new CompletableFuture<>();
+        pendiente = grabacion;
+        ejecutor.execute(() -> ejecutar(grabacion));
+        return grabacion;
+    }
+
+    /**
+     * Registra un observador que recibe el avance y el resultado de cada grabación.
+     * Los avisos llegan desde el hilo de grabación.
+     * @param observador El observador a registrar
+     */
+    public void agregarObservador(ObservadorGrabacion observador) {
+        observadores.add(observador);
+    }
+
+    /**
+     * Detiene la grabación automática. Una grabación en curso termina antes de cerrar.
+     */
+    @Override
+    public void close() {
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ejecutar(CompletableFuture<Resultado> grabacion) {
+        synchronized (this) {
+            // Los pedidos que lleguen desde ahora necesitan una grabación nueva
+            if (pendiente == grabacion) {
+                pendiente = null;
+            }
+        }
+        long estimado = ultimoTamaño;
+        observadores.forEach(o -> o.avance(0, estimado));
+        long inicio = System.nanoTime();
+        try {
+            long tamaño = sistema.get().grabar(bytes -> observadores.forEach(o -> o.avance(bytes, estimado)));
+            ultimoTamaño = tamaño;
+            Resultado resultado = new Resultado(tamaño, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), LocalDateTime.now());
+            observadores.forEach(o -> o.terminada(resultado));
+            grabacion.complete(resultado);
+        } catch (Exception e) {
+            observadores.forEach(o -> o.fallida(e));
+            grabacion.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Recibe los avisos de las grabaciones.
+     */
+    public interface ObservadorGrabacion {
+        /**
+         * Avance de la grabación en curso.
+         * @param bytesEscritos Bytes escritos hasta el momento
+         * @param bytesEstimados Tamaño de la grabación anterior, o -1 si no se conoce
+         */
+        void avance(long bytesEscritos, long bytesEstimados);
+
+        void terminada(Resultado resultado);
+
+        void fallida(Exception error);
+    }
+
+    /**
+     * Resultado de una grabación terminada.
+     */
+    public static class Resultado {
+        private final long bytes;
+        private final long milisegundos;
+        private final LocalDateTime fin;
+
+        public Resultado(long bytes, long milisegundos, LocalDateTime fin) {
+            this.bytes = bytes;
+            this.milisegundos = milisegundos;
+            this.fin = fin;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getMilisegundos() {
+            return milisegundos;
+        }
+
+        public LocalDateTime getFin() {
+            return fin;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f KB en %d ms", bytes / 1024.0, milisegundos);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * API HTTP local para las terminales de entrada y las barreras, que no tienen ventana.
+ * Atiende pedidos JSON sobre el mismo sistema que la interfaz, en el mismo proceso:
+ *
+ *   POST /entradas                 {"matricula", "empleado", "fecha"?, "hora"?, "notas"?}
+ *   POST /salidas                  {"matricula", "empleado", "fecha"?, "hora"?, "comentario"?}
+ *   POST /servicios                {"matricula", "empleado", "tipo", "costo", "fecha"?, "hora"?}
+ *   GET  /vehiculos/{matricula}               Datos del vehículo
+ *   GET  /vehiculos/{matricula}/en-parking    Si el vehículo está en el parking
+ *   GET  /ocupacion                           Vehículos en el parking y capacidad
+ *
+ * "empleado" es el número de empleado; "fecha" (dd/MM/yyyy) y "hora" (HH:mm) son opcionales
+ * y, si faltan, se usa el momento actual. Las entradas, salidas y servicios se registran en la
+ * misma cola que las ventanas (ver ColaMovimientos) y la respuesta se envía cuando quedaron
+ * registrados. Los errores se responden con {"error": mensaje}. Si el movimiento quedó
+ * registrado pero no se pudo anotar en la bitácora, se responde igual 201 con el aviso en
+ * el campo "advertencia".
+ *
+ * El servidor se habilita con la propiedad del sistema parking.api.puerto. Las conexiones
+ * (incluidas las que quedan abiertas entre pedidos) las atiende el hilo del servidor; cada
+ * pedido se procesa en un hilo virtual si la máquina virtual los tiene (Java 21 o posterior),
+ * o en un pool de hilos si no.
+ *
+ * El servidor del JDK conserva abiertas entre pedidos hasta 200 conexiones inactivas; con más
+ * terminales conectadas se aumenta al iniciar con -Dsun.net.httpserver.maxIdleConnections.
+ */
+public class ServidorPuertas implements AutoCloseable {
+    // Propiedad del sistema con el puerto de la API (sin la propiedad, la API no se inicia)
+    public static final String PROPIEDAD_PUERTO = "parking.api.puerto";
+    // Propiedad del sistema con la dirección donde escucha; por defecto solo el mismo equipo
+    public static final String PROPIEDAD_DIRECCION = "parking.api.direccion";
+    public static final String DIRECCION_POR_DEFECTO = "127.0.0.1";
+
+    // Conexiones pendientes de aceptar
+    private static final int CONEXIONES_EN_ESPERA = 1024;
+
+    // Segundos que se espera a que se registre un movimiento antes de responder con error
+    private static final long ESPERA_REGISTRO = 30;
+
+    // Hilos del pool y pedidos que esperan un hilo, cuando no hay hilos virtuales
+    private static final int HILOS_POOL = 64;
+    private static final int PEDIDOS_EN_ESPERA = 1024;
+
+    // Marca el hilo del servidor mientras atiende un pedido que el pool lleno no aceptó
+    private static final ThreadLocal<Boolean> RECHAZADO = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Sistema sobre el que se atiende; se obtiene en cada pedido porque puede reemplazarse al recuperar datos
+    private final Supplier<Sistema> sistema;
+    private final ColaMovimientos movimientos;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+
+    /**
+     * Crea el servidor y empieza a atender pedidos.
+     * @param sistema Proveedor del sistema (puede devolver null mientras se cargan los datos)
+     * @param movimientos Cola donde se registran las entradas, salidas y servicios
+     * @param direccion Dirección y puerto donde escucha
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public ServidorPuertas(Supplier<Sistema> sistema, ColaMovimientos movimientos, InetSocketAddress direccion)
+            throws IOException {
+        this.sistema = sistema;
+        this.movimientos = movimientos;
+        this.servidor = HttpServer.create(direccion, CONEXIONES_EN_ESPERA);
+        this.ejecutor = crearEjecutor();
+        servidor.setExecutor(ejecutor);
+        servidor.createContext("/entradas", intercambio -> atender(intercambio, "POST", this::registrarEntrada));
+        servidor.createContext("/salidas", intercambio -> atender(intercambio, "POST", this::registrarSalida));
+        servidor.createContext("/servicios", intercambio -> atender(intercambio, "POST", this::registrarServicio));
+        servidor.createContext("/vehiculos/", intercambio -> atender(intercambio, "GET", this::consultarVehiculo));
+        servidor.createContext("/ocupacion", intercambio -> atender(intercambio, "GET", this::consultarOcupacion));
+        servidor.start();
+    }
+
+    /**
+     * Inicia el servidor configurado con las propiedades del sistema parking.api.puerto y
+     * parking.api.direccion (por ejemplo, -Dparking.api.puerto=8080 -Dparking.api.direccion=0.0.0.0).
+     * @param sistema Proveedor del sistema
+     * @param movimientos Cola donde se registran las entradas, salidas y servicios
+     * @return El servidor iniciado, o null si la propiedad no está o no se pudo abrir el puerto
+     */
+    public static ServidorPuertas iniciarConfigurado(Supplier<Sistema> sistema, ColaMovimientos movimientos) {
+        String puerto = System.getProperty(PROPIEDAD_PUERTO, "").trim();
+        if (puerto.isEmpty()) {
+            return null;
+        }
+        try {
+            InetSocketAddress direccion = new InetSocketAddress(
+                System.getProperty(PROPIEDAD_DIRECCION, DIRECCION_POR_DEFECTO), Integer.parseInt(puerto));
+            return new ServidorPuertas(sistema, movimientos, direccion);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("No se pudo iniciar la API de las puertas en el puerto " + puerto + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene la dirección donde escucha el servidor.
+     * @return Dirección y puerto (el puerto asignado, si se pidió el puerto 0)
+     */
+    public InetSocketAddress getDireccion() {
+        return servidor.getAddress();
+    }
+
+    /**
+     * Deja de atender pedidos. Los pedidos en curso tienen hasta un segundo para terminar.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        ejecutor.shutdown();
+    }
+
+    /**
+     * Crea el ejecutor de los pedidos: un hilo virtual por pedido si la máquina virtual los
+     * tiene (se busca por reflexión, porque el proyecto compila para versiones anteriores a
+     * Java 21), o un pool de HILOS_POOL hilos con lugar para PEDIDOS_EN_ESPERA pedidos más.
+     * Con el pool lleno, el pedido lo atiende el mismo hilo del servidor respondiendo 503.
+     */
+    private static ExecutorService crearEjecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(HILOS_POOL, HILOS_POOL, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(PEDIDOS_EN_ESPERA),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "api-puertas");
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                (tarea, lleno) -> {
+                    if (lleno.isShutdown()) {
+                        throw new RejectedExecutionException("El servidor se está cerrando");
+                    }
+                    RECHAZADO.set(Boolean.TRUE);
+                    try {
+                        tarea.run();
+                    } finally {
+                        RECHAZADO.set(Boolean.FALSE);
+                    }
+                });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    // ==================== PEDIDOS ====================
+
+    /**
+     * Atiende un pedido que devuelve un objeto JSON.
+     */
+    private interface Operacion {
+        /**
+         * @param sistema El sistema
+         * @param intercambio El pedido
+         * @return Código HTTP y cuerpo de la respuesta
+         */
+        Respuesta atender(Sistema sistema, HttpExchange intercambio) throws IOException;
+    }
+
+    private void atender(HttpExchange intercambio, String metodo, Operacion operacion) throws IOException {
+        Respuesta respuesta;
+        Sistema actual;
+        try {
+            if (RECHAZADO.get()) {
+                respuesta = Respuesta.error(503, "El servidor está ocupado; intente nuevamente en unos segundos");
+            } else if (!intercambio.getRequestMethod().equalsIgnoreCase(metodo)) {
+                respuesta = Respuesta.error(405, "Método no permitido; use " + metodo);
+            } else if ((actual = sistema.get()) == null) {
+                respuesta = Respuesta.error(503, "Los datos todavía se están cargando");
+            } else {
+                respuesta = operacion.atender(actual, intercambio);
+            }
+        } catch (NoSuchElementException e) {
+            respuesta = Respuesta.error(404, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            respuesta = Respuesta.error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            respuesta = Respuesta.error(409, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            respuesta = Respuesta.error(503, e.getMessage());
+        } catch (RuntimeException e) {
+            respuesta = Respuesta.error(500, "Error interno: " + e.getMessage());
+        }
+        byte[] cuerpo = Json.escribir(respuesta.cuerpo).getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(respuesta.codigo, cuerpo.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(cuerpo);
+        }
+    }
+
+    private Respuesta registrarEntrada(Sistema actual, HttpExchange intercambio) throws IOException {
+        Map<String, Object> pedido = leerPedido(intercambio);
+        Vehiculo vehiculo = buscarVehiculo(actual, texto(pedido, "matricula", true));
+        Empleado empleado = buscarEmpleado(actual, pedido);
+        long minuto = leerMinuto(pedido);
+        Entrada entrada = new Entrada(vehiculo, empleado, minuto, texto(pedido, "notas", false),
+            actual.vehiculoTieneContrato(vehiculo));
+        String advertencia = esperar(movimientos.registrarEntrada(entrada, true));
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("matricula", vehiculo.getMatricula());
+        cuerpo.put("fechaHora", formatear(minuto));
+        cuerpo.put("tieneContrato", entrada.getTieneContrato());
+        if (advertencia != null) {
+            cuerpo.put("advertencia", advertencia);
+        }
+        return new Respuesta(201, cuerpo);
+    }
+
+    private Respuesta registrarSalida(Sistema actual, HttpExchange intercambio) throws IOException {
+        Map<String, Object> pedido = leerPedido(intercambio);
+        String matricula = texto(pedido, "matricula", true);
+        Entrada entrada = actual.buscarEntradaPorMatricula(matricula);
+        if (entrada == null) {
+            throw new NoSuchElementException("El vehículo " + matricula + " no se encuentra en el parking");
+        }
+        Empleado empleado = buscarEmpleado(actual, pedido);
+        long minuto = leerMinuto(pedido);
+        long estadia = minuto - entrada.getMinutoEpoch();
+        if (estadia < 0) {
+            throw new IllegalArgumentException("La salida no puede ser anterior a la entrada (" + formatear(entrada.getMinutoEpoch()) + ")");
+        }
+        String tiempoEstadia = Reporte.formatDuracion(estadia);
+        Salida salida = new Salida(entrada, empleado, minuto, texto(pedido, "comentario", false),
+            entrada.getTieneContrato(), tiempoEstadia);
+        String advertencia = esperar(movimientos.registrarSalida(salida, true));
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("matricula", matricula);
+        cuerpo.put("fechaHora", formatear(minuto));
+        cuerpo.put("tiempoEstadia", tiempoEstadia);
+        cuerpo.put("tieneContrato", entrada.getTieneContrato());
+        if (advertencia != null) {
+            cuerpo.put("advertencia", advertencia);
+        }
+        return new Respuesta(201, cuerpo);
+    }
+
+    private Respuesta registrarServicio(Sistema actual, HttpExchange intercambio) throws IOException {
+        Map<String, Object> pedido = leerPedido(intercambio);
+        Vehiculo vehiculo = buscarVehiculo(actual, texto(pedido, "matricula", true));
+        Empleado empleado = buscarEmpleado(actual, pedido);
+        String tipo = texto(pedido, "tipo", true);
+        if (!(pedido.get("costo") instanceof Number costo) || costo.doubleValue() < 0) {
+            throw new IllegalArgumentException("El campo costo debe ser un número mayor o igual a cero");
+        }
+        long minuto = leerMinuto(pedido);
+        String advertencia = esperar(movimientos.registrarServicio(new Servicio(tipo, vehiculo, empleado, minuto, costo.doubleValue()), true));
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("matricula", vehiculo.getMatricula());
+        cuerpo.put("tipo", tipo);
+        cuerpo.put("costo", costo.doubleValue());
+        cuerpo.put("fechaHora", formatear(minuto));
+        if (advertencia != null) {
+            cuerpo.put("advertencia", advertencia);
+        }
+        return new Respuesta(201, cuerpo);
+    }
+
+    private Respuesta consultarVehiculo(Sistema actual, HttpExchange intercambio) {
+        // Ruta: /vehiculos/{matricula} o /vehiculos/{matricula}/en-parking
+        URI uri = intercambio.getRequestURI();
+        String resto = uri.getRawPath().substring("/vehiculos/".length());
+        boolean enParking = resto.endsWith("/en-parking");
+        if (enParking) {
+            resto = resto.substring(0, resto.length() - "/en-parking".length());
+        }
+        String matricula = URLDecoder.decode(resto, StandardCharsets.UTF_8);
+        if (matricula.isEmpty() || matricula.contains("/")) {
+            throw new NoSuchElementException("Ruta desconocida: " + uri.getPath());
+        }
+
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        if (enParking) {
+            cuerpo.put("matricula", matricula);
+            cuerpo.put("enParking", actual.estaEnParking(matricula));
+            return new Respuesta(200, cuerpo);
+        }
+        Vehiculo vehiculo = buscarVehiculo(actual, matricula);
+        cuerpo.put("matricula", vehiculo.getMatricula());
+        cuerpo.put("marca", vehiculo.getMarca());
+        cuerpo.put("modelo", vehiculo.getModelo());
+        cuerpo.put("estado", vehiculo.getEstado());
+        cuerpo.put("cliente", vehiculo.getCliente() == null ? null : vehiculo.getCliente().getNombre());
+        cuerpo.put("tieneContrato", actual.vehiculoTieneContrato(vehiculo));
+        cuerpo.put("enParking", actual.estaEnParking(matricula));
+        return new Respuesta(200, cuerpo);
+    }
+
+    private Respuesta consultarOcupacion(Sistema actual, HttpExchange intercambio) {
+        Map<String, Object> cuerpo = new LinkedHashMap<>();
+        cuerpo.put("ocupacion", actual.getOcupacion());
+        cuerpo.put("capacidad", actual.getCapacidad());
+        cuerpo.put("completo", actual.estaCompleto());
+        return new Respuesta(200, cuerpo);
+    }
+
+    // ==================== DATOS DE LOS PEDIDOS ====================
+
+    private static Map<String, Object> leerPedido(HttpExchange intercambio) throws IOException {
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            return Json.leerObjeto(new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String texto(Map<String, Object> pedido, String campo, boolean obligatorio) {
+        Object valor = pedido.get(campo);
+        if (valor == null || valor.toString().isBlank()) {
+            if (obligatorio) {
+                throw new IllegalArgumentException("Falta el campo " + campo);
+            }
+            return "";
+        }
+        return valor.toString().trim();
+    }
+
+    private static Vehiculo buscarVehiculo(Sistema actual, String matricula) {
+        Vehiculo vehiculo = actual.buscarVehiculo(matricula);
+        if (vehiculo == null) {
+            throw new NoSuchElementException("No existe un vehículo con matrícula " + matricula);
+        }
+        return vehiculo;
+    }
+
+    private static Empleado buscarEmpleado(Sistema actual, Map<String, Object> pedido) {
+        Object numero = pedido.get("empleado");
+        if (!(numero instanceof Long)) {
+            throw new IllegalArgumentException("El campo empleado debe ser el número del empleado");
+        }
+        Empleado empleado = actual.buscarEmpleado(((Long) numero).intValue());
+        if (empleado == null) {
+            throw new NoSuchElementException("No existe el empleado número " + numero);
+        }
+        return empleado;
+    }
+
+    /**
+     * Obtiene la fecha/hora del pedido (campos fecha y hora), o el momento actual si faltan.
+     * @return Minuto epoch (ver Reporte.toMinutoEpoch)
+     */
+    private static long leerMinuto(Map<String, Object> pedido) {
+        String fecha = texto(pedido, "fecha", false);
+        String hora = texto(pedido, "hora", false);
+        if (fecha.isEmpty() && hora.isEmpty()) {
+            return Reporte.toMinutoEpoch(LocalDateTime.now());
+        }
+        try {
+            return Reporte.toMinutoEpoch(LocalDateTime.parse(fecha + " " + hora, FORMATO_FECHA_HORA));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha u hora inválida. Formato correcto: dd/MM/yyyy y HH:mm");
+        }
+    }
+
+    private static String formatear(long minuto) {
+        return Reporte.formatDateTime(Reporte.toLocalDateTime(minuto));
+    }
+
+    /**
+     * Espera a que se registre un movimiento encolado y relanza su excepción si falló.
+     * @return Aviso si el movimiento se registró pero no se anotó en la bitácora, o null
+     */
+    private static String esperar(CompletableFuture<Void> registro) {
+        try {
+            registro.get(ESPERA_REGISTRO, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MovimientoSinBitacoraException aviso) {
+                return aviso.getMessage();
+            }
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RejectedExecutionException("El movimiento no se registró a tiempo; consulte antes de reintentar");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Pedido interrumpido");
+        }
+    }
+
+    /**
+     * Código HTTP y cuerpo de una respuesta.
+     */
+    private static final class Respuesta {
+        private final int codigo;
+        private final Map<String, Object> cuerpo;
+
+        private Respuesta(int codigo, Map<String, Object> cuerpo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+        }
+
+        private static Respuesta error(int codigo, String mensaje) {
+            Map<String, Object> cuerpo = new LinkedHashMap<>();
+            cuerpo.put("error", mensaje);
+            return new Respuesta(codigo, cuerpo);
+        }
+    }
+}
@@ -16,7 +16,10 @@ import java.time.*;
 import java.time.format.*;
 import java.util.*;
 import java.util.stream.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
 import java.time.Duration;
 import java.util.stream.Collectors;
 
@@ -24,27 +27,198 @@ import java.util.stream.Collectors;
  * Clase principal que representa el sistema de gestión del parking.
  * Contiene todas las operaciones y datos del sistema.
  * Implementa Serializable para permitir la persistencia de datos.
+ *
+ * Puede usarse desde varios hilos a la vez (por ejemplo, varias ventanas de entradas y salidas
+ * y un reporte). Las operaciones que modifican el sistema se ejecutan de a una, bloqueando el
+ * sistema. Las consultas no recorren las colecciones mientras se modifican: los recorridos usan
+ * las vistas de solo lectura (ver getVista), y lo que se lee de los índices se copia con el
+ * cerrojo de lectura tomado durante una búsqueda o una copia del tamaño del resultado, para
+ * recorrerlo o leer el archivo de estadías después, sin bloquear las modificaciones (ver leer).
  */
 public class Sistema implements Serializable {
     // Listas para almacenar todas las entidades del sistema
     private ArrayList<Cliente> clientes = new ArrayList<>();
     private ArrayList<Vehiculo> vehiculos = new ArrayList<>();
     private ArrayList<Empleado> empleados = new ArrayList<>();
-    private ArrayList<Contrato> contratos = new ArrayList<>();
-    private ArrayList<Entrada> entradas = new ArrayList<>();
-    private ArrayList<Salida> salidas = new ArrayList<>();
-    private ArrayList<Servicio> servicios = new ArrayList<>();
+    
+    // Contratos y movimientos en orden de registro; se eliminan de a uno sin recorrer la colección
+    private LinkedHashSet<Contrato> contratos = new LinkedHashSet<>();
+    private LinkedHashSet<Entrada> entradas = new LinkedHashSet<>();
+    private LinkedHashSet<Salida> salidas = new LinkedHashSet<>();
+    private LinkedHashSet<Servicio> servicios = new LinkedHashSet<>();
+    
+    // Último número de contrato asignado; los números no se reutilizan
+    private int ultimoIdContrato;
+    
+    // Primer segmento de la bitácora que no está incluido en este archivo
+    private long segmentoBitacora;
+    
+    // Bitácora donde se anota cada operación; null si el sistema no se cargó con cargarDatos()
+    private transient Bitacora bitacora;
+    
+    // Archivo de las estadías cerradas más antiguas; null si el sistema no se cargó desde archivo
+    private transient ArchivoEstadias archivo;
+    
+    // Indica que el sistema fue reemplazado por otro cargado desde archivo y ya no se graba
+    private transient boolean cerrado;
+    
+    // Error por el que no se pudieron cargar los archivos de datos existentes, o null si se
+    // cargaron (o no había). Con error, el sistema no se graba ni registra movimientos, para
+    // no reemplazar ni eliminar archivos que no leyó.
+    private transient Exception errorCarga;
+    
+    // Cambios desde la última grabación; si son pocos se graba solo un archivo de cambios (ver Delta)
+    private transient CambiosPendientes cambios = new CambiosPendientes();
+    
+    // Archivos de cambios grabados desde el último archivo de datos completo, su tamaño total y
+    // el tamaño de ese archivo (0 si todavía no se grabó ni se cargó)
+    private transient int cantidadDeltas;
+    private transient long bytesDeltas;
+    private transient long tamañoBase;
+    
+    // Manifiesto de las particiones mensuales de movimientos del archivo de datos cargado o grabado
+    // (ver ParticionesMovimientos), los meses que cambiaron desde entonces y si hay que volver a
+    // grabar todos (por ejemplo, porque cambió una matrícula, que las particiones usan como referencia)
+    private transient TreeMap<Integer, ParticionesMovimientos.Particion> particiones = new TreeMap<>();
+    private transient Set<Integer> mesesModificados = new HashSet<>();
+    private transient boolean particionesModificadas;
+    
+    // Particiones del manifiesto que todavía no se leyeron: al cargar solo se leen las que tienen
+    // entradas sin salida, y las demás cuando una consulta o una grabación necesita sus movimientos
+    // (ver leerMeses). Las lee el lector con el que se cargó el archivo de datos; los movimientos
+    // de los vehículos eliminados desde entonces se omiten al leerlas.
+    private transient TreeMap<Integer, ParticionesMovimientos.Particion> mesesSinLeer = new TreeMap<>();
+    private transient volatile boolean hayMesesSinLeer;
+    private transient ParticionesMovimientos.Lector lectorParticiones;
+    private transient Set<Vehiculo> vehiculosEliminados = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    // Bloqueo compartido por todas las grabaciones del archivo de datos
+    private static final Object ESCRITURA = new Object();
+    
+    // Versión y última vista de solo lectura de cada colección que se expone con un getter
+    private transient FuenteVista<Cliente> fuenteClientes = new FuenteVista<>(clientes);
+    private transient FuenteVista<Vehiculo> fuenteVehiculos = new FuenteVista<>(vehiculos);
+    private transient FuenteVista<Empleado> fuenteEmpleados = new FuenteVista<>(empleados);
+    private transient FuenteVista<Contrato> fuenteContratos = new FuenteVista<>(contratos);
+    private transient FuenteVista<Servicio> fuenteServicios = new FuenteVista<>(servicios);
+    
+    // Índice de vehículos por matrícula (no se serializa, se reconstruye al cargar)
+    private transient Map<String, Vehiculo> vehiculosPorMatricula = new HashMap<>();
+    
+    // Entradas sin salida (vehículos en el parking) por matrícula, en orden de llegada
+    private transient Map<String, Entrada> entradasAbiertas = new LinkedHashMap<>();
+    
+    // Cantidad de vehículos en el parking (tamaño de entradasAbiertas), que se lee sin bloquear el sistema
+    private transient AtomicInteger ocupacion = new AtomicInteger();
+    
+    // Cantidad máxima de vehículos en el parking, o 0 si no tiene límite (no se graba; ver PROPIEDAD_CAPACIDAD)
+    private transient volatile int capacidad = getCapacidadConfigurada();
+    
+    // Salida registrada para cada entrada ya cerrada. Es concurrente porque registrarSalida
+    // reclama la entrada antes de bloquear el sistema (las entradas se comparan por identidad)
+    private transient volatile Map<Entrada, Salida> salidaPorEntrada = new ConcurrentHashMap<>();
+    
+    // Índice de empleados por número (no se serializa, se reconstruye al cargar)
+    private transient Map<Integer, Empleado> empleadosPorNumero = new HashMap<>();
+    
+    // Movimientos (entradas, salidas y servicios) de cada vehículo, ordenados por fecha/hora
+    private transient Map<Vehiculo, List<Object>> lineaDeTiempo = new IdentityHashMap<>();
+    
+    // Movimientos de cada intervalo de seis horas, con clave díaEpoch * 4 + intervalo, ordenados por fecha/hora
+    private transient Map<Long, List<Object>> movimientosPorIntervalo = new HashMap<>();
+    
+    // Contratos de cada cliente y de cada vehículo, para eliminarlos en cascada
+    private transient Map<Cliente, List<Contrato>> contratosPorCliente = new IdentityHashMap<>();
+    private transient Map<Vehiculo, List<Contrato>> contratosPorVehiculo = new IdentityHashMap<>();
+    
+    // Contratos por número y contrato activo de cada vehículo
+    private transient Map<Integer, Contrato> contratosPorId = new HashMap<>();
+    private transient Map<Vehiculo, Contrato> contratoActivoPorVehiculo = new IdentityHashMap<>();
+    
+    // Estadísticas que se actualizan al registrar y eliminar datos
+    private transient Contador<String> usosPorTipoServicio = new Contador<>();
+    private transient Contador<Empleado> movimientosPorEmpleado = new Contador<>();
+    private transient Contador<Cliente> contratosActivosPorCliente = new Contador<>();
+    private transient int cantidadContratosActivos;
+    private transient double sumaValoresContratosActivos;
+    
+    // Estadías más largas; queda incompleto si se elimina una estadía que estaba en el ranking
+    private transient RankingEstadias rankingEstadias = new RankingEstadias(RankingEstadias.CAPACIDAD_POR_DEFECTO);
+    private transient volatile boolean rankingIncompleto;
+    
+    // Estadías que se pasaron al archivo de estadías: posiciones de las estadías de cada vehículo
+    // (se graban en el archivo de datos) y, por intervalo de seis horas, los movimientos de esas
+    // estadías con clave posición * 2 para la entrada y posición * 2 + 1 para la salida
+    private transient Map<Vehiculo, PosicionesArchivadas> archivadasPorVehiculo = new IdentityHashMap<>();
+    private transient Map<Long, PosicionesArchivadas> archivadasPorIntervalo = new HashMap<>();
+    private transient int cantidadArchivadas;
+    
+    // Cambios en el historial (línea de tiempo, intervalos, estadísticas, ranking y estadías
+    // archivadas) registrados mientras se construye después de cargar (ver completarHistorial);
+    // se aplican al terminar. Es null cuando el historial está completo.
+    private transient List<Runnable> cambiosHistorial;
+    
+    // Etapas de la última carga y sus tiempos (ver EtapasCarga)
+    private transient EtapasCarga etapasCarga = new EtapasCarga();
+    
+    // Operaciones de la bitácora que se aplicaron al cargar
+    private transient int operacionesRecuperadas;
+    
+    // Cerrojo de las colecciones e índices: lo toman para escribir las operaciones que los
+    // modifican (que además tienen el sistema bloqueado) y para leer las consultas (ver leer)
+    private transient StampedLock cerrojo = new StampedLock();
+    
+    // Orden de los movimientos en la línea de tiempo: fecha/hora y, a igual fecha/hora, tipo de movimiento
+    private static final Comparator<Object> ORDEN_MOVIMIENTOS = Comparator
+        .comparingLong(Reporte::getMinutoEpochFromMovimiento)
+        .thenComparingInt(Sistema::ordenTipoMovimiento);
     
     // Identificador de versión para serialización
     private static final long serialVersionUID = 1L; 
     
+    // Campos que se guardan en el archivo. Las colecciones se guardan como ArrayList
+    // para mantener el formato de los archivos DATOS.ser existentes.
+    private static final java.io.ObjectStreamField[] serialPersistentFields = {
+        new java.io.ObjectStreamField("clientes", ArrayList.class),
+        new java.io.ObjectStreamField("vehiculos", ArrayList.class),
+        new java.io.ObjectStreamField("empleados", ArrayList.class),
+        new java.io.ObjectStreamField("contratos", ArrayList.class),
+        new java.io.ObjectStreamField("entradas", ArrayList.class),
+        new java.io.ObjectStreamField("salidas", ArrayList.class),
+        new java.io.ObjectStreamField("servicios", ArrayList.class),
+        new java.io.ObjectStreamField("ultimoIdContrato", int.class),
+        new java.io.ObjectStreamField("segmentoBitacora", long.class)
+    };
+    
+    // Propiedad del sistema con la capacidad del parking (por ejemplo, -Dparking.capacidad=120)
+    public static final String PROPIEDAD_CAPACIDAD = "parking.capacidad";
+    
     // Tipos de servicios predefinidos disponibles en el sistema
     public static final String[] TIPOS_SERVICIOS = {
         "Lavado", "Cambio de rueda", "Limpieza de tapizado", "Cambio de luces", "Otro"
     };
     
-    // Archivo donde se guardarán los datos serializados
-    private static final String ARCHIVO_DATOS = "DATOS.ser";
+    // Archivo donde se guardan los datos, en el formato de SerializadorBinario
+    private static final String ARCHIVO_DATOS = "DATOS.bin";
+    
+    // Archivo de versiones anteriores (serialización de Java); se lee si todavía no existe ARCHIVO_DATOS
+    private static final String ARCHIVO_DATOS_ANTERIOR = "DATOS.ser";
+    
+    // Prefijo de los segmentos de la bitácora, en el mismo directorio que el archivo de datos
+    private static final String PREFIJO_BITACORA = "DATOS.bitacora";
+    
+    // Prefijo de los segmentos del archivo de estadías, en el mismo directorio que el archivo de datos
+    private static final String PREFIJO_ARCHIVO_ESTADIAS = "DATOS.archivo";
+    
+    // Prefijo de los archivos de cambios, en el mismo directorio que el archivo de datos
+    private static final String PREFIJO_CAMBIOS = "DATOS.cambios";
+    
+    // Prefijo de las particiones mensuales de movimientos, en el mismo directorio que el archivo de datos
+    private static final String PREFIJO_MOVIMIENTOS = "DATOS.movimientos";
+    
+    // Archivos de datos (todos empiezan con este patrón) y directorio donde se apartan (ver apartarDatos)
+    private static final String PATRON_ARCHIVOS_DATOS = "DATOS.*";
+    private static final String PREFIJO_RESPALDO = "DATOS.respaldo-";
     
     // ==================== GESTIÓN DE CLIENTES ====================
     
@@ -52,8 +226,19 @@ public class Sistema implements Serializable {
      * Agrega un nuevo cliente al sistema.
      * @param cliente El cliente a agregar
      */
-    public void agregarCliente(Cliente cliente) {
-        clientes.add(cliente);
+    public synchronized void agregarCliente(Cliente cliente) {
+        long sello = bloquearEscritura();
+        try {
+            clientes.add(cliente);
+            fuenteClientes.modificado();
+            cliente.sistema = this;
+            cambios.clientes.add(cliente);
+            if (bitacora != null) {
+                bitacora.anotarClienteAgregado(cliente);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
     }
     
     /**
@@ -62,7 +247,7 @@ public class Sistema implements Serializable {
      * @return true si existe, false en caso contrario
      */
     public boolean existeCliente(String cedula) {
-        return clientes.stream().anyMatch(c -> c.getCedula().equals(cedula));
+        return getClientes().stream().anyMatch(c -> c.getCedula().equals(cedula));
     }
     
     /**
@@ -71,42 +256,99 @@ public class Sistema implements Serializable {
      * @return El cliente encontrado o null si no existe
      */
     public Cliente buscarCliente(String cedula) {
-        return clientes.stream().filter(c -> c.getCedula().equals(cedula)).findFirst().orElse(null);
+        return getClientes().stream().filter(c -> c.getCedula().equals(cedula)).findFirst().orElse(null);
     }
     
     /**
      * Elimina un cliente del sistema y todos sus contratos asociados.
      * @param cedula La cédula del cliente a eliminar
      */
-    public void eliminarCliente(String cedula) {
-        Cliente cliente = buscarCliente(cedula);
-        if (cliente != null) {
-            // Eliminar contratos asociados al cliente
-            List<Contrato> contratosAEliminar = contratos.stream()
-                .filter(contrato -> contrato.getCliente().equals(cliente))
-                .collect(Collectors.toList());
-            contratos.removeAll(contratosAEliminar);
-            clientes.remove(cliente);
-            reordenarContratos();
+    public synchronized void eliminarCliente(String cedula) {
+        long sello = bloquearEscritura();
+        try {
+            Cliente cliente = buscarCliente(cedula);
+            if (cliente != null) {
+                // Eliminar contratos asociados al cliente
+                List<Contrato> contratosAEliminar = new ArrayList<>(contratosPorCliente.getOrDefault(cliente, Collections.emptyList()));
+                for (Contrato contrato : contratosAEliminar) {
+                    contratos.remove(contrato);
+                    desvincularContrato(contrato);
+                }
+                fuenteContratos.modificado();
+                clientes.remove(cliente);
+                fuenteClientes.modificado();
+                cliente.sistema = null;
+                cambios.clienteEliminado(cliente);
+                if (bitacora != null) {
+                    bitacora.anotarClienteEliminado(cedula);
+                }
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Registra un cliente luego de que cambió alguno de sus datos.
+     * Lo invoca Cliente después de modificarlo.
+     * @param cliente El cliente modificado
+     */
+    synchronized void clienteModificado(Cliente cliente) {
+        cambios.clientes.add(cliente);
+        if (bitacora != null) {
+            bitacora.anotarClienteModificado(cliente.getCedula(), cliente);
+        }
+    }
+    
+    /**
+     * Registra un cliente luego de que cambió su cédula.
+     * Lo invoca Cliente después de modificarla.
+     * @param cliente El cliente modificado
+     * @param cedulaAnterior La cédula que tenía antes, con la que lo identifica la bitácora
+     */
+    synchronized void cedulaModificada(Cliente cliente, String cedulaAnterior) {
+        claveModificada();
+        if (bitacora != null) {
+            bitacora.anotarClienteModificado(cedulaAnterior, cliente);
         }
     }
     
     /**
-     * Reordena los contratos para mantener IDs consecutivos.
+     * Registra un empleado luego de que cambió su número.
+     * Lo invoca Empleado después de modificarlo.
+     * @param empleado El empleado modificado
+     * @param numeroAnterior El número que tenía antes, con el que lo identifica la bitácora
      */
-    private void reordenarContratos() {
-        contratos.sort(Comparator.comparingInt(Contrato::getId));
-        for (int i = 0; i < contratos.size(); i++) {
-            contratos.get(i).id = i + 1;
+    synchronized void numeroEmpleadoModificado(Empleado empleado, int numeroAnterior) {
+        claveModificada();
+        if (bitacora != null) {
+            bitacora.anotarEmpleadoModificado(numeroAnterior, empleado);
         }
     }
     
     /**
-     * Obtiene una copia de la lista de clientes.
-     * @return Lista de clientes
+     * Registra que cambió la clave de una entidad (cédula de un cliente, matrícula de un vehículo
+     * o número de un empleado). Los archivos de cambios identifican las entidades por su clave,
+     * por lo que la próxima grabación debe ser completa.
      */
-    public List<Cliente> getClientes() {
-        return new ArrayList<>(clientes);
+    private void claveModificada() {
+        long sello = bloquearEscritura();
+        try {
+            indexarEmpleados();
+        } finally {
+            desbloquearEscritura(sello);
+        }
+        cambios.requerirGrabacionCompleta();
+        particionesModificadas = true;
+    }
+    
+    /**
+     * Obtiene una vista de solo lectura de los clientes. La vista se reutiliza mientras
+     * no cambien los clientes, por lo que obtenerla no copia la lista en cada llamada.
+     * @return Vista de clientes
+     */
+    public VistaLista<Cliente> getClientes() {
+        return getVista(fuenteClientes);
     }
     
     // ==================== GESTIÓN DE VEHÍCULOS ====================
@@ -115,8 +357,23 @@ public class Sistema implements Serializable {
      * Agrega un vehículo al sistema.
      * @param vehiculo El vehículo a agregar
      */
-    public void agregarVehiculo(Vehiculo vehiculo) {
-        vehiculos.add(vehiculo);
+    public synchronized void agregarVehiculo(Vehiculo vehiculo) {
+        long sello = bloquearEscritura();
+        try {
+            if (vehiculosPorMatricula.containsKey(vehiculo.getMatricula())) {
+                throw new IllegalArgumentException("Ya existe un vehículo con la matrícula " + vehiculo.getMatricula());
+            }
+            vehiculos.add(vehiculo);
+            fuenteVehiculos.modificado();
+            vehiculosPorMatricula.put(vehiculo.getMatricula(), vehiculo);
+            vehiculo.sistema = this;
+            cambios.vehiculos.add(vehiculo);
+            if (bitacora != null) {
+                bitacora.anotarVehiculoAgregado(vehiculo);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
     }
     
     /**
@@ -125,12 +382,7 @@ public class Sistema implements Serializable {
      * @return true si existe, false en caso contrario
      */
     public boolean existeVehiculo(String matricula) {
-        for (Vehiculo vehiculo : vehiculos) {
-            if (vehiculo.getMatricula().equals(matricula)) {
-                return true;
-            }
-        }
-        return false;
+        return leer(() -> vehiculosPorMatricula.containsKey(matricula));
     }
     
     /**
@@ -139,20 +391,70 @@ public class Sistema implements Serializable {
      * @return El vehículo encontrado o null si no existe
      */
     public Vehiculo buscarVehiculo(String matricula) {
-        for (Vehiculo vehiculo : vehiculos) {
-            if (vehiculo.getMatricula().equals(matricula)) {
-                return vehiculo;
+        return leer(() -> vehiculosPorMatricula.get(matricula));
+    }
+    
+    /**
+     * Cambia la matrícula de un vehículo registrado y actualiza el índice de matrículas.
+     * La verificación y el cambio se hacen con el sistema bloqueado, por lo que dos cambios
+     * simultáneos a la misma matrícula no pueden pasar ambos la verificación, y las consultas
+     * no ven el vehículo con la matrícula nueva y el índice todavía con la anterior.
+     * Lo invoca Vehiculo.setMatricula.
+     * @param vehiculo El vehículo que cambia de matrícula
+     * @param nuevaMatricula La matrícula que se quiere asignar
+     * @throws IllegalArgumentException Si la matrícula ya pertenece a otro vehículo
+     */
+    synchronized void cambiarMatricula(Vehiculo vehiculo, String nuevaMatricula) {
+        long sello = bloquearEscritura();
+        try {
+            if (vehiculo.sistema != this) {
+                // Se eliminó del sistema mientras tanto
+                vehiculo.asignarMatricula(nuevaMatricula);
+                return;
+            }
+            Vehiculo existente = vehiculosPorMatricula.get(nuevaMatricula);
+            if (existente != null && existente != vehiculo) {
+                throw new IllegalArgumentException("Ya existe un vehículo con la matrícula " + nuevaMatricula);
+            }
+            String matriculaAnterior = vehiculo.getMatricula();
+            vehiculo.asignarMatricula(nuevaMatricula);
+            if (vehiculosPorMatricula.get(matriculaAnterior) == vehiculo) {
+                vehiculosPorMatricula.remove(matriculaAnterior);
+            }
+            vehiculosPorMatricula.put(nuevaMatricula, vehiculo);
+            Entrada abierta = entradasAbiertas.remove(matriculaAnterior);
+            if (abierta != null) {
+                entradasAbiertas.put(nuevaMatricula, abierta);
             }
+            cambios.requerirGrabacionCompleta();
+            particionesModificadas = true;
+            if (bitacora != null) {
+                bitacora.anotarMatriculaModificada(matriculaAnterior, nuevaMatricula);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+
+    /**
+     * Registra un vehículo luego de que cambió alguno de sus datos (salvo la matrícula).
+     * Lo invoca Vehiculo después de modificarlo.
+     * @param vehiculo El vehículo modificado
+     */
+    synchronized void vehiculoModificado(Vehiculo vehiculo) {
+        cambios.vehiculos.add(vehiculo);
+        if (bitacora != null) {
+            bitacora.anotarVehiculoModificado(vehiculo);
         }
-        return null;
     }
 
     /**
-     * Obtiene una copia de la lista de vehículos.
-     * @return Lista de vehículos
+     * Obtiene una vista de solo lectura de los vehículos. La vista se reutiliza mientras
+     * no cambien los vehículos, por lo que obtenerla no copia la lista en cada llamada.
+     * @return Vista de vehículos
      */
-    public List<Vehiculo> getVehiculos() {
-        return new ArrayList<>(vehiculos);
+    public VistaLista<Vehiculo> getVehiculos() {
+        return getVista(fuenteVehiculos);
     }
     
     /**
@@ -160,12 +462,10 @@ public class Sistema implements Serializable {
      * @return Lista de vehículos sin entrada activa
      */
     public List<Vehiculo> vehiculosSinEntradaActual() {
-        Set<String> matriculasEnParking = entradas.stream()
-            .filter(e -> !entradaTieneSalida(e))
-            .map(e -> e.getVehiculo().getMatricula())
-            .collect(Collectors.toSet());
-        return vehiculos.stream()
-            .filter(v -> !matriculasEnParking.contains(v.getMatricula()))
+        // Se copian solo las matrículas en el parking; los vehículos se recorren en su vista
+        Set<String> enParking = leer(() -> new HashSet<>(entradasAbiertas.keySet()));
+        return getVehiculos().stream()
+            .filter(v -> !enParking.contains(v.getMatricula()))
             .collect(Collectors.toList());
     }
 
@@ -175,11 +475,12 @@ public class Sistema implements Serializable {
      * @return true si tiene contrato activo, false en caso contrario
      */
     public boolean vehiculoTieneContrato(Vehiculo vehiculo) {
-        if (vehiculo == null){
-            return false;
-        }
-        return contratos.stream()
-            .anyMatch(c -> c.getVehiculo().equals(vehiculo) && c.getActivo());
+        return leer(() -> {
+            if (vehiculo == null){
+                return false;
+            }
+            return contratoActivoPorVehiculo.containsKey(vehiculo);
+        });
     }
 
     /**
@@ -188,13 +489,78 @@ public class Sistema implements Serializable {
      * @return true si está en el parking, false en caso contrario
      */
     public boolean estaEnParking(String matricula) {
-        for (Entrada entrada : entradas) {
-            if (!entradaTieneSalida(entrada) && 
-                entrada.getVehiculo().getMatricula().equals(matricula)) {
-                return true;
+        return leer(() -> entradasAbiertas.containsKey(matricula));
+    }
+    
+    // ==================== OCUPACIÓN ====================
+    
+    /**
+     * Obtiene la cantidad de vehículos que están en el parking. No bloquea el sistema, por lo
+     * que puede consultarse desde cualquier hilo mientras se registran entradas y salidas.
+     * @return Vehículos en el parking
+     */
+    public int getOcupacion() {
+        return ocupacion.get();
+    }
+    
+    /**
+     * Obtiene la capacidad del parking.
+     * @return Cantidad máxima de vehículos, o 0 si no tiene límite
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+    
+    /**
+     * Cambia la capacidad del parking. Si es menor que la ocupación actual, los vehículos que
+     * están adentro no se ven afectados, pero no se registran entradas hasta que haya lugar.
+     * @param capacidad Cantidad máxima de vehículos, o 0 para no tener límite
+     * @throws IllegalArgumentException Si la capacidad es negativa
+     */
+    public void setCapacidad(int capacidad) {
+        if (capacidad < 0) {
+            throw new IllegalArgumentException("La capacidad no puede ser negativa");
+        }
+        this.capacidad = capacidad;
+    }
+    
+    /**
+     * Verifica si el parking está completo.
+     * @return true si tiene capacidad y no quedan lugares libres
+     */
+    public boolean estaCompleto() {
+        int limite = capacidad;
+        return limite > 0 && ocupacion.get() >= limite;
+    }
+    
+    /**
+     * Obtiene la capacidad configurada con la propiedad del sistema parking.capacidad.
+     * @return Capacidad del parking, o 0 (sin límite) si la propiedad no está o no es válida
+     */
+    public static int getCapacidadConfigurada() {
+        try {
+            return Math.max(Integer.parseInt(System.getProperty(PROPIEDAD_CAPACIDAD, "0").trim()), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Ocupa un lugar para una entrada: compara la ocupación con la capacidad y la incrementa
+     * en un solo paso atómico, por lo que nunca se supera la capacidad.
+     * @throws IllegalStateException Si el parking está completo
+     */
+    private void reservarLugar() {
+        while (true) {
+            int actual = ocupacion.get();
+            int limite = capacidad;
+            if (limite > 0 && actual >= limite) {
+                throw new IllegalStateException("El parking está completo (capacidad: " + limite + " vehículos)");
+            }
+            if (ocupacion.compareAndSet(actual, actual + 1)) {
+                return;
             }
         }
-        return false;
     }
     
     /**
@@ -203,16 +569,61 @@ public class Sistema implements Serializable {
      * @return true si se eliminó correctamente, false en caso contrario
      */
     public synchronized boolean eliminarVehiculo(Vehiculo vehiculo) {
-        if (vehiculo == null || !vehiculos.contains(vehiculo)) {
-            return false;
+        long sello = bloquearEscritura();
+        try {
+            if (vehiculo == null || !vehiculosPorMatricula.containsKey(vehiculo.getMatricula())) {
+                return false;
+            }
+            Vehiculo registrado = vehiculosPorMatricula.remove(vehiculo.getMatricula());
+            boolean eliminado = vehiculos.remove(registrado);
+            fuenteVehiculos.modificado();
+            registrado.sistema = null;
+            if (entradasAbiertas.remove(registrado.getMatricula()) != null) {
+                ocupacion.decrementAndGet();
+            }
+            // Eliminar contratos asociados
+            List<Contrato> contratosAEliminar = new ArrayList<>(contratosPorVehiculo.getOrDefault(registrado, Collections.emptyList()));
+            for (Contrato contrato : contratosAEliminar) {
+                contratos.remove(contrato);
+                desvincularContrato(contrato);
+            }
+            fuenteContratos.modificado();
+            // Eliminar entradas, salidas y servicios asociados, tomados de la línea de tiempo del vehículo
+            // (o de las listas de movimientos, si el historial todavía se está construyendo)
+            List<Object> movimientos = cambiosHistorial == null ? lineaDeTiempo.get(registrado) : getMovimientosDeListas(registrado);
+            if (movimientos != null) {
+                for (Object movimiento : movimientos) {
+                    mesesModificados.add(ParticionesMovimientos.getMes(movimiento));
+                    if (movimiento instanceof Entrada e) {
+                        entradas.remove(e);
+                    } else if (movimiento instanceof Salida s) {
+                        salidas.remove(s);
+                        salidaPorEntrada.remove(s.getEntrada());
+                    } else if (movimiento instanceof Servicio s) {
+                        servicios.remove(s);
+                    }
+                }
+                fuenteServicios.modificado();
+            }
+            if (hayMesesSinLeer) {
+                // Sus movimientos de las particiones sin leer se omiten al leerlas, y la próxima
+                // grabación completa las lee y las vuelve a grabar sin ellos
+                vehiculosEliminados.add(registrado);
+                particionesModificadas = true;
+            }
+            PosicionesArchivadas archivadas = archivadasPorVehiculo.remove(registrado);
+            actualizarHistorial(() -> {
+                quitarDelHistorial(registrado);
+                quitarArchivadas(registrado, archivadas);
+            });
+            cambios.vehiculoEliminado(registrado);
+            if (bitacora != null) {
+                bitacora.anotarVehiculoEliminado(registrado.getMatricula());
+            }
+            return eliminado;
+        } finally {
+            desbloquearEscritura(sello);
         }
-        boolean eliminado = vehiculos.remove(vehiculo);
-        // Eliminar contratos, entradas, salidas y servicios asociados
-        contratos.removeIf(contrato -> contrato.getVehiculo().equals(vehiculo));
-        entradas.removeIf(entrada -> entrada.getVehiculo().equals(vehiculo));
-        salidas.removeIf(salida -> salida.getEntrada().getVehiculo().equals(vehiculo));
-        servicios.removeIf(servicio -> servicio.getVehiculo().equals(vehiculo));
-        return eliminado;
     }
     
     // ==================== GESTIÓN DE EMPLEADOS ====================
@@ -221,8 +632,68 @@ public class Sistema implements Serializable {
      * Agrega un empleado al sistema.
      * @param empleado El empleado a agregar
      */
-    public void agregarEmpleado(Empleado empleado) {
-        empleados.add(empleado);
+    public synchronized void agregarEmpleado(Empleado empleado) {
+        long sello = bloquearEscritura();
+        try {
+            empleados.add(empleado);
+            empleadosPorNumero.putIfAbsent(empleado.getNumeroEmpleado(), empleado);
+            fuenteEmpleados.modificado();
+            empleado.sistema = this;
+            cambios.empleados.add(empleado);
+            if (bitacora != null) {
+                bitacora.anotarEmpleadoAgregado(empleado);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Elimina un empleado del sistema. Sus movimientos ya registrados se conservan.
+     * @param empleado El empleado a eliminar
+     * @return true si se eliminó correctamente, false si no estaba registrado
+     */
+    public synchronized boolean eliminarEmpleado(Empleado empleado) {
+        long sello = bloquearEscritura();
+        try {
+            int indice = empleados.indexOf(empleado);
+            if (indice < 0) {
+                return false;
+            }
+            Empleado registrado = empleados.remove(indice);
+            if (empleadosPorNumero.get(registrado.getNumeroEmpleado()) == registrado) {
+                // Si había otro empleado con el mismo número, pasa a ser el del índice
+                int otro = empleados.indexOf(registrado);
+                if (otro < 0) {
+                    empleadosPorNumero.remove(registrado.getNumeroEmpleado());
+                } else {
+                    empleadosPorNumero.put(registrado.getNumeroEmpleado(), empleados.get(otro));
+                }
+            }
+            fuenteEmpleados.modificado();
+            registrado.sistema = null;
+            cambios.empleadoEliminado(registrado);
+            if (bitacora != null) {
+                bitacora.anotarEmpleadoEliminado(registrado.getNumeroEmpleado());
+            }
+            return true;
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Registra un empleado luego de que cambió alguno de sus datos (salvo el número).
+     * Lo invoca Empleado después de modificarlo.
+     * @param empleado El empleado modificado
+     */
+    synchronized void empleadoModificado(Empleado empleado) {
+        cambios.empleados.add(empleado);
+        // Las particiones asocian los empleados por número y cédula
+        particionesModificadas = true;
+        if (bitacora != null) {
+            bitacora.anotarEmpleadoModificado(empleado.getNumeroEmpleado(), empleado);
+        }
     }
     
     /**
@@ -231,7 +702,7 @@ public class Sistema implements Serializable {
      * @return true si existe, false en caso contrario
      */
     public boolean existeEmpleado(int numeroEmpleado) {
-        return empleados.stream().anyMatch(e -> e.getNumeroEmpleado() == numeroEmpleado);
+        return leer(() -> empleadosPorNumero.containsKey(numeroEmpleado));
     }
     
     /**
@@ -240,15 +711,16 @@ public class Sistema implements Serializable {
      * @return El empleado encontrado o null si no existe
      */
     public Empleado buscarEmpleado(int numeroEmpleado) {
-        return empleados.stream().filter(e -> e.getNumeroEmpleado() == numeroEmpleado).findFirst().orElse(null);
+        return leer(() -> empleadosPorNumero.get(numeroEmpleado));
     }
 
     /**
-     * Obtiene una copia de la lista de empleados.
-     * @return Lista de empleados
+     * Obtiene una vista de solo lectura de los empleados. La vista se reutiliza mientras
+     * no cambien los empleados, por lo que obtenerla no copia la lista en cada llamada.
+     * @return Vista de empleados
      */
-    public List<Empleado> getEmpleados() {
-        return new ArrayList<>(empleados);
+    public VistaLista<Empleado> getEmpleados() {
+        return getVista(fuenteEmpleados);
     }
     
     /**
@@ -257,8 +729,9 @@ public class Sistema implements Serializable {
      * @return El empleado en la posición especificada o null si el índice es inválido
      */
     public Empleado getEmpleado(int index) {
-        if (index >= 0 && index < empleados.size()) {
-            return empleados.get(index);
+        VistaLista<Empleado> vista = getEmpleados();
+        if (index >= 0 && index < vista.size()) {
+            return vista.get(index);
         }
         return null;
     }
@@ -272,20 +745,167 @@ public class Sistema implements Serializable {
      * @throws IllegalStateException Si el vehículo ya tiene un contrato activo
      */
     public synchronized void agregarContrato(Contrato contrato) {
-        if (contrato == null) {
-            throw new IllegalArgumentException("El contrato no puede ser nulo");
-        }
-        boolean existeContrato = contratos.stream()
-            .anyMatch(c -> c.getVehiculo().equals(contrato.getVehiculo()) && c.getActivo());
-        if (existeContrato) {
-            throw new IllegalStateException("El vehículo ya tiene un contrato activo");
-        }
-        // Asignar ID autoincremental
-        contrato.id = contratos.isEmpty() ? 1 : contratos.stream()
-            .mapToInt(Contrato::getId)
-            .max()
-            .getAsInt() + 1;
+        long sello = bloquearEscritura();
+        try {
+            if (contrato == null) {
+                throw new IllegalArgumentException("El contrato no puede ser nulo");
+            }
+            if (contratoActivoPorVehiculo.containsKey(contrato.getVehiculo())) {
+                throw new IllegalStateException("El vehículo ya tiene un contrato activo");
+            }
+            // Asignar ID autoincremental
+            contrato.id = ++ultimoIdContrato;
+            registrarContrato(contrato);
+            if (bitacora != null) {
+                bitacora.anotarContratoAgregado(contrato);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Agrega un contrato grabado en un archivo de cambios, conservando su número.
+     * @param contrato El contrato a agregar
+     */
+    synchronized void restaurarContrato(Contrato contrato) {
+        long sello = bloquearEscritura();
+        try {
+            ultimoIdContrato = Math.max(ultimoIdContrato, contrato.getId());
+            registrarContrato(contrato);
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Restaura el último número de contrato asignado, grabado en un archivo de cambios.
+     * Los números no se reutilizan aunque se hayan eliminado los últimos contratos.
+     * @param ultimoIdContrato Último número de contrato asignado
+     */
+    synchronized void restaurarUltimoIdContrato(int ultimoIdContrato) {
+        long sello = bloquearEscritura();
+        try {
+            this.ultimoIdContrato = Math.max(this.ultimoIdContrato, ultimoIdContrato);
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Agrega un contrato con su número ya asignado a la lista y a los índices.
+     * @param contrato El contrato a agregar
+     */
+    private void registrarContrato(Contrato contrato) {
         contratos.add(contrato);
+        fuenteContratos.modificado();
+        contratosPorId.put(contrato.getId(), contrato);
+        indexarContrato(contrato);
+        contrato.sistema = this;
+        agregarContratoActivo(contrato);
+        cambios.contratos.add(contrato);
+    }
+    
+    /**
+     * Modifica el estado o el valor mensual de un contrato y lo registra, todo con el cerrojo
+     * tomado, para que las consultas no vean el contrato fuera de los contratos activos ni las
+     * estadísticas a medio actualizar. Lo invoca Contrato desde sus setters.
+     * @param contrato El contrato a modificar
+     * @param modificacion Cambio a aplicar sobre el contrato
+     */
+    synchronized void modificarContrato(Contrato contrato, Runnable modificacion) {
+        long sello = bloquearEscritura();
+        try {
+            quitarContratoActivo(contrato);
+            try {
+                modificacion.run();
+            } finally {
+                agregarContratoActivo(contrato);
+            }
+            cambios.contratos.add(contrato);
+            if (bitacora != null) {
+                bitacora.anotarContratoModificado(contrato);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Registra un contrato como contrato activo de su vehículo y lo suma a las estadísticas, si está activo.
+     * Se invoca después de modificar el estado o el valor mensual.
+     * @param contrato El contrato a registrar
+     */
+    private synchronized void agregarContratoActivo(Contrato contrato) {
+        long sello = bloquearEscritura();
+        try {
+            if (contrato.getActivo()) {
+                contratoActivoPorVehiculo.put(contrato.getVehiculo(), contrato);
+                contratosActivosPorCliente.incrementar(contrato.getCliente());
+                cantidadContratosActivos++;
+                sumaValoresContratosActivos += contrato.getValorMensual();
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Quita un contrato de los contratos activos y lo resta de las estadísticas, si está activo.
+     * Se invoca antes de modificar el estado o el valor mensual.
+     * @param contrato El contrato a quitar
+     */
+    private synchronized void quitarContratoActivo(Contrato contrato) {
+        long sello = bloquearEscritura();
+        try {
+            if (contrato.getActivo()) {
+                contratoActivoPorVehiculo.remove(contrato.getVehiculo(), contrato);
+                contratosActivosPorCliente.decrementar(contrato.getCliente());
+                cantidadContratosActivos--;
+                sumaValoresContratosActivos -= contrato.getValorMensual();
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Agrega un contrato a los índices de contratos por cliente y por vehículo.
+     * @param contrato El contrato a indexar
+     */
+    private void indexarContrato(Contrato contrato) {
+        contratosPorCliente.computeIfAbsent(contrato.getCliente(), c -> new ArrayList<>()).add(contrato);
+        contratosPorVehiculo.computeIfAbsent(contrato.getVehiculo(), v -> new ArrayList<>()).add(contrato);
+    }
+    
+    /**
+     * Quita un contrato de uno de los índices de contratos, eliminando la clave si queda vacía.
+     * @param indice El índice (por cliente o por vehículo)
+     * @param clave El cliente o vehículo del contrato
+     * @param contrato El contrato a quitar
+     */
+    private static <K> void quitarDeIndice(Map<K, List<Contrato>> indice, K clave, Contrato contrato) {
+        List<Contrato> lista = indice.get(clave);
+        if (lista != null) {
+            lista.removeIf(c -> c == contrato);
+            if (lista.isEmpty()) {
+                indice.remove(clave);
+            }
+        }
+    }
+    
+    /**
+     * Quita de los índices y las estadísticas un contrato eliminado del sistema.
+     * @param contrato El contrato eliminado
+     */
+    private void desvincularContrato(Contrato contrato) {
+        quitarContratoActivo(contrato);
+        contratosPorId.remove(contrato.getId(), contrato);
+        quitarDeIndice(contratosPorCliente, contrato.getCliente(), contrato);
+        quitarDeIndice(contratosPorVehiculo, contrato.getVehiculo(), contrato);
+        contrato.sistema = null;
+        // Los contratos se eliminan con su cliente o su vehículo, que ya figuran como eliminados
+        cambios.contratos.remove(contrato);
     }
     
     /**
@@ -293,18 +913,16 @@ public class Sistema implements Serializable {
      * @return El próximo ID disponible
      */
     public int getProximoIdContrato() {
-        return contratos.stream()
-            .mapToInt(Contrato::getId)
-            .max()
-            .orElse(0) + 1;
+        return leerCampos(() -> ultimoIdContrato + 1);
     }
 
     /**
-     * Obtiene una copia de la lista de contratos.
-     * @return Lista de contratos
+     * Obtiene una vista de solo lectura de los contratos. La vista se reutiliza mientras
+     * no cambien los contratos, por lo que obtenerla no copia la lista en cada llamada.
+     * @return Vista de contratos
      */
-    public List<Contrato> getContratos() {
-        return new ArrayList<>(contratos);
+    public VistaLista<Contrato> getContratos() {
+        return getVista(fuenteContratos);
     }
     
     /**
@@ -313,10 +931,7 @@ public class Sistema implements Serializable {
      * @return El contrato encontrado o null si no existe
      */
     public Contrato buscarContratoPorId(int idContrato) {
-        return contratos.stream()
-            .filter(c -> c.getId() == idContrato)
-            .findFirst()
-            .orElse(null);
+        return leer(() -> contratosPorId.get(idContrato));
     }
     
     // ==================== GESTIÓN DE ENTRADAS/SALIDAS ====================
@@ -324,9 +939,41 @@ public class Sistema implements Serializable {
     /**
      * Registra una entrada de vehículo al parking.
      * @param entrada La entrada a registrar
+     * @throws IllegalStateException Si el vehículo ya se encuentra en el parking o el parking está completo
+     */
+    public synchronized void registrarEntrada(Entrada entrada) {
+        registrarEntrada(entrada, true);
+    }
+    
+    /**
+     * Registra una entrada de vehículo al parking.
+     * @param entrada La entrada a registrar
+     * @param validarCapacidad false para registrar una entrada grabada en la bitácora o en un
+     *        archivo de cambios, que ya ocupó su lugar cuando se registró
      */
-    public void registrarEntrada(Entrada entrada) {
-        entradas.add(entrada);
+    synchronized void registrarEntrada(Entrada entrada, boolean validarCapacidad) {
+        long sello = bloquearEscritura();
+        try {
+            String matricula = entrada.getVehiculo().getMatricula();
+            if (entradasAbiertas.containsKey(matricula)) {
+                throw new IllegalStateException("El vehículo " + matricula + " ya se encuentra en el parking");
+            }
+            if (validarCapacidad) {
+                reservarLugar();
+            } else {
+                ocupacion.incrementAndGet();
+            }
+            entradas.add(entrada);
+            entradasAbiertas.put(matricula, entrada);
+            mesesModificados.add(ParticionesMovimientos.getMes(entrada));
+            actualizarHistorial(() -> agregarAlHistorial(entrada.getVehiculo(), entrada));
+            cambios.movimientos.add(entrada);
+            if (bitacora != null) {
+                bitacora.anotarEntrada(entrada);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
     }
     
     /**
@@ -335,51 +982,86 @@ public class Sistema implements Serializable {
      * @throws IllegalStateException Si ya existe una salida para esta entrada
      * @throws IllegalArgumentException Si la entrada o empleado no existen
      */
-    public synchronized void registrarSalida(Salida salida) {
-        if (salidas.stream().anyMatch(s -> s.getEntrada().equals(salida.getEntrada()))) {
-            throw new IllegalStateException("Ya existe una salida registrada para esta entrada");
-        }
-        if (!entradas.contains(salida.getEntrada())) {
+    public void registrarSalida(Salida salida) {
+        registrarSalida(salida, true);
+    }
+    
+    /**
+     * Registra una salida de vehículo del parking.
+     *
+     * La entrada se reclama antes de bloquear el sistema, con un solo paso atómico sobre
+     * salidaPorEntrada: si dos puertas cierran la misma estadía a la vez, una obtiene la
+     * entrada y la otra falla enseguida, sin esperar al sistema. Si después la salida no es
+     * válida, la entrada se libera.
+     * @param salida La salida a registrar
+     * @param validarEmpleado false para registrar una salida grabada en un archivo de cambios,
+     *        cuyo empleado pudo eliminarse después
+     */
+    void registrarSalida(Salida salida, boolean validarEmpleado) {
+        if (salida.getEntrada() == null) {
             throw new IllegalArgumentException("La entrada asociada no existe en el sistema");
         }
-        if (!empleados.contains(salida.getEmpleado())) {
-            throw new IllegalArgumentException("El empleado asociado no existe en el sistema");
+        if (salidaPorEntrada.putIfAbsent(salida.getEntrada(), salida) != null) {
+            throw new IllegalStateException("Ya existe una salida registrada para esta entrada");
         }
-        salidas.add(salida);
+        aplicarSalida(salida, validarEmpleado);
     }
     
     /**
-     * Obtiene las entradas que no tienen salida registrada (vehículos aún en el parking).
-     * @return Lista de entradas sin salida
+     * Valida y registra una salida cuya entrada ya se reclamó (ver registrarSalida).
      */
-    public List<Entrada> getEntradasSinSalida() {
-        return entradas.stream()
-            .filter(e -> !entradaTieneSalida(e))
-            .collect(Collectors.toList());
+    private synchronized void aplicarSalida(Salida salida, boolean validarEmpleado) {
+        long sello = bloquearEscritura();
+        try {
+            try {
+                // Si los índices se reconstruyeron después de reclamar la entrada, se reclama de nuevo
+                Salida registrada = salidaPorEntrada.putIfAbsent(salida.getEntrada(), salida);
+                if (registrada != null && registrada != salida) {
+                    throw new IllegalStateException("Ya existe una salida registrada para esta entrada");
+                }
+                if (!entradas.contains(salida.getEntrada())) {
+                    throw new IllegalArgumentException("La entrada asociada no existe en el sistema");
+                }
+                if (validarEmpleado && !empleadosPorNumero.containsKey(salida.getEmpleado().getNumeroEmpleado())) {
+                    throw new IllegalArgumentException("El empleado asociado no existe en el sistema");
+                }
+            } catch (RuntimeException e) {
+                salidaPorEntrada.remove(salida.getEntrada(), salida);
+                throw e;
+            }
+            salidas.add(salida);
+            mesesModificados.add(ParticionesMovimientos.getMes(salida));
+            if (entradasAbiertas.remove(salida.getEntrada().getVehiculo().getMatricula(), salida.getEntrada())) {
+                ocupacion.decrementAndGet();
+            }
+            actualizarHistorial(() -> {
+                agregarAlHistorial(salida.getEntrada().getVehiculo(), salida);
+                rankingEstadias.agregar(salida, Reporte.calcularDuracionMinutos(salida.getEntrada(), salida));
+            });
+            cambios.movimientos.add(salida);
+            if (bitacora != null) {
+                bitacora.anotarSalida(salida);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
     }
     
     /**
-     * Verifica si una entrada tiene salida registrada.
-     * @param entrada La entrada a verificar
-     * @return true si tiene salida registrada, false en caso contrario
+     * Obtiene las entradas que no tienen salida registrada (vehículos aún en el parking).
+     * @return Lista de entradas sin salida
      */
-    private boolean entradaTieneSalida(Entrada entrada) {
-        return salidas.stream()
-            .anyMatch(s -> s.getEntrada().equals(entrada));
+    public List<Entrada> getEntradasSinSalida() {
+        return leer(() -> new ArrayList<>(entradasAbiertas.values()));
     }
-
+    
     /**
      * Busca una entrada activa por matrícula de vehículo.
      * @param matricula La matrícula del vehículo
      * @return La entrada encontrada o null si no existe
      */
     public Entrada buscarEntradaPorMatricula(String matricula) {
-        for (Entrada entrada : entradas) {
-            if (entrada.getVehiculo().getMatricula().equals(matricula) && !entradaTieneSalida(entrada)) {
-                return entrada;
-            }
-        }
-        return null;
+        return leer(() -> entradasAbiertas.get(matricula));
     }
 
     // ==================== GESTIÓN DE SERVICIOS ====================
@@ -388,16 +1070,94 @@ public class Sistema implements Serializable {
      * Registra un servicio adicional para un vehículo.
      * @param servicio El servicio a registrar
      */
-    public void registrarServicio(Servicio servicio) {
-        servicios.add(servicio);
+    public synchronized void registrarServicio(Servicio servicio) {
+        long sello = bloquearEscritura();
+        try {
+            servicios.add(servicio);
+            fuenteServicios.modificado();
+            mesesModificados.add(ParticionesMovimientos.getMes(servicio));
+            actualizarHistorial(() -> agregarAlHistorial(servicio.getVehiculo(), servicio));
+            cambios.movimientos.add(servicio);
+            if (bitacora != null) {
+                bitacora.anotarServicio(servicio);
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Registra un lote de entradas, salidas y servicios (ver ColaMovimientos). El sistema se
+     * bloquea una sola vez para todo el lote y sus registros se agregan a la bitácora con una
+     * sola escritura. Cada movimiento se valida por separado: si uno no se puede registrar,
+     * los demás se registran igual.
+     * Si al final no se puede escribir la bitácora, los movimientos ya registrados no se
+     * deshacen: en su posición se devuelve MovimientoSinBitacoraException.
+     * @param movimientos Entradas, salidas y servicios, en el orden en que se registran
+     * @return Excepción de cada movimiento que no se pudo registrar o anotar, en su misma
+     *         posición (null en la posición de los que se registraron y anotaron)
+     * @throws IllegalStateException Si los datos del sistema no se cargaron (ver getErrorCarga)
+     * @throws java.util.concurrent.RejectedExecutionException Si el sistema se cerró para
+     *         reemplazarlo por otro (ver cerrarBitacora): sus movimientos ya no se anotarían ni grabarían
+     */
+    public synchronized RuntimeException[] registrarMovimientos(List<?> movimientos) {
+        if (cerrado) {
+            throw new java.util.concurrent.RejectedExecutionException(
+                "Los datos se están recuperando; intente nuevamente en unos segundos");
+        }
+        if (errorCarga != null) {
+            throw new IllegalStateException("Los datos no se cargaron (" + errorCarga.getMessage()
+                + "); no se registran movimientos");
+        }
+        RuntimeException[] errores = new RuntimeException[movimientos.size()];
+        long sello = bloquearEscritura();
+        Bitacora enLote = bitacora;
+        if (enLote != null) {
+            enLote.iniciarLote();
+        }
+        try {
+            for (int i = 0; i < movimientos.size(); i++) {
+                Object movimiento = movimientos.get(i);
+                try {
+                    if (movimiento instanceof Entrada entrada) {
+                        registrarEntrada(entrada);
+                    } else if (movimiento instanceof Salida salida) {
+                        registrarSalida(salida);
+                    } else if (movimiento instanceof Servicio servicio) {
+                        registrarServicio(servicio);
+                    } else {
+                        throw new IllegalArgumentException("Movimiento desconocido: " + movimiento);
+                    }
+                } catch (RuntimeException e) {
+                    errores[i] = e;
+                }
+            }
+        } finally {
+            try {
+                if (enLote != null) {
+                    enLote.terminarLote();
+                }
+            } catch (java.io.UncheckedIOException e) {
+                for (int i = 0; i < errores.length; i++) {
+                    if (errores[i] == null) {
+                        errores[i] = new MovimientoSinBitacoraException(e.getCause());
+                    }
+                }
+            } finally {
+                desbloquearEscritura(sello);
+            }
+        }
+        return errores;
     }
     
     /**
-     * Obtiene una copia de la lista de servicios.
-     * @return Lista de servicios
+     * Obtiene una vista de solo lectura de los servicios. La vista se reutiliza mientras
+     * no cambien los servicios, por lo que obtenerla no copia la lista en cada llamada.
+     * @return Vista de servicios
      */
-    public List<Servicio> getServicios() {
-        return new ArrayList<>(servicios);
+    public VistaLista<Servicio> getServicios() {
+        leerMesesParaConsulta(particion -> true);
+        return getVista(fuenteServicios);
     }
     
     /**
@@ -408,8 +1168,7 @@ public class Sistema implements Serializable {
     public synchronized boolean eliminarServicio(int index) {
         try {
             if (index >= 0 && index < servicios.size()) {
-                servicios.remove(index);
-                return true;
+                return eliminarServicio(getServicios().get(index));
             }
             return false;
         } catch (Exception e) {
@@ -418,45 +1177,78 @@ public class Sistema implements Serializable {
         }
     }
     
-    // ==================== REPORTES Y ESTADÍSTICAS ====================
-    
     /**
-     * Obtiene todos los movimientos de un vehículo (entradas, salidas y servicios).
-     * @param vehiculo El vehículo del cual obtener los movimientos
-     * @return Lista de movimientos del vehículo
+     * Elimina un servicio del sistema.
+     * @param servicio El servicio a eliminar
+     * @return true si se eliminó correctamente, false si no estaba registrado
      */
-    public List<Servicio> getMovimientosPorVehiculo(Vehiculo vehiculo) {
-        List<Servicio> movimientos = new ArrayList<>();
-        // Agregar entradas como servicios especiales
-        entradas.stream()
-            .filter(e -> e.getVehiculo().equals(vehiculo))
-            .forEach(e -> movimientos.add(
-                new Servicio(
-                    "Entrada al parking", 
-                    e.getVehiculo(), 
-                    e.getEmpleado(), 
-                    e.getFecha(), 
-                    e.getHora(), 
-                    0.0 
-                )
-            ));
-        // Agregar salidas como servicios especiales
-        salidas.stream()
-            .filter(s -> s.getEntrada().getVehiculo().equals(vehiculo))
-            .forEach(s -> movimientos.add(
-                new Servicio(
-                    "Salida del parking", 
-                    s.getEntrada().getVehiculo(), 
-                    s.getEmpleado(), 
-                    s.getFecha(), 
-                    s.getHora(), 
-                    0.0 
-                )
-            ));
-        // Agregar servicios reales
-        servicios.stream()
-            .filter(s -> s.getVehiculo().equals(vehiculo))
-            .forEach(movimientos::add);
+    public synchronized boolean eliminarServicio(Servicio servicio) {
+        long sello = bloquearEscritura();
+        try {
+            if (servicio == null || !servicios.remove(servicio)) {
+                return false;
+            }
+            fuenteServicios.modificado();
+            mesesModificados.add(ParticionesMovimientos.getMes(servicio));
+            actualizarHistorial(() -> {
+                quitarDeLineaDeTiempo(servicio.getVehiculo(), servicio);
+                quitarDeIntervalo(servicio);
+                descontarMovimiento(servicio);
+            });
+            cambios.servicioEliminado(servicio);
+            if (bitacora != null) {
+                bitacora.anotarServicioEliminado(servicio);
+            }
+            return true;
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Busca un servicio de un vehículo por su fecha/hora, tipo y costo.
+     * @param vehiculo El vehículo del servicio
+     * @param minutoEpoch Fecha y hora del servicio (ver Reporte.toMinutoEpoch)
+     * @param tipo Tipo de servicio
+     * @param costo Costo del servicio
+     * @return El primer servicio que coincide, o null si no hay ninguno
+     */
+    synchronized Servicio buscarServicio(Vehiculo vehiculo, long minutoEpoch, String tipo, double costo) {
+        int mes = ParticionesMovimientos.getMes(minutoEpoch);
+        leerMesesParaConsulta(particion -> particion.mes == mes);
+        // Mientras se construye el historial se buscan en la lista de servicios
+        Collection<?> movimientos = cambiosHistorial == null ? getLineaDeTiempo(vehiculo) : servicios;
+        for (Object movimiento : movimientos) {
+            if (movimiento instanceof Servicio s && s.getVehiculo() == vehiculo && s.getMinutoEpoch() == minutoEpoch
+                    && s.getTipo().equals(tipo) && s.getCosto() == costo) {
+                return s;
+            }
+        }
+        return null;
+    }
+    
+    // ==================== REPORTES Y ESTADÍSTICAS ====================
+    
+    /**
+     * Obtiene todos los movimientos de un vehículo (entradas, salidas y servicios).
+     * @param vehiculo El vehículo del cual obtener los movimientos
+     * @return Lista de movimientos del vehículo, ordenada por fecha/hora
+     */
+    public List<Servicio> getMovimientosPorVehiculo(Vehiculo vehiculo) {
+        leerMesesParaConsulta(particion -> true);
+        List<Servicio> movimientos = new ArrayList<>();
+        for (Object movimiento : getLineaDeTiempoCompleta(vehiculo)) {
+            if (movimiento instanceof Entrada e) {
+                // Agregar entradas como servicios especiales
+                movimientos.add(new Servicio("Entrada al parking", e.getVehiculo(), e.getEmpleado(), e.getMinutoEpoch(), 0.0));
+            } else if (movimiento instanceof Salida s) {
+                // Agregar salidas como servicios especiales
+                movimientos.add(new Servicio("Salida del parking", s.getEntrada().getVehiculo(), s.getEmpleado(), s.getMinutoEpoch(), 0.0));
+            } else {
+                // Agregar servicios reales
+                movimientos.add((Servicio) movimiento);
+            }
+        }
         return movimientos;
     }
     
@@ -465,7 +1257,8 @@ public class Sistema implements Serializable {
      * @return Mapa donde la clave es el tipo de servicio y el valor es la cantidad
      */
     public Map<String, Long> getServiciosMasUtilizados() {
-        return servicios.stream().collect(Collectors.groupingBy(Servicio::getTipo, Collectors.counting()));
+        leerMesesParaConsulta(particion -> true);
+        return leer(() -> usosPorTipoServicio.comoMapa());
     }
     
     /**
@@ -473,7 +1266,7 @@ public class Sistema implements Serializable {
      * @return Mapa donde la clave es el cliente y el valor es la cantidad de vehículos
      */
     public Map<Cliente, Long> getClientesConMasVehiculos() {
-        return contratos.stream().collect(Collectors.groupingBy(Contrato::getCliente, Collectors.counting()));
+        return getContratos().stream().collect(Collectors.groupingBy(Contrato::getCliente, Collectors.counting()));
     }
     
     /**
@@ -481,47 +1274,1571 @@ public class Sistema implements Serializable {
      * @return Mapa donde la clave es el empleado y el valor es la cantidad de movimientos
      */
     public Map<Empleado, Long> getEmpleadosConMenosMovimientos() {
-        Map<Empleado, Long> movimientos = new HashMap<>();
-        entradas.forEach(e -> 
-            movimientos.merge(e.getEmpleado(), 1L, Long::sum));
-        salidas.forEach(s -> 
-            movimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        servicios.forEach(s -> 
-            movimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        return movimientos;
+        leerMesesParaConsulta(particion -> true);
+        return leer(() -> movimientosPorEmpleado.comoMapa());
     }
     
     // ==================== PERSISTENCIA DE DATOS ====================
     
     /**
      * Guarda el estado actual del sistema en un archivo.
+     * Las operaciones posteriores se anotan en un segmento nuevo de la bitácora; los segmentos
+     * anteriores se eliminan recién cuando el archivo quedó grabado.
      */
     public void guardarDatos() {
         try {
-            java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(
-                new java.io.FileOutputStream(ARCHIVO_DATOS));
-            out.writeObject(this);
-            out.close();
+            grabar(null);
         } catch (Exception e) {
             System.err.println("Error al guardar datos: " + e.getMessage());
         }
     }
     
     /**
-     * Carga el sistema desde un archivo guardado previamente.
-     * @return El sistema cargado o un nuevo sistema si no existe archivo
+     * Graba el estado actual del sistema en el archivo de datos.
+     * Con el sistema bloqueado solo se pasa la bitácora a un segmento nuevo y se copian las
+     * colecciones (no las entidades); la escritura se hace sobre esa copia sin bloquear el
+     * sistema, por lo que las operaciones pueden seguir registrándose mientras se graba.
+     * Si una entidad se modifica durante la escritura, la modificación también queda en el
+     * segmento nuevo de la bitácora y se vuelve a aplicar al cargar.
+     * Antes de copiar, las estadías cerradas más antiguas que la antigüedad configurada
+     * (ArchivoEstadias.getDiasConfigurados) se pasan al archivo de estadías.
+     * 
+     * Si desde la grabación anterior cambiaron pocas entidades, en lugar del archivo completo se
+     * graba un archivo de cambios (ver Delta) con las entidades agregadas, modificadas y eliminadas
+     * y los movimientos nuevos. El archivo completo se vuelve a grabar cuando ya hay
+     * Delta.getMaximoConfigurado archivos de cambios o cuando ocupan más de la mitad que él.
+     * El archivo completo se comprime según Compresion.getConfigurada.
+     * 
+     * Los movimientos no van en el archivo completo sino en particiones mensuales (ver
+     * ParticionesMovimientos): solo se vuelven a grabar los meses con movimientos registrados,
+     * eliminados o archivados desde la grabación completa anterior, y el archivo de datos guarda
+     * el manifiesto con las particiones vigentes. Las particiones que todavía no se leyeron se
+     * leen antes de volver a grabarlas; las demás siguen vigentes sin leerse.
+     * @param progreso Recibe la cantidad de bytes escritos del archivo de datos a medida que avanza la grabación (puede ser null)
+     * @return Cantidad de bytes grabados, antes de comprimir (0 si no había cambios para grabar)
+     * @throws java.io.IOException Si no se puede grabar el archivo
+     * @throws IllegalStateException Si el sistema fue reemplazado (su bitácora se cerró) o sus datos
+     *         no se cargaron (ver getErrorCarga)
+     */
+    public long grabar(java.util.function.LongConsumer progreso) throws java.io.IOException {
+        // Las grabaciones se hacen de a una, para que un archivo más viejo no reemplace a uno más nuevo
+        synchronized (ESCRITURA) {
+            java.nio.file.Path destino = java.nio.file.Paths.get(ARCHIVO_DATOS);
+            java.nio.file.Path directorio = destino.toAbsolutePath().getParent();
+            byte[] delta = copiarCambios();
+            if (delta != null) {
+                return grabarCambios(directorio, delta, progreso);
+            }
+            Set<Integer> meses = new HashSet<>();
+            DatosSistema copia = copiarParaGrabar(meses);
+            // Se graba en un archivo temporal y se reemplaza el anterior, para no dejarlo a medias
+            java.nio.file.Path temporal = destino.resolveSibling(ARCHIVO_DATOS + ".tmp");
+            long tamaño;
+            TreeMap<Integer, ParticionesMovimientos.Particion> manifiesto;
+            try {
+                // Las particiones se graban antes que el archivo de datos que las referencia
+                manifiesto = new TreeMap<>(particiones);
+                tamaño = grabarParticiones(directorio, copia, meses, manifiesto);
+                DatosSistema principal = new DatosSistema(copia.clientes, copia.vehiculos, copia.empleados,
+                    copia.contratos, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), copia.archivadas,
+                    copia.ultimoIdContrato, copia.segmentoBitacora, new ArrayList<>(manifiesto.values()));
+                try (java.nio.channels.FileChannel canal = java.nio.channels.FileChannel.open(temporal,
+                        java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.WRITE,
+                        java.nio.file.StandardOpenOption.TRUNCATE_EXISTING);
+                     java.nio.channels.WritableByteChannel salida = Compresion.getConfigurada().comprimir(canal,
+                        Compresion.getNivelConfigurado())) {
+                    tamaño += SerializadorBinario.escribir(principal, salida, progreso);
+                }
+                tamañoBase = java.nio.file.Files.size(temporal)
+                    + ParticionesMovimientos.getTamaño(manifiesto.values());
+                try {
+                    java.nio.file.Files.move(temporal, destino,
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+                } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+                    java.nio.file.Files.move(temporal, destino, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (java.io.IOException | RuntimeException e) {
+                grabacionFallida(meses);
+                throw e;
+            }
+            particiones = manifiesto;
+            ParticionesMovimientos.eliminarNoVigentes(directorio, PREFIJO_MOVIMIENTOS, manifiesto.values());
+            Delta.eliminarHasta(directorio, PREFIJO_CAMBIOS, copia.segmentoBitacora);
+            Bitacora actual = bitacora;
+            if (actual != null) {
+                actual.eliminarAnteriores(copia.segmentoBitacora);
+            }
+            return tamaño;
+        }
+    }
+    
+    /**
+     * Graba las particiones de los meses que cambiaron, en archivos con un número mayor que el
+     * de las vigentes, y actualiza el manifiesto. Los meses que quedaron sin movimientos se
+     * quitan del manifiesto.
+     * @param directorio Directorio del archivo de datos
+     * @param copia Datos copiados para grabar
+     * @param meses Meses a grabar
+     * @param manifiesto Manifiesto vigente, que se actualiza
+     * @return Cantidad de bytes grabados
+     */
+    private static long grabarParticiones(java.nio.file.Path directorio, DatosSistema copia, Set<Integer> meses,
+                                          TreeMap<Integer, ParticionesMovimientos.Particion> manifiesto)
+            throws java.io.IOException {
+        long numero = 1;
+        for (ParticionesMovimientos.Particion particion : manifiesto.values()) {
+            numero = Math.max(numero, particion.numero + 1);
+        }
+        Map<Integer, ParticionesMovimientos.Movimientos> porMes =
+            ParticionesMovimientos.agrupar(copia.entradas, copia.salidas, copia.servicios, meses);
+        long bytes = 0;
+        for (int mes : meses) {
+            ParticionesMovimientos.Movimientos movimientos = porMes.get(mes);
+            if (movimientos == null) {
+                manifiesto.remove(mes);
+                continue;
+            }
+            ParticionesMovimientos.Particion particion =
+                ParticionesMovimientos.escribir(directorio, PREFIJO_MOVIMIENTOS, mes, numero, movimientos);
+            manifiesto.put(mes, particion);
+            bytes += particion.tamaño;
+        }
+        return bytes;
+    }
+    
+    /**
+     * Graba un archivo de cambios codificado por copiarCambios, con el número del segmento de
+     * la bitácora que quedó abierto, y elimina los segmentos anteriores.
+     */
+    private long grabarCambios(java.nio.file.Path directorio, byte[] delta, java.util.function.LongConsumer progreso)
+            throws java.io.IOException {
+        if (delta.length == 0) {
+            return 0;
+        }
+        long numero = segmentoBitacora;
+        try {
+            Delta.escribir(directorio, PREFIJO_CAMBIOS, numero, delta);
+        } catch (java.io.IOException | RuntimeException e) {
+            grabacionFallida(Collections.emptySet());
+            throw e;
+        }
+        cantidadDeltas++;
+        bytesDeltas += delta.length;
+        if (progreso != null) {
+            progreso.accept(delta.length);
+        }
+        Bitacora actual = bitacora;
+        if (actual != null) {
+            actual.eliminarAnteriores(numero);
+        }
+        return delta.length;
+    }
+    
+    /**
+     * Codifica los cambios desde la grabación anterior, si alcanza con un archivo de cambios,
+     * y pasa la bitácora a un segmento nuevo.
+     * @return Contenido del archivo de cambios (vacío si no hay cambios), o null si hay que grabar el archivo completo
+     */
+    private synchronized byte[] copiarCambios() throws java.io.IOException {
+        verificarGrabable();
+        // Sin bitácora no hay segmentos que numeren los archivos de cambios
+        if (bitacora == null || tamañoBase == 0 || cambios.requiereGrabacionCompleta()
+                || cantidadDeltas >= Delta.getMaximoConfigurado()) {
+            return null;
+        }
+        if (cambios.estaVacio()) {
+            return new byte[0];
+        }
+        byte[] delta = Delta.codificar(cambios, ultimoIdContrato);
+        if (bytesDeltas + delta.length > tamañoBase / 2) {
+            return null;
+        }
+        segmentoBitacora = bitacora.rotar();
+        cambios = new CambiosPendientes();
+        return delta;
+    }
+    
+    /**
+     * Codifica los cambios desde la grabación anterior como un archivo de cambios, sin darlos
+     * por grabados (para las pruebas del formato de los archivos de cambios).
+     * @return Contenido del archivo de cambios
+     */
+    synchronized byte[] codificarCambios() {
+        return Delta.codificar(cambios, ultimoIdContrato);
+    }
+    
+    /**
+     * Verifica que el sistema se pueda grabar: que no haya sido reemplazado y que sus datos se
+     * hayan cargado (ver getErrorCarga).
+     * @throws IllegalStateException Si el sistema no se puede grabar
+     */
+    private void verificarGrabable() {
+        if (cerrado) {
+            throw new IllegalStateException("El sistema fue reemplazado y ya no se graba");
+        }
+        if (errorCarga != null) {
+            throw new IllegalStateException("Los datos no se cargaron (" + errorCarga.getMessage()
+                + "); no se graba para no reemplazar los archivos existentes");
+        }
+    }
+    
+    /**
+     * Indica que falló una grabación: sus cambios ya no están pendientes, por lo que la
+     * próxima grabación debe ser completa. Hasta entonces se conservan en la bitácora.
+     * @param meses Meses cuyas particiones se iban a grabar, que vuelven a figurar como modificados
+     */
+    private synchronized void grabacionFallida(Set<Integer> meses) {
+        cambios.requerirGrabacionCompleta();
+        mesesModificados.addAll(meses);
+    }
+    
+    /**
+     * Archiva las estadías antiguas, pasa la bitácora a un segmento nuevo y copia las colecciones
+     * del sistema para grabarlas.
+     * @param meses Recibe los meses cuyas particiones hay que volver a grabar: los modificados y
+     *              los que tienen movimientos pero no están en el manifiesto (o todos, si hace falta)
+     * @throws java.io.IOException Si no se puede leer alguna partición de un mes a grabar
+     * @return Copia de las colecciones
+     */
+    private synchronized DatosSistema copiarParaGrabar(Set<Integer> meses) throws java.io.IOException {
+        verificarGrabable();
+        esperarHistorial();
+        // Cada mes se vuelve a grabar completo, por lo que antes se leen los que no se leyeron
+        // (todos, si hay que volver a grabar todos). Si alguno no se puede leer, no se graba nada.
+        leerMeses(particionesModificadas ? particion -> true : particion -> mesesModificados.contains(particion.mes));
+        if (archivo != null) {
+            int dias = ArchivoEstadias.getDiasConfigurados();
+            if (dias > 0) {
+                long sello = bloquearEscritura();
+                try {
+                    archivarEstadias(Reporte.toMinutoEpoch(LocalDateTime.now()) - (long) dias * Reporte.MINUTOS_POR_DIA);
+                } finally {
+                    desbloquearEscritura(sello);
+                }
+            }
+            // Las estadías archivadas deben estar en disco antes que el archivo de datos que las referencia
+            archivo.forzar();
+        }
+        if (bitacora != null) {
+            segmentoBitacora = bitacora.rotar();
+        }
+        cambios = new CambiosPendientes();
+        cantidadDeltas = 0;
+        bytesDeltas = 0;
+        Set<Integer> conMovimientos = ParticionesMovimientos.getMeses(entradas, salidas, servicios);
+        if (particionesModificadas) {
+            meses.addAll(particiones.keySet());
+            meses.addAll(conMovimientos);
+        } else {
+            meses.addAll(mesesModificados);
+            conMovimientos.removeAll(particiones.keySet());
+            meses.addAll(conMovimientos);
+        }
+        mesesModificados = new HashSet<>();
+        particionesModificadas = false;
+        if (mesesSinLeer.isEmpty()) {
+            vehiculosEliminados.clear();
+        }
+        return copiarColecciones();
+    }
+    
+    /**
+     * Copia las colecciones del sistema (no las entidades), con los movimientos de las
+     * particiones que todavía no se leyeron. Si el historial se está construyendo, espera a que termine.
+     * @return Copia de las colecciones, con el número de contrato y el segmento de bitácora actuales
+     * @throws java.io.UncheckedIOException Si no se puede leer alguna partición de movimientos
+     */
+    synchronized DatosSistema copiarDatos() {
+        leerMesesParaConsulta(particion -> true);
+        return copiarColecciones();
+    }
+    
+    /**
+     * Copia las colecciones del sistema (no las entidades), sin leer las particiones pendientes.
+     * Si el historial se está construyendo, espera a que termine.
+     */
+    private DatosSistema copiarColecciones() {
+        esperarHistorial();
+        Map<Vehiculo, long[]> archivadas = new IdentityHashMap<>();
+        archivadasPorVehiculo.forEach((vehiculo, posiciones) -> archivadas.put(vehiculo, posiciones.toArray()));
+        return new DatosSistema(new ArrayList<>(clientes), new ArrayList<>(vehiculos), new ArrayList<>(empleados),
+            new ArrayList<>(contratos), new ArrayList<>(entradas), new ArrayList<>(salidas),
+            new ArrayList<>(servicios), archivadas, ultimoIdContrato, segmentoBitacora);
+    }
+    
+    /**
+     * Crea un sistema a partir de datos leídos de un archivo y reconstruye sus índices.
+     * @param datos Los datos leídos
+     * @param archivo Archivo de estadías del sistema (puede ser null si los datos no tienen estadías archivadas)
+     * @return El sistema restaurado
+     * @throws IllegalStateException Si los datos tienen estadías archivadas y no hay archivo de estadías
+     */
+    static Sistema desdeDatos(DatosSistema datos, ArchivoEstadias archivo) {
+        return desdeDatos(datos, archivo, false, new EtapasCarga());
+    }
+    
+    /**
+     * Crea un sistema a partir de datos leídos de un archivo y reconstruye sus índices.
+     * @param datos Los datos leídos
+     * @param archivo Archivo de estadías del sistema (puede ser null si los datos no tienen estadías archivadas)
+     * @param diferirHistorial true para construir el historial después, con completarHistorial
+     * @return El sistema restaurado
+     */
+    private static Sistema desdeDatos(DatosSistema datos, ArchivoEstadias archivo, boolean diferirHistorial,
+                                      EtapasCarga etapas) {
+        Sistema sistema = new Sistema();
+        sistema.archivo = archivo;
+        sistema.etapasCarga = etapas;
+        if (diferirHistorial) {
+            sistema.cambiosHistorial = new ArrayList<>();
+        }
+        sistema.restaurar(new ArrayList<>(datos.clientes), new ArrayList<>(datos.vehiculos),
+            new ArrayList<>(datos.empleados), datos.contratos, datos.entradas, datos.salidas, datos.servicios,
+            datos.archivadas, datos.ultimoIdContrato, datos.segmentoBitacora);
+        return sistema;
+    }
+    
+    /**
+     * Abre el archivo de estadías de un directorio.
+     * @param directorio Directorio del archivo de datos
+     * @return El archivo de estadías, o null si no se pudo abrir
+     */
+    static ArchivoEstadias abrirArchivoEstadias(java.nio.file.Path directorio) {
+        try {
+            return new ArchivoEstadias(directorio, PREFIJO_ARCHIVO_ESTADIAS);
+        } catch (java.io.IOException e) {
+            System.err.println("No se pudo abrir el archivo de estadías: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Agrega a los datos leídos de un archivo de datos los movimientos de todas sus particiones.
+     * @param datos Datos leídos del archivo de datos
+     * @param directorio Directorio del archivo de datos
+     * @return Tamaño total de las particiones (0 si los movimientos están en el archivo de datos)
+     * @throws java.io.IOException Si falta alguna partición o está dañada
+     */
+    static long leerParticiones(DatosSistema datos, java.nio.file.Path directorio) throws java.io.IOException {
+        return leerParticiones(datos, new ParticionesMovimientos.Lector(directorio, PREFIJO_MOVIMIENTOS,
+            datos.vehiculos, datos.empleados), null);
+    }
+    
+    /**
+     * Agrega a los datos leídos de un archivo de datos los movimientos de las particiones con
+     * entradas sin salida, que hacen falta para registrar las salidas. Las de los manifiestos
+     * que no indican sus entradas sin salida se leen todas.
+     * @param datos Datos leídos del archivo de datos
+     * @param lector Lector de las particiones del archivo de datos
+     * @param sinLeer Recibe las particiones que no se leyeron, o null para leerlas todas
+     * @return Tamaño total de las particiones (0 si los movimientos están en el archivo de datos)
+     * @throws java.io.IOException Si falta alguna partición o está dañada
+     */
+    static long leerParticiones(DatosSistema datos, ParticionesMovimientos.Lector lector,
+                                List<ParticionesMovimientos.Particion> sinLeer) throws java.io.IOException {
+        if (datos.particiones == null) {
+            return 0;
+        }
+        for (ParticionesMovimientos.Particion particion : datos.particiones) {
+            if (sinLeer != null && particion.abiertas == 0) {
+                sinLeer.add(particion);
+                continue;
+            }
+            ParticionesMovimientos.Movimientos movimientos = lector.leer(particion);
+            datos.entradas.addAll(movimientos.entradas);
+            datos.salidas.addAll(movimientos.salidas);
+            datos.servicios.addAll(movimientos.servicios);
+        }
+        return ParticionesMovimientos.getTamaño(datos.particiones);
+    }
+    
+    /**
+     * Lee las particiones que todavía no se leyeron y agrega sus movimientos al sistema y al
+     * historial. No se anotan como cambios: ya están grabados. Las particiones se leen sin
+     * bloquear el sistema (salvo que quien lo invoca ya lo tenga bloqueado) y se agregan juntas;
+     * si alguna no se puede leer, no se agrega ninguna.
+     * @param filtro Indica qué particiones leer
+     * @throws java.io.IOException Si falta alguna partición o está dañada
+     */
+    private void leerMeses(java.util.function.Predicate<ParticionesMovimientos.Particion> filtro)
+            throws java.io.IOException {
+        if (!hayMesesSinLeer) {
+            return;
+        }
+        List<ParticionesMovimientos.Particion> aLeer = new ArrayList<>();
+        ParticionesMovimientos.Lector lector;
+        synchronized (this) {
+            mesesSinLeer.values().stream().filter(filtro).forEach(aLeer::add);
+            lector = lectorParticiones;
+        }
+        if (aLeer.isEmpty()) {
+            return;
+        }
+        List<ParticionesMovimientos.Movimientos> leidos = new ArrayList<>(aLeer.size());
+        for (ParticionesMovimientos.Particion particion : aLeer) {
+            leidos.add(lector.leer(particion));
+        }
+        synchronized (this) {
+            long sello = bloquearEscritura();
+            try {
+                for (int i = 0; i < aLeer.size(); i++) {
+                    ParticionesMovimientos.Particion particion = aLeer.get(i);
+                    // Otra consulta pudo leerla mientras tanto, o el sistema pudo reiniciarse
+                    if (mesesSinLeer.remove(particion.mes, particion)) {
+                        agregarLeidos(leidos.get(i));
+                    }
+                }
+                hayMesesSinLeer = !mesesSinLeer.isEmpty();
+            } finally {
+                desbloquearEscritura(sello);
+            }
+        }
+    }
+    
+    /**
+     * Lee particiones que todavía no se leyeron, como leerMeses, para una consulta.
+     * @param filtro Indica qué particiones leer
+     * @throws java.io.UncheckedIOException Si falta alguna partición o está dañada
+     */
+    private void leerMesesParaConsulta(java.util.function.Predicate<ParticionesMovimientos.Particion> filtro) {
+        try {
+            leerMeses(filtro);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Lee las particiones que todavía no se leyeron y tienen movimientos en un intervalo de seis
+     * horas, según la primera y la última fecha/hora de cada una en el manifiesto.
+     * @param fecha La fecha del intervalo
+     * @param intervalo El intervalo de tiempo (0 a 3)
+     * @throws java.io.UncheckedIOException Si falta alguna partición o está dañada
+     */
+    private void leerMesesDelIntervalo(LocalDate fecha, int intervalo) {
+        if (fecha == null || intervalo < 0 || intervalo > 3) {
+            return;
+        }
+        long inicio = fecha.toEpochDay() * Reporte.MINUTOS_POR_DIA + intervalo * 6 * 60;
+        long fin = inicio + 6 * 60;
+        leerMesesParaConsulta(particion -> particion.minimo < fin && particion.maximo >= inicio);
+    }
+    
+    /**
+     * Agrega los movimientos leídos de una partición, salvo los de vehículos eliminados desde
+     * que se cargó el archivo de datos. Las particiones que se leen después de cargar no tienen
+     * entradas sin salida.
+     * @param leidos Los movimientos de la partición
+     */
+    private void agregarLeidos(ParticionesMovimientos.Movimientos leidos) {
+        List<Object> agregados = new ArrayList<>();
+        for (Entrada entrada : leidos.entradas) {
+            if (!vehiculosEliminados.contains(entrada.getVehiculo())) {
+                entradas.add(entrada);
+                agregados.add(entrada);
+            }
+        }
+        for (Salida salida : leidos.salidas) {
+            if (!vehiculosEliminados.contains(salida.getEntrada().getVehiculo())) {
+                salidas.add(salida);
+                salidaPorEntrada.put(salida.getEntrada(), salida);
+                agregados.add(salida);
+            }
+        }
+        for (Servicio servicio : leidos.servicios) {
+            if (!vehiculosEliminados.contains(servicio.getVehiculo())) {
+                servicios.add(servicio);
+                agregados.add(servicio);
+            }
+        }
+        fuenteServicios.modificado();
+        actualizarHistorial(() -> {
+            for (Object movimiento : agregados) {
+                if (movimiento instanceof Salida s) {
+                    agregarAlHistorial(s.getEntrada().getVehiculo(), s);
+                    rankingEstadias.agregar(s, Reporte.calcularDuracionMinutos(s.getEntrada(), s));
+                } else if (movimiento instanceof Entrada e) {
+                    agregarAlHistorial(e.getVehiculo(), e);
+                } else if (movimiento instanceof Servicio s) {
+                    agregarAlHistorial(s.getVehiculo(), s);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Carga el sistema desde un archivo guardado previamente y le aplica las operaciones
+     * anotadas en la bitácora después de esa grabación.
+     * @return El sistema cargado, un nuevo sistema si no existe archivo, o un sistema vacío que no
+     *         se graba si los archivos existentes no se pudieron cargar (ver getErrorCarga)
      */
     public static Sistema cargarDatos() {
+        Sistema sistema = cargarDatos(null);
+        sistema.completarHistorial();
+        return sistema;
+    }
+    
+    /**
+     * Recibe el avance de la lectura del archivo de datos.
+     */
+    public interface ObservadorCarga {
+        /**
+         * @param bytesLeidos Bytes leídos hasta ahora
+         * @param bytesEstimados Tamaño de los datos, o 0 si no se conoce (archivo comprimido)
+         */
+        void avance(long bytesLeidos, long bytesEstimados);
+    }
+    
+    /**
+     * Carga el sistema desde un archivo guardado previamente, sin construir el historial.
+     * El sistema devuelto ya tiene los vehículos, empleados, contratos y estadías abiertas,
+     * por lo que se pueden registrar entradas y salidas; el historial se construye después
+     * con completarHistorial (ver isHistorialListo). Mientras tanto, las grabaciones esperan.
+     * De las particiones de movimientos solo se leen las que tienen estadías abiertas; las
+     * demás se leen cuando una consulta necesita sus meses (por ejemplo, la grilla de un
+     * intervalo) o todos los movimientos (el historial de un vehículo y las estadísticas).
+     * 
+     * Si el archivo de datos, una partición, un archivo de cambios o la bitácora existen pero no
+     * se pueden leer, la carga se detiene: se devuelve un sistema sin esos datos que no se graba,
+     * no registra movimientos ni abre la bitácora, para que ninguna grabación reemplace o
+     * elimine los archivos que no se leyeron. El error se obtiene con getErrorCarga. Una
+     * partición que se lee después de cargar y no se puede leer hace fallar la consulta o la
+     * grabación que la necesitaba, sin modificar los archivos.
+     * @param observador Recibe el avance de la lectura del archivo (puede ser null)
+     * @return El sistema cargado, un nuevo sistema si no existe archivo, o un sistema vacío que no
+     *         se graba si los archivos existentes no se pudieron cargar
+     */
+    public static Sistema cargarDatos(ObservadorCarga observador) {
+        return cargarDatos(observador, false);
+    }
+    
+    /**
+     * Carga el sistema como cargarDatos(ObservadorCarga), o vuelve a la última grabación: con
+     * descartarBitacora, las operaciones anotadas en la bitácora después de esa grabación no se
+     * aplican y se eliminan (si los datos grabados se cargaron).
+     * @param observador Recibe el avance de la lectura del archivo (puede ser null)
+     * @param descartarBitacora true para descartar las operaciones no grabadas
+     * @return El sistema cargado, un nuevo sistema si no existe archivo, o un sistema vacío que no
+     *         se graba si los archivos existentes no se pudieron cargar
+     */
+    public static Sistema cargarDatos(ObservadorCarga observador, boolean descartarBitacora) {
+        EtapasCarga etapas = new EtapasCarga();
+        long inicio;
+        java.nio.file.Path archivo = java.nio.file.Paths.get(ARCHIVO_DATOS);
+        ArchivoEstadias archivoEstadias = abrirArchivoEstadias(archivo.toAbsolutePath().getParent());
+        Sistema sistema;
         try {
-            java.io.ObjectInputStream in = new java.io.ObjectInputStream(
-                new java.io.FileInputStream(ARCHIVO_DATOS));
-            Sistema sistema = (Sistema) in.readObject();
-            in.close();
-            return sistema;
+            if (java.nio.file.Files.exists(archivo)) {
+                try (java.nio.channels.FileChannel canal = java.nio.channels.FileChannel.open(archivo);
+                     java.nio.channels.ReadableByteChannel entrada = Compresion.descomprimir(canal)) {
+                    long estimado = Compresion.detectar(canal) == Compresion.NINGUNA ? canal.size() : 0;
+                    inicio = System.nanoTime();
+                    DatosSistema datos = SerializadorBinario.leer(entrada,
+                        observador == null ? null : bytes -> observador.avance(bytes, estimado));
+                    etapas.anotar("lectura", System.nanoTime() - inicio);
+                    inicio = System.nanoTime();
+                    // El lector asocia las particiones a los vehículos y empleados del archivo de datos,
+                    // antes de aplicarle los cambios posteriores
+                    ParticionesMovimientos.Lector lector = new ParticionesMovimientos.Lector(
+                        archivo.toAbsolutePath().getParent(), PREFIJO_MOVIMIENTOS, datos.vehiculos, datos.empleados);
+                    List<ParticionesMovimientos.Particion> sinLeer = new ArrayList<>();
+                    long tamañoParticiones = leerParticiones(datos, lector, sinLeer);
+                    etapas.anotar("particiones", System.nanoTime() - inicio);
+                    sistema = desdeDatos(datos, archivoEstadias, true, etapas);
+                    if (datos.particiones != null) {
+                        for (ParticionesMovimientos.Particion particion : datos.particiones) {
+                            sistema.particiones.put(particion.mes, particion);
+                        }
+                        for (ParticionesMovimientos.Particion particion : sinLeer) {
+                            sistema.mesesSinLeer.put(particion.mes, particion);
+                        }
+                        sistema.lectorParticiones = lector;
+                        sistema.hayMesesSinLeer = !sinLeer.isEmpty();
+                    }
+                    sistema.tamañoBase = canal.size() + tamañoParticiones;
+                }
+                inicio = System.nanoTime();
+                sistema.aplicarCambios();
+                etapas.anotar("cambios", System.nanoTime() - inicio);
+            } else if (java.nio.file.Files.exists(java.nio.file.Paths.get(ARCHIVO_DATOS_ANTERIOR))) {
+                // Archivo de una versión anterior; la próxima grabación ya usa el formato binario
+                java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+                    new java.io.BufferedInputStream(new java.io.FileInputStream(ARCHIVO_DATOS_ANTERIOR)));
+                sistema = (Sistema) in.readObject();
+                in.close();
+                sistema.archivo = archivoEstadias;
+            } else {
+                // No hay datos guardados: se empieza con un sistema nuevo
+                sistema = new Sistema();
+                sistema.archivo = archivoEstadias;
+            }
         } catch (Exception e) {
-            System.out.println("Creando nuevo sistema. Motivo: " + e.getMessage());
-            return new Sistema();
+            return sinCargar(e, archivoEstadias, etapas);
+        }
+        sistema.etapasCarga = etapas;
+        inicio = System.nanoTime();
+        try {
+            if (descartarBitacora) {
+                sistema.descartarBitacora();
+            } else {
+                sistema.abrirBitacora();
+            }
+        } catch (java.io.IOException e) {
+            return sinCargar(e, archivoEstadias, etapas);
+        }
+        etapas.anotar("bitácora", System.nanoTime() - inicio);
+        return sistema;
+    }
+    
+    /**
+     * Crea el sistema que se devuelve cuando los archivos de datos existentes no se pudieron
+     * cargar: vacío, sin bitácora ni archivo de estadías, y que no se graba.
+     * @param error El error de la carga
+     * @param archivoEstadias Archivo de estadías abierto para la carga, que se cierra
+     * @param etapas Etapas medidas hasta el error
+     * @return El sistema sin cargar
+     */
+    private static Sistema sinCargar(Exception error, ArchivoEstadias archivoEstadias, EtapasCarga etapas) {
+        System.err.println("No se pudieron cargar los datos; no se grabarán para no reemplazar los archivos. Motivo: "
+            + error.getMessage());
+        if (archivoEstadias != null) {
+            archivoEstadias.close();
+        }
+        Sistema sistema = new Sistema();
+        sistema.errorCarga = error;
+        sistema.etapasCarga = etapas;
+        return sistema;
+    }
+    
+    /**
+     * Obtiene cuántas operaciones posteriores a la última grabación se aplicaron desde la
+     * bitácora al cargar el sistema.
+     * @return Cantidad de operaciones recuperadas
+     */
+    public int getOperacionesRecuperadas() {
+        return operacionesRecuperadas;
+    }
+    
+    /**
+     * Obtiene el error por el que no se pudieron cargar los archivos de datos existentes.
+     * Un sistema con error de carga está vacío o incompleto: no se graba ni registra movimientos.
+     * @return El error, o null si los datos se cargaron (o no había datos guardados)
+     */
+    public Exception getErrorCarga() {
+        return errorCarga;
+    }
+    
+    /**
+     * Mueve los archivos de datos existentes (el archivo de datos, sus particiones, los archivos
+     * de cambios, las estadías archivadas y la bitácora) a un directorio de respaldo, sin
+     * modificarlos, para empezar con un sistema nuevo cuando no se pudieron cargar (ver
+     * getErrorCarga). Ningún sistema debe tener abiertos esos archivos.
+     * @return Directorio de respaldo donde quedaron los archivos
+     * @throws java.io.IOException Si no se puede crear el directorio o mover algún archivo
+     */
+    public static java.nio.file.Path apartarDatos() throws java.io.IOException {
+        java.nio.file.Path directorio = java.nio.file.Paths.get(ARCHIVO_DATOS).toAbsolutePath().getParent();
+        java.nio.file.Path respaldo = directorio.resolve(PREFIJO_RESPALDO
+            + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        java.nio.file.Files.createDirectory(respaldo);
+        try (java.nio.file.DirectoryStream<java.nio.file.Path> archivos =
+                java.nio.file.Files.newDirectoryStream(directorio, PATRON_ARCHIVOS_DATOS)) {
+            for (java.nio.file.Path archivo : archivos) {
+                if (java.nio.file.Files.isRegularFile(archivo)) {
+                    java.nio.file.Files.move(archivo, respaldo.resolve(archivo.getFileName()));
+                }
+            }
         }
+        return respaldo;
+    }
+    
+    /**
+     * Aplica, en orden, los archivos de cambios grabados después del archivo de datos.
+     * @throws java.io.IOException Si algún archivo de cambios no se puede leer o está dañado
+     */
+    private void aplicarCambios() throws java.io.IOException {
+        java.nio.file.Path directorio = java.nio.file.Paths.get(ARCHIVO_DATOS).toAbsolutePath().getParent();
+        for (var par : Delta.listar(directorio, PREFIJO_CAMBIOS).tailMap(segmentoBitacora, false).entrySet()) {
+            byte[] contenido = java.nio.file.Files.readAllBytes(par.getValue());
+            try {
+                Delta.aplicar(this, contenido);
+            } catch (java.io.IOException e) {
+                throw new java.io.IOException("Archivo de cambios dañado (" + par.getValue().getFileName() + "): "
+                    + e.getMessage(), e);
+            }
+            segmentoBitacora = par.getKey();
+            cantidadDeltas++;
+            bytesDeltas += contenido.length;
+        }
+        // Lo aplicado ya está grabado; las operaciones de la bitácora quedan como cambios pendientes
+        cambios = new CambiosPendientes();
+    }
+    
+    /**
+     * Aplica las operaciones pendientes de la bitácora y la deja abierta para anotar las siguientes.
+     * Mientras se aplican, la bitácora no está asignada, por lo que no se vuelven a anotar.
+     * @throws java.io.IOException Si no se puede leer algún segmento o abrir el último
+     */
+    private void abrirBitacora() throws java.io.IOException {
+        abrirBitacora(java.nio.file.Paths.get(ARCHIVO_DATOS).toAbsolutePath().getParent());
+    }
+    
+    /**
+     * Aplica las operaciones pendientes de la bitácora de un directorio y la deja abierta para
+     * anotar las siguientes.
+     * @param directorio Directorio de los segmentos de la bitácora
+     * @throws java.io.IOException Si no se puede leer algún segmento o abrir el último
+     */
+    void abrirBitacora(java.nio.file.Path directorio) throws java.io.IOException {
+        Bitacora nueva = new Bitacora(directorio, PREFIJO_BITACORA);
+        operacionesRecuperadas = nueva.reproducir(this, segmentoBitacora);
+        nueva.abrir(segmentoBitacora);
+        bitacora = nueva;
+    }
+    
+    /**
+     * Elimina las operaciones de la bitácora posteriores a la última grabación, sin aplicarlas,
+     * y la deja abierta para anotar las siguientes.
+     * @throws java.io.IOException Si no se puede eliminar algún segmento o abrir el nuevo
+     */
+    private void descartarBitacora() throws java.io.IOException {
+        java.nio.file.Path directorio = java.nio.file.Paths.get(ARCHIVO_DATOS).toAbsolutePath().getParent();
+        Bitacora nueva = new Bitacora(directorio, PREFIJO_BITACORA);
+        nueva.eliminarDesde(segmentoBitacora);
+        nueva.abrir(segmentoBitacora);
+        bitacora = nueva;
+    }
+    
+    /**
+     * Cierra la bitácora del sistema. Las operaciones posteriores ya no se anotan y el sistema
+     * ya no se graba. Se usa antes de reemplazar el sistema por otro cargado desde archivo.
+     */
+    public synchronized void cerrarBitacora() {
+        cerrado = true;
+        if (bitacora != null) {
+            try {
+                bitacora.close();
+            } catch (java.io.IOException e) {
+                System.err.println("Error al cerrar la bitácora: " + e.getMessage());
+            }
+            bitacora = null;
+        }
+    }
+    
+    /**
+     * Guarda el sistema en el archivo serializado, con las colecciones como ArrayList.
+     */
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        leerMeses(particion -> true);
+        // Las estadías archivadas se incluyen completas: este formato no usa el archivo de estadías
+        ArrayList<Entrada> todasLasEntradas = new ArrayList<>(entradas);
+        ArrayList<Salida> todasLasSalidas = new ArrayList<>(salidas);
+        paraCadaArchivada((salida, posicion) -> {
+            todasLasEntradas.add(salida.getEntrada());
+            todasLasSalidas.add(salida);
+        });
+        java.io.ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("clientes", clientes);
+        campos.put("vehiculos", vehiculos);
+        campos.put("empleados", empleados);
+        campos.put("contratos", new ArrayList<>(contratos));
+        campos.put("entradas", todasLasEntradas);
+        campos.put("salidas", todasLasSalidas);
+        campos.put("servicios", new ArrayList<>(servicios));
+        campos.put("ultimoIdContrato", ultimoIdContrato);
+        campos.put("segmentoBitacora", segmentoBitacora);
+        out.writeFields();
+    }
+    
+    /**
+     * Restaura el sistema desde el archivo serializado y reconstruye los índices,
+     * que no se guardan en el archivo.
+     */
+    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+        java.io.ObjectInputStream.GetField campos = in.readFields();
+        restaurar(leerLista(campos, "clientes"), leerLista(campos, "vehiculos"), leerLista(campos, "empleados"),
+            leerLista(campos, "contratos"), leerLista(campos, "entradas"), leerLista(campos, "salidas"),
+            leerLista(campos, "servicios"), Collections.emptyMap(), campos.get("ultimoIdContrato", 0),
+            campos.get("segmentoBitacora", 0L));
+    }
+    
+    /**
+     * Reemplaza las colecciones del sistema por las leídas de un archivo y reconstruye los índices.
+     */
+    private void restaurar(ArrayList<Cliente> clientes, ArrayList<Vehiculo> vehiculos, ArrayList<Empleado> empleados,
+                           Collection<Contrato> contratos, Collection<Entrada> entradas, Collection<Salida> salidas,
+                           Collection<Servicio> servicios, Map<Vehiculo, long[]> archivadas,
+                           int ultimoIdContrato, long segmentoBitacora) {
+        this.clientes = clientes;
+        this.vehiculos = vehiculos;
+        this.empleados = empleados;
+        this.contratos = new LinkedHashSet<>(contratos);
+        this.entradas = new LinkedHashSet<>(entradas);
+        this.salidas = new LinkedHashSet<>(salidas);
+        this.servicios = new LinkedHashSet<>(servicios);
+        this.ultimoIdContrato = ultimoIdContrato;
+        this.segmentoBitacora = segmentoBitacora;
+        if (etapasCarga == null) {
+            // Sistema leído con la serialización de Java, que no inicializa los campos transient
+            etapasCarga = new EtapasCarga();
+        }
+        if (cerrojo == null) {
+            cerrojo = new StampedLock();
+        }
+        if (ocupacion == null) {
+            ocupacion = new AtomicInteger();
+            capacidad = getCapacidadConfigurada();
+        }
+        fuenteClientes = new FuenteVista<>(this.clientes);
+        fuenteVehiculos = new FuenteVista<>(this.vehiculos);
+        fuenteEmpleados = new FuenteVista<>(this.empleados);
+        fuenteContratos = new FuenteVista<>(this.contratos);
+        fuenteServicios = new FuenteVista<>(this.servicios);
+        cambios = new CambiosPendientes();
+        particiones = new TreeMap<>();
+        mesesModificados = new HashSet<>();
+        mesesSinLeer = new TreeMap<>();
+        vehiculosEliminados = Collections.newSetFromMap(new IdentityHashMap<>());
+        archivadasPorVehiculo = new IdentityHashMap<>();
+        archivadas.forEach((vehiculo, posiciones) ->
+            archivadasPorVehiculo.put(vehiculo, new PosicionesArchivadas(vehiculo, posiciones)));
+        reconstruirIndices();
+    }
+    
+    /**
+     * Método auxiliar para leer una colección guardada como ArrayList.
+     * @param campos Campos leídos del archivo
+     * @param nombre Nombre del campo
+     * @return La lista leída, o una lista vacía si el campo no está en el archivo
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayList<T> leerLista(java.io.ObjectInputStream.GetField campos, String nombre) throws java.io.IOException, ClassNotFoundException {
+        ArrayList<T> lista = (ArrayList<T>) campos.get(nombre, null);
+        return lista != null ? lista : new ArrayList<>();
+    }
+    
+    /**
+     * Reconstruye los índices en memoria a partir de las listas del sistema. Los índices
+     * independientes entre sí se reconstruyen en paralelo (ver EtapasCarga).
+     */
+    private void reconstruirIndices() {
+        Map<String, Runnable> etapas = new LinkedHashMap<>();
+        etapas.put("vehículos", () -> {
+            clientes.forEach(c -> c.sistema = this);
+            empleados.forEach(e -> e.sistema = this);
+            indexarEmpleados();
+            vehiculosPorMatricula = new HashMap<>();
+            for (Vehiculo vehiculo : vehiculos) {
+                vehiculosPorMatricula.put(vehiculo.getMatricula(), vehiculo);
+                vehiculo.sistema = this;
+            }
+        });
+        etapas.put("estadías abiertas", () -> {
+            salidaPorEntrada = new ConcurrentHashMap<>(salidas.size() * 4 / 3 + 1);
+            for (Salida salida : salidas) {
+                salidaPorEntrada.put(salida.getEntrada(), salida);
+            }
+            entradasAbiertas = new LinkedHashMap<>();
+            for (Entrada entrada : entradas) {
+                if (!salidaPorEntrada.containsKey(entrada)) {
+                    entradasAbiertas.put(entrada.getVehiculo().getMatricula(), entrada);
+                }
+            }
+            ocupacion.set(entradasAbiertas.size());
+        });
+        etapas.put("contratos", () -> {
+            contratosActivosPorCliente = new Contador<>();
+            cantidadContratosActivos = 0;
+            sumaValoresContratosActivos = 0;
+            contratosPorId = new HashMap<>();
+            contratoActivoPorVehiculo = new IdentityHashMap<>();
+            contratosPorCliente = new IdentityHashMap<>();
+            contratosPorVehiculo = new IdentityHashMap<>();
+            for (Contrato contrato : contratos) {
+                indexarContrato(contrato);
+                // Los archivos anteriores a la secuencia de contratos no la guardan
+                ultimoIdContrato = Math.max(ultimoIdContrato, contrato.getId());
+                contratosPorId.put(contrato.getId(), contrato);
+                contrato.sistema = this;
+                agregarContratoActivo(contrato);
+            }
+        });
+        // Al cargar con cargarDatos(ObservadorCarga) el historial se construye después
+        Runnable unirHistorial = cambiosHistorial == null ? agregarEtapasHistorial(etapas) : null;
+        etapasCarga.ejecutarEnParalelo(etapas);
+        if (unirHistorial != null) {
+            unirHistorial.run();
+        }
+    }
+    
+    /**
+     * Reconstruye los índices del historial a partir de las listas de movimientos y de las
+     * estadías archivadas.
+     */
+    private void reconstruirHistorial() {
+        Map<String, Runnable> etapas = new LinkedHashMap<>();
+        Runnable unir = agregarEtapasHistorial(etapas);
+        etapasCarga.ejecutarEnParalelo(etapas);
+        unir.run();
+    }
+    
+    /**
+     * Agrega las etapas que reconstruyen los índices del historial. Las estadías archivadas se
+     * cuentan y se ordenan por separado, mientras las otras etapas recorren las listas.
+     * @param etapas Etapas a las que se agregan las del historial
+     * @return Acción que suma las estadías archivadas a las estadísticas y al ranking; se
+     *         ejecuta después de que terminen todas las etapas
+     */
+    private Runnable agregarEtapasHistorial(Map<String, Runnable> etapas) {
+        etapas.put("línea de tiempo", () -> {
+            lineaDeTiempo = new IdentityHashMap<>();
+            entradas.forEach(e -> lineaDeTiempo.computeIfAbsent(e.getVehiculo(), v -> new ArrayList<>()).add(e));
+            salidas.forEach(s -> lineaDeTiempo.computeIfAbsent(s.getEntrada().getVehiculo(), v -> new ArrayList<>()).add(s));
+            servicios.forEach(s -> lineaDeTiempo.computeIfAbsent(s.getVehiculo(), v -> new ArrayList<>()).add(s));
+            lineaDeTiempo.values().parallelStream().forEach(movimientos -> movimientos.sort(ORDEN_MOVIMIENTOS));
+        });
+        etapas.put("intervalos", () -> {
+            movimientosPorIntervalo = new HashMap<>();
+            Stream.of(entradas, salidas, servicios).flatMap(Collection::stream)
+                .forEach(mov -> movimientosPorIntervalo.computeIfAbsent(claveIntervalo(mov), k -> new ArrayList<>()).add(mov));
+            movimientosPorIntervalo.values().parallelStream().forEach(movimientos -> movimientos.sort(ORDEN_MOVIMIENTOS));
+        });
+        etapas.put("estadísticas", () -> {
+            usosPorTipoServicio = new Contador<>();
+            movimientosPorEmpleado = new Contador<>();
+            Stream.of(entradas, salidas, servicios).flatMap(Collection::stream).forEach(this::contarMovimiento);
+        });
+        etapas.put("ranking", () -> {
+            rankingEstadias = new RankingEstadias(RankingEstadias.CAPACIDAD_POR_DEFECTO);
+            for (Salida salida : salidas) {
+                if (salida.getEntrada() != null) {
+                    rankingEstadias.agregar(salida, Reporte.calcularDuracionMinutos(salida.getEntrada(), salida));
+                }
+            }
+        });
+        Contador<Empleado> archivadasPorEmpleado = new Contador<>();
+        RankingEstadias rankingArchivadas = new RankingEstadias(RankingEstadias.CAPACIDAD_POR_DEFECTO);
+        etapas.put("estadías archivadas", () -> reconstruirArchivadas(archivadasPorEmpleado, rankingArchivadas));
+        return () -> {
+            movimientosPorEmpleado.sumar(archivadasPorEmpleado);
+            for (RankingEstadias.Estadia estadia : rankingArchivadas.getMasLargas(rankingArchivadas.getCapacidad())) {
+                rankingEstadias.agregar(estadia.getSalida(), estadia.getMinutos());
+            }
+            rankingIncompleto = false;
+        };
+    }
+    
+    /**
+     * Indica si el historial está completo. Mientras se construye (ver completarHistorial) ya se
+     * pueden registrar entradas, salidas y servicios, pero los reportes, el historial de cada
+     * vehículo y las estadísticas todavía no incluyen todos los movimientos.
+     * @return true si el historial está completo
+     */
+    public synchronized boolean isHistorialListo() {
+        return cambiosHistorial == null;
+    }
+    
+    /**
+     * Obtiene cuánto tardó cada etapa de la carga del sistema: la lectura del archivo, la
+     * reconstrucción de cada índice (ver EtapasCarga), los archivos de cambios y la bitácora.
+     * Las etapas del historial aparecen cuando termina de construirse.
+     * @return Milisegundos por etapa, en el orden en que terminaron
+     */
+    public Map<String, Long> getTiemposCarga() {
+        return etapasCarga.getTiempos();
+    }
+    
+    /**
+     * Construye el historial de un sistema cargado con cargarDatos(ObservadorCarga).
+     * Se construye sin bloquear el sistema, sobre copias de las listas de movimientos; los
+     * cambios registrados mientras tanto se aplican al terminar. Puede invocarse desde
+     * cualquier hilo; si el historial ya está completo no hace nada.
+     */
+    public void completarHistorial() {
+        Sistema historial = new Sistema();
+        synchronized (this) {
+            if (cambiosHistorial == null) {
+                return;
+            }
+            historial.entradas = new LinkedHashSet<>(entradas);
+            historial.salidas = new LinkedHashSet<>(salidas);
+            historial.servicios = new LinkedHashSet<>(servicios);
+            historial.empleados = new ArrayList<>(empleados);
+            historial.archivadasPorVehiculo = new IdentityHashMap<>(archivadasPorVehiculo);
+            historial.archivo = archivo;
+            historial.etapasCarga = etapasCarga;
+            // Las copias ya incluyen los cambios registrados hasta ahora
+            cambiosHistorial.clear();
+        }
+        historial.reconstruirHistorial();
+        synchronized (this) {
+            long sello = bloquearEscritura();
+            lineaDeTiempo = historial.lineaDeTiempo;
+            movimientosPorIntervalo = historial.movimientosPorIntervalo;
+            usosPorTipoServicio = historial.usosPorTipoServicio;
+            movimientosPorEmpleado = historial.movimientosPorEmpleado;
+            archivadasPorIntervalo = historial.archivadasPorIntervalo;
+            cantidadArchivadas = historial.cantidadArchivadas;
+            rankingEstadias = historial.rankingEstadias;
+            rankingIncompleto = false;
+            List<Runnable> pendientes = cambiosHistorial;
+            cambiosHistorial = null;
+            try {
+                pendientes.forEach(Runnable::run);
+            } finally {
+                desbloquearEscritura(sello);
+            }
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Ejecuta una consulta sobre los índices con el cerrojo de lectura tomado: las consultas
+     * no se bloquean entre sí, y las modificaciones esperan a que termine. Por eso la consulta
+     * solo busca en los índices o copia lo que se va a recorrer (del tamaño del resultado, como
+     * los movimientos de un vehículo o de un intervalo); los recorridos de una colección entera
+     * usan su vista (ver getVista), y el archivo de estadías se lee después de liberar el cerrojo.
+     * Si el hilo es el que está modificando el sistema, la consulta se ejecuta directamente.
+     * @param consulta La consulta, que no debe modificar el sistema
+     * @return El resultado de la consulta
+     */
+    private <T> T leer(java.util.function.Supplier<T> consulta) {
+        if (cerrojo.isWriteLocked() && Thread.holdsLock(this)) {
+            return consulta.get();
+        }
+        long sello = cerrojo.readLock();
+        try {
+            return consulta.get();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+    
+    /**
+     * Lee campos del sistema (no colecciones) de forma optimista, sin tomar el cerrojo: si una
+     * modificación ocurrió mientras tanto, los vuelve a leer con el cerrojo de lectura tomado.
+     * La lectura solo copia campos a variables locales; no debe recorrer colecciones ni índices,
+     * que podrían estar a medio modificar.
+     * @param campos Lectura de los campos
+     * @return El resultado de la lectura
+     */
+    private <T> T leerCampos(java.util.function.Supplier<T> campos) {
+        long sello = cerrojo.tryOptimisticRead();
+        if (sello != 0) {
+            T resultado = campos.get();
+            if (cerrojo.validate(sello)) {
+                return resultado;
+            }
+        }
+        return leer(campos);
+    }
+    
+    /**
+     * Obtiene la vista de una colección. Si la colección cambió desde la última vista, la nueva
+     * se arma con el cerrojo de lectura tomado (y no con una lectura optimista), para no guardar
+     * como vigente una vista armada mientras se modificaba la colección.
+     * @param fuente La colección y su última vista
+     * @return Vista de solo lectura del contenido actual
+     */
+    private <T> VistaLista<T> getVista(FuenteVista<T> fuente) {
+        VistaLista<T> vista = fuente.getVistaArmada();
+        if (vista != null) {
+            return vista;
+        }
+        if (cerrojo.isWriteLocked() && Thread.holdsLock(this)) {
+            return fuente.armarVista();
+        }
+        long sello = cerrojo.readLock();
+        try {
+            return fuente.armarVista();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+    
+    /**
+     * Toma el cerrojo para modificar las colecciones e índices. Se invoca con el sistema
+     * bloqueado, por lo que si el cerrojo ya está tomado lo tiene este mismo hilo (una
+     * modificación que invoca a otra) y no se vuelve a tomar.
+     * @return Sello para desbloquearEscritura, o 0 si el cerrojo ya estaba tomado
+     */
+    private long bloquearEscritura() {
+        return cerrojo.isWriteLocked() ? 0 : cerrojo.writeLock();
+    }
+    
+    private void desbloquearEscritura(long sello) {
+        if (sello != 0) {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+    
+    /**
+     * Aplica un cambio a los índices del historial, o lo deja pendiente si el historial todavía
+     * se está construyendo.
+     * @param cambio El cambio a aplicar
+     */
+    private void actualizarHistorial(Runnable cambio) {
+        if (cambiosHistorial == null) {
+            cambio.run();
+        } else {
+            cambiosHistorial.add(cambio);
+        }
+    }
+    
+    /**
+     * Espera a que el historial esté completo. Se invoca con el sistema bloqueado; mientras
+     * espera lo libera, para que completarHistorial pueda terminar.
+     */
+    private void esperarHistorial() {
+        boolean interrumpido = false;
+        while (cambiosHistorial != null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Recalcula el ranking de estadías más largas a partir de todas las salidas, incluidas las
+     * archivadas, si quedó incompleto al quitar estadías. Lo invocan los reportes antes de leerlo.
+     */
+    private synchronized void completarRanking() {
+        if (!rankingIncompleto) {
+            return;
+        }
+        long sello = bloquearEscritura();
+        try {
+            rankingEstadias = new RankingEstadias(RankingEstadias.CAPACIDAD_POR_DEFECTO);
+            for (Salida salida : salidas) {
+                if (salida.getEntrada() != null) {
+                    rankingEstadias.agregar(salida, Reporte.calcularDuracionMinutos(salida.getEntrada(), salida));
+                }
+            }
+            paraCadaArchivada((salida, posicion) ->
+                rankingEstadias.agregar(salida, Reporte.calcularDuracionMinutos(salida.getEntrada(), salida)));
+            rankingIncompleto = false;
+        } finally {
+            desbloquearEscritura(sello);
+        }
+    }
+    
+    /**
+     * Suma un movimiento a las estadísticas de empleados y servicios.
+     * @param movimiento La entrada, salida o servicio registrado
+     */
+    private void contarMovimiento(Object movimiento) {
+        movimientosPorEmpleado.incrementar(getEmpleadoFromMovimiento(movimiento));
+        if (movimiento instanceof Servicio s) {
+            usosPorTipoServicio.incrementar(s.getTipo());
+        }
+    }
+    
+    /**
+     * Resta un movimiento eliminado de las estadísticas de empleados y servicios.
+     * @param movimiento La entrada, salida o servicio eliminado
+     */
+    private void descontarMovimiento(Object movimiento) {
+        movimientosPorEmpleado.decrementar(getEmpleadoFromMovimiento(movimiento));
+        if (movimiento instanceof Servicio s) {
+            usosPorTipoServicio.decrementar(s.getTipo());
+        }
+    }
+    
+    /**
+     * Método auxiliar para obtener el empleado de cualquier movimiento.
+     * @param movimiento El movimiento (Entrada, Salida o Servicio)
+     * @return El empleado del movimiento o null si no es un tipo válido
+     */
+    private static Empleado getEmpleadoFromMovimiento(Object movimiento) {
+        if (movimiento instanceof Entrada e) return e.getEmpleado();
+        if (movimiento instanceof Salida s) return s.getEmpleado();
+        if (movimiento instanceof Servicio s) return s.getEmpleado();
+        return null;
+    }
+    
+    /**
+     * Agrega un movimiento registrado a la línea de tiempo de su vehículo, a su intervalo y a las estadísticas.
+     * @param vehiculo El vehículo del movimiento
+     * @param movimiento La entrada, salida o servicio registrado
+     */
+    private void agregarAlHistorial(Vehiculo vehiculo, Object movimiento) {
+        agregarALineaDeTiempo(vehiculo, movimiento);
+        agregarAIntervalo(movimiento);
+        contarMovimiento(movimiento);
+    }
+    
+    /**
+     * Quita del historial todos los movimientos de un vehículo eliminado.
+     * @param vehiculo El vehículo eliminado
+     */
+    private void quitarDelHistorial(Vehiculo vehiculo) {
+        List<Object> movimientos = lineaDeTiempo.remove(vehiculo);
+        if (movimientos == null) {
+            return;
+        }
+        for (Object movimiento : movimientos) {
+            quitarDeIntervalo(movimiento);
+            descontarMovimiento(movimiento);
+            if (movimiento instanceof Salida s && rankingEstadias.quitar(s)) {
+                rankingIncompleto = true;
+            }
+        }
+    }
+    
+    /**
+     * Obtiene los movimientos de un vehículo recorriendo las listas de movimientos, para cuando
+     * el historial todavía se está construyendo.
+     * @param vehiculo El vehículo
+     * @return Sus entradas, salidas y servicios (sin ordenar)
+     */
+    private List<Object> getMovimientosDeListas(Vehiculo vehiculo) {
+        List<Object> movimientos = new ArrayList<>();
+        entradas.stream().filter(e -> e.getVehiculo() == vehiculo).forEach(movimientos::add);
+        salidas.stream().filter(s -> s.getEntrada().getVehiculo() == vehiculo).forEach(movimientos::add);
+        servicios.stream().filter(s -> s.getVehiculo() == vehiculo).forEach(movimientos::add);
+        return movimientos;
+    }
+    
+    /**
+     * Inserta un movimiento en la línea de tiempo del vehículo manteniendo el orden por fecha/hora.
+     * Los movimientos suelen registrarse en orden, por lo que en general se agregan al final.
+     * @param vehiculo El vehículo del movimiento
+     * @param movimiento La entrada, salida o servicio a insertar
+     */
+    private void agregarALineaDeTiempo(Vehiculo vehiculo, Object movimiento) {
+        insertarOrdenado(lineaDeTiempo.computeIfAbsent(vehiculo, v -> new ArrayList<>()), movimiento);
+    }
+    
+    /**
+     * Inserta un movimiento en una lista ordenada por fecha/hora, recorriéndola desde el final.
+     * @param movimientos La lista ordenada
+     * @param movimiento El movimiento a insertar
+     */
+    private static void insertarOrdenado(List<Object> movimientos, Object movimiento) {
+        int posicion = movimientos.size();
+        while (posicion > 0 && ORDEN_MOVIMIENTOS.compare(movimientos.get(posicion - 1), movimiento) > 0) {
+            posicion--;
+        }
+        movimientos.add(posicion, movimiento);
+    }
+    
+    /**
+     * Quita un movimiento de la línea de tiempo del vehículo.
+     * @param vehiculo El vehículo del movimiento
+     * @param movimiento La entrada, salida o servicio a quitar
+     */
+    private void quitarDeLineaDeTiempo(Vehiculo vehiculo, Object movimiento) {
+        List<Object> movimientos = lineaDeTiempo.get(vehiculo);
+        if (movimientos != null) {
+            movimientos.removeIf(m -> m == movimiento);
+        }
+    }
+    
+    /**
+     * Agrega un movimiento a su intervalo de seis horas.
+     * @param movimiento La entrada, salida o servicio a agregar
+     */
+    private void agregarAIntervalo(Object movimiento) {
+        insertarOrdenado(movimientosPorIntervalo.computeIfAbsent(claveIntervalo(movimiento), k -> new ArrayList<>()), movimiento);
+    }
+    
+    /**
+     * Quita un movimiento de su intervalo de seis horas.
+     * @param movimiento La entrada, salida o servicio a quitar
+     */
+    private void quitarDeIntervalo(Object movimiento) {
+        Long clave = claveIntervalo(movimiento);
+        List<Object> movimientos = movimientosPorIntervalo.get(clave);
+        if (movimientos != null) {
+            movimientos.removeIf(m -> m == movimiento);
+            if (movimientos.isEmpty()) {
+                movimientosPorIntervalo.remove(clave);
+            }
+        }
+    }
+    
+    /**
+     * Calcula la clave del intervalo de seis horas al que pertenece un movimiento.
+     * @param movimiento La entrada, salida o servicio
+     * @return díaEpoch * 4 + intervalo (0: 0-5:59, 1: 6-11:59, 2: 12-17:59, 3: 18-23:59)
+     */
+    private static long claveIntervalo(Object movimiento) {
+        return claveIntervalo(Reporte.getMinutoEpochFromMovimiento(movimiento));
+    }
+    
+    /**
+     * Calcula la clave del intervalo de seis horas al que pertenece una fecha/hora.
+     * @param minutoEpoch Fecha y hora (ver Reporte.toMinutoEpoch)
+     * @return díaEpoch * 4 + intervalo
+     */
+    private static long claveIntervalo(long minutoEpoch) {
+        return Reporte.getDiaEpoch(minutoEpoch) * 4 + Reporte.getMinutoDelDia(minutoEpoch) / (6 * 60);
+    }
+    
+    /**
+     * Obtiene los movimientos de un intervalo de seis horas, incluidos los de estadías archivadas.
+     * @param fecha La fecha a consultar
+     * @param intervalo El intervalo de tiempo (0 a 3)
+     * @return Movimientos del intervalo ordenados por fecha/hora (lista vacía si no hay o el intervalo no es válido)
+     */
+    private List<Object> getIntervalo(LocalDate fecha, int intervalo) {
+        if (fecha == null || intervalo < 0 || intervalo > 3) {
+            return Collections.emptyList();
+        }
+        long clave = fecha.toEpochDay() * 4 + intervalo;
+        // Se copia el intervalo con el cerrojo tomado; las estadías archivadas se leen después
+        List<Object> todos = new ArrayList<>();
+        PosicionesArchivadas archivados = leer(() -> {
+            todos.addAll(movimientosPorIntervalo.getOrDefault(clave, Collections.emptyList()));
+            return copiar(archivadasPorIntervalo.get(clave));
+        });
+        if (archivados == null) {
+            return todos;
+        }
+        Map<Integer, Empleado> empleadosPorNumero = getEmpleadosPorNumero();
+        for (int i = 0; i < archivados.size(); i++) {
+            long codigo = archivados.getPosicion(i);
+            Salida salida = archivo.leer(codigo >>> 1, archivados.getVehiculo(i), empleadosPorNumero);
+            todos.add((codigo & 1) == 0 ? salida.getEntrada() : salida);
+        }
+        todos.sort(ORDEN_MOVIMIENTOS);
+        return todos;
+    }
+    
+    /**
+     * Obtiene la línea de tiempo en memoria de un vehículo (sin las estadías archivadas).
+     * @param vehiculo El vehículo a consultar
+     * @return Movimientos del vehículo ordenados por fecha/hora (lista vacía si no tiene)
+     */
+    private List<Object> getLineaDeTiempo(Vehiculo vehiculo) {
+        return lineaDeTiempo.getOrDefault(vehiculo, Collections.emptyList());
+    }
+    
+    /**
+     * Obtiene la línea de tiempo de un vehículo, incluidas sus estadías archivadas.
+     * @param vehiculo El vehículo a consultar
+     * @return Movimientos del vehículo ordenados por fecha/hora (lista vacía si no tiene)
+     */
+    private List<Object> getLineaDeTiempoCompleta(Vehiculo vehiculo) {
+        // Se copia la línea de tiempo con el cerrojo tomado; las estadías archivadas se leen después
+        List<Object> todos = new ArrayList<>();
+        PosicionesArchivadas archivadas = leer(() -> {
+            todos.addAll(getLineaDeTiempo(vehiculo));
+            return copiar(archivadasPorVehiculo.get(vehiculo));
+        });
+        if (archivadas == null) {
+            return todos;
+        }
+        Map<Integer, Empleado> empleadosPorNumero = getEmpleadosPorNumero();
+        for (int i = 0; i < archivadas.size(); i++) {
+            Salida salida = archivo.leer(archivadas.getPosicion(i), vehiculo, empleadosPorNumero);
+            todos.add(salida.getEntrada());
+            todos.add(salida);
+        }
+        todos.sort(ORDEN_MOVIMIENTOS);
+        return todos;
+    }
+    
+    /**
+     * Copia posiciones de estadías archivadas, para leerlas del archivo sin el cerrojo tomado.
+     * @param posiciones Las posiciones (puede ser null)
+     * @return La copia, o null si no hay posiciones
+     */
+    private static PosicionesArchivadas copiar(PosicionesArchivadas posiciones) {
+        if (posiciones == null || posiciones.isEmpty()) {
+            return null;
+        }
+        PosicionesArchivadas copia = new PosicionesArchivadas();
+        for (int i = 0; i < posiciones.size(); i++) {
+            copia.agregar(posiciones.getPosicion(i), posiciones.getVehiculo(i));
+        }
+        return copia;
+    }
+    
+    /**
+     * Orden de cada tipo de movimiento cuando dos movimientos tienen la misma fecha/hora.
+     * @param movimiento El movimiento (Entrada, Salida o Servicio)
+     * @return 0 para entradas, 1 para salidas y 2 para servicios
+     */
+    private static int ordenTipoMovimiento(Object movimiento) {
+        if (movimiento instanceof Entrada) return 0;
+        if (movimiento instanceof Salida) return 1;
+        return 2;
+    }
+    
+    // ==================== ARCHIVO DE ESTADÍAS ====================
+    
+    /**
+     * Pasa al archivo de estadías las estadías cerradas cuya salida es anterior a una fecha/hora
+     * y las quita de las colecciones e índices en memoria. Las estadísticas no cambian: las
+     * estadías archivadas se siguen contando y los reportes las leen del archivo.
+     * @param minutoLimite Fecha/hora límite (ver Reporte.toMinutoEpoch)
+     * @return Cantidad de estadías archivadas
+     * @throws java.io.IOException Si no se puede escribir el archivo de estadías
+     */
+    private int archivarEstadias(long minutoLimite) throws java.io.IOException {
+        List<Salida> antiguas = new ArrayList<>();
+        for (Salida salida : salidas) {
+            if (salida.getMinutoEpoch() < minutoLimite && salida.getEntrada() != null
+                    && salida.getEntrada().getVehiculo() != null) {
+                antiguas.add(salida);
+            }
+        }
+        if (antiguas.isEmpty()) {
+            return 0;
+        }
+        Set<Object> archivados = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Vehiculo> vehiculosAfectados = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Long> intervalosAfectados = new HashSet<>();
+        for (Salida salida : antiguas) {
+            Entrada entrada = salida.getEntrada();
+            long posicion = archivo.agregar(entrada, salida);
+            indexarArchivada(entrada.getVehiculo(), posicion, entrada.getMinutoEpoch(), salida.getMinutoEpoch());
+            cantidadArchivadas++;
+            entradas.remove(entrada);
+            salidas.remove(salida);
+            salidaPorEntrada.remove(entrada);
+            mesesModificados.add(ParticionesMovimientos.getMes(entrada));
+            archivados.add(entrada);
+            archivados.add(salida);
+            vehiculosAfectados.add(entrada.getVehiculo());
+            intervalosAfectados.add(claveIntervalo(entrada));
+            intervalosAfectados.add(claveIntervalo(salida));
+        }
+        // Se quitan de cada lista en una sola pasada
+        for (Vehiculo vehiculo : vehiculosAfectados) {
+            List<Object> movimientos = lineaDeTiempo.get(vehiculo);
+            if (movimientos != null && movimientos.removeIf(archivados::contains) && movimientos.isEmpty()) {
+                lineaDeTiempo.remove(vehiculo);
+            }
+        }
+        for (Long clave : intervalosAfectados) {
+            List<Object> movimientos = movimientosPorIntervalo.get(clave);
+            if (movimientos != null && movimientos.removeIf(archivados::contains) && movimientos.isEmpty()) {
+                movimientosPorIntervalo.remove(clave);
+            }
+        }
+        return antiguas.size();
+    }
+    
+    /**
+     * Agrega una estadía archivada a los índices por vehículo y por intervalo.
+     * @param vehiculo El vehículo de la estadía
+     * @param posicion Posición de la estadía en el archivo de estadías
+     * @param minutoEntrada Fecha/hora de la entrada
+     * @param minutoSalida Fecha/hora de la salida
+     */
+    private void indexarArchivada(Vehiculo vehiculo, long posicion, long minutoEntrada, long minutoSalida) {
+        archivadasPorVehiculo.computeIfAbsent(vehiculo, v -> new PosicionesArchivadas()).agregar(posicion, vehiculo);
+        indexarIntervaloArchivado(minutoEntrada, posicion * 2, vehiculo);
+        indexarIntervaloArchivado(minutoSalida, posicion * 2 + 1, vehiculo);
+    }
+    
+    private void indexarIntervaloArchivado(long minutoEpoch, long codigo, Vehiculo vehiculo) {
+        archivadasPorIntervalo.computeIfAbsent(claveIntervalo(minutoEpoch), k -> new PosicionesArchivadas()).agregar(codigo, vehiculo);
+    }
+    
+    private void quitarIntervaloArchivado(long minutoEpoch, long codigo) {
+        Long clave = claveIntervalo(minutoEpoch);
+        PosicionesArchivadas archivados = archivadasPorIntervalo.get(clave);
+        if (archivados != null) {
+            archivados.quitar(codigo);
+            if (archivados.isEmpty()) {
+                archivadasPorIntervalo.remove(clave);
+            }
+        }
+    }
+    
+    /**
+     * Quita del índice por intervalo las estadías archivadas de un vehículo eliminado y las resta
+     * de las estadísticas. Las estadías quedan en el archivo, pero ya no se leen.
+     * @param vehiculo El vehículo eliminado
+     * @param archivadas Las posiciones de sus estadías, ya quitadas del índice por vehículo (puede ser null)
+     */
+    private void quitarArchivadas(Vehiculo vehiculo, PosicionesArchivadas archivadas) {
+        if (archivadas == null) {
+            return;
+        }
+        Map<Integer, Empleado> empleadosPorNumero = getEmpleadosPorNumero();
+        for (int i = 0; i < archivadas.size(); i++) {
+            long posicion = archivadas.getPosicion(i);
+            Salida salida = archivo.leer(posicion, vehiculo, empleadosPorNumero);
+            quitarIntervaloArchivado(salida.getEntrada().getMinutoEpoch(), posicion * 2);
+            quitarIntervaloArchivado(salida.getMinutoEpoch(), posicion * 2 + 1);
+            descontarMovimiento(salida.getEntrada());
+            descontarMovimiento(salida);
+        }
+        cantidadArchivadas -= archivadas.size();
+        if (rankingEstadias.quitarDeVehiculo(vehiculo)) {
+            rankingIncompleto = true;
+        }
+    }
+    
+    /**
+     * Reconstruye el índice por intervalo de las estadías archivadas a partir de las posiciones
+     * de cada vehículo, y cuenta y ordena sus movimientos por separado.
+     * @param porEmpleado Recibe los movimientos archivados de cada empleado
+     * @param ranking Recibe las estadías archivadas más largas
+     * @throws IllegalStateException Si hay estadías archivadas y el sistema no tiene archivo de estadías
+     */
+    private void reconstruirArchivadas(Contador<Empleado> porEmpleado, RankingEstadias ranking) {
+        archivadasPorIntervalo = new HashMap<>();
+        cantidadArchivadas = 0;
+        if (!archivadasPorVehiculo.isEmpty() && archivo == null) {
+            throw new IllegalStateException("Los datos tienen estadías archivadas pero no se abrió el archivo de estadías");
+        }
+        paraCadaArchivada((salida, posicion) -> {
+            Vehiculo vehiculo = salida.getEntrada().getVehiculo();
+            indexarIntervaloArchivado(salida.getEntrada().getMinutoEpoch(), posicion * 2, vehiculo);
+            indexarIntervaloArchivado(salida.getMinutoEpoch(), posicion * 2 + 1, vehiculo);
+            porEmpleado.incrementar(salida.getEntrada().getEmpleado());
+            porEmpleado.incrementar(salida.getEmpleado());
+            ranking.agregar(salida, Reporte.calcularDuracionMinutos(salida.getEntrada(), salida));
+            cantidadArchivadas++;
+        });
+    }
+    
+    /**
+     * Lee del archivo cada estadía archivada, vehículo por vehículo.
+     * @param accion Recibe la salida de cada estadía (con su entrada) y su posición en el archivo
+     */
+    private void paraCadaArchivada(java.util.function.ObjLongConsumer<Salida> accion) {
+        if (archivadasPorVehiculo.isEmpty()) {
+            return;
+        }
+        Map<Integer, Empleado> empleadosPorNumero = getEmpleadosPorNumero();
+        for (Map.Entry<Vehiculo, PosicionesArchivadas> par : archivadasPorVehiculo.entrySet()) {
+            PosicionesArchivadas archivadas = par.getValue();
+            for (int i = 0; i < archivadas.size(); i++) {
+                long posicion = archivadas.getPosicion(i);
+                accion.accept(archivo.leer(posicion, par.getKey(), empleadosPorNumero), posicion);
+            }
+        }
+    }
+    
+    /**
+     * Empleados registrados por número, para asociarlos a las estadías leídas del archivo.
+     * @return Mapa nuevo, al que la lectura agrega los empleados eliminados que encuentre
+     */
+    private Map<Integer, Empleado> getEmpleadosPorNumero() {
+        return leer(() -> new HashMap<>(empleadosPorNumero));
+    }
+    
+    /**
+     * Reconstruye el índice de empleados por número. Si hay empleados con el mismo número,
+     * queda el primero.
+     */
+    private void indexarEmpleados() {
+        Map<Integer, Empleado> porNumero = new HashMap<>();
+        for (Empleado empleado : empleados) {
+            porNumero.putIfAbsent(empleado.getNumeroEmpleado(), empleado);
+        }
+        empleadosPorNumero = porNumero;
     }
     
     // ==================== MÉTODOS AUXILIARES ====================
@@ -529,14 +2846,63 @@ public class Sistema implements Serializable {
     /**
      * Reinicia el sistema, eliminando todos los datos.
      */
-    public void reiniciarSistema() {
-        clientes.clear();
-        vehiculos.clear();
-        empleados.clear();
-        contratos.clear();
-        entradas.clear();
-        salidas.clear();
-        servicios.clear();
+    public synchronized void reiniciarSistema() {
+        long sello = bloquearEscritura();
+        try {
+            clientes.forEach(c -> c.sistema = null);
+            clientes.clear();
+            contratos.forEach(c -> c.sistema = null);
+            vehiculos.forEach(v -> v.sistema = null);
+            empleados.forEach(e -> e.sistema = null);
+            vehiculos.clear();
+            vehiculosPorMatricula.clear();
+            empleados.clear();
+            empleadosPorNumero.clear();
+            contratos.clear();
+            contratosPorId.clear();
+            contratoActivoPorVehiculo.clear();
+            contratosPorCliente.clear();
+            contratosPorVehiculo.clear();
+            ultimoIdContrato = 0;
+            entradas.clear();
+            salidas.clear();
+            entradasAbiertas.clear();
+            ocupacion.set(0);
+            salidaPorEntrada.clear();
+            contratosActivosPorCliente.limpiar();
+            cantidadContratosActivos = 0;
+            sumaValoresContratosActivos = 0;
+            // Las estadías archivadas quedan en el archivo de estadías, pero ya no se leen
+            archivadasPorVehiculo.clear();
+            servicios.clear();
+            actualizarHistorial(() -> {
+                lineaDeTiempo.clear();
+                movimientosPorIntervalo.clear();
+                usosPorTipoServicio.limpiar();
+                movimientosPorEmpleado.limpiar();
+                rankingEstadias.limpiar();
+                rankingIncompleto = false;
+                archivadasPorIntervalo.clear();
+                cantidadArchivadas = 0;
+            });
+            fuenteClientes.modificado();
+            fuenteVehiculos.modificado();
+            fuenteEmpleados.modificado();
+            fuenteContratos.modificado();
+            fuenteServicios.modificado();
+            cambios = new CambiosPendientes();
+            cambios.requerirGrabacionCompleta();
+            particionesModificadas = true;
+            // Los movimientos de las particiones sin leer también se eliminan
+            mesesSinLeer.clear();
+            hayMesesSinLeer = false;
+            vehiculosEliminados.clear();
+            if (bitacora != null) {
+                bitacora.anotarReinicio();
+            }
+        } finally {
+            desbloquearEscritura(sello);
+        }
     }
     
     // ==================== MÉTODOS PARA REPORTES Y LOS MOVIMIENTOS ====================
@@ -544,37 +2910,40 @@ public class Sistema implements Serializable {
     /**
      * Obtiene el historial completo de movimientos de un vehículo.
      * @param matricula La matrícula del vehículo
-     * @return Lista de arrays de objetos con los datos de cada movimiento
+     * @return Lista de arrays de objetos con los datos de cada movimiento, ordenada por fecha/hora ascendente
      */
     public List<Object[]> getHistorialMovimientos(String matricula) {
+        // El manifiesto no indica qué meses tienen movimientos de cada vehículo
+        leerMesesParaConsulta(particion -> true);
         List<Object[]> movimientos = new ArrayList<>();
-        // Agregar entradas
-        entradas.stream()
-            .filter(e -> e.getVehiculo().getMatricula().equals(matricula))
-            .forEach(e -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(e.getFecha(), e.getHora()),
-                "Entrada",
-                "Recibido por: " + e.getEmpleado().getNombre() + " (#" + e.getEmpleado().getNumeroEmpleado() + ")",
-                e.getNotas()
-            }));
-        // Agregar salidas
-        salidas.stream()
-            .filter(s -> s.getEntrada().getVehiculo().getMatricula().equals(matricula))
-            .forEach(s -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(s.getFecha(), s.getHora()),
-                "Salida",
-                "Atendido por: " + s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")",
-                s.getComentario()
-            }));
-        // Agregar servicios
-        servicios.stream()
-            .filter(s -> s.getVehiculo().getMatricula().equals(matricula))
-            .forEach(s -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(s.getFecha(), s.getHora()),
-                "Servicio: " + s.getTipo(),
-                "Realizado por: " + s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")",
-                "Costo: $" + s.getCosto()
-            }));
+        Vehiculo vehiculo = buscarVehiculo(matricula);
+        if (vehiculo == null) {
+            return movimientos;
+        }
+        for (Object movimiento : getLineaDeTiempoCompleta(vehiculo)) {
+            if (movimiento instanceof Entrada e) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(e.getMinutoEpoch()),
+                    "Entrada",
+                    "Recibido por: " + e.getEmpleado().getNombre() + " (#" + e.getEmpleado().getNumeroEmpleado() + ")",
+                    e.getNotas()
+                });
+            } else if (movimiento instanceof Salida s) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(s.getMinutoEpoch()),
+                    "Salida",
+                    "Atendido por: " + s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")",
+                    s.getComentario()
+                });
+            } else if (movimiento instanceof Servicio s) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(s.getMinutoEpoch()),
+                    "Servicio: " + s.getTipo(),
+                    "Realizado por: " + s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")",
+                    "Costo: $" + s.getCosto()
+                });
+            }
+        }
         return movimientos;
     }
 
@@ -585,30 +2954,17 @@ public class Sistema implements Serializable {
      * @return Cantidad de movimientos en el intervalo
      */
     public int contarMovimientos(LocalDate fecha, int intervalo) {
-        return (int) Stream.concat(entradas.stream(), 
-                  Stream.concat(salidas.stream(), servicios.stream()))
-            .filter(mov -> {
-                LocalDate movFecha = Reporte.toLocalDate(getFechaFromMovimiento(mov));
-                if (movFecha == null || !movFecha.equals(fecha)) return false;
-                int hora = Reporte.getHoraFromMovimiento(mov);
-                return (intervalo == 0 && hora < 6) ||
-                       (intervalo == 1 && hora >= 6 && hora < 12) ||
-                       (intervalo == 2 && hora >= 12 && hora < 18) ||
-                       (intervalo == 3 && hora >= 18);
-            })
-            .count();
-    }
-    
-    /**
-     * Método auxiliar para obtener la fecha de cualquier movimiento.
-     * @param movimiento El movimiento (Entrada, Salida o Servicio)
-     * @return La fecha del movimiento o null si no es un tipo válido
-     */
-    private Date getFechaFromMovimiento(Object movimiento) {
-        if (movimiento instanceof Entrada e) return e.getFecha();
-        if (movimiento instanceof Salida s) return s.getFecha();
-        if (movimiento instanceof Servicio s) return s.getFecha();
-        return null;
+        leerMesesDelIntervalo(fecha, intervalo);
+        return leer(() -> {
+            if (fecha == null || intervalo < 0 || intervalo > 3) {
+                return 0;
+            }
+            // Los movimientos archivados se cuentan sin leerlos del archivo
+            long clave = fecha.toEpochDay() * 4 + intervalo;
+            PosicionesArchivadas archivados = archivadasPorIntervalo.get(clave);
+            return movimientosPorIntervalo.getOrDefault(clave, Collections.emptyList()).size()
+                + (archivados == null ? 0 : archivados.size());
+        });
     }
 
     /**
@@ -618,60 +2974,33 @@ public class Sistema implements Serializable {
      * @return Lista de arrays de objetos con los datos de cada movimiento
      */
     public List<Object[]> getMovimientosIntervalo(LocalDate fecha, int intervalo) {
+        leerMesesDelIntervalo(fecha, intervalo);
         List<Object[]> movimientos = new ArrayList<>();
-        // Filtrar entradas en el intervalo
-        entradas.stream()
-            .filter(e -> {
-                LocalDate movFecha = Reporte.toLocalDate(e.getFecha());
-                if (movFecha == null || !movFecha.equals(fecha)) return false;
-                int hora = Reporte.getHoraFromMovimiento(e);
-                return (intervalo == 0 && hora < 6) ||
-                       (intervalo == 1 && hora >= 6 && hora < 12) ||
-                       (intervalo == 2 && hora >= 12 && hora < 18) ||
-                       (intervalo == 3 && hora >= 18);
-            })
-            .forEach(e -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(e.getFecha(), e.getHora()),
-                e.getVehiculo().getMatricula(),
-                "Entrada",
-                e.getEmpleado().getNombre() + " (#" + e.getEmpleado().getNumeroEmpleado() + ")"
-            }));
-        // Filtrar salidas en el intervalo
-        salidas.stream()
-            .filter(s -> {
-                LocalDate movFecha = Reporte.toLocalDate(s.getFecha());
-                if (movFecha == null || !movFecha.equals(fecha)) return false;
-                int hora = Reporte.getHoraFromMovimiento(s);
-                return (intervalo == 0 && hora < 6) ||
-                       (intervalo == 1 && hora >= 6 && hora < 12) ||
-                       (intervalo == 2 && hora >= 12 && hora < 18) ||
-                       (intervalo == 3 && hora >= 18);
-            })
-            .forEach(s -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(s.getFecha(), s.getHora()),
-                s.getEntrada().getVehiculo().getMatricula(),
-                "Salida",
-                s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")"
-            }));
-        // Filtrar servicios en el intervalo
-        servicios.stream()
-            .filter(s -> {
-                LocalDate movFecha = Reporte.toLocalDate(s.getFecha());
-                if (movFecha == null || !movFecha.equals(fecha)) return false;
-                int hora = Reporte.getHoraFromMovimiento(s);
-                return (intervalo == 0 && hora < 6) ||
-                       (intervalo == 1 && hora >= 6 && hora < 12) ||
-                       (intervalo == 2 && hora >= 12 && hora < 18) ||
-                       (intervalo == 3 && hora >= 18);
-            })
-            .forEach(s -> movimientos.add(new Object[]{
-                Reporte.toLocalDateTime(s.getFecha(), s.getHora()),
-                s.getVehiculo().getMatricula(),
-                "Servicio: " + s.getTipo(),
-                s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")"
-            }));
-        // Ordenar movimientos por fecha/hora
-        movimientos.sort(Comparator.comparing(mov -> (LocalDateTime) mov[0]));
+        // El intervalo ya está ordenado por fecha/hora
+        for (Object movimiento : getIntervalo(fecha, intervalo)) {
+            if (movimiento instanceof Entrada e) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(e.getMinutoEpoch()),
+                    e.getVehiculo().getMatricula(),
+                    "Entrada",
+                    e.getEmpleado().getNombre() + " (#" + e.getEmpleado().getNumeroEmpleado() + ")"
+                });
+            } else if (movimiento instanceof Salida s) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(s.getMinutoEpoch()),
+                    s.getEntrada().getVehiculo().getMatricula(),
+                    "Salida",
+                    s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")"
+                });
+            } else if (movimiento instanceof Servicio s) {
+                movimientos.add(new Object[]{
+                    Reporte.toLocalDateTime(s.getMinutoEpoch()),
+                    s.getVehiculo().getMatricula(),
+                    "Servicio: " + s.getTipo(),
+                    s.getEmpleado().getNombre() + " (#" + s.getEmpleado().getNumeroEmpleado() + ")"
+                });
+            }
+        }
         return movimientos;
     }
 
@@ -680,18 +3009,14 @@ public class Sistema implements Serializable {
      * @return String con el tipo de servicio más usado y su cantidad
      */
     public String getServicioMasUtilizado() {
-        if (servicios.isEmpty()) {
-            return "No hay servicios registrados";
-        }
-        Map<String, Long> conteoServicios = servicios.stream()
-            .collect(Collectors.groupingBy(Servicio::getTipo, Collectors.counting()));
-        Map.Entry<String, Long> maxEntry = conteoServicios.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .orElse(null);
-        if (maxEntry == null) {
-            return "No se pudo determinar";
-        }
-        return maxEntry.getKey() + " (" + maxEntry.getValue() + " veces)";
+        leerMesesParaConsulta(particion -> true);
+        return leer(() -> {
+            if (usosPorTipoServicio.estaVacio()) {
+                return "No hay servicios registrados";
+            }
+            Map.Entry<String, Long> maxEntry = usosPorTipoServicio.getMayor();
+            return maxEntry.getKey() + " (" + maxEntry.getValue() + " veces)";
+        });
     }
 
     /**
@@ -699,27 +3024,15 @@ public class Sistema implements Serializable {
      * @return String con el nombre del empleado y su cantidad de movimientos
      */
     public String getEmpleadoMenosMovimientos() {
-        Map<Empleado, Long> conteoMovimientos = new HashMap<>();
-        entradas.stream()
-            .filter(e -> e.getEmpleado().getActivo())
-            .forEach(e -> conteoMovimientos.merge(e.getEmpleado(), 1L, Long::sum));
-        salidas.stream()
-            .filter(s -> s.getEmpleado().getActivo())
-            .forEach(s -> conteoMovimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        servicios.stream()
-            .filter(s -> s.getEmpleado().getActivo())
-            .forEach(s -> conteoMovimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        if (conteoMovimientos.isEmpty()) {
-            return "No hay empleados con movimientos";
-        }
-        Map.Entry<Empleado, Long> minEntry = conteoMovimientos.entrySet().stream()
-            .min(Map.Entry.comparingByValue())
-            .orElse(null);
-        if (minEntry == null) {
-            return "No se pudo determinar";
-        }
-        Empleado emp = minEntry.getKey();
-        return emp.getNombre() + " (#" + emp.getNumeroEmpleado() + ") - " + minEntry.getValue() + " movimientos";
+        leerMesesParaConsulta(particion -> true);
+        return leer(() -> {
+            Map.Entry<Empleado, Long> minEntry = movimientosPorEmpleado.getMenor(Empleado::getActivo);
+            if (minEntry == null) {
+                return "No hay empleados con movimientos";
+            }
+            Empleado emp = minEntry.getKey();
+            return emp.getNombre() + " (#" + emp.getNumeroEmpleado() + ") - " + minEntry.getValue() + " movimientos";
+        });
     }
 
     /**
@@ -727,21 +3040,15 @@ public class Sistema implements Serializable {
      * @return String con el nombre del empleado y su cantidad de movimientos
      */
     public String getEmpleadoMasMovimientos() {
-        Map<Empleado, Long> conteoMovimientos = new HashMap<>();
-        entradas.forEach(e -> conteoMovimientos.merge(e.getEmpleado(), 1L, Long::sum));
-        salidas.forEach(s -> conteoMovimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        servicios.forEach(s -> conteoMovimientos.merge(s.getEmpleado(), 1L, Long::sum));
-        if (conteoMovimientos.isEmpty()) {
-            return "No hay empleados con movimientos";
-        }
-        Map.Entry<Empleado, Long> maxEntry = conteoMovimientos.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .orElse(null);
-        if (maxEntry == null) {
-            return "No se pudo determinar";
-        }
-        Empleado emp = maxEntry.getKey();
-        return emp.getNombre() + " (#" + emp.getNumeroEmpleado() + ") - " + maxEntry.getValue() + " movimientos";
+        leerMesesParaConsulta(particion -> true);
+        return leer(() -> {
+            Map.Entry<Empleado, Long> maxEntry = movimientosPorEmpleado.getMayor();
+            if (maxEntry == null) {
+                return "No hay empleados con movimientos";
+            }
+            Empleado emp = maxEntry.getKey();
+            return emp.getNombre() + " (#" + emp.getNumeroEmpleado() + ") - " + maxEntry.getValue() + " movimientos";
+        });
     }
 
     /**
@@ -749,20 +3056,14 @@ public class Sistema implements Serializable {
      * @return String con el nombre del cliente y su cantidad de vehículos
      */
     public String getClienteMasVehiculos() {
-        Map<Cliente, Long> conteoPorCliente = contratos.stream()
-            .filter(Contrato::getActivo)
-            .collect(Collectors.groupingBy(Contrato::getCliente, Collectors.counting()));
-        if (conteoPorCliente.isEmpty()) {
-            return "No hay contratos activos";
-        }
-        Map.Entry<Cliente, Long> maxEntry = conteoPorCliente.entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .orElse(null);
-        if (maxEntry == null) {
-            return "No se pudo determinar";
-        }
-        Cliente cliente = maxEntry.getKey();
-        return cliente.getNombre() + " (" + maxEntry.getValue() + " vehículos)";
+        return leer(() -> {
+            Map.Entry<Cliente, Long> maxEntry = contratosActivosPorCliente.getMayor();
+            if (maxEntry == null) {
+                return "No hay contratos activos";
+            }
+            Cliente cliente = maxEntry.getKey();
+            return cliente.getNombre() + " (" + maxEntry.getValue() + " vehículos)";
+        });
     }
 
     /**
@@ -770,14 +3071,10 @@ public class Sistema implements Serializable {
      * @return String con cantidad de contratos activos, inactivos y valor promedio
      */
     public String getEstadisticasContratos() {
-        long totalContratos = contratos.size();
-        long activos = contratos.stream().filter(Contrato::getActivo).count();
-        long inactivos = totalContratos - activos;
-        double valorPromedio = contratos.stream()
-            .filter(Contrato::getActivo)
-            .mapToDouble(Contrato::getValorMensual)
-            .average()
-            .orElse(0.0);
+        double[] campos = leerCampos(() -> new double[]{cantidadContratosActivos, contratos.size(), sumaValoresContratosActivos});
+        long activos = (long) campos[0];
+        long inactivos = (long) campos[1] - activos;
+        double valorPromedio = activos == 0 ? 0.0 : campos[2] / activos;
         return String.format(
             "Contratos activos: %d | Contratos inactivos: %d | Valor promedio: $%.2f",
             activos, inactivos, valorPromedio
@@ -789,32 +3086,46 @@ public class Sistema implements Serializable {
      * @return String con información del vehículo y duración de la estadía
      */
     public String getEstadiaMasLarga() {
-        if (salidas.isEmpty()) {
-            return "No hay salidas registradas";
-        }
-        Optional<Salida> salidaMasLarga = salidas.stream()
-            .filter(s -> s.getEntrada() != null)
-            .max(Comparator.comparingLong(s -> {
-                Entrada e = s.getEntrada();
-                return Duration.between(
-                    Reporte.toLocalDateTime(e.getFecha(), e.getHora()),
-                    Reporte.toLocalDateTime(s.getFecha(), s.getHora())
-                ).toMinutes();
-            }));
-        if (!salidaMasLarga.isPresent()) {
-            return "No se pudo determinar";
-        }
-        Salida salida = salidaMasLarga.get();
-        Entrada entrada = salida.getEntrada();
-        long minutos = Duration.between(
-            Reporte.toLocalDateTime(entrada.getFecha(), entrada.getHora()),
-            Reporte.toLocalDateTime(salida.getFecha(), salida.getHora())
-        ).toMinutes();
-        long horas = minutos / 60;
-        long minRest = minutos % 60;
-        Vehiculo v = entrada.getVehiculo();
+        leerMesesParaConsulta(particion -> true);
+        if (rankingIncompleto) {
+            completarRanking();
+        }
+        return leer(() -> {
+            if (salidas.isEmpty() && cantidadArchivadas == 0) {
+                return "No hay salidas registradas";
+            }
+            RankingEstadias.Estadia estadia = rankingEstadias.getMasLarga();
+            if (estadia == null) {
+                return "No se pudo determinar";
+            }
+            return formatearEstadia(estadia);
+        });
+    }
+    
+    /**
+     * Obtiene las estadías más largas registradas en el parking, de mayor a menor duración.
+     * @param cantidad Cantidad de estadías a obtener (como máximo RankingEstadias.CAPACIDAD_POR_DEFECTO)
+     * @return Lista de Strings con información del vehículo y duración de cada estadía
+     */
+    public List<String> getEstadiasMasLargas(int cantidad) {
+        leerMesesParaConsulta(particion -> true);
+        if (rankingIncompleto) {
+            completarRanking();
+        }
+        return leer(() -> rankingEstadias.getMasLargas(cantidad)).stream()
+            .map(this::formatearEstadia)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Método auxiliar para describir una estadía.
+     * @param estadia La estadía a describir
+     * @return String con la matrícula, marca y modelo del vehículo y la duración de la estadía
+     */
+    private String formatearEstadia(RankingEstadias.Estadia estadia) {
+        Vehiculo v = estadia.getSalida().getEntrada().getVehiculo();
         return v.getMatricula() + " (" + v.getMarca() + " " + v.getModelo() + 
-               ") - " + horas + "h " + minRest + "m";
+               ") - " + Reporte.formatDuracion(estadia.getMinutos());
     }    
 }
 
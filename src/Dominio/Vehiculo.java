@@ -15,6 +15,9 @@ public class Vehiculo implements Serializable {
     private String estado;
     private Cliente cliente; 
     private boolean tieneContrato;
+    
+    // Sistema en el que está registrado el vehículo, para mantener su índice de matrículas y registrar sus modificaciones
+    transient Sistema sistema;
 
     /* Crea un objeto de tipo Vehiculo. Se asume que los datos son correctos; unaMatricula matrícula del vehículo (identificador único),
     unaMarca marca del vehículo, unModelo modelo del vehículo, unEstado estado actual del vehículo (ej: "Buen estado", "Dañado", etc).*/
@@ -52,28 +55,50 @@ public class Vehiculo implements Serializable {
     }
     
     //Seters
+    // Si el vehículo está registrado en un Sistema, la nueva matrícula no puede pertenecer a otro vehículo
     public void setMatricula(String unaMatricula) {
+        Sistema registrado = sistema;
+        if (registrado == null) {
+            this.matricula = unaMatricula;
+            return;
+        }
+        registrado.cambiarMatricula(this, unaMatricula);
+    }
+    
+    // Asigna la matrícula sin verificarla; la usa Sistema.cambiarMatricula con el sistema bloqueado
+    void asignarMatricula(String unaMatricula) {
         this.matricula = unaMatricula;
     }
     
     public void setMarca(String unaMarca) {
         this.marca = unaMarca;
+        modificado();
     }
     
     public void setModelo(String unModelo) {
         this.modelo = unModelo;
+        modificado();
     }
     
     public void setEstado(String unEstado) {
         this.estado = unEstado;
+        modificado();
     }
     
     public void setCliente(Cliente cliente) {
         this.cliente = cliente;
+        modificado();
     }
 
     public void setTieneContrato(boolean tieneContrato) {
         this.tieneContrato = tieneContrato;
+        modificado();
+    }
+    
+    private void modificado() {
+        if (sistema != null) {
+            sistema.vehiculoModificado(this);
+        }
     }
     
     //Representación en String del vehículo
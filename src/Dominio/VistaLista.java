@@ -0,0 +1,55 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Vista de solo lectura de una colección del sistema tal como estaba en un momento dado.
+ * La vista no cambia aunque después se agreguen o eliminen elementos, y la misma vista se
+ * reutiliza mientras la colección no se modifique, por lo que leerla no copia datos.
+ * Para saber si la colección cambió desde que se obtuvo la vista se usa estaVigente().
+ */
+public class VistaLista<T> extends AbstractList<T> implements RandomAccess {
+    private final Object[] elementos;
+    private final long version;
+
+    // Colección de la que se obtuvo la vista, para comparar versiones
+    private final FuenteVista<T> fuente;
+
+    VistaLista(Object[] elementos, long version, FuenteVista<T> fuente) {
+        this.elementos = elementos;
+        this.version = version;
+        this.fuente = fuente;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) elementos[index];
+    }
+
+    @Override
+    public int size() {
+        return elementos.length;
+    }
+
+    /**
+     * Obtiene la versión de la colección que refleja la vista.
+     * @return Número de versión (aumenta con cada modificación de la colección)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Indica si la colección no se modificó desde que se obtuvo la vista.
+     * @return true si la vista refleja el contenido actual, false si está desactualizada
+     */
+    public boolean estaVigente() {
+        return fuente.getVersion() == version;
+    }
+}
@@ -0,0 +1,29 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña 
+ */
+
+import Dominio.SerializadorBinario;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Convierte un archivo de datos de versiones anteriores (DATOS.ser, serialización de Java)
+ * al formato binario actual (DATOS.bin).
+ * Uso: ConversionDatos [origen.ser] [destino.bin]
+ */
+public class ConversionDatos {
+    public static void main(String[] args) throws Exception {
+        Path origen = Paths.get(args.length > 0 ? args[0] : "DATOS.ser");
+        Path destino = Paths.get(args.length > 1 ? args[1] : "DATOS.bin");
+        
+        long inicio = System.nanoTime();
+        SerializadorBinario.convertir(origen, destino);
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        
+        System.out.printf("Convertido %s (%d bytes) a %s (%d bytes) en %d ms%n",
+            origen, Files.size(origen), destino, Files.size(destino), milisegundos);
+    }
+}
@@ -4,14 +4,59 @@ package Inicio;
  * @author Natalia Peña 
  */
 
+import Dominio.ColaMovimientos;
+import Dominio.ServicioGrabacion;
+import Dominio.ServidorPuertas;
 import Dominio.Sistema;
-import Interfaz.VentanaInicio; 
+import Interfaz.VentanaInicio;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.CompletionException;
 
 public class Ejecucion {
     public static void main(String[] args) {
-        // Cargar sistema existente o crear uno nuevo
-        Sistema sistema = Sistema.cargarDatos();
-        VentanaInicio ventanaPrincipal = new VentanaInicio(sistema);
+        if (GraphicsEnvironment.isHeadless()) {
+            // Sin pantalla (por ejemplo, en el equipo de las barreras) solo se atiende la API de las puertas
+            ejecutarSinVentana();
+            return;
+        }
+        // La ventana se muestra enseguida y carga el sistema existente (o crea uno nuevo) en segundo plano
+        VentanaInicio ventanaPrincipal = new VentanaInicio();
         ventanaPrincipal.setVisible(true);
     }
+
+    /**
+     * Carga el sistema y atiende la API de las puertas hasta que se termina el proceso.
+     * Al terminar registra los movimientos encolados y graba los datos.
+     */
+    private static void ejecutarSinVentana() {
+        Sistema sistema = Sistema.cargarDatos();
+        if (sistema.getErrorCarga() != null) {
+            // Sin nadie a quien preguntar, no se atiende ni se graba sobre datos que no se leyeron
+            System.err.println("No se pudieron cargar los datos: " + sistema.getErrorCarga().getMessage());
+            System.exit(1);
+        }
+        ServicioGrabacion grabacion = new ServicioGrabacion(() -> sistema, ServicioGrabacion.getIntervaloConfigurado());
+        ColaMovimientos movimientos = new ColaMovimientos(() -> sistema, ColaMovimientos.getCapacidadConfigurada());
+        ServidorPuertas servidor = ServidorPuertas.iniciarConfigurado(() -> sistema, movimientos);
+        if (servidor == null) {
+            System.err.println("Sin pantalla se necesita la propiedad " + ServidorPuertas.PROPIEDAD_PUERTO
+                + " (por ejemplo, -D" + ServidorPuertas.PROPIEDAD_PUERTO + "=8080)");
+            movimientos.close();
+            sistema.cerrarBitacora();
+            System.exit(1);
+        }
+        grabacion.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            movimientos.close();
+            try {
+                grabacion.grabarAhora().join();
+            } catch (CompletionException e) {
+                System.err.println("No se pudieron grabar los datos: " + e.getCause().getMessage());
+            }
+            grabacion.close();
+            sistema.cerrarBitacora();
+        }, "cierre-api-puertas"));
+        System.out.println("API de las puertas en " + servidor.getDireccion());
+    }
 }
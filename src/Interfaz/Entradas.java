@@ -19,6 +19,9 @@ public class Entradas extends JFrame {
     // Referencia al sistema principal
     private final Sistema sistema;
     
+    // Cola donde se registran las entradas
+    private final ColaMovimientos movimientos;
+    
     // Componentes de la interfaz
     private JList<Vehiculo> lstVehiculos;          // Lista de vehículos disponibles
     private JComboBox<Empleado> cmbEmpleados;      // Combo de empleados disponibles
@@ -31,13 +34,15 @@ public class Entradas extends JFrame {
     /**
      * Constructor de la ventana de entradas.
      * @param sistema Referencia al sistema principal para acceder a los datos
+     * @param movimientos Cola donde se registran las entradas
      */
-    public Entradas(Sistema sistema) {
+    public Entradas(Sistema sistema, ColaMovimientos movimientos) {
         // Configuración inicial del tema
         ConfiguracionTema.getInstancia().registrarVentana(this);
         ConfiguracionTema.getInstancia().aplicarTema(this);
         
         this.sistema = sistema;
+        this.movimientos = movimientos;
         initComponents();  // Inicializa los componentes de la interfaz
         cargarDatos();     // Carga los datos iniciales en la interfaz
     }
@@ -157,9 +162,7 @@ public class Entradas extends JFrame {
                 sistema.vehiculoTieneContrato(vehiculo)
             );
             
-            sistema.registrarEntrada(nuevaEntrada);
-            
-            // Mostrar mensaje de confirmación
+            // Mensaje de confirmación
             String mensaje = String.format(
                "<html><b>Entrada registrada exitosamente</b><br><br>" +
                "Vehículo: %s %s (%s)<br>" +
@@ -173,11 +176,28 @@ public class Entradas extends JFrame {
                txtFecha.getText(),
                hora);
             
-            JOptionPane.showMessageDialog(this, mensaje,
-                "Registro exitoso",
-                JOptionPane.INFORMATION_MESSAGE);
-            
-            dispose();  // Cerrar la ventana después del registro exitoso
+            // La entrada se registra en segundo plano; el resultado se muestra al terminar
+            btnRegistrar.setEnabled(false);
+            movimientos.registrarEntrada(nuevaEntrada).whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+                if (error instanceof MovimientoSinBitacoraException aviso) {
+                    // La entrada quedó registrada; solo falta que se graben los datos
+                    JOptionPane.showMessageDialog(this, aviso.getMessage(),
+                        "Advertencia",
+                        JOptionPane.WARNING_MESSAGE);
+                } else if (error != null) {
+                    btnRegistrar.setEnabled(true);
+                    JOptionPane.showMessageDialog(this,
+                        "Error al registrar: " + error.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JOptionPane.showMessageDialog(this, mensaje,
+                    "Registro exitoso",
+                    JOptionPane.INFORMATION_MESSAGE);
+                
+                dispose();  // Cerrar la ventana después del registro exitoso
+            }));
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
                 "Error al registrar: " + e.getMessage(),
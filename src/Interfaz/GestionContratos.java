@@ -350,10 +350,7 @@ public class GestionContratos extends JFrame {
             Empleado empleado = (Empleado) cmbEmpleados.getSelectedItem();
             
             // Verificar que el vehículo no tenga contrato activo
-            boolean tieneContrato = sistema.getContratos().stream()
-                .anyMatch(c -> c.getVehiculo().equals(vehiculo) && c.getActivo());
-            
-            if (tieneContrato) {
+            if (sistema.vehiculoTieneContrato(vehiculo)) {
                 JOptionPane.showMessageDialog(this, 
                     "Este vehículo ya tiene un contrato activo", 
                     "Error", 
@@ -262,7 +262,7 @@ public class GestionEmpleados extends JFrame {
         
         if (confirmacion == JOptionPane.YES_OPTION) {
             // Eliminar empleado y actualizar interfaz
-            sistema.getEmpleados().remove(empleado);
+            sistema.eliminarEmpleado(empleado);
             modeloLista.remove(indiceSeleccionado);
             vaciarCampos(null);
             
@@ -173,7 +173,7 @@ public class Reportes extends JFrame {
             Vehiculo vehiculo = (Vehiculo) cbVehiculos.getSelectedItem();
             if (vehiculo == null) return;
             
-            // Obtener movimientos del sistema
+            // Obtener movimientos del sistema (ya vienen ordenados por fecha/hora ascendente)
             List<Object[]> movimientos = sistema.getHistorialMovimientos(vehiculo.getMatricula());
             
             // Aplicar filtros según selección del usuario
@@ -184,12 +184,10 @@ public class Reportes extends JFrame {
                        (!chkServicios.isSelected() && tipo.startsWith("Servicio"));
             });
             
-            // Ordenar movimientos
-            movimientos.sort((mov1, mov2) -> {
-                LocalDateTime dt1 = (LocalDateTime) mov1[0];
-                LocalDateTime dt2 = (LocalDateTime) mov2[0];
-                return rbAsc.isSelected() ? dt1.compareTo(dt2) : dt2.compareTo(dt1);
-            });
+            // Para orden descendente se recorre la lista al revés
+            if (rbDesc.isSelected()) {
+                Collections.reverse(movimientos);
+            }
             
             // Llenar tabla con los movimientos filtrados y ordenados
             for (Object[] mov : movimientos) {
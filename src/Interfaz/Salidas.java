@@ -22,6 +22,9 @@ public class Salidas extends JFrame {
     // Referencia al sistema principal para acceder a los datos
     private final Sistema sistema;
     
+    // Cola donde se registran las salidas
+    private final ColaMovimientos movimientos;
+    
     // Componentes de la interfaz
     private JTextField txtFecha;
     private JTextField txtHora;
@@ -38,13 +41,15 @@ public class Salidas extends JFrame {
     /**
      * Constructor de la clase.
      * @param sistema Referencia al sistema principal para acceder a los datos.
+     * @param movimientos Cola donde se registran las salidas.
      */
-    public Salidas(Sistema sistema) {
+    public Salidas(Sistema sistema, ColaMovimientos movimientos) {
         // Configuración del tema visual
         ConfiguracionTema.getInstancia().registrarVentana(this);
         ConfiguracionTema.getInstancia().aplicarTema(this);
         
         this.sistema = sistema;
+        this.movimientos = movimientos;
         inicializarComponentes(); // Inicializa todos los componentes de la interfaz
         cargarDatos(); // Carga los datos iniciales
     }
@@ -164,13 +169,11 @@ public class Salidas extends JFrame {
      * Carga los datos iniciales en las listas de la interfaz.
      */
     private void cargarDatos() {
-        System.out.println("[DEBUG] Cargando datos para ventana de Salidas");
         modeloEntradas.clear();
         modeloEmpleados.clear();
         
         // Obtiene las entradas activas (vehículos en el parking sin salida registrada)
         List<Entrada> entradasActivas = sistema.getEntradasSinSalida();
-        System.out.println("[DEBUG] Número de entradas activas encontradas: " + entradasActivas.size());
         
         if (entradasActivas.isEmpty()) {
             JOptionPane.showMessageDialog(this,
@@ -364,11 +367,8 @@ public class Salidas extends JFrame {
      * @param evento Evento de acción del botón.
      */
     private void registrarSalida(ActionEvent evento) {
-        System.out.println("[DEBUG] Iniciando registro de salida");
-        
         // Valida los datos antes de continuar
         if (!validarDatos()) {
-            System.out.println("[DEBUG] Validación de datos fallida");
             return;
         }
         
@@ -397,13 +397,10 @@ public class Salidas extends JFrame {
             JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
         
         if (confirmacion != JOptionPane.YES_OPTION) {
-            System.out.println("[DEBUG] Usuario canceló el registro");
             return;
         }
         
         try {
-            System.out.println("[DEBUG] Creando objeto Salida");
-            
             // Crea el objeto Salida con los datos del formulario
             SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
             Date fechaHoraSalida = sdf.parse(fecha + " " + hora);
@@ -418,24 +415,33 @@ public class Salidas extends JFrame {
                 tiempoEstadia
             );
             
-            System.out.println("[DEBUG] Registrando salida en el sistema");
-            sistema.registrarSalida(salida); // Registra la salida en el sistema
-            System.out.println("[DEBUG] Salida registrada exitosamente");
-            
-            // Muestra mensaje de éxito
-            JOptionPane.showMessageDialog(this, 
-                "<html><b>Salida registrada exitosamente</b><br><br>" +
-                "<table border='0' cellspacing='5'>" +
-                "<tr><td><b>Vehículo:</b></td><td>" + entrada.getVehiculo().getMatricula() + "</td></tr>" +
-                "<tr><td><b>Tiempo total:</b></td><td>" + tiempoEstadia + "</td></tr>" +
-                "<tr><td><b>Registrado por:</b></td><td>" + empleado.getNombre() + "</td></tr>" +
-                "</table></html>", 
-                "Éxito", JOptionPane.INFORMATION_MESSAGE);
-            
-            cargarDatos(); // Recarga los datos para actualizar la interfaz
+            // La salida se registra en segundo plano; el resultado se muestra al terminar
+            btnRegistrarSalida.setEnabled(false);
+            movimientos.registrarSalida(salida).whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+                btnRegistrarSalida.setEnabled(true);
+                if (error instanceof MovimientoSinBitacoraException aviso) {
+                    // La salida quedó registrada; solo falta que se graben los datos
+                    JOptionPane.showMessageDialog(this, aviso.getMessage(),
+                        "Advertencia", JOptionPane.WARNING_MESSAGE);
+                } else if (error != null) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Error al registrar salida: " + error.getMessage(), 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                // Muestra mensaje de éxito
+                JOptionPane.showMessageDialog(this, 
+                    "<html><b>Salida registrada exitosamente</b><br><br>" +
+                    "<table border='0' cellspacing='5'>" +
+                    "<tr><td><b>Vehículo:</b></td><td>" + entrada.getVehiculo().getMatricula() + "</td></tr>" +
+                    "<tr><td><b>Tiempo total:</b></td><td>" + tiempoEstadia + "</td></tr>" +
+                    "<tr><td><b>Registrado por:</b></td><td>" + empleado.getNombre() + "</td></tr>" +
+                    "</table></html>", 
+                    "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                
+                cargarDatos(); // Recarga los datos para actualizar la interfaz
+            }));
         } catch (Exception ex) {
-            System.err.println("[ERROR] Al registrar salida: " + ex.getMessage());
-            ex.printStackTrace();
             JOptionPane.showMessageDialog(this, 
                 "Error al registrar salida: " + ex.getMessage(), 
                 "Error", JOptionPane.ERROR_MESSAGE);
@@ -27,17 +27,20 @@ public class ServiciosAdicionales extends JFrame {
     private JButton btnRegistrar;               // Botón para registrar servicio
     private JList<String> lstServicios;         // Lista de servicios registrados
     private JButton btnEliminar;                // Botón para eliminar servicio seleccionado
+    private final ColaMovimientos movimientos;  // Cola donde se registran los servicios
 
     /**
      * Constructor de la clase.
      * @param sistema Referencia al sistema principal para acceder a los datos.
+     * @param movimientos Cola donde se registran los servicios.
      */
-    public ServiciosAdicionales(Sistema sistema) {
+    public ServiciosAdicionales(Sistema sistema, ColaMovimientos movimientos) {
         // Configuración del tema visual
         ConfiguracionTema.getInstancia().registrarVentana(this);
         ConfiguracionTema.getInstancia().aplicarTema(this);
         
         this.sistema = sistema;
+        this.movimientos = movimientos;
         inicializarComponentes(); // Inicializa todos los componentes de la interfaz
         cargarDatos();           // Carga los datos iniciales
     }
@@ -217,14 +220,27 @@ public class ServiciosAdicionales extends JFrame {
             costo
         );
         
-        // Registro del servicio en el sistema
-        sistema.registrarServicio(servicio);
-        
-        // Actualización de la interfaz
-        cargarServicios();
-        JOptionPane.showMessageDialog(this, 
-            "Servicio registrado exitosamente", 
-            "Éxito", JOptionPane.INFORMATION_MESSAGE);
+        // Registro del servicio en segundo plano; el resultado se muestra al terminar
+        btnRegistrar.setEnabled(false);
+        movimientos.registrarServicio(servicio).whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+            btnRegistrar.setEnabled(true);
+            if (error instanceof MovimientoSinBitacoraException aviso) {
+                // El servicio quedó registrado; solo falta que se graben los datos
+                JOptionPane.showMessageDialog(this, aviso.getMessage(),
+                    "Advertencia", JOptionPane.WARNING_MESSAGE);
+            } else if (error != null) {
+                JOptionPane.showMessageDialog(this, 
+                    "Error al registrar el servicio: " + error.getMessage(), 
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            
+            // Actualización de la interfaz
+            cargarServicios();
+            JOptionPane.showMessageDialog(this, 
+                "Servicio registrado exitosamente", 
+                "Éxito", JOptionPane.INFORMATION_MESSAGE);
+        }));
     }
 
     /**
@@ -300,7 +316,7 @@ public class ServiciosAdicionales extends JFrame {
         
         if (confirmacion == JOptionPane.YES_OPTION) {
             // Eliminación del servicio en el sistema
-            if (sistema.eliminarServicio(selectedIndex)) {
+            if (sistema.eliminarServicio(sistema.getServicios().get(selectedIndex))) {
                 modelo.remove(selectedIndex); // Actualización del modelo
                 JOptionPane.showMessageDialog(this, 
                     "Servicio eliminado correctamente", 
@@ -6,22 +6,53 @@ package Interfaz;
 
 import Dominio.Reporte;
 import Dominio.ConfiguracionTema;
+import Dominio.ColaMovimientos;
+import Dominio.ServicioGrabacion;
+import Dominio.ServidorPuertas;
 import Dominio.Sistema;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Clase que representa la ventana principal del sistema de parking.
  * Sirve como punto de entrada y menú principal para acceder a todas las funcionalidades.
  */
 public class VentanaInicio extends JFrame {
-    private Sistema sistema; // Referencia al sistema principal
+    private volatile Sistema sistema; // Referencia al sistema principal (también la leen la cola y la API)
     private JButton btnCambiarModo; // Botón para cambiar entre modo claro/oscuro
+    private JLabel lblGrabacion; // Estado de la última grabación de datos
+    private JProgressBar barraCarga; // Avance de la carga de datos
+    private final ServicioGrabacion grabacion; // Graba los datos en segundo plano
+    private boolean grabacionIniciada; // Indica si ya empezó la grabación automática
+    private final ColaMovimientos movimientos; // Registra las entradas, salidas y servicios de las puertas
+    private final ServidorPuertas servidorPuertas; // API de las puertas, o null si no está configurada
+    
+    // Opciones que se habilitan en cuanto se leen los datos (entradas y salidas)
+    private final List<JMenuItem> opcionesMovimientos = new ArrayList<>();
+    // Opciones que necesitan el historial completo (gestión, servicios, reportes, grabación)
+    private final List<JMenuItem> opcionesHistorial = new ArrayList<>();
+    
+    /**
+     * Constructor de la ventana principal. La ventana se muestra enseguida y los datos
+     * se cargan en segundo plano; las opciones del menú se habilitan a medida que están listas.
+     */
+    public VentanaInicio() {
+        this(null);
+    }
     
     /**
      * Constructor de la ventana principal.
-     * @param sistema Referencia al sistema principal que contiene la lógica y datos.
+     * @param sistema Referencia al sistema principal que contiene la lógica y datos,
+     *                o null para cargarlo en segundo plano.
      */
     public VentanaInicio(Sistema sistema) {
         // Configuración inicial del tema visual
@@ -31,6 +62,17 @@ public class VentanaInicio extends JFrame {
         this.sistema = sistema;
         initComponents(); // Inicializa los componentes de la interfaz
         
+        // Grabación automática en segundo plano; el avance se muestra en la parte inferior
+        grabacion = new ServicioGrabacion(() -> this.sistema, ServicioGrabacion.getIntervaloConfigurado());
+        grabacion.agregarObservador(new ObservadorGrabacion());
+        movimientos = new ColaMovimientos(() -> this.sistema, ColaMovimientos.getCapacidadConfigurada());
+        servidorPuertas = ServidorPuertas.iniciarConfigurado(() -> this.sistema, movimientos);
+        if (sistema == null) {
+            cargarDatos(false);
+        } else {
+            iniciarGrabacion();
+        }
+        
         // Configuración adicional del tema para asegurar consistencia
         ConfiguracionTema.getInstancia().registrarVentana(this);
         if (this.getJMenuBar() != null) {
@@ -45,7 +87,14 @@ public class VentanaInicio extends JFrame {
     private void initComponents() {
         setTitle("Sistema de Parking");
         setSize(600, 400);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Cerrar la ventana sale por el mismo camino que el menú, que registra la cola y guarda los datos
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                salir();
+            }
+        });
         setLocationRelativeTo(null); // Centra la ventana en la pantalla
         
         // Panel principal con BorderLayout
@@ -58,26 +107,26 @@ public class VentanaInicio extends JFrame {
         // Menú de Gestión
         JMenu menuGestion = new JMenu("Gestión");
         menuGestion.setFont(new Font("Arial", Font.BOLD, 14));
-        addMenuItem(menuGestion, "Gestión de Clientes", () -> new GestionClientes(sistema).setVisible(true));
-        addMenuItem(menuGestion, "Gestión de Vehículos", () -> new GestionVehiculo(sistema).setVisible(true));
-        addMenuItem(menuGestion, "Gestión de Empleados", () -> new GestionEmpleados(sistema).setVisible(true));
-        addMenuItem(menuGestion, "Gestión de Contratos", () -> new GestionContratos(sistema).setVisible(true));
+        opcionesHistorial.add(addMenuItem(menuGestion, "Gestión de Clientes", () -> new GestionClientes(sistema).setVisible(true)));
+        opcionesHistorial.add(addMenuItem(menuGestion, "Gestión de Vehículos", () -> new GestionVehiculo(sistema).setVisible(true)));
+        opcionesHistorial.add(addMenuItem(menuGestion, "Gestión de Empleados", () -> new GestionEmpleados(sistema).setVisible(true)));
+        opcionesHistorial.add(addMenuItem(menuGestion, "Gestión de Contratos", () -> new GestionContratos(sistema).setVisible(true)));
         menuBar.add(menuGestion);
         
         // Menú de Movimientos
         JMenu menuMovimientos = new JMenu("Movimientos");
         menuMovimientos.setFont(new Font("Arial", Font.BOLD, 14));
-        addMenuItem(menuMovimientos, "Entradas", () -> new Entradas(sistema).setVisible(true));
-        addMenuItem(menuMovimientos, "Salidas", () -> new Salidas(sistema).setVisible(true));
-        addMenuItem(menuMovimientos, "Servicios Adicionales", () -> new ServiciosAdicionales(sistema).setVisible(true));
+        opcionesMovimientos.add(addMenuItem(menuMovimientos, "Entradas", () -> new Entradas(sistema, movimientos).setVisible(true)));
+        opcionesMovimientos.add(addMenuItem(menuMovimientos, "Salidas", () -> new Salidas(sistema, movimientos).setVisible(true)));
+        opcionesHistorial.add(addMenuItem(menuMovimientos, "Servicios Adicionales", () -> new ServiciosAdicionales(sistema, movimientos).setVisible(true)));
         menuBar.add(menuMovimientos);
         
         // Menú Varios
         JMenu menuVarios = new JMenu("Varios");
         menuVarios.setFont(new Font("Arial", Font.BOLD, 14));
-        addMenuItem(menuVarios, "Reportes", () -> new Reportes(sistema).setVisible(true));
-        addMenuItem(menuVarios, "Recuperación de datos", this::recuperarDatos);
-        addMenuItem(menuVarios, "Grabación de datos", this::grabarDatos);
+        opcionesHistorial.add(addMenuItem(menuVarios, "Reportes", () -> new Reportes(sistema).setVisible(true)));
+        opcionesHistorial.add(addMenuItem(menuVarios, "Recuperación de datos", this::recuperarDatos));
+        opcionesHistorial.add(addMenuItem(menuVarios, "Grabación de datos", this::grabarDatos));
         addMenuItem(menuVarios, "Mini Juego", () -> new MiniJuego().setVisible(true));
         addMenuItem(menuVarios, "Información de Autores", () -> new InformacionAutor().setVisible(true));
         menuBar.add(menuVarios);
@@ -124,6 +173,17 @@ public class VentanaInicio extends JFrame {
             ConfiguracionTema.getInstancia().aplicarTema(this);
         });
         panelInferior.add(btnCambiarModo);
+        
+        // Estado de la grabación de datos
+        lblGrabacion = new JLabel(" ");
+        lblGrabacion.setFont(new Font("Arial", Font.PLAIN, 11));
+        panelInferior.add(lblGrabacion);
+        
+        // Avance de la carga de datos, visible solo mientras se cargan
+        barraCarga = new JProgressBar(0, 100);
+        barraCarga.setStringPainted(true);
+        barraCarga.setVisible(false);
+        panelInferior.add(barraCarga);
         panelPrincipal.add(panelInferior, BorderLayout.SOUTH);
         
         add(panelPrincipal); // Añade el panel principal a la ventana
@@ -143,12 +203,188 @@ public class VentanaInicio extends JFrame {
      * @param menu Menú al que se agregará el item
      * @param texto Texto que se mostrará en el item
      * @param accion Acción a ejecutar cuando se seleccione el item
+     * @return El item agregado
      */
-    private void addMenuItem(JMenu menu, String texto, Runnable accion) {
+    private JMenuItem addMenuItem(JMenu menu, String texto, Runnable accion) {
         JMenuItem menuItem = new JMenuItem(texto);
         menuItem.setFont(new Font("Arial", Font.PLAIN, 13));
         menuItem.addActionListener(e -> accion.run());
         menu.add(menuItem);
+        return menuItem;
+    }
+    
+    /**
+     * Habilita o deshabilita un grupo de opciones del menú.
+     * @param opciones Las opciones
+     * @param habilitar true para habilitarlas
+     */
+    private void habilitarOpciones(List<JMenuItem> opciones, boolean habilitar) {
+        opciones.forEach(opcion -> opcion.setEnabled(habilitar));
+    }
+    
+    /**
+     * Inicia la grabación automática, una sola vez, cuando el sistema ya está cargado.
+     * Si los datos guardados no se pudieron cargar no se inicia, para no grabar sobre ellos.
+     */
+    private void iniciarGrabacion() {
+        if (!grabacionIniciada && sistema.getErrorCarga() == null) {
+            grabacionIniciada = true;
+            grabacion.iniciar();
+        }
+    }
+    
+    /**
+     * Carga los datos en segundo plano, en dos etapas. Al terminar de leer el archivo se habilitan
+     * las entradas y salidas; el resto de las opciones, cuando el historial está completo.
+     * @param recuperacion true si se recuperan los datos a pedido del usuario (avisa al terminar)
+     */
+    private void cargarDatos(boolean recuperacion) {
+        habilitarOpciones(opcionesMovimientos, false);
+        habilitarOpciones(opcionesHistorial, false);
+        barraCarga.setIndeterminate(false);
+        barraCarga.setValue(0);
+        barraCarga.setString("Cargando datos...");
+        barraCarga.setVisible(true);
+        
+        new SwingWorker<Sistema, Sistema>() {
+            @Override
+            protected Sistema doInBackground() {
+                // Al recuperar se vuelve a la última grabación: las operaciones no grabadas se descartan
+                Sistema cargado = Sistema.cargarDatos((leidos, estimados) -> SwingUtilities.invokeLater(() -> {
+                    if (estimados > 0) {
+                        barraCarga.setValue((int) Math.min(100, leidos * 100 / estimados));
+                        barraCarga.setString("Cargando datos... " + barraCarga.getValue() + "%");
+                    } else {
+                        barraCarga.setString("Cargando datos... " + leidos / 1024 + " KB");
+                    }
+                }), recuperacion);
+                publish(cargado);
+                cargado.completarHistorial();
+                return cargado;
+            }
+            
+            @Override
+            protected void process(List<Sistema> cargados) {
+                // Ya se pueden registrar entradas y salidas, si los datos se cargaron
+                sistema = cargados.get(cargados.size() - 1);
+                habilitarOpciones(opcionesMovimientos, sistema.getErrorCarga() == null);
+                barraCarga.setIndeterminate(true);
+                barraCarga.setString("Preparando historial...");
+            }
+            
+            @Override
+            protected void done() {
+                barraCarga.setVisible(false);
+                try {
+                    sistema = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable causa = e.getCause() != null ? e.getCause() : e;
+                    reintentarCarga(causa, recuperacion);
+                    return;
+                }
+                if (sistema.getErrorCarga() != null) {
+                    resolverErrorCarga();
+                    return;
+                }
+                habilitarOpciones(opcionesMovimientos, true);
+                habilitarOpciones(opcionesHistorial, true);
+                iniciarGrabacion();
+                if (sistema.getOperacionesRecuperadas() > 0) {
+                    lblGrabacion.setText("Operaciones recuperadas de la bitácora: " + sistema.getOperacionesRecuperadas());
+                }
+                if (recuperacion) {
+                    JOptionPane.showMessageDialog(VentanaInicio.this, "Datos recuperados exitosamente");
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Avisa que la carga falló y permite reintentarla o salir, para que el menú no quede
+     * deshabilitado sin un sistema cargado.
+     * @param causa El error de la carga
+     * @param recuperacion true si se recuperaban los datos a pedido del usuario
+     */
+    private void reintentarCarga(Throwable causa, boolean recuperacion) {
+        Object[] opciones = {"Reintentar", "Salir"};
+        int opcion = JOptionPane.showOptionDialog(
+            this,
+            "Error al cargar los datos: " + causa.getMessage(),
+            "Error",
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.ERROR_MESSAGE,
+            null, opciones, opciones[0]);
+        
+        if (opcion == 0) {
+            if (sistema != null) {
+                sistema.cerrarBitacora(); // El sistema a medio cargar no se graba
+            }
+            cargarDatos(recuperacion);
+        } else {
+            System.exit(0); // No hay datos cargados que guardar
+        }
+    }
+    
+    /**
+     * Avisa que los datos guardados no se pudieron cargar y pregunta qué hacer. El sistema sin
+     * cargar no se graba; para empezar con datos nuevos, los archivos existentes se mueven a un
+     * directorio de respaldo en lugar de reemplazarlos.
+     */
+    private void resolverErrorCarga() {
+        Object[] opciones = {"Empezar con datos nuevos", "Reintentar", "Salir"};
+        int opcion = JOptionPane.showOptionDialog(
+            this,
+            "No se pudieron cargar los datos guardados:\n" + sistema.getErrorCarga().getMessage()
+                + "\n\nPara no perderlos, no se grabará nada sobre ellos. ¿Desea empezar con datos nuevos?"
+                + "\nLos archivos actuales se moverán, sin modificarlos, a un directorio de respaldo.",
+            "Error al cargar los datos",
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.ERROR_MESSAGE,
+            null, opciones, opciones[1]);
+        
+        if (opcion == 0) {
+            try {
+                Path respaldo = Sistema.apartarDatos();
+                JOptionPane.showMessageDialog(this, "Los archivos anteriores se movieron a " + respaldo);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, 
+                    "No se pudieron mover los archivos: " + e.getMessage(), 
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                resolverErrorCarga();
+                return;
+            }
+            cargarDatos(false);
+        } else if (opcion == 1) {
+            cargarDatos(false);
+        } else {
+            System.exit(0); // No hay datos cargados que guardar
+        }
+    }
+    
+    /**
+     * Muestra el avance y el resultado de las grabaciones en la parte inferior de la ventana.
+     * Los avisos llegan desde el hilo de grabación, por lo que se pasan al hilo de la interfaz.
+     */
+    private class ObservadorGrabacion implements ServicioGrabacion.ObservadorGrabacion {
+        @Override
+        public void avance(long bytesEscritos, long bytesEstimados) {
+            String texto = bytesEstimados > 0
+                ? "Guardando datos... " + Math.min(99, bytesEscritos * 100 / bytesEstimados) + "%"
+                : "Guardando datos... " + bytesEscritos / 1024 + " KB";
+            SwingUtilities.invokeLater(() -> lblGrabacion.setText(texto));
+        }
+
+        @Override
+        public void terminada(ServicioGrabacion.Resultado resultado) {
+            String texto = "Datos guardados a las " + resultado.getFin().format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+                + " (" + resultado + ")";
+            SwingUtilities.invokeLater(() -> lblGrabacion.setText(texto));
+        }
+
+        @Override
+        public void fallida(Exception error) {
+            SwingUtilities.invokeLater(() -> lblGrabacion.setText("Error al guardar datos: " + error.getMessage()));
+        }
     }
 
     /**
@@ -163,13 +399,22 @@ public class VentanaInicio extends JFrame {
             JOptionPane.YES_NO_OPTION);
         
         if (confirmacion == JOptionPane.YES_OPTION) {
-            sistema.guardarDatos(); // Llama al método del sistema para guardar
-            JOptionPane.showMessageDialog(this, "Datos guardados exitosamente");
+            // Graba en segundo plano y avisa al terminar, sin bloquear la ventana
+            grabacion.grabarAhora().whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+                if (error == null) {
+                    JOptionPane.showMessageDialog(this, "Datos guardados exitosamente (" + resultado + ")");
+                } else {
+                    JOptionPane.showMessageDialog(this, 
+                        "Error al guardar datos: " + error.getMessage(), 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }));
         }
     }
 
     /**
      * Método para recuperar datos del sistema desde archivo.
+     * Vuelve a la última grabación: las operaciones posteriores, anotadas en la bitácora, se descartan.
      * Muestra diálogos de confirmación y resultado.
      */
     private void recuperarDatos() {
@@ -180,23 +425,20 @@ public class VentanaInicio extends JFrame {
             JOptionPane.YES_NO_OPTION);
         
         if (confirmacion == JOptionPane.YES_OPTION) {
-            Sistema sistemaRecuperado = Sistema.cargarDatos(); // Intenta cargar los datos
-            if (sistemaRecuperado != null) {
-                this.sistema = sistemaRecuperado; // Reemplaza la referencia al sistema
-                JOptionPane.showMessageDialog(this, "Datos recuperados exitosamente");
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "No se encontraron datos guardados", 
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            sistema.cerrarBitacora(); // El sistema recuperado abre la bitácora sin sus operaciones
+            cargarDatos(true); // Carga los datos en segundo plano y reemplaza la referencia al sistema
         }
     }
 
     /**
      * Método para salir del sistema.
-     * Pide confirmación y guarda los datos antes de salir.
+     * Pide confirmación y guarda los datos antes de salir. Si no se pudieron guardar, lo avisa y
+     * permite seguir usando el sistema en lugar de salir.
      */
     private void salir() {
+        if (!isEnabled()) {
+            return; // Ya se está guardando para salir
+        }
         int confirmacion = JOptionPane.showConfirmDialog(
             this, 
             "¿Está seguro que desea salir del sistema?", 
@@ -204,9 +446,42 @@ public class VentanaInicio extends JFrame {
             JOptionPane.YES_NO_OPTION);
         
         if (confirmacion == JOptionPane.YES_OPTION) {
-            sistema.guardarDatos(); // Guarda los datos antes de salir
-            System.exit(0); // Termina la aplicación
+            if (sistema == null || sistema.getErrorCarga() != null) {
+                System.exit(0); // No se cargaron datos; no hay nada que guardar
+            }
+            // Guarda los datos mientras la cola y la API siguen atendiendo, para poder seguir si falla;
+            // la ventana sigue respondiendo mientras se graba
+            setEnabled(false);
+            grabacion.grabarAhora().whenComplete((resultado, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    setEnabled(true);
+                    int salirIgual = JOptionPane.showConfirmDialog(
+                        this, 
+                        "No se pudieron guardar los datos: " + error.getMessage()
+                            + "\n¿Desea salir igualmente? Los cambios no guardados podrían perderse.", 
+                        "Error al guardar", 
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.ERROR_MESSAGE);
+                    if (salirIgual != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                }
+                terminar();
+            }));
+        }
+    }
+    
+    /**
+     * Deja de atender las puertas y termina la aplicación. Los movimientos que quedaron en la
+     * cola se registran antes de cerrar la bitácora, donde quedan anotados para la próxima carga.
+     */
+    private void terminar() {
+        if (servidorPuertas != null) {
+            servidorPuertas.close();
         }
+        movimientos.close();
+        sistema.cerrarBitacora();
+        System.exit(0); // Termina la aplicación
     }
 }
 
@@ -0,0 +1,124 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de la bitácora: el archivo de datos anterior con las operaciones de la bitácora
+ * aplicadas muestra lo mismo que el sistema que las anotó.
+ */
+public class BitacoraTest {
+    private static final String PREFIJO = "DATOS.bitacora";
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void lasOperacionesReproducidasReproducenElSistema() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = anotar(base, directorio);
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        restaurado.abrirBitacora(directorio);
+        assertEquals(DatosPrueba.resumir(actual), DatosPrueba.resumir(restaurado));
+        restaurado.cerrarBitacora();
+    }
+
+    @Test
+    public void unRegistroIncompletoAlFinalSeDescarta() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = anotar(base, directorio);
+        // Un corte durante la escritura deja el encabezado de un registro sin su contenido
+        Path segmento = getSegmento(directorio);
+        Files.write(segmento, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 10}, StandardOpenOption.APPEND);
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        restaurado.abrirBitacora(directorio);
+        assertEquals(DatosPrueba.resumir(actual), DatosPrueba.resumir(restaurado));
+
+        // Al abrirla se trunca el registro incompleto y las operaciones siguientes se anotan a continuación
+        restaurado.agregarCliente(new Cliente("77777777", "Elena", "Paysandú 700", "099777777", 2024));
+        restaurado.cerrarBitacora();
+        Sistema otraVez = DatosPrueba.cargar(base);
+        otraVez.abrirBitacora(directorio);
+        assertEquals(DatosPrueba.resumir(restaurado), DatosPrueba.resumir(otraVez));
+        assertTrue(otraVez.existeCliente("77777777"));
+        otraVez.cerrarBitacora();
+    }
+
+    @Test
+    public void unRegistroDañadoDescartaLosSiguientes() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = DatosPrueba.cargar(base);
+        actual.abrirBitacora(directorio);
+        actual.agregarCliente(new Cliente("77777777", "Elena", "Paysandú 700", "099777777", 2024));
+        List<String> antesDelDañado = DatosPrueba.resumir(actual);
+        long largoValido = Files.size(getSegmento(directorio));
+        actual.agregarCliente(new Cliente("88888888", "Raúl", "Artigas 800", "099888888", 2024));
+        actual.agregarCliente(new Cliente("99999999", "Inés", "Treinta y Tres 900", "099999999", 2024));
+        actual.cerrarBitacora();
+        // Cambia un byte del contenido del segundo registro: su CRC ya no coincide
+        Path segmento = getSegmento(directorio);
+        byte[] contenido = Files.readAllBytes(segmento);
+        contenido[(int) largoValido + 12] ^= 0x01;
+        Files.write(segmento, contenido);
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        restaurado.abrirBitacora(directorio);
+        assertEquals(antesDelDañado, DatosPrueba.resumir(restaurado));
+        restaurado.cerrarBitacora();
+    }
+
+    @Test
+    public void sinBitacoraElSistemaNoCambia() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        restaurado.abrirBitacora(directorio);
+        assertEquals(DatosPrueba.resumir(DatosPrueba.cargar(base)), DatosPrueba.resumir(restaurado));
+        restaurado.cerrarBitacora();
+    }
+
+    /**
+     * Carga el archivo de datos, abre la bitácora del directorio y registra los cambios de
+     * DatosPrueba y cambios de matrícula, cédula y número de empleado, que quedan anotados en ella.
+     * @return El sistema con los cambios, con la bitácora ya cerrada
+     */
+    private static Sistema anotar(byte[] base, Path directorio) throws IOException {
+        Sistema sistema = DatosPrueba.cargar(base);
+        sistema.abrirBitacora(directorio);
+        DatosPrueba.modificar(sistema);
+        sistema.buscarVehiculo("SBE1111").setMatricula("SBE2222");
+        sistema.registrarServicio(new Servicio("Encerado", sistema.buscarVehiculo("SBE2222"),
+            sistema.buscarEmpleado(3), DatosPrueba.minuto(2024, 4, 3, 9), 700));
+        sistema.buscarCliente("55555555").setCedula("55555556");
+        sistema.buscarEmpleado(3).setNumeroEmpleado(4);
+        sistema.cerrarBitacora();
+        return sistema;
+    }
+
+    private static Path getSegmento(Path directorio) throws IOException {
+        try (var archivos = Files.list(directorio)) {
+            List<Path> segmentos = archivos.filter(p -> p.getFileName().toString().startsWith(PREFIJO + ".")).toList();
+            assertEquals(1, segmentos.size());
+            return segmentos.get(0);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de la cola de movimientos: los movimientos encolados se registran en el sistema y
+ * cada uno recibe su resultado, también cuando se registran juntos en un lote.
+ */
+public class ColaMovimientosTest {
+    private ColaMovimientos cola;
+
+    @After
+    public void cerrar() {
+        if (cola != null) {
+            cola.close();
+        }
+    }
+
+    @Test
+    public void unSistemaCerradoRechazaLosMovimientos() throws Exception {
+        Sistema sistema = DatosPrueba.crearSistema();
+        cola = new ColaMovimientos(() -> sistema, 16);
+        // Al recuperar datos el sistema anterior se cierra antes de reemplazarlo
+        sistema.cerrarBitacora();
+
+        Throwable error = esperarError(cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBA1234"),
+            sistema.buscarEmpleado(1), DatosPrueba.minuto(2024, 4, 1, 8), "", true)));
+        assertTrue(error instanceof RejectedExecutionException);
+        assertNull(sistema.buscarEntradaPorMatricula("SBA1234"));
+    }
+
+    @Test
+    public void conLaColaLlenaSeRechazaSinEsperar() throws Exception {
+        Sistema sistema = DatosPrueba.crearSistema();
+        cola = new ColaMovimientos(() -> sistema, 1);
+        Empleado pedro = sistema.buscarEmpleado(1);
+        CompletableFuture<Void> primera;
+        CompletableFuture<Void> segunda;
+        Throwable error;
+        long demora;
+        // Con el sistema bloqueado, el hilo de registro toma la primera entrada y espera
+        synchronized (sistema) {
+            primera = cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBA1234"), pedro,
+                DatosPrueba.minuto(2024, 4, 1, 8), "", true));
+            while (cola.getPendientes() > 0) {
+                Thread.sleep(1);
+            }
+            segunda = cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBD3456"), pedro,
+                DatosPrueba.minuto(2024, 4, 1, 8), "", false));
+            long inicio = System.nanoTime();
+            error = esperarError(cola.registrarServicio(new Servicio("Lavado", sistema.buscarVehiculo("SBA1234"),
+                pedro, DatosPrueba.minuto(2024, 4, 1, 9), 450)));
+            demora = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        }
+        assertTrue(error instanceof RejectedExecutionException);
+        assertTrue("Esperó " + demora + " ms con la cola llena", demora < 1000);
+        primera.get(10, TimeUnit.SECONDS);
+        segunda.get(10, TimeUnit.SECONDS);
+        assertEquals(0, sistema.getServicios().stream().filter(s -> s.getMinutoEpoch()
+            == DatosPrueba.minuto(2024, 4, 1, 9)).count());
+    }
+
+    @Test
+    public void unErrorAlRegistrarNoDetieneLaCola() throws Exception {
+        Sistema sistema = DatosPrueba.crearSistema();
+        AtomicBoolean fallar = new AtomicBoolean(true);
+        cola = new ColaMovimientos(() -> {
+            if (fallar.getAndSet(false)) {
+                throw new StackOverflowError("Prueba");
+            }
+            return sistema;
+        }, 16);
+        Empleado pedro = sistema.buscarEmpleado(1);
+
+        Throwable error = esperarError(cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBA1234"), pedro,
+            DatosPrueba.minuto(2024, 4, 1, 8), "", true)));
+        assertTrue(error instanceof StackOverflowError);
+        cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBA1234"), pedro,
+            DatosPrueba.minuto(2024, 4, 1, 9), "", true)).get(10, TimeUnit.SECONDS);
+        assertEquals(DatosPrueba.minuto(2024, 4, 1, 9), sistema.buscarEntradaPorMatricula("SBA1234").getMinutoEpoch());
+    }
+
+    @Test
+    public void unMovimientoInvalidoFallaSinAfectarAlRestoDelLote() throws Exception {
+        Sistema sistema = DatosPrueba.crearSistema();
+        cola = new ColaMovimientos(() -> sistema, 16);
+        Empleado pedro = sistema.buscarEmpleado(1);
+        Vehiculo auto = sistema.buscarVehiculo("SBA1234");
+        CompletableFuture<Void> primera;
+        CompletableFuture<Void> repetida;
+        CompletableFuture<Void> servicio;
+        CompletableFuture<Void> otra;
+        // Con el sistema bloqueado, los movimientos que siguen a la primera se juntan en un lote
+        synchronized (sistema) {
+            primera = cola.registrarEntrada(new Entrada(auto, pedro, DatosPrueba.minuto(2024, 4, 1, 8), "", true));
+            while (cola.getPendientes() > 0) {
+                Thread.sleep(1);
+            }
+            repetida = cola.registrarEntrada(new Entrada(auto, pedro, DatosPrueba.minuto(2024, 4, 1, 9), "", true));
+            servicio = cola.registrarServicio(new Servicio("Lavado", auto, pedro, DatosPrueba.minuto(2024, 4, 1, 9), 450));
+            otra = cola.registrarEntrada(new Entrada(sistema.buscarVehiculo("SBD3456"), pedro,
+                DatosPrueba.minuto(2024, 4, 1, 9), "", false));
+            assertEquals(3, cola.getPendientes());
+        }
+        primera.get(10, TimeUnit.SECONDS);
+        assertTrue(esperarError(repetida) instanceof IllegalStateException);
+        servicio.get(10, TimeUnit.SECONDS);
+        otra.get(10, TimeUnit.SECONDS);
+        assertEquals(DatosPrueba.minuto(2024, 4, 1, 8), sistema.buscarEntradaPorMatricula("SBA1234").getMinutoEpoch());
+        assertEquals(DatosPrueba.minuto(2024, 4, 1, 9), sistema.buscarEntradaPorMatricula("SBD3456").getMinutoEpoch());
+        assertEquals(1, sistema.getServicios().stream().filter(s -> s.getMinutoEpoch()
+            == DatosPrueba.minuto(2024, 4, 1, 9)).count());
+    }
+
+    private static Throwable esperarError(CompletableFuture<Void> resultado) throws Exception {
+        try {
+            resultado.get(10, TimeUnit.SECONDS);
+            fail("Se registró el movimiento");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
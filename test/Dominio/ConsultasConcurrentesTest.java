@@ -0,0 +1,102 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de las consultas mientras otro hilo modifica el sistema: los reportes no fallan
+ * y, al terminar las modificaciones, muestran lo mismo que un sistema sin concurrencia.
+ */
+public class ConsultasConcurrentesTest {
+    private static final int VEHICULOS = 200;
+    private static final int VUELTAS = 30;
+
+    @Test
+    public void losReportesNoFallanMientrasSeRegistranMovimientos() throws Exception {
+        Sistema sistema = crearSistema();
+        AtomicBoolean terminado = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        List<Thread> lectores = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int lector = i;
+            lectores.add(new Thread(() -> {
+                try {
+                    while (!terminado.get()) {
+                        String matricula = matricula(lector * 7 % VEHICULOS);
+                        sistema.getHistorialMovimientos(matricula);
+                        sistema.getMovimientosPorVehiculo(sistema.buscarVehiculo(matricula));
+                        sistema.vehiculosSinEntradaActual();
+                        sistema.getClientesConMasVehiculos();
+                        sistema.getEntradasSinSalida();
+                        sistema.getMovimientosIntervalo(LocalDate.of(2024, 5, 1), 2);
+                        sistema.getEmpleadosConMenosMovimientos();
+                        sistema.getEstadisticasContratos();
+                        sistema.getEstadiasMasLargas(5);
+                    }
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            }));
+        }
+        lectores.forEach(Thread::start);
+        registrarMovimientos(sistema);
+        terminado.set(true);
+        for (Thread lector : lectores) {
+            lector.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertTrue("Errores en las consultas: " + errores, errores.isEmpty());
+        Sistema secuencial = crearSistema();
+        registrarMovimientos(secuencial);
+        assertEquals(DatosPrueba.resumir(secuencial), DatosPrueba.resumir(sistema));
+    }
+
+    private static Sistema crearSistema() {
+        Sistema sistema = new Sistema();
+        Cliente cliente = new Cliente("11111111", "Ana", "Rivera 100", "099111111", 2019);
+        sistema.agregarCliente(cliente);
+        sistema.agregarEmpleado(new Empleado("33333333", "Pedro", "Mercedes 300", 1));
+        for (int i = 0; i < VEHICULOS; i++) {
+            Vehiculo vehiculo = new Vehiculo(matricula(i), "Fiat", "Uno", "");
+            vehiculo.setCliente(cliente);
+            sistema.agregarVehiculo(vehiculo);
+        }
+        return sistema;
+    }
+
+    /**
+     * Registra una estadía y un servicio de cada vehículo por vuelta, todas el 1 de mayo de 2024.
+     */
+    private static void registrarMovimientos(Sistema sistema) {
+        Empleado pedro = sistema.buscarEmpleado(1);
+        long mediodia = DatosPrueba.minuto(2024, 5, 1, 12);
+        for (int vuelta = 0; vuelta < VUELTAS; vuelta++) {
+            for (int i = 0; i < VEHICULOS; i++) {
+                Vehiculo vehiculo = sistema.buscarVehiculo(matricula(i));
+                Entrada entrada = new Entrada(vehiculo, pedro, mediodia + vuelta * 10, "", false);
+                sistema.registrarEntrada(entrada);
+                sistema.registrarServicio(new Servicio("Lavado", vehiculo, pedro, mediodia + vuelta * 10 + 1, 450));
+                if (vuelta < VUELTAS - 1 || i % 2 == 0) {
+                    sistema.registrarSalida(new Salida(entrada, pedro, mediodia + vuelta * 10 + 5 + i % 5, "", false,
+                        Reporte.formatDuracion(5 + i % 5)));
+                }
+            }
+        }
+    }
+
+    private static String matricula(int i) {
+        return String.format("SBA%04d", i);
+    }
+}
@@ -0,0 +1,174 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Datos de prueba compartidos por las pruebas de los formatos de archivo: un sistema chico
+ * con todos los tipos de entidades y movimientos, cambios para registrar sobre él, un resumen
+ * de lo que muestra un sistema para comparar el original con el leído, y su grabación y carga
+ * en el formato binario.
+ */
+final class DatosPrueba {
+    private DatosPrueba() {
+    }
+
+    /**
+     * Obtiene el minuto epoch de una fecha y hora.
+     */
+    static long minuto(int año, int mes, int dia, int hora) {
+        return Reporte.toMinutoEpoch(LocalDateTime.of(año, mes, dia, hora, 0));
+    }
+
+    /**
+     * Crea un sistema con clientes, vehículos, empleados y contratos, estadías cerradas en
+     * enero y febrero de 2024, una entrada sin salida en marzo, servicios, un empleado eliminado
+     * que figura en movimientos y un vehículo con la matrícula modificada.
+     */
+    static Sistema crearSistema() {
+        Sistema sistema = new Sistema();
+        Cliente ana = new Cliente("11111111", "Ana", "Rivera 100", "099111111", 2019);
+        Cliente luis = new Cliente("22222222", "Luis", "Colonia 200", "099222222", 2022);
+        sistema.agregarCliente(ana);
+        sistema.agregarCliente(luis);
+        Empleado pedro = new Empleado("33333333", "Pedro", "Mercedes 300", 1);
+        Empleado marta = new Empleado("44444444", "Marta", "Soriano 400", 2);
+        sistema.agregarEmpleado(pedro);
+        sistema.agregarEmpleado(marta);
+        Vehiculo auto = new Vehiculo("SBA1234", "Fiat", "Uno", "Buen estado");
+        Vehiculo camioneta = new Vehiculo("SBB5678", "Toyota", "Hilux", "Rayón en la puerta");
+        Vehiculo moto = new Vehiculo("SBC9012", "Honda", "Wave", "");
+        auto.setCliente(ana);
+        camioneta.setCliente(luis);
+        moto.setCliente(ana);
+        sistema.agregarVehiculo(auto);
+        sistema.agregarVehiculo(camioneta);
+        sistema.agregarVehiculo(moto);
+        sistema.agregarContrato(new Contrato(0, ana, auto, pedro, 2500));
+
+        for (int mes = 1; mes <= 2; mes++) {
+            Entrada entrada = new Entrada(auto, pedro, minuto(2024, mes, 10, 8), "Deja las llaves", true);
+            sistema.registrarEntrada(entrada);
+            sistema.registrarSalida(new Salida(entrada, marta, minuto(2024, mes, 10, 9 + mes), "Sin observaciones",
+                true, Reporte.formatDuracion(60L * (1 + mes))));
+            sistema.registrarServicio(new Servicio("Lavado", camioneta, marta, minuto(2024, mes, 12, 10), 450));
+        }
+        Entrada larga = new Entrada(camioneta, marta, minuto(2024, 2, 20, 7), "", false);
+        sistema.registrarEntrada(larga);
+        sistema.registrarSalida(new Salida(larga, pedro, minuto(2024, 2, 21, 19), "Pagó con tarjeta", false,
+            Reporte.formatDuracion(36 * 60)));
+        sistema.registrarEntrada(new Entrada(moto, pedro, minuto(2024, 3, 5, 18), "Sin casco", false));
+        sistema.eliminarEmpleado(marta);
+        camioneta.setMatricula("SBD3456");
+        return sistema;
+    }
+
+    /**
+     * Registra sobre un sistema creado con crearSistema altas, bajas, modificaciones y
+     * movimientos de todo tipo. No cambia matrículas, que no entran en un archivo de cambios
+     * (requieren grabar el archivo completo).
+     */
+    static void modificar(Sistema sistema) {
+        Empleado pedro = sistema.buscarEmpleado(1);
+        Empleado jorge = new Empleado("66666666", "Jorge", "Durazno 600", 3);
+        sistema.agregarEmpleado(jorge);
+
+        Cliente sofia = new Cliente("55555555", "Sofía", "Maldonado 500", "099555555", 2024);
+        sistema.agregarCliente(sofia);
+        sistema.buscarCliente("11111111").setCelular("098111111");
+        Vehiculo nuevo = new Vehiculo("SBE1111", "Renault", "Clio", "Nuevo");
+        nuevo.setCliente(sofia);
+        sistema.agregarVehiculo(nuevo);
+        sistema.agregarContrato(new Contrato(0, sofia, nuevo, pedro, 1800));
+        sistema.buscarContratoPorId(1).setValorMensual(2800);
+
+        Vehiculo auto = sistema.buscarVehiculo("SBA1234");
+        auto.setEstado("Rayón en el capó");
+        Entrada entrada = new Entrada(auto, jorge, minuto(2024, 4, 2, 9), "Llega rayado", true);
+        sistema.registrarEntrada(entrada);
+        sistema.registrarSalida(new Salida(entrada, jorge, minuto(2024, 4, 2, 13), "", true,
+            Reporte.formatDuracion(4 * 60)));
+        sistema.registrarServicio(new Servicio("Lavado", auto, jorge, minuto(2024, 4, 2, 10), 500));
+
+        Entrada moto = sistema.buscarEntradaPorMatricula("SBC9012");
+        sistema.registrarSalida(new Salida(moto, jorge, minuto(2024, 3, 6, 8), "Sin casco", false,
+            Reporte.formatDuracion(14 * 60)));
+        sistema.registrarEntrada(new Entrada(nuevo, jorge, minuto(2024, 4, 3, 7), "Primera vez", true));
+
+        // Un servicio ya grabado y uno nuevo que se elimina antes de grabar
+        sistema.eliminarServicio(sistema.getServicios().get(0));
+        Servicio descartado = new Servicio("Lavado", nuevo, jorge, minuto(2024, 4, 3, 8), 300);
+        sistema.registrarServicio(descartado);
+        sistema.eliminarServicio(descartado);
+
+        // La camioneta y sus movimientos se eliminan, y después su dueño
+        sistema.eliminarVehiculo(sistema.buscarVehiculo("SBD3456"));
+        sistema.eliminarCliente("22222222");
+    }
+
+    /**
+     * Resume lo que muestra un sistema: entidades, contratos, historial de cada vehículo,
+     * servicios, ocupación y estadísticas.
+     */
+    static List<String> resumir(Sistema sistema) {
+        List<String> resumen = new ArrayList<>();
+        for (Cliente cliente : sistema.getClientes()) {
+            resumen.add("cliente " + cliente.getCedula() + " " + cliente.getNombre() + " " + cliente.getDireccion()
+                + " " + cliente.getCelular());
+        }
+        for (Empleado empleado : sistema.getEmpleados()) {
+            resumen.add("empleado " + empleado.getNumeroEmpleado() + " " + empleado.getNombre());
+        }
+        for (Vehiculo vehiculo : sistema.getVehiculos()) {
+            resumen.add("vehiculo " + vehiculo.getMatricula() + " " + vehiculo.getMarca() + " " + vehiculo.getModelo()
+                + " " + vehiculo.getEstado() + " " + vehiculo.getCliente().getCedula() + " " + vehiculo.getTieneContrato());
+            for (Object[] movimiento : sistema.getHistorialMovimientos(vehiculo.getMatricula())) {
+                resumen.add("  " + Arrays.deepToString(movimiento));
+            }
+        }
+        for (Contrato contrato : sistema.getContratos()) {
+            resumen.add("contrato " + contrato.getId() + " " + contrato.getVehiculo().getMatricula() + " "
+                + contrato.getValorMensual() + " " + contrato.getActivo());
+        }
+        for (Servicio servicio : sistema.getServicios()) {
+            resumen.add("servicio " + servicio.getTipo() + " " + servicio.getVehiculo().getMatricula() + " "
+                + servicio.getEmpleado().getNombre() + " " + servicio.getMinutoEpoch() + " " + servicio.getCosto());
+        }
+        for (Entrada entrada : sistema.getEntradasSinSalida()) {
+            resumen.add("en el parking " + entrada.getVehiculo().getMatricula() + " " + entrada.getNotas());
+        }
+        resumen.add("ocupación " + sistema.getOcupacion());
+        resumen.add("próximo contrato " + sistema.getProximoIdContrato());
+        resumen.add("estadía más larga " + sistema.getEstadiaMasLarga());
+        resumen.add("empleado con más movimientos " + sistema.getEmpleadoMasMovimientos());
+        resumen.add("servicio más utilizado " + sistema.getServicioMasUtilizado());
+        return resumen;
+    }
+
+    /**
+     * Graba un sistema en el formato binario del archivo de datos.
+     */
+    static byte[] grabar(Sistema sistema) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SerializadorBinario.escribir(sistema.copiarDatos(), Channels.newChannel(bytes), null);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Carga un sistema grabado con grabar. El sistema cargado no tiene cambios pendientes.
+     */
+    static Sistema cargar(byte[] contenido) throws IOException {
+        DatosSistema datos = SerializadorBinario.leer(Channels.newChannel(new ByteArrayInputStream(contenido)));
+        return Sistema.desdeDatos(datos, null);
+    }
+}
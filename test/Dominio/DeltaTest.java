@@ -0,0 +1,77 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de los archivos de cambios: el archivo de datos anterior con los cambios aplicados
+ * muestra lo mismo que el sistema que los registró.
+ */
+public class DeltaTest {
+
+    @Test
+    public void losCambiosAplicadosReproducenElSistema() throws IOException {
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = DatosPrueba.cargar(base);
+        DatosPrueba.modificar(actual);
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        Delta.aplicar(restaurado, actual.codificarCambios());
+        assertEquals(DatosPrueba.resumir(actual), DatosPrueba.resumir(restaurado));
+    }
+
+    @Test
+    public void sinCambiosElSistemaNoCambia() throws IOException {
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = DatosPrueba.cargar(base);
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        Delta.aplicar(restaurado, actual.codificarCambios());
+        assertEquals(DatosPrueba.resumir(actual), DatosPrueba.resumir(restaurado));
+    }
+
+    @Test
+    public void unArchivoDañadoNoSeAplica() throws IOException {
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = DatosPrueba.cargar(base);
+        DatosPrueba.modificar(actual);
+        byte[] cambios = actual.codificarCambios();
+        cambios[cambios.length / 2] ^= 0x10;
+
+        Sistema restaurado = DatosPrueba.cargar(base);
+        List<String> antes = DatosPrueba.resumir(restaurado);
+        try {
+            Delta.aplicar(restaurado, cambios);
+            fail("Se aplicó un archivo de cambios dañado");
+        } catch (IOException e) {
+            // Esperado: no se aplica ningún cambio
+        }
+        assertEquals(antes, DatosPrueba.resumir(restaurado));
+        assertNotEquals(antes, DatosPrueba.resumir(actual));
+    }
+
+    @Test
+    public void unArchivoIncompletoNoSeAplica() throws IOException {
+        byte[] base = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        Sistema actual = DatosPrueba.cargar(base);
+        DatosPrueba.modificar(actual);
+        byte[] cambios = actual.codificarCambios();
+
+        try {
+            Delta.aplicar(DatosPrueba.cargar(base), Arrays.copyOf(cambios, cambios.length - 1));
+            fail("Se aplicó un archivo de cambios incompleto");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+}
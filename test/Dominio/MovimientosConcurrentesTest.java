@@ -0,0 +1,127 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pruebas de los movimientos registrados desde varias puertas a la vez: la capacidad del
+ * parking no se supera aunque varias entradas lleguen juntas, y cada estadía se cierra una
+ * sola vez aunque dos puertas registren su salida al mismo tiempo.
+ */
+public class MovimientosConcurrentesTest {
+    private static final int HILOS = 8;
+    private static final int VEHICULOS = 200;
+
+    @Test
+    public void lasEntradasSimultaneasNoSuperanLaCapacidad() throws Exception {
+        Sistema sistema = crearSistema();
+        sistema.setCapacidad(50);
+        Empleado pedro = sistema.buscarEmpleado(1);
+        long minuto = DatosPrueba.minuto(2024, 5, 1, 8);
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < VEHICULOS; i++) {
+            Vehiculo vehiculo = sistema.buscarVehiculo(matricula(i));
+            tareas.add(() -> {
+                try {
+                    sistema.registrarEntrada(new Entrada(vehiculo, pedro, minuto, "", false));
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            });
+        }
+
+        assertEquals(50, contarExitos(tareas));
+        assertEquals(50, sistema.getOcupacion());
+        assertEquals(50, sistema.getEntradasSinSalida().size());
+    }
+
+    @Test
+    public void cadaEstadiaSeCierraUnaSolaVez() throws Exception {
+        Sistema sistema = crearSistema();
+        Empleado pedro = sistema.buscarEmpleado(1);
+        long minuto = DatosPrueba.minuto(2024, 5, 1, 8);
+        List<Callable<Boolean>> tareas = new ArrayList<>();
+        for (int i = 0; i < VEHICULOS; i++) {
+            Entrada entrada = new Entrada(sistema.buscarVehiculo(matricula(i)), pedro, minuto, "", false);
+            sistema.registrarEntrada(entrada);
+            // Dos puertas registran la salida de la misma estadía
+            for (int puerta = 0; puerta < 2; puerta++) {
+                tareas.add(() -> {
+                    try {
+                        sistema.registrarSalida(new Salida(entrada, pedro, minuto + 30, "", false,
+                            Reporte.formatDuracion(30)));
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                });
+            }
+        }
+
+        assertEquals(VEHICULOS, contarExitos(tareas));
+        assertEquals(0, sistema.getOcupacion());
+        assertEquals(0, sistema.getEntradasSinSalida().size());
+        for (int i = 0; i < VEHICULOS; i++) {
+            assertEquals(2, sistema.getHistorialMovimientos(matricula(i)).size());
+        }
+    }
+
+    /**
+     * Ejecuta las tareas en varios hilos, todas a partir del mismo momento.
+     * @return Cantidad de tareas que devolvieron true
+     */
+    private static int contarExitos(List<Callable<Boolean>> tareas) throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        try {
+            CountDownLatch largada = new CountDownLatch(1);
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (Callable<Boolean> tarea : tareas) {
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    return tarea.call();
+                }));
+            }
+            largada.countDown();
+            int exitos = 0;
+            for (Future<Boolean> resultado : resultados) {
+                if (resultado.get(30, TimeUnit.SECONDS)) {
+                    exitos++;
+                }
+            }
+            return exitos;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private static Sistema crearSistema() {
+        Sistema sistema = new Sistema();
+        Cliente cliente = new Cliente("11111111", "Ana", "Rivera 100", "099111111", 2019);
+        sistema.agregarCliente(cliente);
+        sistema.agregarEmpleado(new Empleado("33333333", "Pedro", "Mercedes 300", 1));
+        for (int i = 0; i < VEHICULOS; i++) {
+            Vehiculo vehiculo = new Vehiculo(matricula(i), "Fiat", "Uno", "");
+            vehiculo.setCliente(cliente);
+            sistema.agregarVehiculo(vehiculo);
+        }
+        return sistema;
+    }
+
+    private static String matricula(int i) {
+        return String.format("SBA%04d", i);
+    }
+}
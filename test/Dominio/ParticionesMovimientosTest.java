@@ -0,0 +1,195 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de las particiones mensuales de movimientos: el archivo de datos con su manifiesto y
+ * las particiones se vuelve a leer igual, y una partición dañada no se lee.
+ */
+public class ParticionesMovimientosTest {
+    private static final String PREFIJO = "DATOS.movimientos";
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void elSistemaLeidoDeLasParticionesMuestraLoMismoQueElGrabado() throws IOException {
+        Sistema original = DatosPrueba.crearSistema();
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(original, directorio));
+
+        Sistema.leerParticiones(datos, directorio);
+        assertEquals(DatosPrueba.resumir(original), DatosPrueba.resumir(Sistema.desdeDatos(datos, null)));
+    }
+
+    @Test
+    public void elManifiestoDescribeCadaMes() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        List<ParticionesMovimientos.Particion> manifiesto = leerArchivoDeDatos(
+            grabar(DatosPrueba.crearSistema(), directorio)).particiones;
+
+        assertEquals(3, manifiesto.size());
+        ParticionesMovimientos.Particion enero = manifiesto.get(0);
+        assertEquals(202401, enero.mes);
+        assertEquals(DatosPrueba.minuto(2024, 1, 10, 8), enero.minimo);
+        assertEquals(DatosPrueba.minuto(2024, 1, 12, 10), enero.maximo);
+        assertEquals(3, enero.cantidad);
+        assertEquals(0, enero.abiertas);
+        // La estadía que termina en febrero está en febrero, el mes de su entrada
+        assertEquals(5, manifiesto.get(1).cantidad);
+        assertEquals(0, manifiesto.get(1).abiertas);
+        assertEquals(202403, manifiesto.get(2).mes);
+        assertEquals(1, manifiesto.get(2).abiertas);
+        for (ParticionesMovimientos.Particion particion : manifiesto) {
+            assertTrue(Files.exists(directorio.resolve(String.format("%s.%04d-%02d.%06d", PREFIJO,
+                particion.mes / 100, particion.mes % 100, particion.numero))));
+        }
+    }
+
+    @Test
+    public void alCargarSoloSeLeenLosMesesConEntradasSinSalida() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(DatosPrueba.crearSistema(), directorio));
+        ParticionesMovimientos.Lector lector = new ParticionesMovimientos.Lector(directorio, PREFIJO,
+            datos.vehiculos, datos.empleados);
+
+        List<ParticionesMovimientos.Particion> sinLeer = new ArrayList<>();
+        Sistema.leerParticiones(datos, lector, sinLeer);
+        assertEquals(1, datos.entradas.size());
+        assertTrue(datos.salidas.isEmpty());
+        assertEquals(List.of(202401, 202402), sinLeer.stream().map(p -> p.mes).toList());
+    }
+
+    @Test
+    public void lasParticionesCompartenLasEntidades() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(DatosPrueba.crearSistema(), directorio));
+        ParticionesMovimientos.Lector lector = new ParticionesMovimientos.Lector(directorio, PREFIJO,
+            datos.vehiculos, datos.empleados);
+
+        ParticionesMovimientos.Movimientos enero = lector.leer(datos.particiones.get(0));
+        ParticionesMovimientos.Movimientos febrero = lector.leer(datos.particiones.get(1));
+        Vehiculo auto = datos.vehiculos.get(0);
+        assertSame(auto, enero.entradas.get(0).getVehiculo());
+        assertSame(auto, febrero.entradas.get(0).getVehiculo());
+        assertSame(enero.entradas.get(0), enero.salidas.get(0).getEntrada());
+        // El empleado eliminado se recrea una sola vez para todas las particiones
+        Empleado marta = enero.salidas.get(0).getEmpleado();
+        assertEquals("Marta", marta.getNombre());
+        assertSame(marta, febrero.salidas.get(0).getEmpleado());
+        assertFalse(datos.empleados.contains(marta));
+    }
+
+    @Test
+    public void unaParticionDañadaNoSeLee() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(DatosPrueba.crearSistema(), directorio));
+        ParticionesMovimientos.Particion febrero = datos.particiones.get(1);
+        Path archivo = directorio.resolve(String.format("%s.2024-02.%06d", PREFIJO, febrero.numero));
+        byte[] contenido = Files.readAllBytes(archivo);
+        contenido[contenido.length - 3] ^= 0x01;
+        Files.write(archivo, contenido);
+
+        ParticionesMovimientos.Lector lector = new ParticionesMovimientos.Lector(directorio, PREFIJO,
+            datos.vehiculos, datos.empleados);
+        lector.leer(datos.particiones.get(0));
+        try {
+            lector.leer(febrero);
+            fail("Se leyó una partición dañada");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("dañada"));
+        }
+        try {
+            Sistema.leerParticiones(leerArchivoDeDatos(grabarManifiesto(datos)), directorio);
+            fail("Se cargó un archivo de datos con una partición dañada");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+
+    @Test
+    public void unaParticionQueFaltaNoSeLee() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(DatosPrueba.crearSistema(), directorio));
+        ParticionesMovimientos.Particion marzo = datos.particiones.get(2);
+        Files.delete(directorio.resolve(String.format("%s.2024-03.%06d", PREFIJO, marzo.numero)));
+
+        try {
+            new ParticionesMovimientos.Lector(directorio, PREFIJO, datos.vehiculos, datos.empleados).leer(marzo);
+            fail("Se leyó una partición que no existe");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+
+    @Test
+    public void soloQuedanLasParticionesVigentes() throws IOException {
+        Path directorio = carpeta.getRoot().toPath();
+        DatosSistema datos = leerArchivoDeDatos(grabar(DatosPrueba.crearSistema(), directorio));
+        Path anterior = Files.createFile(directorio.resolve(PREFIJO + ".2024-01.000000"));
+        Path temporal = Files.createFile(directorio.resolve(PREFIJO + ".2024-04.000009.tmp"));
+        Path ajeno = Files.createFile(directorio.resolve(PREFIJO + ".copia"));
+
+        ParticionesMovimientos.eliminarNoVigentes(directorio, PREFIJO, datos.particiones);
+        assertFalse(Files.exists(anterior));
+        assertFalse(Files.exists(temporal));
+        assertTrue(Files.exists(ajeno));
+        new ParticionesMovimientos.Lector(directorio, PREFIJO, datos.vehiculos, datos.empleados)
+            .leer(datos.particiones.get(0));
+    }
+
+    /**
+     * Graba los movimientos de un sistema en particiones, como una grabación completa, y
+     * devuelve el archivo de datos con el manifiesto y sin los movimientos.
+     */
+    private static byte[] grabar(Sistema sistema, Path directorio) throws IOException {
+        DatosSistema datos = sistema.copiarDatos();
+        Map<Integer, ParticionesMovimientos.Movimientos> porMes = ParticionesMovimientos.agrupar(
+            datos.entradas, datos.salidas, datos.servicios,
+            ParticionesMovimientos.getMeses(datos.entradas, datos.salidas, datos.servicios));
+        List<ParticionesMovimientos.Particion> manifiesto = new ArrayList<>();
+        for (var par : porMes.entrySet()) {
+            manifiesto.add(ParticionesMovimientos.escribir(directorio, PREFIJO, par.getKey(), 1, par.getValue()));
+        }
+        return grabarManifiesto(new DatosSistema(datos.clientes, datos.vehiculos, datos.empleados, datos.contratos,
+            datos.entradas, datos.salidas, datos.servicios, datos.archivadas, datos.ultimoIdContrato,
+            datos.segmentoBitacora, manifiesto));
+    }
+
+    /**
+     * Graba un archivo de datos con el manifiesto de las particiones y sin los movimientos.
+     */
+    private static byte[] grabarManifiesto(DatosSistema datos) throws IOException {
+        DatosSistema sinMovimientos = new DatosSistema(datos.clientes, datos.vehiculos, datos.empleados,
+            datos.contratos, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), datos.archivadas,
+            datos.ultimoIdContrato, datos.segmentoBitacora, datos.particiones);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SerializadorBinario.escribir(sinMovimientos, Channels.newChannel(bytes), null);
+        return bytes.toByteArray();
+    }
+
+    private static DatosSistema leerArchivoDeDatos(byte[] contenido) throws IOException {
+        return SerializadorBinario.leer(Channels.newChannel(new ByteArrayInputStream(contenido)));
+    }
+}
@@ -0,0 +1,53 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de la conversión de fecha y hora al minuto epoch de los movimientos.
+ */
+public class ReporteTest {
+
+    @Test
+    public void laFechaYLaHoraSeConviertenAlMinutoEpoch() {
+        Date fecha = fecha(2024, 3, 5);
+        long minuto = Reporte.toMinutoEpoch(fecha, "18:07");
+        assertEquals(Reporte.toMinutoEpoch(LocalDateTime.of(2024, 3, 5, 18, 7)), minuto);
+        assertEquals(Reporte.toMinutoEpoch(LocalDateTime.of(2024, 3, 5, 7, 5)), Reporte.toMinutoEpoch(fecha, "7:05"));
+        assertEquals("18:07", Reporte.toHora(minuto));
+        assertEquals(LocalDateTime.of(2024, 3, 5, 18, 7), Reporte.toLocalDateTime(minuto));
+    }
+
+    @Test
+    public void losExtremosDelDiaSonValidos() {
+        Date fecha = fecha(2024, 2, 29);
+        assertEquals(Reporte.toMinutoEpoch(LocalDateTime.of(2024, 2, 29, 0, 0)), Reporte.toMinutoEpoch(fecha, "00:00"));
+        assertEquals(Reporte.toMinutoEpoch(LocalDateTime.of(2024, 2, 29, 23, 59)), Reporte.toMinutoEpoch(fecha, "23:59"));
+    }
+
+    @Test
+    public void unaHoraFueraDeRangoSeRechaza() {
+        for (String hora : new String[]{"24:00", "25:99", "12:60", "-1:30", "1230", "ab:cd"}) {
+            try {
+                Reporte.toMinutoEpoch(fecha(2024, 1, 1), hora);
+                fail("Se aceptó la hora " + hora);
+            } catch (IllegalArgumentException e) {
+                // Esperado
+            }
+        }
+    }
+
+    private static Date fecha(int año, int mes, int dia) {
+        return Date.from(LocalDate.of(año, mes, dia).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
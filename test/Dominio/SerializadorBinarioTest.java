@@ -0,0 +1,68 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas del formato binario del archivo de datos: lo que se graba se vuelve a leer igual.
+ */
+public class SerializadorBinarioTest {
+
+    @Test
+    public void elSistemaLeidoMuestraLoMismoQueElGrabado() throws IOException {
+        Sistema original = DatosPrueba.crearSistema();
+        Sistema leido = DatosPrueba.cargar(DatosPrueba.grabar(original));
+        assertEquals(DatosPrueba.resumir(original), DatosPrueba.resumir(leido));
+    }
+
+    @Test
+    public void lasReferenciasApuntanALaMismaEntidad() throws IOException {
+        Sistema leido = DatosPrueba.cargar(DatosPrueba.grabar(DatosPrueba.crearSistema()));
+        Vehiculo auto = leido.buscarVehiculo("SBA1234");
+        assertSame(auto.getCliente(), leido.buscarCliente("11111111"));
+        assertSame(auto, leido.getContratos().get(0).getVehiculo());
+        // El empleado eliminado no está registrado, pero sus movimientos comparten la misma instancia
+        Servicio primero = leido.getServicios().get(0);
+        Servicio segundo = leido.getServicios().get(1);
+        assertEquals("Marta", primero.getEmpleado().getNombre());
+        assertSame(primero.getEmpleado(), segundo.getEmpleado());
+        assertTrue(leido.getEmpleados().stream().noneMatch(e -> e == primero.getEmpleado()));
+    }
+
+    @Test
+    public void seLeenLasEntradasSinSalida() throws IOException {
+        Sistema leido = DatosPrueba.cargar(DatosPrueba.grabar(DatosPrueba.crearSistema()));
+        Entrada abierta = leido.buscarEntradaPorMatricula("SBC9012");
+        assertEquals(DatosPrueba.minuto(2024, 3, 5, 18), abierta.getMinutoEpoch());
+        assertTrue(leido.estaEnParking("SBC9012"));
+        assertEquals(1, leido.getOcupacion());
+    }
+
+    @Test
+    public void grabarDosVecesDaElMismoArchivo() throws IOException {
+        byte[] primero = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        byte[] segundo = DatosPrueba.grabar(DatosPrueba.cargar(primero));
+        assertTrue(Arrays.equals(primero, segundo));
+    }
+
+    @Test
+    public void unArchivoIncompletoNoSeLee() throws IOException {
+        byte[] completo = DatosPrueba.grabar(DatosPrueba.crearSistema());
+        try {
+            DatosPrueba.cargar(Arrays.copyOf(completo, completo.length / 2));
+            fail("Se leyó un archivo incompleto");
+        } catch (IOException e) {
+            // Esperado
+        }
+    }
+}
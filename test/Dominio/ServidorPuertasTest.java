@@ -0,0 +1,129 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de la API de las puertas sobre un servidor en un puerto libre: los movimientos
+ * llegan al sistema y cada error se responde con su código HTTP.
+ */
+public class ServidorPuertasTest {
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private final AtomicReference<Sistema> sistema = new AtomicReference<>();
+    private ColaMovimientos cola;
+    private ServidorPuertas servidor;
+
+    @Before
+    public void iniciar() throws Exception {
+        sistema.set(DatosPrueba.crearSistema());
+        cola = new ColaMovimientos(sistema::get, 16);
+        servidor = new ServidorPuertas(sistema::get, cola, new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void cerrar() {
+        servidor.close();
+        cola.close();
+    }
+
+    @Test
+    public void unaEstadiaSeRegistraPorLaApi() throws Exception {
+        Respuesta entrada = post("/entradas", "{\"matricula\": \"SBA1234\", \"empleado\": 1, \"fecha\": \"01/04/2024\", \"hora\": \"08:00\"}");
+        assertEquals(201, entrada.codigo);
+        assertEquals("SBA1234", entrada.cuerpo.get("matricula"));
+        assertEquals(DatosPrueba.minuto(2024, 4, 1, 8), sistema.get().buscarEntradaPorMatricula("SBA1234").getMinutoEpoch());
+
+        Respuesta enParking = get("/vehiculos/SBA1234/en-parking");
+        assertEquals(200, enParking.codigo);
+        assertEquals(Boolean.TRUE, enParking.cuerpo.get("enParking"));
+        assertEquals(200, get("/vehiculos/SBA1234").codigo);
+        Respuesta ocupacion = get("/ocupacion");
+        assertEquals(200, ocupacion.codigo);
+        assertEquals(2L, ocupacion.cuerpo.get("ocupacion"));
+
+        Respuesta salida = post("/salidas", "{\"matricula\": \"SBA1234\", \"empleado\": 1, \"fecha\": \"01/04/2024\", \"hora\": \"10:30\"}");
+        assertEquals(201, salida.codigo);
+        assertEquals(Reporte.formatDuracion(150), salida.cuerpo.get("tiempoEstadia"));
+        assertEquals(null, sistema.get().buscarEntradaPorMatricula("SBA1234"));
+
+        Respuesta servicio = post("/servicios", "{\"matricula\": \"SBA1234\", \"empleado\": 1, \"tipo\": \"Lavado\", \"costo\": 450, \"fecha\": \"01/04/2024\", \"hora\": \"11:00\"}");
+        assertEquals(201, servicio.codigo);
+        assertEquals(1, sistema.get().getServicios().stream().filter(s -> s.getMinutoEpoch()
+            == DatosPrueba.minuto(2024, 4, 1, 11)).count());
+    }
+
+    @Test
+    public void losErroresSeRespondenConSuCodigo() throws Exception {
+        // La moto ya está en el parking
+        assertEquals(409, post("/entradas", "{\"matricula\": \"SBC9012\", \"empleado\": 1}").codigo);
+        assertEquals(404, post("/entradas", "{\"matricula\": \"XXX0000\", \"empleado\": 1}").codigo);
+        assertEquals(404, post("/entradas", "{\"matricula\": \"SBA1234\", \"empleado\": 99}").codigo);
+        assertEquals(404, post("/salidas", "{\"matricula\": \"SBA1234\", \"empleado\": 1}").codigo);
+        assertEquals(404, get("/vehiculos/XXX0000").codigo);
+        assertEquals(400, post("/entradas", "{\"empleado\": 1}").codigo);
+        assertEquals(400, post("/entradas", "{\"matricula\": \"SBA1234\", \"empleado\": 1, \"fecha\": \"01/04/2024\", \"hora\": \"25:00\"}").codigo);
+        assertEquals(400, post("/servicios", "{\"matricula\": \"SBA1234\", \"empleado\": 1, \"tipo\": \"Lavado\", \"costo\": -1}").codigo);
+        assertEquals(400, post("/entradas", "{\"matricula\": ").codigo);
+        assertEquals(405, get("/entradas").codigo);
+        assertEquals(405, post("/ocupacion", "{}").codigo);
+        assertEquals(null, sistema.get().buscarEntradaPorMatricula("SBA1234"));
+    }
+
+    @Test
+    public void sinSistemaSeRespondeQueNoEstaDisponible() throws Exception {
+        sistema.set(null);
+        Respuesta respuesta = get("/ocupacion");
+        assertEquals(503, respuesta.codigo);
+        assertTrue(respuesta.cuerpo.containsKey("error"));
+
+        // Un sistema cerrado para recuperar datos rechaza los movimientos
+        Sistema cerrado = DatosPrueba.crearSistema();
+        cerrado.cerrarBitacora();
+        sistema.set(cerrado);
+        assertEquals(503, post("/entradas", "{\"matricula\": \"SBA1234\", \"empleado\": 1}").codigo);
+    }
+
+    private Respuesta get(String ruta) throws Exception {
+        return enviar(HttpRequest.newBuilder(uri(ruta)).GET().build());
+    }
+
+    private Respuesta post(String ruta, String json) throws Exception {
+        return enviar(HttpRequest.newBuilder(uri(ruta))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://127.0.0.1:" + servidor.getDireccion().getPort() + ruta);
+    }
+
+    private Respuesta enviar(HttpRequest pedido) throws Exception {
+        HttpResponse<String> respuesta = cliente.send(pedido, HttpResponse.BodyHandlers.ofString());
+        return new Respuesta(respuesta.statusCode(), Json.leerObjeto(respuesta.body()));
+    }
+
+    private static final class Respuesta {
+        private final int codigo;
+        private final Map<String, Object> cuerpo;
+
+        private Respuesta(int codigo, Map<String, Object> cuerpo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+        }
+    }
+}
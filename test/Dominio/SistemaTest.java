@@ -0,0 +1,76 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de las validaciones del sistema al agregar vehículos y registrar movimientos.
+ */
+public class SistemaTest {
+
+    @Test
+    public void noSeAgreganDosVehiculosConLaMismaMatricula() {
+        Sistema sistema = DatosPrueba.crearSistema();
+        int vehiculos = sistema.getVehiculos().size();
+        try {
+            sistema.agregarVehiculo(new Vehiculo("SBA1234", "Renault", "Clio", ""));
+            fail("Se agregó un vehículo con una matrícula repetida");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        assertEquals(vehiculos, sistema.getVehiculos().size());
+        assertEquals("Fiat", sistema.buscarVehiculo("SBA1234").getMarca());
+    }
+
+    @Test
+    public void noSeCambiaLaMatriculaPorUnaExistente() {
+        Sistema sistema = DatosPrueba.crearSistema();
+        Vehiculo moto = sistema.buscarVehiculo("SBC9012");
+        try {
+            moto.setMatricula("SBA1234");
+            fail("Se cambió la matrícula por la de otro vehículo");
+        } catch (IllegalArgumentException e) {
+            // Esperado
+        }
+        assertEquals("SBC9012", moto.getMatricula());
+        assertSame(moto, sistema.buscarVehiculo("SBC9012"));
+        assertEquals("Fiat", sistema.buscarVehiculo("SBA1234").getMarca());
+
+        // Volver a asignar la misma matrícula no es un duplicado
+        moto.setMatricula("SBC9012");
+        assertSame(moto, sistema.buscarVehiculo("SBC9012"));
+    }
+
+    @Test
+    public void noSeRegistraUnaEntradaDeUnVehiculoQueEstaAdentro() {
+        Sistema sistema = DatosPrueba.crearSistema();
+        Vehiculo moto = sistema.buscarVehiculo("SBC9012");
+        Entrada abierta = sistema.buscarEntradaPorMatricula("SBC9012");
+        int movimientos = sistema.getHistorialMovimientos("SBC9012").size();
+        try {
+            sistema.registrarEntrada(new Entrada(moto, sistema.buscarEmpleado(1),
+                DatosPrueba.minuto(2024, 3, 6, 9), "", false));
+            fail("Se registró una segunda entrada sin salida");
+        } catch (IllegalStateException e) {
+            // Esperado
+        }
+        assertEquals(movimientos, sistema.getHistorialMovimientos("SBC9012").size());
+        assertSame(abierta, sistema.buscarEntradaPorMatricula("SBC9012"));
+        assertEquals(1, sistema.getOcupacion());
+
+        // Después de la salida puede volver a entrar
+        sistema.registrarSalida(new Salida(abierta, sistema.buscarEmpleado(1), DatosPrueba.minuto(2024, 3, 6, 8),
+            "", false, Reporte.formatDuracion(14 * 60)));
+        Entrada nueva = new Entrada(moto, sistema.buscarEmpleado(1), DatosPrueba.minuto(2024, 3, 6, 9), "", false);
+        sistema.registrarEntrada(nueva);
+        assertSame(nueva, sistema.buscarEntradaPorMatricula("SBC9012"));
+        assertEquals(1, sistema.getOcupacion());
+    }
+}
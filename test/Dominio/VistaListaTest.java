@@ -0,0 +1,66 @@
+package Dominio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de las vistas de solo lectura de las colecciones del sistema.
+ */
+public class VistaListaTest {
+
+    @Test
+    public void laMismaVistaSeReutilizaMientrasNoHayCambios() {
+        Sistema sistema = DatosPrueba.crearSistema();
+        VistaLista<Cliente> vista = sistema.getClientes();
+        assertTrue(vista.estaVigente());
+        assertSame(vista, sistema.getClientes());
+        // Cambiar otra colección no afecta la vista
+        sistema.agregarVehiculo(new Vehiculo("SBE7890", "Fiat", "Palio", ""));
+        assertTrue(vista.estaVigente());
+        assertSame(vista, sistema.getClientes());
+    }
+
+    @Test
+    public void unaModificacionDejaLaVistaDesactualizada() {
+        Sistema sistema = DatosPrueba.crearSistema();
+        VistaLista<Cliente> vista = sistema.getClientes();
+        List<String> cedulas = vista.stream().map(Cliente::getCedula).toList();
+
+        sistema.agregarCliente(new Cliente("55555555", "Sofía", "Paysandú 500", "099555555", 2024));
+        assertFalse(vista.estaVigente());
+        // La vista anterior sigue mostrando lo que había cuando se obtuvo
+        assertEquals(cedulas, vista.stream().map(Cliente::getCedula).toList());
+
+        VistaLista<Cliente> nueva = sistema.getClientes();
+        assertNotSame(vista, nueva);
+        assertTrue(nueva.estaVigente());
+        assertTrue(nueva.getVersion() > vista.getVersion());
+        assertEquals(cedulas.size() + 1, nueva.size());
+
+        sistema.eliminarCliente("55555555");
+        assertFalse(nueva.estaVigente());
+        assertEquals(cedulas.size(), sistema.getClientes().size());
+    }
+
+    @Test
+    public void laVistaNoSePuedeModificar() {
+        VistaLista<Cliente> vista = DatosPrueba.crearSistema().getClientes();
+        try {
+            vista.add(new Cliente("55555555", "Sofía", "Paysandú 500", "099555555", 2024));
+            fail("Se modificó la vista");
+        } catch (UnsupportedOperationException e) {
+            // Esperado
+        }
+    }
+}
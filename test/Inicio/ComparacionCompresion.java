@@ -0,0 +1,75 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import Dominio.Compresion;
+import Dominio.Serializador;
+import Dominio.Sistema;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compara el tamaño del archivo de datos y los tiempos de grabación y carga con cada
+ * compresión (ver Compresion), sobre un año de movimientos generados al azar.
+ * Uso: ComparacionCompresion [vehículos] [repeticiones]
+ */
+public class ComparacionCompresion {
+    public static void main(String[] args) throws Exception {
+        int cantidadVehiculos = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        long inicio = System.nanoTime();
+        // Un año de movimientos
+        Sistema sistema = DatosSinteticos.generar(cantidadVehiculos, LocalDate.of(2024, 1, 1), 365, new Random(2024));
+        System.out.printf("Generados %d vehículos y %d servicios en %d ms%n%n",
+            sistema.getVehiculos().size(), sistema.getServicios().size(),
+            (System.nanoTime() - inicio) / 1_000_000);
+
+        Path directorio = Files.createTempDirectory("comparacion-compresion");
+        try {
+            System.out.printf("%-10s %5s %12s %10s %10s%n", "Compresión", "Nivel", "Bytes", "Grabar ms", "Cargar ms");
+            comparar(sistema, directorio, Compresion.NINGUNA, -1, repeticiones);
+            for (Compresion compresion : new Compresion[]{Compresion.DEFLATE, Compresion.GZIP}) {
+                for (int nivel : new int[]{1, 6, 9}) {
+                    comparar(sistema, directorio, compresion, nivel, repeticiones);
+                }
+            }
+        } finally {
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Graba y carga el sistema con una compresión e imprime el tamaño del archivo y el mejor
+     * tiempo de grabación y de carga entre las repeticiones.
+     */
+    private static void comparar(Sistema sistema, Path directorio, Compresion compresion, int nivel, int repeticiones)
+            throws IOException, ClassNotFoundException {
+        String archivo = directorio.resolve("DATOS-" + compresion + nivel + ".bin").toString();
+        long mejorGrabacion = Long.MAX_VALUE;
+        long mejorCarga = Long.MAX_VALUE;
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            Serializador.guardar(sistema, archivo, compresion, nivel);
+            mejorGrabacion = Math.min(mejorGrabacion, System.nanoTime() - inicio);
+
+            inicio = System.nanoTime();
+            Sistema cargado = Serializador.cargar(archivo);
+            mejorCarga = Math.min(mejorCarga, System.nanoTime() - inicio);
+            if (cargado.getServicios().size() != sistema.getServicios().size()) {
+                throw new IllegalStateException("El archivo cargado no coincide con el grabado");
+            }
+        }
+        System.out.printf("%-10s %5s %12d %10d %10d%n", compresion, compresion == Compresion.NINGUNA ? "-" : nivel,
+            Files.size(Path.of(archivo)), mejorGrabacion / 1_000_000, mejorCarga / 1_000_000);
+    }
+}
@@ -0,0 +1,85 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import Dominio.Compresion;
+import Dominio.Serializador;
+import Dominio.Sistema;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Compara el formato binario del archivo de datos (ver SerializadorBinario) con la
+ * serialización de Java de versiones anteriores: tamaño del archivo y mejor tiempo de
+ * grabación y de carga, sobre días de movimientos generados al azar. La primera repetición
+ * sirve de calentamiento y no se cuenta.
+ * Uso: ComparacionFormatos [vehículos] [días] [repeticiones]
+ */
+public class ComparacionFormatos {
+    public static void main(String[] args) throws Exception {
+        int cantidadVehiculos = args.length > 0 ? Integer.parseInt(args[0]) : 108_000;
+        int dias = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int repeticiones = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        long inicio = System.nanoTime();
+        Sistema sistema = DatosSinteticos.generar(cantidadVehiculos, LocalDate.of(2024, 1, 1), dias, new Random(2024));
+        System.out.printf("Generados %d vehículos y %d servicios en %d ms%n%n",
+            sistema.getVehiculos().size(), sistema.getServicios().size(),
+            (System.nanoTime() - inicio) / 1_000_000);
+
+        Path directorio = Files.createTempDirectory("comparacion-formatos");
+        try {
+            System.out.printf("%-13s %12s %10s %10s%n", "Formato", "Bytes", "Grabar ms", "Cargar ms");
+            comparar(sistema, directorio.resolve("DATOS.bin"), true, repeticiones);
+            comparar(sistema, directorio.resolve("DATOS.ser"), false, repeticiones);
+        } finally {
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Graba y carga el sistema en un formato e imprime el tamaño del archivo y el mejor tiempo
+     * de grabación y de carga entre las repeticiones, sin contar la primera.
+     */
+    private static void comparar(Sistema sistema, Path archivo, boolean binario, int repeticiones)
+            throws IOException, ClassNotFoundException {
+        long mejorGrabacion = Long.MAX_VALUE;
+        long mejorCarga = Long.MAX_VALUE;
+        for (int i = 0; i <= repeticiones; i++) {
+            long inicio = System.nanoTime();
+            if (binario) {
+                Serializador.guardar(sistema, archivo.toString(), Compresion.NINGUNA, -1);
+            } else {
+                try (ObjectOutputStream out = new ObjectOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+                    out.writeObject(sistema);
+                }
+            }
+            long grabacion = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            Sistema cargado = Serializador.cargar(archivo.toString());
+            long carga = System.nanoTime() - inicio;
+            if (cargado.getServicios().size() != sistema.getServicios().size()) {
+                throw new IllegalStateException("El archivo cargado no coincide con el grabado");
+            }
+            if (i > 0) {
+                mejorGrabacion = Math.min(mejorGrabacion, grabacion);
+                mejorCarga = Math.min(mejorCarga, carga);
+            }
+        }
+        System.out.printf("%-13s %12d %10d %10d%n", binario ? "Binario" : "Serialización",
+            Files.size(archivo), mejorGrabacion / 1_000_000, mejorCarga / 1_000_000);
+    }
+}
@@ -0,0 +1,128 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import Dominio.Cliente;
+import Dominio.Contrato;
+import Dominio.Empleado;
+import Dominio.Entrada;
+import Dominio.Reporte;
+import Dominio.Salida;
+import Dominio.Servicio;
+import Dominio.Sistema;
+import Dominio.Vehiculo;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Genera sistemas con datos al azar para las mediciones del paquete Inicio.
+ * Con la misma semilla se generan siempre los mismos datos.
+ */
+final class DatosSinteticos {
+    private static final String[] MARCAS = {"Fiat", "Volkswagen", "Chevrolet", "Renault", "Peugeot", "Toyota"};
+    private static final String[] MODELOS = {"Uno", "Gol", "Onix", "Clio", "208", "Corolla"};
+    private static final String[] NOTAS = {"Sin observaciones", "Rayón en la puerta", "Deja las llaves", ""};
+
+    private DatosSinteticos() {
+    }
+
+    /**
+     * Genera un sistema con días de movimientos: cada día entra la mayoría de los vehículos,
+     * que salen el mismo día, y se registran algunos servicios.
+     * @param cantidadVehiculos Cantidad de vehículos (cada uno con su cliente; la mitad con contrato)
+     * @param primerDia Primer día con movimientos
+     * @param dias Cantidad de días con movimientos
+     * @param azar Generador de los datos
+     * @return El sistema generado
+     */
+    static Sistema generar(int cantidadVehiculos, LocalDate primerDia, int dias, Random azar) {
+        Sistema sistema = new Sistema();
+        Empleado[] empleados = generarEmpleados(sistema);
+        Vehiculo[] vehiculos = generarVehiculos(sistema, empleados, cantidadVehiculos, azar);
+        for (int dia = 0; dia < dias; dia++) {
+            long medianoche = Reporte.toMinutoEpoch(primerDia.plusDays(dia).atStartOfDay());
+            for (Vehiculo vehiculo : vehiculos) {
+                if (azar.nextInt(10) == 0) {
+                    continue;
+                }
+                registrarEstadia(sistema, vehiculo, empleados, medianoche, azar);
+            }
+        }
+        return sistema;
+    }
+
+    /**
+     * Genera un sistema con una cantidad fija de estadías cerradas, repartidas por igual entre
+     * los días indicados.
+     * @param cantidadVehiculos Cantidad de vehículos (cada uno con su cliente; la mitad con contrato)
+     * @param cantidadEstadias Cantidad de estadías
+     * @param primerDia Primer día con movimientos
+     * @param dias Cantidad de días con movimientos
+     * @param azar Generador de los datos
+     * @return El sistema generado
+     */
+    static Sistema generarEstadias(int cantidadVehiculos, int cantidadEstadias, LocalDate primerDia, int dias,
+                                   Random azar) {
+        Sistema sistema = new Sistema();
+        Empleado[] empleados = generarEmpleados(sistema);
+        Vehiculo[] vehiculos = generarVehiculos(sistema, empleados, cantidadVehiculos, azar);
+        int porDia = (cantidadEstadias + dias - 1) / dias;
+        for (int dia = 0, estadias = 0; estadias < cantidadEstadias; dia++) {
+            long medianoche = Reporte.toMinutoEpoch(primerDia.plusDays(dia).atStartOfDay());
+            // Cada vehículo entra a lo sumo una vez por día si porDia no supera la cantidad de vehículos
+            for (int i = 0; i < porDia && estadias < cantidadEstadias; i++, estadias++) {
+                registrarEstadia(sistema, vehiculos[i % vehiculos.length], empleados, medianoche, azar);
+            }
+        }
+        return sistema;
+    }
+
+    /**
+     * Registra una entrada y su salida el mismo día y, a veces, un servicio.
+     */
+    private static void registrarEstadia(Sistema sistema, Vehiculo vehiculo, Empleado[] empleados, long medianoche,
+                                         Random azar) {
+        long entrada = medianoche + 6 * 60 + azar.nextInt(6 * 60);
+        long salida = entrada + 30 + azar.nextInt(10 * 60);
+        Entrada registrada = new Entrada(vehiculo, empleados[azar.nextInt(empleados.length)], entrada,
+            NOTAS[azar.nextInt(NOTAS.length)], vehiculo.getTieneContrato());
+        sistema.registrarEntrada(registrada);
+        sistema.registrarSalida(new Salida(registrada, empleados[azar.nextInt(empleados.length)], salida,
+            NOTAS[azar.nextInt(NOTAS.length)], vehiculo.getTieneContrato(),
+            Reporte.formatDuracion(salida - entrada)));
+        if (azar.nextInt(10) == 0) {
+            sistema.registrarServicio(new Servicio(Sistema.TIPOS_SERVICIOS[azar.nextInt(Sistema.TIPOS_SERVICIOS.length)],
+                vehiculo, empleados[azar.nextInt(empleados.length)], entrada + 15, 200 + azar.nextInt(10) * 50));
+        }
+    }
+
+    private static Empleado[] generarEmpleados(Sistema sistema) {
+        Empleado[] empleados = new Empleado[12];
+        for (int i = 0; i < empleados.length; i++) {
+            empleados[i] = new Empleado(String.valueOf(40_000_000 + i), "Empleado " + (i + 1), "Calle " + i, i + 1);
+            sistema.agregarEmpleado(empleados[i]);
+        }
+        return empleados;
+    }
+
+    private static Vehiculo[] generarVehiculos(Sistema sistema, Empleado[] empleados, int cantidadVehiculos,
+                                               Random azar) {
+        Vehiculo[] vehiculos = new Vehiculo[cantidadVehiculos];
+        for (int i = 0; i < cantidadVehiculos; i++) {
+            Cliente cliente = new Cliente(String.valueOf(10_000_000 + i), "Cliente " + i, "Avenida " + i,
+                String.format("09%07d", i), 2015 + azar.nextInt(10));
+            sistema.agregarCliente(cliente);
+            int modelo = azar.nextInt(MARCAS.length);
+            vehiculos[i] = new Vehiculo(String.format("SBA%04d", i), MARCAS[modelo], MODELOS[modelo], "Buen estado");
+            vehiculos[i].setCliente(cliente);
+            sistema.agregarVehiculo(vehiculos[i]);
+            if (i % 2 == 0) {
+                sistema.agregarContrato(new Contrato(0, cliente, vehiculos[i], empleados[i % empleados.length],
+                    1500 + azar.nextInt(20) * 100));
+            }
+        }
+        return vehiculos;
+    }
+}
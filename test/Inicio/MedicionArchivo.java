@@ -0,0 +1,100 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import Dominio.ArchivoEstadias;
+import Dominio.Delta;
+import Dominio.Sistema;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Mide la memoria que ocupa el sistema cargado con estadías antiguas, sin archivar y después
+ * de pasarlas al archivo de estadías (ver ArchivoEstadias), sobre estadías generadas al azar.
+ * Graba en el directorio de trabajo, como el programa, por lo que debe ejecutarse en un
+ * directorio sin archivos de datos; al terminar elimina los que grabó.
+ * Uso: MedicionArchivo [estadías] [vehículos]
+ */
+public class MedicionArchivo {
+    public static void main(String[] args) throws Exception {
+        int cantidadEstadias = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int cantidadVehiculos = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        if (hayArchivosDeDatos()) {
+            System.err.println("El directorio de trabajo ya tiene archivos de datos (DATOS.*); ejecute la medición en un directorio vacío");
+            System.exit(1);
+        }
+        // Cada grabación es completa, para que archive las estadías
+        System.setProperty(Delta.PROPIEDAD_MAXIMO, "0");
+        System.setProperty(ArchivoEstadias.PROPIEDAD_DIAS, String.valueOf(ArchivoEstadias.DIAS_POR_DEFECTO));
+        try {
+            // Un año de estadías que terminó hace más de DIAS_POR_DEFECTO días
+            Sistema generado = DatosSinteticos.generarEstadias(cantidadVehiculos, cantidadEstadias,
+                LocalDate.now().minusYears(2), 365, new Random(2024));
+            // Un sistema nuevo no tiene archivo de estadías: esta grabación no archiva
+            generado.grabar(null);
+            generado.cerrarBitacora();
+            generado = null;
+
+            long base = memoriaUsada();
+            Sistema sinArchivar = cargarCompleto();
+            System.out.printf("Sin archivar: %.1f MB%n", (memoriaUsada() - base) / 1e6);
+            // Esta grabación pasa las estadías al archivo
+            sinArchivar.grabar(null);
+            sinArchivar.cerrarBitacora();
+            sinArchivar = null;
+
+            base = memoriaUsada();
+            Sistema archivado = cargarCompleto();
+            System.out.printf("Archivadas:   %.1f MB%n", (memoriaUsada() - base) / 1e6);
+            archivado.cerrarBitacora();
+        } finally {
+            eliminarArchivosDeDatos();
+        }
+    }
+
+    /**
+     * Carga el sistema del directorio de trabajo, con su historial y todas sus particiones de movimientos.
+     */
+    private static Sistema cargarCompleto() {
+        Sistema sistema = Sistema.cargarDatos();
+        if (sistema.getErrorCarga() != null) {
+            throw new IllegalStateException("No se pudieron cargar los datos", sistema.getErrorCarga());
+        }
+        // El historial completo, y los meses que la carga dejó sin leer (las estadísticas los leen)
+        sistema.completarHistorial();
+        sistema.getEstadiaMasLarga();
+        return sistema;
+    }
+
+    /**
+     * Memoria ocupada del heap después de recolectar la basura.
+     */
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static boolean hayArchivosDeDatos() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(Paths.get("."), "DATOS.*")) {
+            return archivos.iterator().hasNext();
+        }
+    }
+
+    private static void eliminarArchivosDeDatos() throws IOException {
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(Paths.get("."), "DATOS.*")) {
+            for (Path archivo : archivos) {
+                Files.delete(archivo);
+            }
+        }
+    }
+}
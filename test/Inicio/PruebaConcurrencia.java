@@ -0,0 +1,116 @@
+package Inicio;
+/**
+ *
+ * @author Natalia Peña
+ */
+
+import Dominio.Empleado;
+import Dominio.Entrada;
+import Dominio.Reporte;
+import Dominio.Salida;
+import Dominio.Servicio;
+import Dominio.Sistema;
+import Dominio.Vehiculo;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registra movimientos desde varios hilos (como las ventanas de las puertas) mientras otros
+ * hilos consultan los reportes, sobre un mes de movimientos generados al azar, y cuenta las
+ * excepciones que lanzan las consultas y los movimientos que no se pudieron registrar.
+ * Uso: PruebaConcurrencia [segundos] [hilos de puertas] [hilos de reportes]
+ */
+public class PruebaConcurrencia {
+    public static void main(String[] args) throws Exception {
+        int segundos = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int hilosPuertas = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int hilosReportes = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        LocalDate primerDia = LocalDate.of(2024, 1, 1);
+        Sistema sistema = DatosSinteticos.generar(400, primerDia, 30, new Random(2024));
+        List<Vehiculo> vehiculos = new ArrayList<>(sistema.getVehiculos());
+        List<Empleado> empleados = new ArrayList<>(sistema.getEmpleados());
+        // Los movimientos nuevos siguen a los generados, un minuto después del anterior
+        AtomicLong reloj = new AtomicLong(Reporte.toMinutoEpoch(primerDia.plusDays(30).atStartOfDay()));
+        long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+
+        AtomicLong movimientos = new AtomicLong();
+        AtomicLong consultas = new AtomicLong();
+        AtomicLong modificacionesConcurrentes = new AtomicLong();
+        AtomicLong otrosErrores = new AtomicLong();
+        AtomicLong erroresRegistro = new AtomicLong();
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < hilosPuertas; i++) {
+            // Cada puerta atiende sus propios vehículos, para que sus movimientos sean válidos
+            List<Vehiculo> propios = new ArrayList<>();
+            for (int j = i; j < vehiculos.size(); j += hilosPuertas) {
+                propios.add(vehiculos.get(j));
+            }
+            Random azar = new Random(i);
+            hilos.add(new Thread(() -> {
+                while (System.nanoTime() < fin) {
+                    Vehiculo vehiculo = propios.get(azar.nextInt(propios.size()));
+                    Empleado empleado = empleados.get(azar.nextInt(empleados.size()));
+                    long minuto = reloj.incrementAndGet();
+                    try {
+                        Entrada entrada = sistema.buscarEntradaPorMatricula(vehiculo.getMatricula());
+                        if (entrada == null) {
+                            sistema.registrarEntrada(new Entrada(vehiculo, empleado, minuto, "", vehiculo.getTieneContrato()));
+                        } else {
+                            sistema.registrarSalida(new Salida(entrada, empleado, minuto, "", vehiculo.getTieneContrato(),
+                                Reporte.formatDuracion(minuto - entrada.getMinutoEpoch())));
+                            if (azar.nextInt(10) == 0) {
+                                sistema.registrarServicio(new Servicio(Sistema.TIPOS_SERVICIOS[0], vehiculo, empleado, minuto, 300));
+                            }
+                        }
+                        movimientos.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        erroresRegistro.incrementAndGet();
+                    }
+                }
+            }, "puerta-" + (i + 1)));
+        }
+        for (int i = 0; i < hilosReportes; i++) {
+            Random azar = new Random(100 + i);
+            hilos.add(new Thread(() -> {
+                while (System.nanoTime() < fin) {
+                    try {
+                        consultar(sistema, vehiculos.get(azar.nextInt(vehiculos.size())), primerDia.plusDays(azar.nextInt(40)));
+                    } catch (ConcurrentModificationException e) {
+                        modificacionesConcurrentes.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        otrosErrores.incrementAndGet();
+                    }
+                    consultas.incrementAndGet();
+                }
+            }, "reportes-" + (i + 1)));
+        }
+        hilos.forEach(Thread::start);
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        System.out.printf("%d movimientos y %d consultas en %d s con %d hilos de puertas y %d de reportes%n",
+            movimientos.get(), consultas.get(), segundos, hilosPuertas, hilosReportes);
+        System.out.printf("Consultas con ConcurrentModificationException: %d%nConsultas con otras excepciones: %d%n"
+            + "Movimientos rechazados: %d%n", modificacionesConcurrentes.get(), otrosErrores.get(), erroresRegistro.get());
+    }
+
+    /**
+     * Consulta los reportes que recorren las colecciones del sistema.
+     */
+    private static void consultar(Sistema sistema, Vehiculo vehiculo, LocalDate dia) {
+        sistema.getHistorialMovimientos(vehiculo.getMatricula());
+        sistema.getMovimientosPorVehiculo(vehiculo);
+        sistema.getMovimientosIntervalo(dia, 1);
+        sistema.getServiciosMasUtilizados();
+        sistema.getEmpleadosConMenosMovimientos();
+        sistema.getEstadiasMasLargas(10);
+        sistema.getEntradasSinSalida();
+        sistema.vehiculosSinEntradaActual();
+    }
+}